@@ -0,0 +1,161 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+
+/**
+ * Class represents capacity of a pipeline that is reserved for one request before the request is actually handed over.
+ * Permits are acquired through {@link WorkloadManagerImpl#tryAcquire(com.anaptecs.jeaf.workload.api.RequestType)} or
+ * {@link Pipeline#tryAcquire(RequestTypeKey)}. This way callers can find out if a pipeline is overloaded before they do
+ * expensive work like parsing the body of a request or authentication.
+ *
+ * A permit can only be used once. Handing over a request with the permit consumes it. Permits that are not used are
+ * either released explicitly or expire after {@link ExtendedPipelineConfig#admissionPermitTimeout()}. In both cases the
+ * reserved capacity is available again for other requests.
+ *
+ * @author JEAF Development Team
+ */
+public final class AdmissionPermit {
+  /**
+   * State of a permit that still reserves capacity of its pipeline.
+   */
+  private static final int RESERVED = 0;
+
+  /**
+   * State of a permit that was used to hand over a request.
+   */
+  private static final int USED = 1;
+
+  /**
+   * State of a permit that was released or expired without being used.
+   */
+  private static final int RELEASED = 2;
+
+  /**
+   * Pipeline whose capacity is reserved by this permit.
+   */
+  private final Pipeline pipeline;
+
+  /**
+   * Request type for which the permit was acquired.
+   */
+  private final RequestTypeKey requestTypeKey;
+
+  /**
+   * Current state of the permit.
+   */
+  private final AtomicInteger state = new AtomicInteger(RESERVED);
+
+  /**
+   * Timeout that is used to expire the permit. The attribute is null if the permit does not expire.
+   */
+  private volatile TimingWheel.Timeout expiryTimeout;
+
+  /**
+   * Initialize object.
+   *
+   * @param pPipeline Pipeline whose capacity is reserved by this permit. The parameter must not be null.
+   * @param pRequestTypeKey Request type for which the permit was acquired. The parameter must not be null.
+   */
+  AdmissionPermit( Pipeline pPipeline, RequestTypeKey pRequestTypeKey ) {
+    pipeline = pPipeline;
+    requestTypeKey = pRequestTypeKey;
+  }
+
+  /**
+   * Method registers this permit for expiry.
+   *
+   * @param pTimeout Time after which the permit expires. Values of 0 or less mean that the permit does not expire.
+   * @param pTimeUnit Time unit of the timeout. The parameter must not be null.
+   */
+  void scheduleExpiry( long pTimeout, TimeUnit pTimeUnit ) {
+    if (pTimeout > 0) {
+      expiryTimeout = TimingWheel.getSharedTimingWheel().schedule(new Runnable() {
+        @Override
+        public void run( ) {
+          AdmissionPermit.this.expire();
+        }
+      }, pTimeout, pTimeUnit);
+    }
+  }
+
+  /**
+   * Method returns the pipeline whose capacity is reserved by this permit.
+   *
+   * @return {@link Pipeline} Pipeline of this permit. The method never returns null.
+   */
+  Pipeline getPipeline( ) {
+    return pipeline;
+  }
+
+  /**
+   * Method returns the request type for which the permit was acquired.
+   *
+   * @return {@link RequestTypeKey} Request type of the permit. The method never returns null.
+   */
+  public RequestTypeKey getRequestTypeKey( ) {
+    return requestTypeKey;
+  }
+
+  /**
+   * Method checks if this permit still reserves capacity and can be used to hand over a request.
+   *
+   * @return boolean Method returns true if the permit can still be used and false if it was already used, released or
+   * if it expired.
+   */
+  public boolean isValid( ) {
+    return state.get() == RESERVED;
+  }
+
+  /**
+   * Method releases the capacity that is reserved by this permit without handing over a request, e.g. because the
+   * caller detected that the request is invalid. Releasing a permit that is no longer valid has no effect.
+   */
+  public void release( ) {
+    if (state.compareAndSet(RESERVED, RELEASED)) {
+      this.cancelExpiry();
+      pipeline.releasePermit(false);
+    }
+  }
+
+  /**
+   * Method marks this permit as used. The capacity that is reserved by the permit has to be released by the pipeline
+   * as soon as the request was handed over.
+   *
+   * @return boolean Method returns true if the permit was valid and false if it was already used, released or if it
+   * expired.
+   */
+  boolean use( ) {
+    boolean lUsed = state.compareAndSet(RESERVED, USED);
+    if (lUsed) {
+      this.cancelExpiry();
+    }
+    return lUsed;
+  }
+
+  /**
+   * Method expires this permit if it was not used in time.
+   */
+  private void expire( ) {
+    if (state.compareAndSet(RESERVED, RELEASED)) {
+      pipeline.releasePermit(true);
+    }
+  }
+
+  /**
+   * Method cancels the expiry of this permit.
+   */
+  private void cancelExpiry( ) {
+    TimingWheel.Timeout lTimeout = expiryTimeout;
+    if (lTimeout != null) {
+      lTimeout.cancel();
+    }
+  }
+}
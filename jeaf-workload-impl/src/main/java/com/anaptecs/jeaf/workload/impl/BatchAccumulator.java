@@ -0,0 +1,415 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.workload.api.WorkloadErrorHandler;
+import com.anaptecs.jeaf.workload.api.WorkloadMessages;
+import com.anaptecs.jeaf.workload.api.WorkloadSystemException;
+import com.anaptecs.jeaf.xfun.api.XFun;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class collects all requests of one request type that should be executed in batches by a {@link BatchHandler}. A batch
+ * is handed over to the pipeline as soon as the maximum batch size is reached or the maximum linger time of the first
+ * request of the batch is over. As long as a batch waits for a worker thread further requests are added to it. Each
+ * batch is executed by one single worker thread of the pipeline.
+ *
+ * @author JEAF Development Team
+ */
+class BatchAccumulator<T> {
+  /**
+   * Request type of all requests that are collected.
+   */
+  private final RequestTypeKey requestTypeKey;
+
+  /**
+   * Handler that executes the batches.
+   */
+  private final BatchHandler<T> batchHandler;
+
+  /**
+   * Pipeline that executes the batches.
+   */
+  private final Pipeline pipeline;
+
+  /**
+   * Statistics of the request type.
+   */
+  private final RequestTypeStatistics statistics;
+
+  /**
+   * Maximum amount of requests per batch.
+   */
+  private final int maxBatchSize;
+
+  /**
+   * Maximum time in nano seconds that the first request of a batch waits for further requests.
+   */
+  private final long maxNanoLinger;
+
+  /**
+   * Maximum amount of requests that may be pending at the same time.
+   */
+  private final int maxPendingRequests;
+
+  /**
+   * Queue with all pending requests.
+   */
+  private final Queue<BatchEntry<T>> pendingRequests = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Amount of pending requests. The counter is maintained separately as the size of the queue can not be determined
+   * with constant costs.
+   */
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  /**
+   * Attribute indicates if a batch was already handed over to the pipeline and is waiting for execution.
+   */
+  private final AtomicBoolean batchScheduled = new AtomicBoolean(false);
+
+  /**
+   * Attribute indicates if the accumulator is currently waiting for the linger time to be over.
+   */
+  private final AtomicBoolean lingering = new AtomicBoolean(false);
+
+  /**
+   * Initialize object.
+   *
+   * @param pRequestTypeKey Request type of all requests that are collected. The parameter must not be null.
+   * @param pBatchHandler Handler that executes the batches. The parameter must not be null.
+   * @param pPipeline Pipeline that executes the batches. The parameter must not be null.
+   * @param pStatistics Statistics of the request type. The parameter must not be null.
+   * @param pMaxBatchSize Maximum amount of requests per batch. Values less than 1 are treated as 1.
+   * @param pMaxLinger Maximum time that the first request of a batch waits for further requests. Values of 0 or less
+   * mean that the batch is handed over to the pipeline immediately.
+   * @param pMaxQueueDepth Maximum amount of batches that may be pending.
+   * @param pTimeUnit Time unit of the linger time. The parameter must not be null.
+   */
+  BatchAccumulator( RequestTypeKey pRequestTypeKey, BatchHandler<T> pBatchHandler, Pipeline pPipeline,
+      RequestTypeStatistics pStatistics, int pMaxBatchSize, long pMaxLinger, int pMaxQueueDepth,
+      TimeUnit pTimeUnit ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pRequestTypeKey, "pRequestTypeKey");
+    Check.checkInvalidParameterNull(pBatchHandler, "pBatchHandler");
+    Check.checkInvalidParameterNull(pPipeline, "pPipeline");
+    Check.checkInvalidParameterNull(pStatistics, "pStatistics");
+    Check.checkInvalidParameterNull(pTimeUnit, "pTimeUnit");
+
+    requestTypeKey = pRequestTypeKey;
+    batchHandler = pBatchHandler;
+    pipeline = pPipeline;
+    statistics = pStatistics;
+    maxBatchSize = Math.max(1, pMaxBatchSize);
+    maxNanoLinger = pTimeUnit.toNanos(pMaxLinger);
+    maxPendingRequests = maxBatchSize * Math.max(1, pMaxQueueDepth);
+  }
+
+  /**
+   * Method returns the amount of requests that are pending and not yet taken into a batch.
+   *
+   * @return int Amount of pending requests.
+   */
+  int getPendingCount( ) {
+    return Math.max(0, pendingCount.get());
+  }
+
+  /**
+   * Method adds the passed request to the current batch.
+   *
+   * @param pRequest Request that should be executed as part of a batch. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to report problems with the request. The parameter must not
+   * be null.
+   * @return {@link CompletableFuture} Future that is completed as soon as the request was processed. The method never
+   * returns null.
+   */
+  CompletableFuture<Void> add( T pRequest, WorkloadErrorHandler pErrorHandler ) {
+    BatchEntry<T> lEntry = new BatchEntry<>(requestTypeKey, pRequest, pErrorHandler);
+    pipeline.recordSubmitted(statistics);
+
+    // Reject request if too many requests are already pending.
+    int lPendingCount = pendingCount.incrementAndGet();
+    if (lPendingCount > maxPendingRequests) {
+      pendingCount.decrementAndGet();
+      this.rejectEntry(lEntry, new RejectedExecutionException("Too many pending batch requests of request type '"
+          + requestTypeKey.getKey() + "'. Maximum is " + maxPendingRequests + "."));
+    }
+    else {
+      pendingRequests.add(lEntry);
+      this.scheduleBatch(lPendingCount);
+    }
+    return lEntry.getFuture();
+  }
+
+  /**
+   * Method rejects the passed request without adding it to a batch, e.g. as the pipeline is shut down.
+   *
+   * @param pRequest Request that is rejected. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to report the rejection. The parameter must not be null.
+   * @param pException Exception describing the reason of the rejection. The parameter must not be null.
+   * @return {@link CompletableFuture} Future that is already completed exceptionally. The method never returns null.
+   */
+  CompletableFuture<Void> reject( T pRequest, WorkloadErrorHandler pErrorHandler,
+      RejectedExecutionException pException ) {
+    BatchEntry<T> lEntry = new BatchEntry<>(requestTypeKey, pRequest, pErrorHandler);
+    pipeline.recordSubmitted(statistics);
+    this.rejectEntry(lEntry, pException);
+    return lEntry.getFuture();
+  }
+
+  /**
+   * Method rejects the passed entry and updates all counters.
+   *
+   * @param pEntry Entry that is rejected. The parameter must not be null.
+   * @param pException Exception describing the reason of the rejection. The parameter must not be null.
+   */
+  private void rejectEntry( BatchEntry<T> pEntry, Exception pException ) {
+    pipeline.incrementRejectionCounter(requestTypeKey);
+    statistics.recordRejected();
+    RequestRejectedEvent.emit(pipeline, requestTypeKey, pException);
+    pEntry.reject(pException);
+  }
+
+  /**
+   * Method ensures that the pending requests will be handed over to the pipeline.
+   *
+   * @param pPendingCount Current amount of pending requests.
+   */
+  private void scheduleBatch( int pPendingCount ) {
+    // Batch is full or requests should not linger at all.
+    if (pPendingCount >= maxBatchSize || maxNanoLinger <= 0) {
+      this.submitBatch();
+    }
+    // Wait for further requests.
+    else if (lingering.compareAndSet(false, true)) {
+      final TimingWheel lTimingWheel = TimingWheel.getSharedTimingWheel();
+      lTimingWheel.schedule(new Runnable() {
+        @Override
+        public void run( ) {
+          lingering.set(false);
+          // Submitting the batch may call error handlers and complete futures. This must not be done by the thread of
+          // the timing wheel.
+          lTimingWheel.executeCallback(new Runnable() {
+            @Override
+            public void run( ) {
+              BatchAccumulator.this.submitBatch();
+            }
+          });
+        }
+      }, maxNanoLinger, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Method hands over a new batch to the pipeline unless there is already one waiting for its execution.
+   */
+  private void submitBatch( ) {
+    if (batchScheduled.compareAndSet(false, true)) {
+      BatchExecution lExecution = new BatchExecution();
+      pipeline.executeCommand(requestTypeKey, lExecution, lExecution, null);
+    }
+  }
+
+  /**
+   * Method takes the next batch from the pending requests. Requests that already exceeded their maximum latency are
+   * reported and not added to the batch.
+   *
+   * @return {@link List} Next batch. The method never returns null but the batch may be empty.
+   */
+  private List<BatchEntry<T>> nextBatch( ) {
+    List<BatchEntry<T>> lBatch = new ArrayList<>(Math.min(maxBatchSize, pendingCount.get()));
+    long lMaxNanoLatency = pipeline.getMaxNanoLatency(requestTypeKey);
+    long lNow = System.nanoTime();
+    while (lBatch.size() < maxBatchSize) {
+      BatchEntry<T> lEntry = pendingRequests.poll();
+      if (lEntry == null) {
+        break;
+      }
+      pendingCount.decrementAndGet();
+
+      // Check maximum latency of request.
+      long lRealLatency = lNow - lEntry.getStartNanos();
+      if (this.isLatencyExceeded(lRealLatency, lMaxNanoLatency)) {
+        this.expireEntry(lEntry, lRealLatency, lMaxNanoLatency);
+      }
+      else {
+        lBatch.add(lEntry);
+      }
+    }
+    return lBatch;
+  }
+
+  /**
+   * Method reports all pending requests that already exceeded their maximum latency. Requests are pending in the order
+   * in which they were added, so only the oldest ones have to be checked. Requests whose latency is not yet exceeded
+   * remain pending.
+   */
+  private void expireOverdueRequests( ) {
+    long lMaxNanoLatency = pipeline.getMaxNanoLatency(requestTypeKey);
+    long lNow = System.nanoTime();
+    BatchEntry<T> lEntry = pendingRequests.peek();
+    while (lEntry != null && this.isLatencyExceeded(lNow - lEntry.getStartNanos(), lMaxNanoLatency)) {
+      // Entry may have been taken concurrently by another batch.
+      if (pendingRequests.remove(lEntry)) {
+        pendingCount.decrementAndGet();
+        this.expireEntry(lEntry, lNow - lEntry.getStartNanos(), lMaxNanoLatency);
+      }
+      lEntry = pendingRequests.peek();
+    }
+  }
+
+  /**
+   * Method rejects all pending requests.
+   *
+   * @param pException Exception describing the reason of the rejection. The parameter must not be null.
+   */
+  private void rejectPendingRequests( Exception pException ) {
+    BatchEntry<T> lEntry = pendingRequests.poll();
+    while (lEntry != null) {
+      pendingCount.decrementAndGet();
+      this.rejectEntry(lEntry, pException);
+      lEntry = pendingRequests.poll();
+    }
+  }
+
+  /**
+   * Method checks if the passed latency exceeds the maximum latency of the requests.
+   *
+   * @param pRealLatency Latency of a request in nano seconds.
+   * @param pMaxNanoLatency Maximum latency in nano seconds. Values of 0 or less mean that the latency is not checked.
+   * @return boolean Method returns true if the maximum latency is exceeded and false otherwise.
+   */
+  private boolean isLatencyExceeded( long pRealLatency, long pMaxNanoLatency ) {
+    return pMaxNanoLatency > 0 && pRealLatency > pMaxNanoLatency;
+  }
+
+  /**
+   * Method reports that the passed entry exceeded its maximum latency and updates all counters.
+   *
+   * @param pEntry Entry that exceeded its maximum latency. The parameter must not be null.
+   * @param pRealLatency Latency of the request in nano seconds.
+   * @param pMaxNanoLatency Maximum latency in nano seconds that was exceeded.
+   */
+  private void expireEntry( BatchEntry<T> pEntry, long pRealLatency, long pMaxNanoLatency ) {
+    long lDifference = TimeUnit.NANOSECONDS.toMillis(pRealLatency - pMaxNanoLatency);
+    pipeline.incrementMaxLatencyExceededCounter();
+    statistics.recordMaxLatencyExceeded();
+    MaxLatencyExceededEvent.emit(pipeline, requestTypeKey, pRealLatency, pMaxNanoLatency);
+    pEntry.expire(new WorkloadSystemException(WorkloadMessages.REJECTING_REQUEST_DUE_TO_LATENCY_LIMIT,
+        requestTypeKey.getKey(), Long.toString(pRealLatency), Long.toString(pMaxNanoLatency),
+        Long.toString(lDifference)));
+  }
+
+  /**
+   * Method checks if there are still requests pending after a batch was taken and ensures that they will be handed
+   * over to the pipeline.
+   */
+  private void rescheduleRemainingRequests( ) {
+    int lPendingCount = pendingCount.get();
+    if (lPendingCount > 0) {
+      this.scheduleBatch(lPendingCount);
+    }
+  }
+
+  /**
+   * Class represents the execution of one batch by a worker thread of the pipeline. The batch is taken from the pending
+   * requests as late as possible so that all requests that arrive while waiting for a worker thread become part of it.
+   */
+  private final class BatchExecution implements Runnable, ExtendedWorkloadErrorHandler {
+    /**
+     * Batch that is currently executed. The attribute is only set during execution.
+     */
+    private volatile List<BatchEntry<T>> batch = Collections.emptyList();
+
+    @Override
+    public void run( ) {
+      batchScheduled.set(false);
+      List<BatchEntry<T>> lBatch = BatchAccumulator.this.nextBatch();
+      batch = lBatch;
+      statistics.recordExecuted(lBatch.size());
+      long lExecutionStart = System.nanoTime();
+      try {
+        if (lBatch.isEmpty() == false) {
+          batchHandler.executeBatch(requestTypeKey, Collections.unmodifiableList(lBatch));
+          for (BatchEntry<T> lNextEntry : lBatch) {
+            lNextEntry.complete();
+          }
+        }
+      }
+      catch (Exception e) {
+        for (BatchEntry<T> lNextEntry : lBatch) {
+          lNextEntry.fail(e);
+        }
+      }
+      // Errors are passed on but the requests of the batch must not remain incomplete.
+      catch (Error e) {
+        ExecutionException lException = new ExecutionException(
+            "Batch handler of request type '" + requestTypeKey.getKey() + "' failed with an error.", e);
+        for (BatchEntry<T> lNextEntry : lBatch) {
+          lNextEntry.fail(lException);
+        }
+        throw e;
+      }
+      finally {
+        // All requests of the batch share the same service time.
+        long lServiceTime = System.nanoTime() - lExecutionStart;
+        int lFailed = 0;
+        for (BatchEntry<T> lNextEntry : lBatch) {
+          pipeline.recordLatencies(statistics, lExecutionStart - lNextEntry.getStartNanos(), lServiceTime);
+          if (lNextEntry.getFuture().isCompletedExceptionally()) {
+            lFailed++;
+          }
+        }
+        statistics.recordFailed(lFailed);
+        BatchAccumulator.this.rescheduleRemainingRequests();
+      }
+    }
+
+    @Override
+    public void requestRejected( RequestTypeKey pRequestTypeKey, Exception pException ) {
+      // Pipeline does not accept batches at the moment. So all pending requests are rejected and counted the same way
+      // as requests that are rejected when they are added.
+      batchScheduled.set(false);
+      BatchAccumulator.this.rejectPendingRequests(pException);
+    }
+
+    @Override
+    public void maximumLatencyExceeded( RequestTypeKey pRequestTypeKey, Exception pException ) {
+      // Batch waited too long for a worker thread. Only requests that exceeded their own maximum latency are reported.
+      // All others are handed over with the next batch.
+      batchScheduled.set(false);
+      BatchAccumulator.this.expireOverdueRequests();
+      BatchAccumulator.this.rescheduleRemainingRequests();
+    }
+
+    @Override
+    public void maximumExecutionTimeExceeded( RequestTypeKey pRequestTypeKey, Exception pException ) {
+      for (BatchEntry<T> lNextEntry : batch) {
+        if (lNextEntry.isDone() == false) {
+          lNextEntry.fail(pException);
+        }
+      }
+    }
+
+    @Override
+    public void requestFailed( RequestTypeKey pRequestTypeKey, Exception pException ) {
+      XFun.getTrace().error(pException.getMessage(), pException);
+    }
+  }
+}
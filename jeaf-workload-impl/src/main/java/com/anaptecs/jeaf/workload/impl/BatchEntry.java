@@ -0,0 +1,149 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.workload.api.WorkloadErrorHandler;
+import com.anaptecs.jeaf.xfun.api.XFun;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class represents a single request within a batch that is executed by a {@link BatchHandler}.
+ *
+ * @author JEAF Development Team
+ */
+public final class BatchEntry<T> {
+  /**
+   * Request type of the request.
+   */
+  private final RequestTypeKey requestTypeKey;
+
+  /**
+   * Request that should be processed as part of the batch.
+   */
+  private final T request;
+
+  /**
+   * Error handler that is used to report problems with the request.
+   */
+  private final WorkloadErrorHandler errorHandler;
+
+  /**
+   * Nano time when the request was handed over to the pipeline.
+   */
+  private final long startNanos;
+
+  /**
+   * Future that will be completed as soon as the request is processed.
+   */
+  private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+  /**
+   * Initialize object.
+   *
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pRequest Request that should be processed. The parameter must not be null.
+   * @param pErrorHandler Error handler that is used to report problems with the request. The parameter must not be
+   * null.
+   */
+  BatchEntry( RequestTypeKey pRequestTypeKey, T pRequest, WorkloadErrorHandler pErrorHandler ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pRequestTypeKey, "pRequestTypeKey");
+    Check.checkInvalidParameterNull(pRequest, "pRequest");
+    Check.checkInvalidParameterNull(pErrorHandler, "pErrorHandler");
+
+    requestTypeKey = pRequestTypeKey;
+    request = pRequest;
+    errorHandler = pErrorHandler;
+    startNanos = System.nanoTime();
+  }
+
+  /**
+   * Method returns the request that should be processed.
+   *
+   * @return T Request that should be processed. The method never returns null.
+   */
+  public T getRequest( ) {
+    return request;
+  }
+
+  /**
+   * Method marks the request as successfully completed.
+   */
+  public void complete( ) {
+    future.complete(null);
+  }
+
+  /**
+   * Method marks the request as failed. The problem will be reported to the error handler of the request.
+   *
+   * @param pException Exception describing the problem. The parameter must not be null.
+   */
+  public void fail( Exception pException ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pException, "pException");
+
+    if (future.completeExceptionally(pException)) {
+      if (errorHandler instanceof ExtendedWorkloadErrorHandler) {
+        ((ExtendedWorkloadErrorHandler) errorHandler).requestFailed(requestTypeKey, pException);
+      }
+      else {
+        XFun.getTrace().error(pException.getMessage(), pException);
+      }
+    }
+  }
+
+  /**
+   * Method checks if the request is already completed or failed.
+   *
+   * @return boolean Method returns true if the request is done and false otherwise.
+   */
+  public boolean isDone( ) {
+    return future.isDone();
+  }
+
+  /**
+   * Method returns the future that is completed as soon as the request is processed.
+   *
+   * @return {@link CompletableFuture} Future of the request. The method never returns null.
+   */
+  CompletableFuture<Void> getFuture( ) {
+    return future;
+  }
+
+  /**
+   * Method returns the nano time when the request was handed over to the pipeline.
+   *
+   * @return long Nano time when the request was handed over to the pipeline.
+   */
+  long getStartNanos( ) {
+    return startNanos;
+  }
+
+  /**
+   * Method reports that the request was rejected.
+   *
+   * @param pException Exception describing the problem. The parameter must not be null.
+   */
+  void reject( Exception pException ) {
+    if (future.completeExceptionally(pException)) {
+      errorHandler.requestRejected(requestTypeKey, pException);
+    }
+  }
+
+  /**
+   * Method reports that the request exceeded its maximum latency.
+   *
+   * @param pException Exception describing the problem. The parameter must not be null.
+   */
+  void expire( Exception pException ) {
+    if (future.completeExceptionally(pException)) {
+      errorHandler.maximumLatencyExceeded(requestTypeKey, pException);
+    }
+  }
+}
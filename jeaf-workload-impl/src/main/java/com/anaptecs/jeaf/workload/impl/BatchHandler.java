@@ -0,0 +1,31 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.List;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+
+/**
+ * Interface has to be implemented by all handlers that are able to process several requests of the same request type
+ * at once (micro batching). Batch handlers are registered per request type in a pipeline. The pipeline then collects
+ * all requests of this type and hands them over to the handler in batches.
+ *
+ * @author JEAF Development Team
+ */
+public interface BatchHandler<T> {
+  /**
+   * Method executes the passed batch of requests. Implementations can mark single entries of the batch as completed or
+   * failed. All entries that are not explicitly marked when the method returns are treated as completed. If the method
+   * throws an exception then all entries that are not explicitly marked are treated as failed.
+   *
+   * @param pRequestTypeKey Request type of all requests of the batch. The parameter is never null.
+   * @param pBatch Batch with all requests that should be executed. The parameter is never null and contains at least
+   * one entry.
+   * @throws Exception in case that the execution of the batch failed.
+   */
+  void executeBatch( RequestTypeKey pRequestTypeKey, List<BatchEntry<T>> pBatch ) throws Exception;
+}
@@ -0,0 +1,371 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.anaptecs.jeaf.workload.annotations.QueueType;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class recommends thread pool and queue settings for pipelines based on their observed load. Each pipeline is modeled
+ * as M/M/c queue: arrival rate and peak arrival rate are taken from the submission rates of the last 60 seconds, which
+ * also contain rejected requests, and the mean service time from the requests that were completed within the same 60
+ * seconds.
+ *
+ * The recommended amount of core threads is the smallest amount that keeps the utilization below the target
+ * utilization and, if the pipeline has a maximum latency, keeps the probability that a request waits longer than the
+ * maximum latency below {@link #MAX_LATENCY_VIOLATION_PROBABILITY}. The waiting time is estimated with the Erlang C
+ * formula. The maximum amount of threads is calculated the same way for the peak arrival rate. The maximum queue depth
+ * is the amount of requests that can be worked off by the core threads within the maximum latency, as queuing more
+ * requests would only lead to requests that exceed their maximum latency anyway. Pipelines without maximum latency keep
+ * their queue depth.
+ *
+ * Recommendations are available as objects, through JMX and as YAML snippet that can be used in the YAML configuration
+ * of the pipelines. Pipelines that did not handle any requests yet keep their current settings. As only pipelines that
+ * are defined in the YAML configuration can be changed there, recommendations for all other pipelines are only added
+ * as comments to the YAML snippet.
+ *
+ * @author JEAF Development Team
+ */
+public class CapacityAdvisor implements CapacityAdvisorMBean {
+  /**
+   * Utilization of the core threads that is targeted if nothing else is defined.
+   */
+  public static final double DEFAULT_TARGET_UTILIZATION = 0.8;
+
+  /**
+   * Maximum probability that a request waits longer than the maximum latency of its pipeline.
+   */
+  public static final double MAX_LATENCY_VIOLATION_PROBABILITY = 0.01;
+
+  /**
+   * Highest amount of threads that is recommended for a pipeline.
+   */
+  public static final int MAX_RECOMMENDED_THREADS = 1000;
+
+  /**
+   * All pipelines for which settings are recommended with their ID as key. The map is owned by the workload manager.
+   */
+  private final Map<String, Pipeline> pipelines;
+
+  /**
+   * Utilization of the core threads that is targeted.
+   */
+  private volatile double targetUtilization = DEFAULT_TARGET_UTILIZATION;
+
+  /**
+   * IDs of all pipelines that are defined in the YAML configuration.
+   */
+  private volatile Set<String> yamlPipelines = Collections.emptySet();
+
+  /**
+   * Initialize object.
+   *
+   * @param pPipelines All pipelines for which settings are recommended with their ID as key. The map is not copied. The
+   * parameter must not be null.
+   */
+  public CapacityAdvisor( Map<String, Pipeline> pPipelines ) {
+    Check.checkInvalidParameterNull(pPipelines, "pPipelines");
+    pipelines = pPipelines;
+  }
+
+  @Override
+  public double getTargetUtilization( ) {
+    return targetUtilization;
+  }
+
+  /**
+   * Method sets the utilization of the core threads that is targeted.
+   *
+   * @param pTargetUtilization Target utilization. The value must be greater than 0 and less than 1.
+   */
+  @Override
+  public void setTargetUtilization( double pTargetUtilization ) {
+    if (pTargetUtilization <= 0 || pTargetUtilization >= 1) {
+      throw new IllegalArgumentException(
+          "Target utilization must be greater than 0 and less than 1. Utilization: " + pTargetUtilization);
+    }
+    targetUtilization = pTargetUtilization;
+  }
+
+  /**
+   * Method defines the pipelines that are defined in the YAML configuration. Only their recommendations are part of the
+   * YAML snippet as settings.
+   *
+   * @param pPipelineIDs IDs of all pipelines from the YAML configuration. The set is copied. The parameter must not be
+   * null.
+   */
+  public void setYAMLPipelines( Set<String> pPipelineIDs ) {
+    Check.checkInvalidParameterNull(pPipelineIDs, "pPipelineIDs");
+    yamlPipelines = Collections.unmodifiableSet(new HashSet<>(pPipelineIDs));
+  }
+
+  /**
+   * Method returns the recommendations for all pipelines that are not shut down.
+   *
+   * @return {@link List} Recommendations ordered by the ID of the pipeline. The method never returns null.
+   */
+  public List<CapacityRecommendation> recommend( ) {
+    List<Pipeline> lPipelines = new ArrayList<>();
+    for (Pipeline lNextPipeline : pipelines.values()) {
+      if (lNextPipeline.isShutdown() == false) {
+        lPipelines.add(lNextPipeline);
+      }
+    }
+    Collections.sort(lPipelines, new Comparator<Pipeline>() {
+      @Override
+      public int compare( Pipeline pPipeline1, Pipeline pPipeline2 ) {
+        return pPipeline1.getPipelineID().compareTo(pPipeline2.getPipelineID());
+      }
+    });
+    List<CapacityRecommendation> lRecommendations = new ArrayList<>(lPipelines.size());
+    for (Pipeline lNextPipeline : lPipelines) {
+      lRecommendations.add(this.recommend(lNextPipeline));
+    }
+    return lRecommendations;
+  }
+
+  /**
+   * Method returns the recommendation for the passed pipeline.
+   *
+   * @param pPipeline Pipeline for which settings should be recommended. The parameter must not be null.
+   * @return {@link CapacityRecommendation} Recommendation for the pipeline. The method never returns null.
+   */
+  public CapacityRecommendation recommend( Pipeline pPipeline ) {
+    // Check parameter.
+    Check.checkInvalidParameterNull(pPipeline, "pPipeline");
+
+    // Resolve observed load.
+    double lTargetUtilization = targetUtilization;
+    double lArrivalRate = pPipeline.getSubmissionRate60s();
+    long lPeakArrivalRate = pPipeline.getSubmissionPeakRate();
+    long lMeanServiceNanos = pPipeline.getMeanServiceNanos60s();
+    long lMaxNanoLatency = pPipeline.getMaxNanoLatency();
+    boolean lQueued = pPipeline.getQueueType() != QueueType.NOT_QUEUED;
+
+    CapacityRecommendation lRecommendation;
+    if (lArrivalRate > 0 && lMeanServiceNanos > 0) {
+      // Core threads have to handle the average load, maximum threads the peak load.
+      double lOfferedLoad = lArrivalRate * lMeanServiceNanos / TimeUnit.SECONDS.toNanos(1);
+      double lPeakOfferedLoad =
+          Math.max(lArrivalRate, lPeakArrivalRate) * lMeanServiceNanos / TimeUnit.SECONDS.toNanos(1);
+      int lCoreThreads = this.getRequiredThreads(lOfferedLoad, lMeanServiceNanos, lMaxNanoLatency, lTargetUtilization);
+      int lMaxThreads = Math.max(lCoreThreads,
+          this.getRequiredThreads(lPeakOfferedLoad, lMeanServiceNanos, lMaxNanoLatency, lTargetUtilization));
+
+      // Requests that can not be worked off within the maximum latency should rather be rejected right away.
+      int lMaxQueueDepth;
+      if (lQueued && lMaxNanoLatency > 0) {
+        lMaxQueueDepth =
+            (int) Math.max(1, Math.min(Integer.MAX_VALUE, lMaxNanoLatency * lCoreThreads / lMeanServiceNanos));
+      }
+      else {
+        lMaxQueueDepth = pPipeline.getMaxQueueDepth();
+      }
+
+      // Calculate expected behavior with the recommended core threads.
+      double lWaitProbability = erlangC(lCoreThreads, lOfferedLoad);
+      long lMeanQueueWaitNanos;
+      if (lOfferedLoad < lCoreThreads) {
+        lMeanQueueWaitNanos = Math.round(lWaitProbability * lMeanServiceNanos / (lCoreThreads - lOfferedLoad));
+      }
+      // Load exceeds even the highest amount of threads that is recommended.
+      else {
+        lMeanQueueWaitNanos = Long.MAX_VALUE;
+      }
+      double lViolationProbability;
+      if (lMaxNanoLatency > 0) {
+        lViolationProbability = getLatencyViolationProbability(lCoreThreads, lOfferedLoad, lMeanServiceNanos,
+            lMaxNanoLatency);
+      }
+      else {
+        lViolationProbability = 0;
+      }
+      lRecommendation = new CapacityRecommendation(pPipeline.getPipelineID(), true, lArrivalRate, lPeakArrivalRate,
+          lMeanServiceNanos, pPipeline.getRejectionRate60s(), pPipeline.getLatencyViolationRate60s(), lMaxNanoLatency,
+          lCoreThreads, lMaxThreads, lMaxQueueDepth, lOfferedLoad / lCoreThreads, lWaitProbability,
+          lMeanQueueWaitNanos, lViolationProbability);
+    }
+    // Without requests there is nothing to base a recommendation on.
+    else {
+      lRecommendation = new CapacityRecommendation(pPipeline.getPipelineID(), false, lArrivalRate, lPeakArrivalRate,
+          lMeanServiceNanos, pPipeline.getRejectionRate60s(), pPipeline.getLatencyViolationRate60s(), lMaxNanoLatency,
+          pPipeline.getCorePoolSize(), pPipeline.getMaximumPoolSize(), pPipeline.getMaxQueueDepth(), 0, 0, 0, 0);
+    }
+    return lRecommendation;
+  }
+
+  /**
+   * Method calculates the amount of threads that is required for the passed load.
+   *
+   * @param pOfferedLoad Offered load in Erlang.
+   * @param pMeanServiceNanos Mean service time in nano seconds. The value must be greater than 0.
+   * @param pMaxNanoLatency Maximum latency in nano seconds. Values of 0 or less mean that there is no maximum latency.
+   * @param pTargetUtilization Utilization that must not be exceeded.
+   * @return int Required amount of threads. The value is between 1 and {@link #MAX_RECOMMENDED_THREADS}.
+   */
+  private int getRequiredThreads( double pOfferedLoad, long pMeanServiceNanos, long pMaxNanoLatency,
+      double pTargetUtilization ) {
+    int lThreads = (int) Math.max(1, Math.min(MAX_RECOMMENDED_THREADS, Math.ceil(pOfferedLoad / pTargetUtilization)));
+    if (pMaxNanoLatency > 0) {
+      while (lThreads < MAX_RECOMMENDED_THREADS && getLatencyViolationProbability(lThreads, pOfferedLoad,
+          pMeanServiceNanos, pMaxNanoLatency) > MAX_LATENCY_VIOLATION_PROBABILITY) {
+        lThreads++;
+      }
+    }
+    return lThreads;
+  }
+
+  /**
+   * Method calculates the probability that a request of an M/M/c queue has to wait (Erlang C formula). The Erlang B
+   * formula is calculated iteratively first so that no factorials have to be calculated.
+   *
+   * @param pThreads Amount of threads.
+   * @param pOfferedLoad Offered load in Erlang.
+   * @return double Probability that a request has to wait. If the offered load is not less than the amount of threads
+   * then every request has to wait.
+   */
+  static double erlangC( int pThreads, double pOfferedLoad ) {
+    double lProbability;
+    if (pOfferedLoad < pThreads) {
+      double lErlangB = 1;
+      for (int i = 1; i <= pThreads; i++) {
+        lErlangB = pOfferedLoad * lErlangB / (i + pOfferedLoad * lErlangB);
+      }
+      lProbability = pThreads * lErlangB / (pThreads - pOfferedLoad * (1 - lErlangB));
+    }
+    else {
+      lProbability = 1;
+    }
+    return lProbability;
+  }
+
+  /**
+   * Method calculates the probability that a request of an M/M/c queue waits longer than the passed time.
+   *
+   * @param pThreads Amount of threads.
+   * @param pOfferedLoad Offered load in Erlang.
+   * @param pMeanServiceNanos Mean service time in nano seconds. The value must be greater than 0.
+   * @param pWaitNanos Waiting time in nano seconds.
+   * @return double Probability that a request waits longer than the passed time.
+   */
+  static double getLatencyViolationProbability( int pThreads, double pOfferedLoad, long pMeanServiceNanos,
+      long pWaitNanos ) {
+    double lProbability;
+    if (pOfferedLoad < pThreads) {
+      lProbability = erlangC(pThreads, pOfferedLoad)
+          * Math.exp(-(pThreads - pOfferedLoad) * pWaitNanos / (double) pMeanServiceNanos);
+    }
+    else {
+      lProbability = 1;
+    }
+    return lProbability;
+  }
+
+  /**
+   * Method returns the recommendations for all pipelines as text.
+   *
+   * @return {@link String} One line per pipeline. The method never returns null.
+   */
+  @Override
+  public String[] getRecommendations( ) {
+    List<CapacityRecommendation> lRecommendations = this.recommend();
+    String[] lLines = new String[lRecommendations.size()];
+    for (int i = 0; i < lLines.length; i++) {
+      lLines[i] = lRecommendations.get(i).toString();
+    }
+    return lLines;
+  }
+
+  /**
+   * Method returns the recommendations for all pipelines as YAML snippet in the format of the YAML configuration file.
+   * Observed load and expected behavior are added as comments. Pipelines that are not defined in the YAML configuration
+   * can not be changed there, so their recommendations are added as comments only.
+   *
+   * @return {@link String} YAML snippet with the recommended settings. The method never returns null.
+   */
+  @Override
+  public String recommendAsYAML( ) {
+    Set<String> lYAMLPipelines = yamlPipelines;
+    StringBuilder lSettings = new StringBuilder();
+    StringBuilder lOtherPipelines = new StringBuilder();
+    for (CapacityRecommendation lNext : this.recommend()) {
+      if (lYAMLPipelines.contains(lNext.getPipelineID())) {
+        this.appendYAML(lSettings, lNext, "");
+      }
+      else {
+        lOtherPipelines.append("# Pipeline '").append(lNext.getPipelineID())
+            .append("' is not defined in the YAML configuration and can not be changed there.")
+            .append(System.lineSeparator());
+        this.appendYAML(lOtherPipelines, lNext, "# ");
+      }
+    }
+
+    StringBuilder lBuilder = new StringBuilder();
+    lBuilder.append(String.format(Locale.ROOT, "# Recommended settings for a target utilization of %.2f%n",
+        targetUtilization));
+    if (lSettings.length() > 0) {
+      lBuilder.append("pipelines:").append(System.lineSeparator()).append(lSettings);
+    }
+    else {
+      lBuilder.append("pipelines: []").append(System.lineSeparator());
+    }
+    lBuilder.append(lOtherPipelines);
+    return lBuilder.toString();
+  }
+
+  /**
+   * Method appends the passed recommendation in the format of the YAML configuration file.
+   *
+   * @param pBuilder Builder to which the recommendation is appended. The parameter must not be null.
+   * @param pRecommendation Recommendation that should be appended. The parameter must not be null.
+   * @param pPrefix Prefix of every line. The parameter must not be null.
+   */
+  private void appendYAML( StringBuilder pBuilder, CapacityRecommendation pRecommendation, String pPrefix ) {
+    pBuilder.append(pPrefix).append("-   id: ").append(pRecommendation.getPipelineID()).append(System.lineSeparator());
+    if (pRecommendation.hasSufficientData()) {
+      pBuilder.append(pPrefix).append(String.format(Locale.ROOT,
+          "    # Observed: arrival rate %.2f/s, peak %d/s, mean service time %.3f ms, offered load %.2f Erlang%n",
+          pRecommendation.getArrivalRate(), pRecommendation.getPeakArrivalRate(),
+          pRecommendation.getMeanServiceNanos() / 1000000.0, pRecommendation.getOfferedLoad()));
+      pBuilder.append(pPrefix).append(String.format(Locale.ROOT,
+          "    # Observed: rejections %.2f/s, latency violations %.2f/s%n", pRecommendation.getRejectionRate(),
+          pRecommendation.getLatencyViolationRate()));
+
+      // Queue grows without limit if the load exceeds the recommended threads.
+      String lMeanQueueWait;
+      if (pRecommendation.getMeanQueueWaitNanos() == Long.MAX_VALUE) {
+        lMeanQueueWait = "unbounded";
+      }
+      else {
+        lMeanQueueWait = String.format(Locale.ROOT, "%.3f ms", pRecommendation.getMeanQueueWaitNanos() / 1000000.0);
+      }
+      pBuilder.append(pPrefix).append(String.format(Locale.ROOT,
+          "    # Expected: utilization %.2f, wait probability %.3f, mean queue wait %s, max latency exceeded %.4f%n",
+          pRecommendation.getUtilization(), pRecommendation.getWaitProbability(), lMeanQueueWait,
+          pRecommendation.getLatencyViolationProbability()));
+    }
+    else {
+      pBuilder.append(pPrefix).append("    # No requests observed yet. Current settings are kept.")
+          .append(System.lineSeparator());
+    }
+    pBuilder.append(pPrefix).append("    coreThreads: ").append(pRecommendation.getCoreThreads())
+        .append(System.lineSeparator());
+    pBuilder.append(pPrefix).append("    maxThreads: ").append(pRecommendation.getMaxThreads())
+        .append(System.lineSeparator());
+    pBuilder.append(pPrefix).append("    maxQueueDepth: ").append(pRecommendation.getMaxQueueDepth())
+        .append(System.lineSeparator());
+  }
+}
@@ -0,0 +1,16 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+public interface CapacityAdvisorMBean {
+  double getTargetUtilization( );
+
+  void setTargetUtilization( double pTargetUtilization );
+
+  String[] getRecommendations( );
+
+  String recommendAsYAML( );
+}
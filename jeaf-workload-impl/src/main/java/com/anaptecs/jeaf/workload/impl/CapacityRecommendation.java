@@ -0,0 +1,263 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.Locale;
+
+/**
+ * Class represents the settings that {@link CapacityAdvisor} recommends for one pipeline together with the observed
+ * load they are based on and the behavior that is expected with them. Instances are immutable.
+ *
+ * @author JEAF Development Team
+ */
+public final class CapacityRecommendation {
+  /**
+   * ID of the pipeline.
+   */
+  private final String pipelineID;
+
+  /**
+   * Flag indicates if enough requests were observed to base the recommendation on them. Otherwise the current settings
+   * of the pipeline are recommended.
+   */
+  private final boolean sufficientData;
+
+  /**
+   * Average amount of requests per second that were handed over to the pipeline including rejected ones.
+   */
+  private final double arrivalRate;
+
+  /**
+   * Highest amount of requests that were handed over to the pipeline within one second.
+   */
+  private final long peakArrivalRate;
+
+  /**
+   * Mean service time of the requests that were completed within the last 60 seconds in nano seconds.
+   */
+  private final long meanServiceNanos;
+
+  /**
+   * Average amount of requests per second that were rejected.
+   */
+  private final double rejectionRate;
+
+  /**
+   * Average amount of requests per second that exceeded their maximum latency or maximum execution time.
+   */
+  private final double latencyViolationRate;
+
+  /**
+   * Maximum latency of the pipeline in nano seconds that is used as latency SLO. Values of 0 or less mean that the
+   * pipeline does not have a latency SLO.
+   */
+  private final long maxNanoLatency;
+
+  private final int coreThreads;
+
+  private final int maxThreads;
+
+  private final int maxQueueDepth;
+
+  /**
+   * Expected utilization of the core threads.
+   */
+  private final double utilization;
+
+  /**
+   * Expected probability that a request has to wait in the queue.
+   */
+  private final double waitProbability;
+
+  /**
+   * Expected mean time in nano seconds that requests wait in the queue.
+   */
+  private final long meanQueueWaitNanos;
+
+  /**
+   * Expected probability that a request waits longer than the maximum latency.
+   */
+  private final double latencyViolationProbability;
+
+  /**
+   * Initialize object.
+   *
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @param pSufficientData Flag indicates if enough requests were observed.
+   * @param pArrivalRate Average amount of requests per second including rejected ones.
+   * @param pPeakArrivalRate Highest amount of requests within one second.
+   * @param pMeanServiceNanos Mean service time of the requests in nano seconds.
+   * @param pRejectionRate Average amount of rejected requests per second.
+   * @param pLatencyViolationRate Average amount of requests per second that exceeded their maximum latency.
+   * @param pMaxNanoLatency Latency SLO in nano seconds. Values of 0 or less mean that there is no SLO.
+   * @param pCoreThreads Recommended amount of core threads.
+   * @param pMaxThreads Recommended maximum amount of threads.
+   * @param pMaxQueueDepth Recommended maximum amount of queued requests.
+   * @param pUtilization Expected utilization of the core threads.
+   * @param pWaitProbability Expected probability that a request has to wait in the queue.
+   * @param pMeanQueueWaitNanos Expected mean queue wait time in nano seconds.
+   * @param pLatencyViolationProbability Expected probability that a request waits longer than the latency SLO.
+   */
+  CapacityRecommendation( String pPipelineID, boolean pSufficientData, double pArrivalRate, long pPeakArrivalRate,
+      long pMeanServiceNanos, double pRejectionRate, double pLatencyViolationRate, long pMaxNanoLatency,
+      int pCoreThreads, int pMaxThreads, int pMaxQueueDepth, double pUtilization, double pWaitProbability,
+      long pMeanQueueWaitNanos, double pLatencyViolationProbability ) {
+    pipelineID = pPipelineID;
+    sufficientData = pSufficientData;
+    arrivalRate = pArrivalRate;
+    peakArrivalRate = pPeakArrivalRate;
+    meanServiceNanos = pMeanServiceNanos;
+    rejectionRate = pRejectionRate;
+    latencyViolationRate = pLatencyViolationRate;
+    maxNanoLatency = pMaxNanoLatency;
+    coreThreads = pCoreThreads;
+    maxThreads = pMaxThreads;
+    maxQueueDepth = pMaxQueueDepth;
+    utilization = pUtilization;
+    waitProbability = pWaitProbability;
+    meanQueueWaitNanos = pMeanQueueWaitNanos;
+    latencyViolationProbability = pLatencyViolationProbability;
+  }
+
+  /**
+   * Method returns the ID of the pipeline.
+   *
+   * @return {@link String} ID of the pipeline. The method never returns null.
+   */
+  public String getPipelineID( ) {
+    return pipelineID;
+  }
+
+  /**
+   * Method checks if enough requests were observed to base the recommendation on them.
+   *
+   * @return boolean Method returns true if the recommendation is based on observed requests and false if the current
+   * settings of the pipeline are recommended due to missing data.
+   */
+  public boolean hasSufficientData( ) {
+    return sufficientData;
+  }
+
+  /**
+   * @return double Average amount of requests per second that were handed over to the pipeline including rejected ones.
+   */
+  public double getArrivalRate( ) {
+    return arrivalRate;
+  }
+
+  /**
+   * @return long Highest amount of requests that were handed over to the pipeline within one second.
+   */
+  public long getPeakArrivalRate( ) {
+    return peakArrivalRate;
+  }
+
+  /**
+   * @return long Mean service time of the requests that were completed within the last 60 seconds in nano seconds.
+   */
+  public long getMeanServiceNanos( ) {
+    return meanServiceNanos;
+  }
+
+  /**
+   * Method returns the offered load of the pipeline, which is the average amount of busy threads that is needed to
+   * handle all requests.
+   *
+   * @return double Offered load in Erlang.
+   */
+  public double getOfferedLoad( ) {
+    return arrivalRate * meanServiceNanos / 1000000000.0;
+  }
+
+  /**
+   * @return double Average amount of requests per second that were rejected.
+   */
+  public double getRejectionRate( ) {
+    return rejectionRate;
+  }
+
+  /**
+   * @return double Average amount of requests per second that exceeded their maximum latency.
+   */
+  public double getLatencyViolationRate( ) {
+    return latencyViolationRate;
+  }
+
+  /**
+   * @return long Latency SLO in nano seconds. Values of 0 or less mean that there is no SLO.
+   */
+  public long getMaxNanoLatency( ) {
+    return maxNanoLatency;
+  }
+
+  /**
+   * @return int Recommended amount of core threads.
+   */
+  public int getCoreThreads( ) {
+    return coreThreads;
+  }
+
+  /**
+   * @return int Recommended maximum amount of threads.
+   */
+  public int getMaxThreads( ) {
+    return maxThreads;
+  }
+
+  /**
+   * @return int Recommended maximum amount of queued requests.
+   */
+  public int getMaxQueueDepth( ) {
+    return maxQueueDepth;
+  }
+
+  /**
+   * @return double Expected utilization of the core threads.
+   */
+  public double getUtilization( ) {
+    return utilization;
+  }
+
+  /**
+   * @return double Expected probability that a request has to wait in the queue.
+   */
+  public double getWaitProbability( ) {
+    return waitProbability;
+  }
+
+  /**
+   * @return long Expected mean time in nano seconds that requests wait in the queue. {@link Long#MAX_VALUE} means that
+   * the queue grows without limit.
+   */
+  public long getMeanQueueWaitNanos( ) {
+    return meanQueueWaitNanos;
+  }
+
+  /**
+   * @return double Expected probability that a request waits longer than the latency SLO.
+   */
+  public double getLatencyViolationProbability( ) {
+    return latencyViolationProbability;
+  }
+
+  @Override
+  public String toString( ) {
+    StringBuilder lBuilder = new StringBuilder();
+    lBuilder.append("Pipeline '").append(pipelineID).append("': ");
+    lBuilder.append("coreThreads=").append(coreThreads);
+    lBuilder.append(", maxThreads=").append(maxThreads);
+    lBuilder.append(", maxQueueDepth=").append(maxQueueDepth);
+    if (sufficientData) {
+      lBuilder.append(String.format(Locale.ROOT,
+          " (arrival rate %.2f/s, peak %d/s, service time %.3f ms, utilization %.2f, wait probability %.3f)",
+          arrivalRate, peakArrivalRate, meanServiceNanos / 1000000.0, utilization, waitProbability));
+    }
+    else {
+      lBuilder.append(" (insufficient data, current settings)");
+    }
+    return lBuilder.toString();
+  }
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.workload.api.WorkloadErrorHandler;
+import com.anaptecs.jeaf.xfun.api.XFun;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class represents the execution of a request that is shared by all identical requests (single flight). Identical
+ * requests are identified by their request type and a coalescing key that is provided by the caller. As long as an
+ * execution is queued or running all identical requests are attached to it and share its result instead of being
+ * executed on their own.
+ *
+ * Problems during the execution like rejections or exceeded latencies are reported to the error handlers of all
+ * attached requests.
+ *
+ * @author JEAF Development Team
+ */
+class CoalescedExecution<T> implements Runnable, ExtendedWorkloadErrorHandler {
+  /**
+   * Key of the execution.
+   */
+  private final Key key;
+
+  /**
+   * Command that is executed on behalf of all attached requests.
+   */
+  private final Callable<T> command;
+
+  /**
+   * Map with all executions that are currently in flight. The execution removes itself from it as soon as it is done.
+   */
+  private final Map<Key, CoalescedExecution<?>> inflightExecutions;
+
+  /**
+   * Future that is shared by all attached requests.
+   */
+  private final CompletableFuture<T> future = new CompletableFuture<>();
+
+  /**
+   * Error handlers of all attached requests. Access to the list is synchronized on this object.
+   */
+  private final List<WorkloadErrorHandler> errorHandlers = new ArrayList<>();
+
+  /**
+   * Attribute indicates if the execution is done. Access to the attribute is synchronized on this object.
+   */
+  private boolean done;
+
+  /**
+   * Initialize object.
+   *
+   * @param pKey Key of the execution. The parameter must not be null.
+   * @param pCommand Command that should be executed. The parameter must not be null.
+   * @param pErrorHandler Error handler of the request that triggered the execution. The parameter must not be null.
+   * @param pInflightExecutions Map with all executions that are currently in flight. The parameter must not be null.
+   */
+  CoalescedExecution( Key pKey, Callable<T> pCommand, WorkloadErrorHandler pErrorHandler,
+      Map<Key, CoalescedExecution<?>> pInflightExecutions ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pKey, "pKey");
+    Check.checkInvalidParameterNull(pCommand, "pCommand");
+    Check.checkInvalidParameterNull(pErrorHandler, "pErrorHandler");
+    Check.checkInvalidParameterNull(pInflightExecutions, "pInflightExecutions");
+
+    key = pKey;
+    command = pCommand;
+    errorHandlers.add(pErrorHandler);
+    inflightExecutions = pInflightExecutions;
+  }
+
+  /**
+   * Method returns the future that will be completed with the result of the execution.
+   *
+   * @return {@link CompletableFuture} Future of the execution. The method never returns null.
+   */
+  CompletableFuture<T> getFuture( ) {
+    return future;
+  }
+
+  /**
+   * Method attaches another request to this execution.
+   *
+   * @param pErrorHandler Error handler of the request that should be attached. The parameter must not be null.
+   * @return boolean Method returns true if the request could be attached and false if the execution is already done.
+   */
+  synchronized boolean attach( WorkloadErrorHandler pErrorHandler ) {
+    boolean lAttached;
+    if (done == false) {
+      errorHandlers.add(pErrorHandler);
+      lAttached = true;
+    }
+    else {
+      lAttached = false;
+    }
+    return lAttached;
+  }
+
+  /**
+   * Method executes the command and shares its result with all attached requests.
+   */
+  @Override
+  public void run( ) {
+    try {
+      T lResult = command.call();
+      this.finish();
+      future.complete(lResult);
+    }
+    catch (Exception e) {
+      this.finish();
+      future.completeExceptionally(e);
+    }
+    catch (Error e) {
+      this.finish();
+      future.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void requestRejected( RequestTypeKey pRequestTypeKey, Exception pException ) {
+    for (WorkloadErrorHandler lNextHandler : this.finish()) {
+      lNextHandler.requestRejected(pRequestTypeKey, pException);
+    }
+    future.completeExceptionally(pException);
+  }
+
+  @Override
+  public void maximumLatencyExceeded( RequestTypeKey pRequestTypeKey, Exception pException ) {
+    for (WorkloadErrorHandler lNextHandler : this.finish()) {
+      lNextHandler.maximumLatencyExceeded(pRequestTypeKey, pException);
+    }
+    future.completeExceptionally(pException);
+  }
+
+  @Override
+  public void maximumExecutionTimeExceeded( RequestTypeKey pRequestTypeKey, Exception pException ) {
+    // Execution is still running. Thus the attached requests remain attached until the command returns.
+    List<WorkloadErrorHandler> lErrorHandlers;
+    synchronized (this) {
+      lErrorHandlers = new ArrayList<>(errorHandlers);
+    }
+    for (WorkloadErrorHandler lNextHandler : lErrorHandlers) {
+      if (lNextHandler instanceof ExtendedWorkloadErrorHandler) {
+        ((ExtendedWorkloadErrorHandler) lNextHandler).maximumExecutionTimeExceeded(pRequestTypeKey, pException);
+      }
+      else {
+        XFun.getTrace().error(pException.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void requestFailed( RequestTypeKey pRequestTypeKey, Exception pException ) {
+    List<WorkloadErrorHandler> lErrorHandlers;
+    synchronized (this) {
+      lErrorHandlers = new ArrayList<>(errorHandlers);
+    }
+    for (WorkloadErrorHandler lNextHandler : lErrorHandlers) {
+      if (lNextHandler instanceof ExtendedWorkloadErrorHandler) {
+        ((ExtendedWorkloadErrorHandler) lNextHandler).requestFailed(pRequestTypeKey, pException);
+      }
+      else {
+        XFun.getTrace().error(pException.getMessage(), pException);
+      }
+    }
+  }
+
+  /**
+   * Method marks the execution as done and removes it from the in flight executions. After that no further requests
+   * can be attached.
+   *
+   * @return {@link List} Error handlers of all requests that were attached to the execution. The method never returns
+   * null.
+   */
+  private List<WorkloadErrorHandler> finish( ) {
+    inflightExecutions.remove(key, this);
+    synchronized (this) {
+      done = true;
+      return new ArrayList<>(errorHandlers);
+    }
+  }
+
+  /**
+   * Class represents the key of a coalesced execution. It consists of the request type and the coalescing key that was
+   * provided by the caller.
+   */
+  static final class Key {
+    private final RequestTypeKey requestTypeKey;
+
+    private final Object coalescingKey;
+
+    Key( RequestTypeKey pRequestTypeKey, Object pCoalescingKey ) {
+      requestTypeKey = pRequestTypeKey;
+      coalescingKey = pCoalescingKey;
+    }
+
+    @Override
+    public int hashCode( ) {
+      return 31 * requestTypeKey.hashCode() + coalescingKey.hashCode();
+    }
+
+    @Override
+    public boolean equals( Object pObject ) {
+      boolean lEquals;
+      if (this == pObject) {
+        lEquals = true;
+      }
+      else if (pObject instanceof Key) {
+        Key lOther = (Key) pObject;
+        lEquals = requestTypeKey.equals(lOther.requestTypeKey) && coalescingKey.equals(lOther.coalescingKey);
+      }
+      else {
+        lEquals = false;
+      }
+      return lEquals;
+    }
+  }
+}
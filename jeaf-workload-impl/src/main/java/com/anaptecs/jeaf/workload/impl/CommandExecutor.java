@@ -6,6 +6,8 @@
 package com.anaptecs.jeaf.workload.impl;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.anaptecs.jeaf.tools.annotations.monitoring.PerformanceMonitoringSegment;
 import com.anaptecs.jeaf.tools.api.Tools;
@@ -22,7 +24,8 @@ import com.anaptecs.jeaf.xfun.api.messages.MessageID;
 /**
  * Class implements a runnable for JEAF's Workload Management that ensures that ensures that a defined maximum latency
  * will not be exceeded. If the max latency is exceeded before the runnable will be executed then an exception will be
- * thrown instead of the execution of the request.
+ * thrown instead of the execution of the request. Optionally also the execution time of the request can be limited. In
+ * this case a watchdog interrupts the executing thread if the request runs too long.
  * 
  * @author JEAF Development Team
  */
@@ -31,6 +34,31 @@ public class CommandExecutor implements Runnable {
 
   private static final String PIPELINE_LATENCY_SUFFIX = ".PipelineLatency";
 
+  /**
+   * Request was created but not yet queued.
+   */
+  private static final int NEW = 0;
+
+  /**
+   * Request is stored in the queue of the pipeline.
+   */
+  private static final int QUEUED = 1;
+
+  /**
+   * Request was taken from the queue of the pipeline but its execution was not yet started.
+   */
+  private static final int DEQUEUED = 2;
+
+  /**
+   * Execution of the request was started.
+   */
+  private static final int STARTED = 3;
+
+  /**
+   * Request exceeded its maximum latency before its execution was started.
+   */
+  private static final int EXPIRED = 4;
+
   private final TimerSample timerSample;
 
   private final Pipeline pipeline;
@@ -55,11 +83,51 @@ public class CommandExecutor implements Runnable {
    */
   private final long maxNanoLatency;
 
+  /**
+   * Max execution time in nano seconds.
+   */
+  private final long maxNanoExecutionTime;
+
   /**
    * Reference to error handler that needs to be called in case of exceptions during execution of the command.
    */
   private final WorkloadErrorHandler errorHandler;
 
+  /**
+   * Statistics of the request type that are updated by this executor. The attribute is null if the executor does not
+   * represent a single request e.g. in case of batches.
+   */
+  private final RequestTypeStatistics statistics;
+
+  /**
+   * Priority of the request. The priority is only relevant for pipelines with prioritized queues.
+   */
+  private final int priority;
+
+  /**
+   * Timeout that is used to expire the request while it is still queued. The attribute is null if the request is not
+   * registered for proactive expiry.
+   */
+  private volatile TimingWheel.Timeout queueTimeout;
+
+  /**
+   * Current state of the request. Transitions are done using compare and set so that a request either expires or is
+   * executed but never both.
+   */
+  private final AtomicInteger state = new AtomicInteger(NEW);
+
+  /**
+   * Thread that currently executes the command. The attribute is only set while the command is executed and its
+   * execution time is limited. Access to the attribute is synchronized on this object.
+   */
+  private Thread executingThread;
+
+  /**
+   * Attribute indicates if the executing thread was interrupted by the watchdog. The attribute is false if the thread
+   * was already interrupted by someone else before. Access to the attribute is synchronized on this object.
+   */
+  private boolean interruptedByWatchdog;
+
   /**
    * Initialize object.
    * 
@@ -71,6 +139,45 @@ public class CommandExecutor implements Runnable {
    */
   public CommandExecutor( RequestTypeKey pRequestTypeKey, Runnable pCommand, Pipeline pPipeline, long pMaxLatency,
       TimeUnit pTimeUnit, WorkloadErrorHandler pErrorHandler ) {
+    this(pRequestTypeKey, pCommand, pPipeline, pMaxLatency, -1, pTimeUnit, pErrorHandler);
+  }
+
+  /**
+   * Initialize object.
+   * 
+   * @param pRequestTypeKey Request type key that belongs to the request. The parameter must not be null.
+   * @param pCommand Runnable object representing the request that should be executed. The parameter must not be null.
+   * @param pMaxLatency Maximum latency that is accepted that the request will be delayed. If parameter is 0 or smaller
+   * then latency will not be checked.
+   * @param pMaxExecutionTime Maximum time that the execution of the request may take. If the execution takes longer
+   * then the executing thread will be interrupted. If parameter is 0 or smaller then execution time will not be
+   * checked.
+   * @param pTimeUnit Time unit of the maximum latency and execution time. The parameter must not be null.
+   */
+  public CommandExecutor( RequestTypeKey pRequestTypeKey, Runnable pCommand, Pipeline pPipeline, long pMaxLatency,
+      long pMaxExecutionTime, TimeUnit pTimeUnit, WorkloadErrorHandler pErrorHandler ) {
+    this(pRequestTypeKey, pCommand, pPipeline, pMaxLatency, pMaxExecutionTime, pTimeUnit, pErrorHandler, null,
+        RequestTypeSettings.NORMAL_PRIORITY);
+  }
+
+  /**
+   * Initialize object.
+   * 
+   * @param pRequestTypeKey Request type key that belongs to the request. The parameter must not be null.
+   * @param pCommand Runnable object representing the request that should be executed. The parameter must not be null.
+   * @param pMaxLatency Maximum latency that is accepted that the request will be delayed. If parameter is 0 or smaller
+   * then latency will not be checked.
+   * @param pMaxExecutionTime Maximum time that the execution of the request may take. If the execution takes longer
+   * then the executing thread will be interrupted. If parameter is 0 or smaller then execution time will not be
+   * checked.
+   * @param pTimeUnit Time unit of the maximum latency and execution time. The parameter must not be null.
+   * @param pStatistics Statistics of the request type that should be updated by the executor. The parameter may be
+   * null.
+   * @param pPriority Priority of the request. Higher values mean higher priority.
+   */
+  CommandExecutor( RequestTypeKey pRequestTypeKey, Runnable pCommand, Pipeline pPipeline, long pMaxLatency,
+      long pMaxExecutionTime, TimeUnit pTimeUnit, WorkloadErrorHandler pErrorHandler,
+      RequestTypeStatistics pStatistics, int pPriority ) {
     // Check parameter
     Check.checkInvalidParameterNull(pRequestTypeKey, "pRequestTypeKey");
     Check.checkInvalidParameterNull(pCommand, "pCommand");
@@ -83,7 +190,10 @@ public class CommandExecutor implements Runnable {
     pipeline = pPipeline;
     startNanos = System.nanoTime();
     maxNanoLatency = pTimeUnit.toNanos(pMaxLatency);
+    maxNanoExecutionTime = pTimeUnit.toNanos(pMaxExecutionTime);
     errorHandler = pErrorHandler;
+    statistics = pStatistics;
+    priority = pPriority;
 
     // Create new timer sample to monitor pipeline latency
     StringBuilder lBuilder = new StringBuilder();
@@ -96,15 +206,22 @@ public class CommandExecutor implements Runnable {
 
   /**
    * Method to actually execute the passed request. Before the real request is executed this method checks that the
-   * maximum latency is not exceeded. In this case the request will be rejected.
+   * maximum latency is not exceeded. In this case the request will be rejected. Requests that already expired while
+   * they were queued will not be executed at all as they were already reported.
    * 
    * @throws JEAFSystemException in case that the maximum latency is exceeded before the request was executed.
    */
   @PerformanceMonitoringSegment
   @Override
   public void run( ) {
+    // Request already expired while it was queued and was already reported.
+    if (this.startExecution() == false) {
+      return;
+    }
+
     // Check if max latency is exceeded.
     long lRealLatency = System.nanoTime() - startNanos;
+    RequestDequeuedEvent.emit(pipeline, requestTypeKey, lRealLatency);
 
     // Latency limits are NOT exceeded.
     if (maxNanoLatency <= 0 || lRealLatency <= maxNanoLatency) {
@@ -116,16 +233,341 @@ public class CommandExecutor implements Runnable {
         XFun.getTrace().write(lMessage, requestTypeKey.getKey(), Long.toString(lLatencyMillis));
       }
       Tools.getMonitoringTools().recordTimerSample(timerSample);
-      command.run();
+      if (statistics != null) {
+        statistics.recordExecuted();
+      }
+
+      long lExecutionStart = System.nanoTime();
+      RequestExecutionEvent lExecutionEvent = new RequestExecutionEvent();
+      lExecutionEvent.begin();
+      ResourceUsageProbe lProbe;
+      if (statistics != null && pipeline.sampleResourceUsage()) {
+        lProbe = new ResourceUsageProbe();
+      }
+      else {
+        lProbe = null;
+      }
+      SlowRequestDetector lSlowRequestDetector = pipeline.getSlowRequestDetector();
+      if (lSlowRequestDetector != null) {
+        lSlowRequestDetector.requestStarted(requestTypeKey);
+      }
+      boolean lFailed = false;
+      try {
+        // Execution time of the command is not limited.
+        if (maxNanoExecutionTime <= 0) {
+          command.run();
+        }
+        // Watchdog has to take care that the execution time of the command is not exceeded.
+        else {
+          this.runWithWatchdog();
+        }
+      }
+      catch (RuntimeException e) {
+        lFailed = true;
+        if (statistics != null) {
+          statistics.recordFailed();
+        }
+        throw e;
+      }
+      finally {
+        if (lSlowRequestDetector != null) {
+          lSlowRequestDetector.requestFinished();
+        }
+        if (lProbe != null) {
+          lProbe.stop(statistics);
+        }
+        lExecutionEvent.complete(pipeline, requestTypeKey, lFailed);
+        if (statistics != null) {
+          pipeline.recordLatencies(statistics, lExecutionStart - startNanos, System.nanoTime() - lExecutionStart);
+        }
+      }
     }
     // Execution of runnable will be rejected as the defined maximum latency was exceeded.
     else {
-      long lDifference = TimeUnit.NANOSECONDS.toMillis(lRealLatency - maxNanoLatency);
+      this.reportMaxLatencyExceeded(lRealLatency);
+    }
+  }
+
+  /**
+   * Method registers this request for proactive expiry. If the request is still queued when its maximum latency is
+   * exceeded then it will be marked as expired in the queue of the pipeline and reported to the error handler. This way
+   * queue capacity is reclaimed and clients are informed as early as possible.
+   * 
+   * The method has to be called before the request is handed over to the thread pool of the pipeline.
+   */
+  void scheduleExpiry( ) {
+    if (maxNanoLatency > 0) {
+      long lRemainingNanos = maxNanoLatency - (System.nanoTime() - startNanos);
+      queueTimeout = TimingWheel.getSharedTimingWheel().schedule(new Runnable() {
+        @Override
+        public void run( ) {
+          CommandExecutor.this.expire();
+        }
+      }, lRemainingNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Method returns the request type of this request.
+   * 
+   * @return {@link RequestTypeKey} Request type of the request. The method never returns null.
+   */
+  RequestTypeKey getRequestTypeKey( ) {
+    return requestTypeKey;
+  }
+
+  /**
+   * Method returns the priority of this request.
+   * 
+   * @return int Priority of the request. Higher values mean higher priority.
+   */
+  int getPriority( ) {
+    return priority;
+  }
+
+  /**
+   * Method cancels the proactive expiry of this request e.g. because it was rejected by the pipeline.
+   */
+  void cancelExpiry( ) {
+    TimingWheel.Timeout lTimeout = queueTimeout;
+    if (lTimeout != null) {
+      lTimeout.cancel();
+    }
+  }
+
+  /**
+   * Method reports that the request was rejected by the pipeline.
+   * 
+   * @param pException Exception describing the problem. The parameter must not be null.
+   */
+  void reportRejected( Exception pException ) {
+    this.cancelExpiry();
+    if (statistics != null) {
+      statistics.recordRejected();
+      RequestRejectedEvent.emit(pipeline, requestTypeKey, pException);
+    }
+    errorHandler.requestRejected(requestTypeKey, pException);
+  }
+
+  /**
+   * Method checks if this executor represents one single request. Executors that represent several requests, e.g.
+   * batches, leave counting of rejected and expired requests to their error handler as only it knows the affected
+   * requests.
+   * 
+   * @return boolean Method returns true if the executor represents a single request and false otherwise.
+   */
+  boolean representsSingleRequest( ) {
+    return statistics != null;
+  }
+
+  /**
+   * Method reports that the execution of the command failed with an exception.
+   * 
+   * @param pException Exception that was thrown by the command. The parameter must not be null.
+   */
+  void reportFailure( Exception pException ) {
+    if (errorHandler instanceof ExtendedWorkloadErrorHandler) {
+      ((ExtendedWorkloadErrorHandler) errorHandler).requestFailed(requestTypeKey, pException);
+    }
+    else {
+      XFun.getTrace().error(pException.getMessage(), pException);
+    }
+  }
+
+  /**
+   * Method marks this request as queued. The method is called by {@link ResizableBlockingQueue} while it holds its
+   * lock.
+   * 
+   * @return boolean Method returns true if the request can be queued and false if it already expired.
+   */
+  boolean markQueued( ) {
+    return state.compareAndSet(NEW, QUEUED);
+  }
+
+  /**
+   * Method marks this request as taken from the queue. The method is called by {@link ResizableBlockingQueue} while it
+   * holds its lock.
+   * 
+   * @return boolean Method returns true if the request was taken and false if it already expired while it was queued.
+   */
+  boolean markDequeued( ) {
+    return state.compareAndSet(QUEUED, DEQUEUED);
+  }
+
+  /**
+   * Method marks this queued request as expired. The method is called by {@link ResizableBlockingQueue} while it holds
+   * its lock.
+   * 
+   * @return boolean Method returns true if the request was queued and is now expired and false otherwise.
+   */
+  boolean markExpiredInQueue( ) {
+    return state.compareAndSet(QUEUED, EXPIRED);
+  }
+
+  /**
+   * Method checks if this request expired before its execution was started.
+   * 
+   * @return boolean Method returns true if the request expired and false otherwise.
+   */
+  boolean isExpired( ) {
+    return state.get() == EXPIRED;
+  }
+
+  /**
+   * Method marks this request as started.
+   * 
+   * @return boolean Method returns true if the request can be executed and false if it already expired.
+   */
+  private boolean startExecution( ) {
+    int lState = state.get();
+    while (lState != EXPIRED) {
+      if (state.compareAndSet(lState, STARTED)) {
+        this.cancelExpiry();
+        return true;
+      }
+      lState = state.get();
+    }
+    return false;
+  }
+
+  /**
+   * Method is called by the timing wheel in case that the request is still queued when its maximum latency is exceeded.
+   * The request is only marked as expired in the queue. Reporting it to the error handler is done by the callback
+   * threads of the timing wheel.
+   */
+  private void expire( ) {
+    boolean lExpired = false;
+    while (lExpired == false) {
+      int lState = state.get();
+      // Request was not yet handed over to the queue.
+      if (lState == NEW) {
+        if (state.compareAndSet(NEW, EXPIRED)) {
+          pipeline.removeQueuedCommand(this);
+          lExpired = true;
+        }
+      }
+      // Request is queued. If it is taken concurrently then the state has changed and we have to check again.
+      else if (lState == QUEUED) {
+        lExpired = pipeline.expireQueuedCommand(this);
+      }
+      // Request is already taken from the queue or is executed.
+      else {
+        return;
+      }
+    }
+
+    // Inform the client.
+    final long lRealLatency = System.nanoTime() - startNanos;
+    TimingWheel.getSharedTimingWheel().executeCallback(new Runnable() {
+      @Override
+      public void run( ) {
+        CommandExecutor.this.reportMaxLatencyExceeded(lRealLatency);
+      }
+    });
+  }
+
+  /**
+   * Method reports that the request exceeded its maximum latency.
+   * 
+   * @param pRealLatency Real latency of the request in nano seconds.
+   */
+  private void reportMaxLatencyExceeded( long pRealLatency ) {
+    long lDifference = TimeUnit.NANOSECONDS.toMillis(pRealLatency - maxNanoLatency);
+    if (statistics != null) {
       pipeline.incrementMaxLatencyExceededCounter();
-      WorkloadSystemException lException =
-          new WorkloadSystemException(WorkloadMessages.REJECTING_REQUEST_DUE_TO_LATENCY_LIMIT, requestTypeKey.getKey(),
-              Long.toString(lRealLatency), Long.toString(maxNanoLatency), Long.toString(lDifference));
-      errorHandler.maximumLatencyExceeded(requestTypeKey, lException);
+      statistics.recordMaxLatencyExceeded();
+      MaxLatencyExceededEvent.emit(pipeline, requestTypeKey, pRealLatency, maxNanoLatency);
+    }
+    WorkloadSystemException lException =
+        new WorkloadSystemException(WorkloadMessages.REJECTING_REQUEST_DUE_TO_LATENCY_LIMIT, requestTypeKey.getKey(),
+            Long.toString(pRealLatency), Long.toString(maxNanoLatency), Long.toString(lDifference));
+    errorHandler.maximumLatencyExceeded(requestTypeKey, lException);
+  }
+
+  /**
+   * Method executes the command under the control of the watchdog. If the execution takes longer than the defined
+   * maximum execution time then the executing thread will be interrupted.
+   */
+  private void runWithWatchdog( ) {
+    synchronized (this) {
+      executingThread = Thread.currentThread();
+      interruptedByWatchdog = false;
+    }
+    final TimingWheel lTimingWheel = TimingWheel.getSharedTimingWheel();
+    TimingWheel.Timeout lTimeout = lTimingWheel.schedule(new Runnable() {
+      @Override
+      public void run( ) {
+        // Error handlers must not be called by the thread of the timing wheel.
+        lTimingWheel.executeCallback(new Runnable() {
+          @Override
+          public void run( ) {
+            CommandExecutor.this.interruptExecution();
+          }
+        });
+      }
+    }, maxNanoExecutionTime, TimeUnit.NANOSECONDS);
+
+    try {
+      command.run();
+    }
+    finally {
+      lTimeout.cancel();
+      boolean lInterrupted;
+      synchronized (this) {
+        executingThread = null;
+        lInterrupted = interruptedByWatchdog;
+      }
+      // Only an interrupt that was caused by the watchdog is cleared. Otherwise it could affect the next request that
+      // will be executed by the same thread. Interrupts from elsewhere are left untouched.
+      if (lInterrupted) {
+        Thread.interrupted();
+      }
+    }
+  }
+
+  /**
+   * Method is called by the watchdog in case that the maximum execution time of the command is exceeded. The method is
+   * executed by a callback thread of the timing wheel.
+   */
+  private void interruptExecution( ) {
+    // Check if the command is still running.
+    String lThreadName;
+    synchronized (this) {
+      if (executingThread == null) {
+        return;
+      }
+      lThreadName = executingThread.getName();
+    }
+
+    // Report problem to error handler before the executing thread is interrupted. This way the problem is already
+    // reported when the interrupted command returns.
+    pipeline.incrementMaxExecutionTimeExceededCounter();
+    if (statistics != null) {
+      statistics.recordMaxExecutionTimeExceeded();
+    }
+    StringBuilder lBuilder = new StringBuilder();
+    lBuilder.append("Request '");
+    lBuilder.append(requestTypeKey.getKey());
+    lBuilder.append("' exceeded its maximum execution time of ");
+    lBuilder.append(TimeUnit.NANOSECONDS.toMillis(maxNanoExecutionTime));
+    lBuilder.append("ms. Executing thread '");
+    lBuilder.append(lThreadName);
+    lBuilder.append("' will be interrupted.");
+    TimeoutException lException = new TimeoutException(lBuilder.toString());
+    if (errorHandler instanceof ExtendedWorkloadErrorHandler) {
+      ((ExtendedWorkloadErrorHandler) errorHandler).maximumExecutionTimeExceeded(requestTypeKey, lException);
+    }
+    else {
+      XFun.getTrace().error(lException.getMessage());
+    }
+
+    // Interrupt executing thread if it is still executing the command. An interrupt that is already pending does not
+    // belong to the watchdog and must not be cleared afterwards.
+    synchronized (this) {
+      if (executingThread != null && executingThread.isInterrupted() == false) {
+        executingThread.interrupt();
+        interruptedByWatchdog = true;
+      }
     }
   }
 }
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class implements a count-min sketch that estimates how often items occurred. The sketch uses a fixed amount of memory
+ * no matter how many different items are counted. Estimated counts are never lower than the real counts but may be
+ * higher as different items share the same counters. With a width of w counters per row the overestimation is at most
+ * e / w of the total count with high probability.
+ *
+ * All counters are updated without locks.
+ *
+ * @author JEAF Development Team
+ */
+class CountMinSketch {
+  /**
+   * Amount of rows of the sketch. Each row uses a different hash function.
+   */
+  private static final int DEPTH = 4;
+
+  /**
+   * Amount of counters per row. The value is a power of 2.
+   */
+  private final int width;
+
+  /**
+   * Mask to map a hash to a counter of a row.
+   */
+  private final int mask;
+
+  /**
+   * Counters of all rows.
+   */
+  private final AtomicLongArray counters;
+
+  /**
+   * Initialize object.
+   *
+   * @param pWidth Amount of counters per row. The value will be rounded up to the next power of 2. The value must be
+   * greater than 0.
+   */
+  CountMinSketch( int pWidth ) {
+    if (pWidth <= 0) {
+      throw new IllegalArgumentException("Width of count-min sketch must be greater than 0. Width: " + pWidth);
+    }
+    int lWidth = 1;
+    while (lWidth < pWidth) {
+      lWidth = lWidth << 1;
+    }
+    width = lWidth;
+    mask = width - 1;
+    counters = new AtomicLongArray(DEPTH * width);
+  }
+
+  /**
+   * Method counts one occurrence of the passed item.
+   *
+   * @param pItem Item that occurred. The parameter must not be null.
+   * @return long Estimated count of the item including this occurrence.
+   */
+  long add( Object pItem ) {
+    int lHash = spread(pItem.hashCode());
+    int lStep = spread(lHash) | 1;
+    long lEstimate = Long.MAX_VALUE;
+    for (int i = 0; i < DEPTH; i++) {
+      int lIndex = i * width + ((lHash + i * lStep) & mask);
+      lEstimate = Math.min(lEstimate, counters.incrementAndGet(lIndex));
+    }
+    return lEstimate;
+  }
+
+  /**
+   * Method returns the estimated count of the passed item.
+   *
+   * @param pItem Item whose count should be estimated. The parameter must not be null.
+   * @return long Estimated count of the item.
+   */
+  long estimate( Object pItem ) {
+    int lHash = spread(pItem.hashCode());
+    int lStep = spread(lHash) | 1;
+    long lEstimate = Long.MAX_VALUE;
+    for (int i = 0; i < DEPTH; i++) {
+      int lIndex = i * width + ((lHash + i * lStep) & mask);
+      lEstimate = Math.min(lEstimate, counters.get(lIndex));
+    }
+    return lEstimate;
+  }
+
+  /**
+   * Method resets all counters of the sketch. Updates that happen concurrently may be lost.
+   */
+  void reset( ) {
+    for (int i = 0; i < counters.length(); i++) {
+      counters.set(i, 0);
+    }
+  }
+
+  /**
+   * Method spreads the bits of the passed hash so that also hashes that only differ in their upper bits are mapped to
+   * different counters.
+   *
+   * @param pHash Hash that should be spread.
+   * @return int Spread hash.
+   */
+  private static int spread( int pHash ) {
+    int lHash = pHash * 0x9E3779B9;
+    return lHash ^ (lHash >>> 16);
+  }
+}
@@ -0,0 +1,18 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+/**
+ * Interface provides the default values of {@link ExtendedPipelineConfig} for all pipelines that do not define their
+ * own extended configuration.
+ */
+@ExtendedPipelineConfig
+public interface DefaultExtendedPipelineConfig {
+  /**
+   * Extended pipeline configuration with all default values.
+   */
+  ExtendedPipelineConfig DEFAULTS = DefaultExtendedPipelineConfig.class.getAnnotation(ExtendedPipelineConfig.class);
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
+
+/**
+ * Annotation can be used to define additional configuration parameters for a pipeline that are only supported by this
+ * implementation of JEAF's Workload API. The annotation has to be added to the same class / interface that also
+ * contains the {@link PipelineConfig} annotation of the pipeline. If the annotation is not present then the default
+ * values as defined below will be used.
+ *
+ * All time based values use the time unit as defined by {@link PipelineConfig#timeUnit()}.
+ *
+ * @author JEAF Development Team
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ExtendedPipelineConfig {
+  /**
+   * Maximum time that the execution of a request may take. If a request runs longer than the defined time then the
+   * thread that executes it will be interrupted. Values of 0 or less mean that the execution time will not be limited.
+   */
+  int maxExecutionTime() default -1;
+
+  /**
+   * Maximum amount of requests that are executed together as one batch. The parameter is only relevant for request
+   * types that are executed through a {@link BatchHandler}.
+   */
+  int maxBatchSize() default 50;
+
+  /**
+   * Maximum time that the first request of a batch waits for further requests before the batch is handed over to the
+   * pipeline. Values of 0 or less mean that batches are handed over immediately. Nevertheless requests that arrive while
+   * a batch is waiting for a worker thread will still become part of it.
+   */
+  int maxBatchLinger() default 0;
+
+  /**
+   * Interval in which the CPU time and the allocated memory of requests are measured. A value of n means that on
+   * average every n-th request is measured. Values of 0 or less disable the measurement. As the measurement itself has
+   * some costs, values of 1 should only be used for analysis purposes.
+   */
+  int resourceSamplingInterval() default 0;
+
+  /**
+   * Time after which a running request is considered to be slow. Slow requests can be queried through JMX together with
+   * a sample of the stack trace of their executing thread. Values of 0 or less disable the detection of slow requests.
+   */
+  int slowRequestThreshold() default -1;
+
+  /**
+   * Interval in which a report about slow requests is written to the log. Reports are only written if there are slow
+   * requests. Values of 0 or less disable periodic reports. The parameter is only relevant if
+   * {@link #slowRequestThreshold()} is defined.
+   */
+  int slowRequestReportInterval() default -1;
+
+  /**
+   * Amount of per second samples of the state of the pipeline that are retained in memory, e.g. 600 means that the last
+   * 10 minutes are available. This time based value is always in seconds. Values of 0 or less disable the time series.
+   * As sampling has some costs the time series is disabled by default.
+   */
+  int timeSeriesSize() default 0;
+
+  /**
+   * Defines if all core threads are started as soon as the pipeline is created. Otherwise threads are only started when
+   * requests arrive which means that the first requests after startup also have to pay for the creation of threads.
+   */
+  boolean prestartCoreThreads() default false;
+
+  /**
+   * Time after the creation of the pipeline during which the amount of concurrently executed requests is ramped up
+   * linearly from 1 to the maximum amount of threads. This way a burst of requests right after startup does not run
+   * with full concurrency through code that is not yet optimized by the JIT compiler. Values of 0 or less disable the
+   * slow start.
+   */
+  int warmUpTime() default -1;
+
+  /**
+   * Defines if the threads of the pipeline are daemon threads. Daemon threads do not prevent the JVM from exiting.
+   */
+  boolean daemonThreads() default false;
+
+  /**
+   * Stack size of the threads of the pipeline in bytes. This value is not a time based value. Smaller stacks reduce the
+   * memory that is used by large pipelines. Values of 0 or less mean that the default stack size of the JVM is used.
+   * Please be aware that some platforms ignore this value.
+   */
+  int threadStackSize() default 0;
+
+  /**
+   * Handler for exceptions that are not caught within threads of the pipeline. The class must provide a public default
+   * constructor. If {@link UncaughtExceptionHandler} itself is defined then uncaught exceptions are traced.
+   */
+  Class<? extends UncaughtExceptionHandler> uncaughtExceptionHandler() default UncaughtExceptionHandler.class;
+
+  /**
+   * Time after which an {@link AdmissionPermit} expires if it was not used to hand over a request. Expired permits
+   * release the capacity that they reserved. Values of 0 or less mean that permits only expire when they are used or
+   * released explicitly.
+   */
+  int admissionPermitTimeout() default 1000;
+}
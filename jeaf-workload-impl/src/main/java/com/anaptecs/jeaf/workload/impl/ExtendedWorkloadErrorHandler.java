@@ -0,0 +1,42 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.workload.api.WorkloadErrorHandler;
+
+/**
+ * Interface extends the error handler of JEAF's Workload API with callbacks for problems that are only detected by this
+ * implementation of the workload management. Error handlers that do not implement this interface will not be notified
+ * about such problems. Instead they will only be traced.
+ *
+ * @author JEAF Development Team
+ */
+public interface ExtendedWorkloadErrorHandler extends WorkloadErrorHandler {
+  /**
+   * Method is called in case that the execution of a request took longer than its configured maximum execution time.
+   * The thread that executes the request is interrupted right after this method returned, if it is still executing the
+   * request at that time.
+   *
+   * Please be aware that this method is called by one of the few callback threads of the workload management that are
+   * shared by all pipelines. Implementations should therefore return quickly as the interruption of the request is
+   * delayed until this method returned.
+   *
+   * @param pRequestTypeKey Request type key of the request that exceeded its maximum execution time. The parameter is
+   * never null.
+   * @param pException Exception describing the problem. The parameter is never null.
+   */
+  void maximumExecutionTimeExceeded( RequestTypeKey pRequestTypeKey, Exception pException );
+
+  /**
+   * Method is called in case that the execution of a single request failed. This is e.g. the case if a request that is
+   * executed as part of a batch is marked as failed by its {@link BatchHandler}.
+   *
+   * @param pRequestTypeKey Request type key of the request that failed. The parameter is never null.
+   * @param pException Exception describing the problem. The parameter is never null.
+   */
+  void requestFailed( RequestTypeKey pRequestTypeKey, Exception pException );
+}
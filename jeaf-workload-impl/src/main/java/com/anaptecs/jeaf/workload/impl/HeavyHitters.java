@@ -0,0 +1,151 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+
+/**
+ * Class tracks the request types that occur most often (heavy hitters). Occurrences of all request types are counted by
+ * a {@link CountMinSketch}. In addition the class keeps a small set of the request types with the highest estimated
+ * counts. This way memory consumption is bounded no matter how many different request types occur.
+ *
+ * Updates only require a lock if a request type that is not yet tracked exceeds the lowest estimated count of all
+ * tracked request types. Request types that are already tracked or that occur rarely are counted without any locks.
+ *
+ * @author JEAF Development Team
+ */
+class HeavyHitters {
+  /**
+   * Amount of counters per row of the count-min sketch.
+   */
+  private static final int SKETCH_WIDTH = 1024;
+
+  /**
+   * Maximum amount of request types that are tracked.
+   */
+  private final int capacity;
+
+  /**
+   * Sketch that counts the occurrences of all request types.
+   */
+  private final CountMinSketch sketch = new CountMinSketch(SKETCH_WIDTH);
+
+  /**
+   * Request types with the highest estimated counts.
+   */
+  private final Set<RequestTypeKey> topKeys = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Lowest estimated count of all tracked request types as long as the maximum amount of tracked request types is
+   * reached. Request types with a lower estimated count can not become a heavy hitter.
+   */
+  private volatile long threshold = 0;
+
+  /**
+   * Initialize object.
+   *
+   * @param pCapacity Maximum amount of request types that are tracked. The value must be greater than 0.
+   */
+  HeavyHitters( int pCapacity ) {
+    if (pCapacity <= 0) {
+      throw new IllegalArgumentException("Capacity of heavy hitters must be greater than 0. Capacity: " + pCapacity);
+    }
+    capacity = pCapacity;
+  }
+
+  /**
+   * Method counts one occurrence of the passed request type.
+   *
+   * @param pRequestTypeKey Request type that occurred. The parameter must not be null.
+   */
+  void add( RequestTypeKey pRequestTypeKey ) {
+    long lEstimate = sketch.add(pRequestTypeKey);
+    if (lEstimate > threshold && topKeys.contains(pRequestTypeKey) == false) {
+      this.promote(pRequestTypeKey, lEstimate);
+    }
+  }
+
+  /**
+   * Method returns the tracked request types together with their estimated counts.
+   *
+   * @return {@link Map} Map with the tracked request types and their estimated counts. The map is sorted by descending
+   * counts. The method never returns null.
+   */
+  Map<String, Long> getTopCounts( ) {
+    List<Map.Entry<String, Long>> lEntries = new ArrayList<>(capacity);
+    for (RequestTypeKey lNextKey : topKeys) {
+      lEntries.add(new AbstractMap.SimpleImmutableEntry<>(lNextKey.getKey(), sketch.estimate(lNextKey)));
+    }
+    Collections.sort(lEntries, new Comparator<Map.Entry<String, Long>>() {
+      @Override
+      public int compare( Map.Entry<String, Long> pFirst, Map.Entry<String, Long> pSecond ) {
+        return Long.compare(pSecond.getValue(), pFirst.getValue());
+      }
+    });
+    Map<String, Long> lTopCounts = new LinkedHashMap<>();
+    for (Map.Entry<String, Long> lNextEntry : lEntries) {
+      lTopCounts.put(lNextEntry.getKey(), lNextEntry.getValue());
+    }
+    return lTopCounts;
+  }
+
+  /**
+   * Method resets all counters and tracked request types.
+   */
+  synchronized void reset( ) {
+    sketch.reset();
+    topKeys.clear();
+    threshold = 0;
+  }
+
+  /**
+   * Method adds the passed request type to the tracked ones. If the maximum amount of tracked request types is already
+   * reached then the one with the lowest estimated count will be replaced if its count is lower than the one of the
+   * passed request type.
+   *
+   * @param pRequestTypeKey Request type that should be tracked. The parameter must not be null.
+   * @param pEstimate Estimated count of the request type.
+   */
+  private synchronized void promote( RequestTypeKey pRequestTypeKey, long pEstimate ) {
+    if (topKeys.contains(pRequestTypeKey)) {
+      return;
+    }
+    if (topKeys.size() < capacity) {
+      topKeys.add(pRequestTypeKey);
+    }
+    else {
+      // Find tracked request type with the lowest estimated count.
+      RequestTypeKey lMinKey = null;
+      long lMinEstimate = Long.MAX_VALUE;
+      for (RequestTypeKey lNextKey : topKeys) {
+        long lNextEstimate = sketch.estimate(lNextKey);
+        if (lNextEstimate < lMinEstimate) {
+          lMinKey = lNextKey;
+          lMinEstimate = lNextEstimate;
+        }
+      }
+      if (lMinKey != null && lMinEstimate < pEstimate) {
+        topKeys.remove(lMinKey);
+        topKeys.add(pRequestTypeKey);
+        lMinEstimate = pEstimate;
+        for (RequestTypeKey lNextKey : topKeys) {
+          lMinEstimate = Math.min(lMinEstimate, sketch.estimate(lNextKey));
+        }
+      }
+      threshold = lMinEstimate;
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class implements a histogram with a high dynamic range for latencies in nano seconds. Values are stored in log-linear
+ * buckets: each power of two is divided into 32 linear sub buckets. This way the relative error of all values is less
+ * than about 3% whereas the histogram covers values from 1 nano second up to about 68 seconds with a fixed amount of
+ * memory. Larger values are counted in the highest bucket but are still considered for the maximum value.
+ *
+ * Recording values is lock-free. Reading a histogram while values are recorded returns a fuzzy result. Consistent
+ * results are provided by {@link LatencyRecorder}.
+ *
+ * @author JEAF Development Team
+ */
+class LatencyHistogram {
+  /**
+   * Amount of bits that are used for the linear sub buckets of each power of two.
+   */
+  private static final int SUB_BUCKET_BITS = 5;
+
+  /**
+   * Amount of linear sub buckets per power of two.
+   */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Highest power of two that is covered by the histogram (2^36 ns are about 68 seconds).
+   */
+  private static final int MAX_MAGNITUDE = 36;
+
+  /**
+   * Total amount of buckets of the histogram.
+   */
+  static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+  /**
+   * Counters of all buckets.
+   */
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  /**
+   * Maximum value that was recorded.
+   */
+  private final AtomicLong maxValue = new AtomicLong();
+
+  /**
+   * Method records the passed value.
+   *
+   * @param pValue Value in nano seconds. Negative values are treated as 0.
+   */
+  void record( long pValue ) {
+    long lValue = Math.max(0, pValue);
+    counts.incrementAndGet(bucketIndex(lValue));
+
+    // Update maximum. In most cases the current maximum is already larger so that no CAS operation is required.
+    long lMax = maxValue.get();
+    while (lValue > lMax && maxValue.compareAndSet(lMax, lValue) == false) {
+      lMax = maxValue.get();
+    }
+  }
+
+  /**
+   * Method adds all values of the passed histogram to this one.
+   *
+   * @param pHistogram Histogram whose values should be added. The parameter must not be null.
+   */
+  void add( LatencyHistogram pHistogram ) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      long lCount = pHistogram.counts.get(i);
+      if (lCount != 0) {
+        counts.addAndGet(i, lCount);
+      }
+    }
+    long lOtherMax = pHistogram.maxValue.get();
+    long lMax = maxValue.get();
+    while (lOtherMax > lMax && maxValue.compareAndSet(lMax, lOtherMax) == false) {
+      lMax = maxValue.get();
+    }
+  }
+
+  /**
+   * Method resets all values of the histogram.
+   */
+  void reset( ) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    maxValue.set(0);
+  }
+
+  /**
+   * Method creates an immutable snapshot of the current values of the histogram.
+   *
+   * @return {@link LatencySnapshot} Snapshot of the histogram. The method never returns null.
+   */
+  LatencySnapshot snapshot( ) {
+    long[] lCounts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      lCounts[i] = counts.get(i);
+    }
+    return new LatencySnapshot(lCounts, maxValue.get());
+  }
+
+  /**
+   * Method calculates the cumulative amount of values that are less or equal to each of the passed upper bounds. Values
+   * are resolved with the precision of the histogram. In contrast to {@link #snapshot()} no additional memory is
+   * allocated.
+   *
+   * @param pUpperBounds Upper bounds in nano seconds in ascending order. The parameter must not be null.
+   * @param pCounts Array into which the cumulative counts are written. The array must be one element larger than the
+   * upper bounds as the last element receives the total amount of values. The parameter must not be null.
+   * @return long Approximate sum of all values in nano seconds. Each value is assumed to be in the middle of its
+   * bucket.
+   */
+  long getCumulativeCounts( long[] pUpperBounds, long[] pCounts ) {
+    long lSum = 0;
+    long lTotal = 0;
+    long lLowestValue = 0;
+    int lBound = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      long lHighestValue = highestValueOfBucket(i);
+
+      // Bucket exceeds the current upper bound so all values counted so far belong to it.
+      while (lBound < pUpperBounds.length && lHighestValue > pUpperBounds[lBound]) {
+        pCounts[lBound++] = lTotal;
+      }
+      long lCount = counts.get(i);
+      if (lCount != 0) {
+        lTotal += lCount;
+        lSum += lCount * (lLowestValue + (lHighestValue - lLowestValue) / 2);
+      }
+      lLowestValue = lHighestValue + 1;
+    }
+    while (lBound < pUpperBounds.length) {
+      pCounts[lBound++] = lTotal;
+    }
+    pCounts[pUpperBounds.length] = lTotal;
+    return lSum;
+  }
+
+  /**
+   * Method calculates the index of the bucket to which the passed value belongs.
+   *
+   * @param pValue Value whose bucket should be calculated. The value must not be negative.
+   * @return int Index of the bucket.
+   */
+  static int bucketIndex( long pValue ) {
+    int lIndex;
+    if (pValue < SUB_BUCKET_COUNT) {
+      lIndex = (int) pValue;
+    }
+    else {
+      int lMagnitude = 63 - Long.numberOfLeadingZeros(pValue);
+      if (lMagnitude > MAX_MAGNITUDE) {
+        lIndex = BUCKET_COUNT - 1;
+      }
+      else {
+        int lSubBucket = (int) (pValue >>> (lMagnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        lIndex = (lMagnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + lSubBucket;
+      }
+    }
+    return lIndex;
+  }
+
+  /**
+   * Method returns the highest value that belongs to the bucket with the passed index.
+   *
+   * @param pIndex Index of the bucket.
+   * @return long Highest value of the bucket.
+   */
+  static long highestValueOfBucket( int pIndex ) {
+    long lValue;
+    if (pIndex < SUB_BUCKET_COUNT) {
+      lValue = pIndex;
+    }
+    else {
+      int lMagnitude = pIndex / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+      long lSubBucket = pIndex % SUB_BUCKET_COUNT;
+      long lLowestValue = (SUB_BUCKET_COUNT + lSubBucket) << (lMagnitude - SUB_BUCKET_BITS);
+      lValue = lLowestValue + (1L << (lMagnitude - SUB_BUCKET_BITS)) - 1;
+    }
+    return lValue;
+  }
+}
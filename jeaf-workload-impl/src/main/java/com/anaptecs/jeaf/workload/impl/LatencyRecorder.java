@@ -0,0 +1,155 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class records latencies into an active histogram and provides consistent interval snapshots. Writers only increment
+ * atomic counters and never wait. Readers swap the active histogram with an inactive one and wait until all writers
+ * that may still write into the previously active histogram are done (writer reader phaser). Afterwards the values of
+ * the interval are added to the accumulated histograms.
+ *
+ * Two accumulated histograms are maintained: one for all values since the recorder was created or reset and one for
+ * all values since the last interval snapshot was taken.
+ *
+ * @author JEAF Development Team
+ */
+class LatencyRecorder {
+  /**
+   * Epoch that is incremented by every writer when it starts to write. The sign of the epoch defines the current phase.
+   */
+  private final AtomicLong startEpoch = new AtomicLong(0);
+
+  /**
+   * Epoch that is incremented by every writer of the even phase when it is done.
+   */
+  private final AtomicLong evenEndEpoch = new AtomicLong(0);
+
+  /**
+   * Epoch that is incremented by every writer of the odd phase when it is done.
+   */
+  private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+  /**
+   * Histogram into which values are currently recorded.
+   */
+  private volatile LatencyHistogram activeHistogram = new LatencyHistogram();
+
+  /**
+   * Histogram that is currently not used for recording. Access to the attribute is synchronized on this object.
+   */
+  private LatencyHistogram inactiveHistogram = new LatencyHistogram();
+
+  /**
+   * Histogram with all values since the recorder was created or reset. Access to the attribute is synchronized on this
+   * object.
+   */
+  private final LatencyHistogram totalHistogram = new LatencyHistogram();
+
+  /**
+   * Histogram with all values since the last interval snapshot. Access to the attribute is synchronized on this object.
+   */
+  private final LatencyHistogram intervalHistogram = new LatencyHistogram();
+
+  /**
+   * Method records the passed latency.
+   *
+   * @param pNanos Latency in nano seconds.
+   */
+  void record( long pNanos ) {
+    long lEpoch = startEpoch.getAndIncrement();
+    try {
+      activeHistogram.record(pNanos);
+    }
+    finally {
+      if (lEpoch < 0) {
+        oddEndEpoch.getAndIncrement();
+      }
+      else {
+        evenEndEpoch.getAndIncrement();
+      }
+    }
+  }
+
+  /**
+   * Method returns a snapshot of all latencies since the recorder was created or reset.
+   *
+   * @return {@link LatencySnapshot} Snapshot with all latencies. The method never returns null.
+   */
+  synchronized LatencySnapshot getSnapshot( ) {
+    this.collectInterval();
+    return totalHistogram.snapshot();
+  }
+
+  /**
+   * Method calculates the cumulative amount of all latencies since the recorder was created or reset that are less or
+   * equal to each of the passed upper bounds.
+   *
+   * @param pUpperBounds Upper bounds in nano seconds in ascending order. The parameter must not be null.
+   * @param pCounts Array into which the cumulative counts are written. The array must be one element larger than the
+   * upper bounds as the last element receives the total amount of latencies. The parameter must not be null.
+   * @return long Approximate sum of all latencies in nano seconds.
+   * @see LatencyHistogram#getCumulativeCounts(long[], long[])
+   */
+  synchronized long getCumulativeCounts( long[] pUpperBounds, long[] pCounts ) {
+    this.collectInterval();
+    return totalHistogram.getCumulativeCounts(pUpperBounds, pCounts);
+  }
+
+  /**
+   * Method returns a snapshot of all latencies since the last call of this method and starts a new interval.
+   *
+   * @return {@link LatencySnapshot} Snapshot with all latencies of the interval. The method never returns null.
+   */
+  synchronized LatencySnapshot getIntervalSnapshot( ) {
+    this.collectInterval();
+    LatencySnapshot lSnapshot = intervalHistogram.snapshot();
+    intervalHistogram.reset();
+    return lSnapshot;
+  }
+
+  /**
+   * Method resets all recorded latencies.
+   */
+  synchronized void reset( ) {
+    this.collectInterval();
+    totalHistogram.reset();
+    intervalHistogram.reset();
+  }
+
+  /**
+   * Method swaps the active histogram and adds its values to the accumulated histograms as soon as all writers are done
+   * with it.
+   */
+  private void collectInterval( ) {
+    LatencyHistogram lCollected = activeHistogram;
+    inactiveHistogram.reset();
+    activeHistogram = inactiveHistogram;
+
+    // Flip phase and wait for all writers of the previous phase.
+    boolean lNextPhaseIsEven = startEpoch.get() < 0;
+    long lInitialStartValue;
+    if (lNextPhaseIsEven) {
+      evenEndEpoch.set(0);
+      lInitialStartValue = 0;
+    }
+    else {
+      oddEndEpoch.set(Long.MIN_VALUE);
+      lInitialStartValue = Long.MIN_VALUE;
+    }
+    long lStartValueAtFlip = startEpoch.getAndSet(lInitialStartValue);
+    AtomicLong lEndEpoch = lNextPhaseIsEven ? oddEndEpoch : evenEndEpoch;
+    while (lEndEpoch.get() != lStartValueAtFlip) {
+      Thread.yield();
+    }
+
+    // Writers are done with the collected histogram.
+    totalHistogram.add(lCollected);
+    intervalHistogram.add(lCollected);
+    inactiveHistogram = lCollected;
+  }
+}
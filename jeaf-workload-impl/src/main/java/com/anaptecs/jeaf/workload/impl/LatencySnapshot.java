@@ -0,0 +1,186 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class represents an immutable snapshot of a latency histogram. All values are in nano seconds. Percentiles are
+ * resolved with the precision of the histogram, which means that their relative error is less than about 3%.
+ *
+ * @author JEAF Development Team
+ */
+public class LatencySnapshot {
+  /**
+   * Counters of all buckets of the histogram.
+   */
+  private final long[] counts;
+
+  /**
+   * Total amount of values.
+   */
+  private final long totalCount;
+
+  /**
+   * Maximum value.
+   */
+  private final long maxValue;
+
+  /**
+   * Initialize object.
+   *
+   * @param pCounts Counters of all buckets of the histogram. The parameter must not be null. The array is not copied.
+   * @param pMaxValue Maximum value that was recorded.
+   */
+  LatencySnapshot( long[] pCounts, long pMaxValue ) {
+    counts = pCounts;
+    long lTotalCount = 0;
+    for (long lNextCount : pCounts) {
+      lTotalCount += lNextCount;
+    }
+    totalCount = lTotalCount;
+    maxValue = pMaxValue;
+  }
+
+  /**
+   * Method returns the amount of values of the snapshot.
+   *
+   * @return long Amount of values.
+   */
+  public long getCount( ) {
+    return totalCount;
+  }
+
+  /**
+   * Method returns the maximum value of the snapshot.
+   *
+   * @return long Maximum value in nano seconds or 0 if the snapshot is empty.
+   */
+  public long getMax( ) {
+    return maxValue;
+  }
+
+  /**
+   * Method returns the value at the passed percentile.
+   *
+   * @param pPercentile Percentile whose value should be returned. The value has to be between 0 and 100.
+   * @return long Value at the passed percentile in nano seconds or 0 if the snapshot is empty. The value never exceeds
+   * the maximum value.
+   */
+  public long getValueAtPercentile( double pPercentile ) {
+    long lValue;
+    if (totalCount > 0) {
+      double lPercentile = Math.min(Math.max(pPercentile, 0), 100);
+      long lCountAtPercentile = Math.max(1, (long) Math.ceil(lPercentile / 100 * totalCount));
+      long lCount = 0;
+      int lIndex = 0;
+      while (lIndex < counts.length - 1) {
+        lCount += counts[lIndex];
+        if (lCount >= lCountAtPercentile) {
+          break;
+        }
+        lIndex++;
+      }
+      lValue = Math.min(LatencyHistogram.highestValueOfBucket(lIndex), maxValue);
+    }
+    else {
+      lValue = 0;
+    }
+    return lValue;
+  }
+
+  /**
+   * Method returns a snapshot with all values of this snapshot that are not contained in the passed earlier snapshot of
+   * the same histogram. As the exact maximum of the difference is unknown, the highest value of its highest non empty
+   * bucket is used.
+   *
+   * @param pEarlierSnapshot Earlier snapshot of the same histogram. The parameter must not be null.
+   * @return {@link LatencySnapshot} Snapshot with the values that were recorded in between. If the histogram was reset
+   * in between then this snapshot will be returned. The method never returns null.
+   */
+  LatencySnapshot subtract( LatencySnapshot pEarlierSnapshot ) {
+    LatencySnapshot lDifference;
+    if (pEarlierSnapshot.totalCount <= totalCount) {
+      long[] lCounts = new long[counts.length];
+      long lMaxValue = 0;
+      for (int i = 0; i < counts.length; i++) {
+        lCounts[i] = Math.max(0, counts[i] - pEarlierSnapshot.counts[i]);
+        if (lCounts[i] > 0) {
+          lMaxValue = Math.min(LatencyHistogram.highestValueOfBucket(i), maxValue);
+        }
+      }
+      lDifference = new LatencySnapshot(lCounts, lMaxValue);
+    }
+    // Histogram was reset in between.
+    else {
+      lDifference = this;
+    }
+    return lDifference;
+  }
+
+  /**
+   * Method returns the approximate mean of the snapshot. Values are assumed to be in the middle of their bucket.
+   *
+   * @return long Mean in nano seconds or 0 if the snapshot is empty.
+   */
+  public long getMean( ) {
+    long lMean;
+    if (totalCount > 0) {
+      double lSum = 0;
+      long lLowestValue = 0;
+      for (int i = 0; i < counts.length; i++) {
+        long lHighestValue = LatencyHistogram.highestValueOfBucket(i);
+        if (counts[i] > 0) {
+          lSum += counts[i] * ((lLowestValue + Math.min(lHighestValue, maxValue)) / 2.0);
+        }
+        lLowestValue = lHighestValue + 1;
+      }
+      lMean = Math.round(lSum / totalCount);
+    }
+    else {
+      lMean = 0;
+    }
+    return lMean;
+  }
+
+  /**
+   * Method returns the median of the snapshot.
+   *
+   * @return long Median in nano seconds.
+   */
+  public long getP50( ) {
+    return this.getValueAtPercentile(50);
+  }
+
+  /**
+   * Method returns the 99th percentile of the snapshot.
+   *
+   * @return long 99th percentile in nano seconds.
+   */
+  public long getP99( ) {
+    return this.getValueAtPercentile(99);
+  }
+
+  /**
+   * Method returns the 99.9th percentile of the snapshot.
+   *
+   * @return long 99.9th percentile in nano seconds.
+   */
+  public long getP999( ) {
+    return this.getValueAtPercentile(99.9);
+  }
+
+  @Override
+  public String toString( ) {
+    StringBuilder lBuilder = new StringBuilder();
+    lBuilder.append("count=").append(totalCount);
+    lBuilder.append(", p50=").append(TimeUnit.NANOSECONDS.toMicros(this.getP50())).append("us");
+    lBuilder.append(", p99=").append(TimeUnit.NANOSECONDS.toMicros(this.getP99())).append("us");
+    lBuilder.append(", p99.9=").append(TimeUnit.NANOSECONDS.toMicros(this.getP999())).append("us");
+    lBuilder.append(", max=").append(TimeUnit.NANOSECONDS.toMicros(maxValue)).append("us");
+    return lBuilder.toString();
+  }
+}
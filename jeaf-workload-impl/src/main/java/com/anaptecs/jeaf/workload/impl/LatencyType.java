@@ -0,0 +1,28 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+/**
+ * Enumeration defines the different kinds of latencies that are tracked for requests.
+ *
+ * @author JEAF Development Team
+ */
+public enum LatencyType {
+  /**
+   * Time between handing over a request to a pipeline and the start of its execution.
+   */
+  QUEUE_WAIT,
+
+  /**
+   * Time that the execution of the request itself took.
+   */
+  SERVICE_TIME,
+
+  /**
+   * Time between handing over a request to a pipeline and the end of its execution.
+   */
+  END_TO_END;
+}
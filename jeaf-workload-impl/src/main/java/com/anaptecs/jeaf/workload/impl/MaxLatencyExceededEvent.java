@@ -0,0 +1,55 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Event is emitted when a request was not executed as it exceeded the maximum latency of its pipeline.
+ *
+ * @author JEAF Development Team
+ */
+@Name("com.anaptecs.jeaf.workload.MaxLatencyExceeded")
+@Label("Maximum Latency Exceeded")
+@Description("Request exceeded the maximum latency of a pipeline while it was queued")
+final class MaxLatencyExceededEvent extends WorkloadEvent {
+  /**
+   * Real latency of the request.
+   */
+  @Label("Latency")
+  @Timespan(Timespan.NANOSECONDS)
+  long latency;
+
+  /**
+   * Maximum latency of the pipeline.
+   */
+  @Label("Maximum Latency")
+  @Timespan(Timespan.NANOSECONDS)
+  long maxLatency;
+
+  /**
+   * Method emits an event for the passed request if the event is enabled.
+   *
+   * @param pPipeline Pipeline whose maximum latency was exceeded. The parameter must not be null.
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pLatencyNanos Real latency of the request in nano seconds.
+   * @param pMaxLatencyNanos Maximum latency of the pipeline in nano seconds.
+   */
+  static void emit( Pipeline pPipeline, RequestTypeKey pRequestTypeKey, long pLatencyNanos, long pMaxLatencyNanos ) {
+    MaxLatencyExceededEvent lEvent = new MaxLatencyExceededEvent();
+    if (lEvent.isEnabled()) {
+      lEvent.setRequest(pPipeline, pRequestTypeKey);
+      lEvent.latency = pLatencyNanos;
+      lEvent.maxLatency = pMaxLatencyNanos;
+      lEvent.commit();
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.anaptecs.jeaf.xfun.api.XFun;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class implements a mailbox for all requests of a pipeline that share the same ordering key. Requests are executed in
+ * the order in which they were added to the mailbox and never in parallel. Only one worker thread of the pipeline
+ * drains a mailbox at a time. Workers are therefore never blocked by requests of the same ordering key, whereas
+ * mailboxes of different ordering keys are drained in parallel.
+ *
+ * The mailbox is lock-free. Its state is represented by the amount of pending requests. As long as the mailbox is
+ * drained the counter never drops to 0. Instead the drainer closes the mailbox (-1) when it processed the last request
+ * and removes it from the map of mailboxes. Requests that find a closed mailbox have to create a new one.
+ *
+ * @author JEAF Development Team
+ */
+class OrderedMailbox implements Runnable {
+  /**
+   * Maximum amount of requests that are executed from one mailbox before the worker thread is handed back to the
+   * pipeline. This ensures that mailboxes with a lot of requests do not starve other requests of the pipeline.
+   */
+  private static final int MAX_REQUESTS_PER_TURN = 16;
+
+  /**
+   * Constant for the state of a mailbox that was closed.
+   */
+  private static final int CLOSED = -1;
+
+  /**
+   * Ordering key of all requests of this mailbox.
+   */
+  private final Object orderingKey;
+
+  /**
+   * Pipeline that executes the requests.
+   */
+  private final Pipeline pipeline;
+
+  /**
+   * Map with all mailboxes of the pipeline. The mailbox removes itself from it when it gets closed.
+   */
+  private final Map<Object, OrderedMailbox> mailboxes;
+
+  /**
+   * Maximum amount of requests that may be pending in this mailbox.
+   */
+  private final int maxDepth;
+
+  /**
+   * Queue with all pending requests.
+   */
+  private final Queue<CommandExecutor> pendingRequests = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Amount of pending requests including the one that is currently executed or {@link #CLOSED}.
+   */
+  private final AtomicInteger pendingCount = new AtomicInteger();
+
+  /**
+   * Initialize object.
+   *
+   * @param pOrderingKey Ordering key of all requests of this mailbox. The parameter must not be null.
+   * @param pPipeline Pipeline that executes the requests. The parameter must not be null.
+   * @param pMailboxes Map with all mailboxes of the pipeline. The parameter must not be null.
+   * @param pMaxDepth Maximum amount of requests that may be pending in this mailbox.
+   */
+  OrderedMailbox( Object pOrderingKey, Pipeline pPipeline, Map<Object, OrderedMailbox> pMailboxes, int pMaxDepth ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pOrderingKey, "pOrderingKey");
+    Check.checkInvalidParameterNull(pPipeline, "pPipeline");
+    Check.checkInvalidParameterNull(pMailboxes, "pMailboxes");
+
+    orderingKey = pOrderingKey;
+    pipeline = pPipeline;
+    mailboxes = pMailboxes;
+    maxDepth = Math.max(1, pMaxDepth);
+  }
+
+  /**
+   * Method adds the passed request to the mailbox. If the mailbox was empty then it is handed over to the pipeline to
+   * be drained.
+   *
+   * @param pCommandExecutor Request that should be added. The parameter must not be null.
+   * @return boolean Method returns true if the request was handled (added or rejected) and false if the mailbox is
+   * already closed. In this case the caller has to use a new mailbox.
+   */
+  boolean add( CommandExecutor pCommandExecutor ) {
+    int lPendingCount;
+    do {
+      lPendingCount = pendingCount.get();
+      // Mailbox was closed in the meantime.
+      if (lPendingCount == CLOSED) {
+        return false;
+      }
+      // Mailbox is full.
+      if (lPendingCount >= maxDepth) {
+        pipeline.rejectCommand(pCommandExecutor, new RejectedExecutionException(
+            "Too many pending requests for ordering key '" + orderingKey + "'. Maximum is " + maxDepth + "."));
+        return true;
+      }
+    }
+    while (pendingCount.compareAndSet(lPendingCount, lPendingCount + 1) == false);
+    pendingRequests.add(pCommandExecutor);
+
+    // Mailbox is not drained yet. So it has to be handed over to the pipeline.
+    if (lPendingCount == 0) {
+      this.schedule();
+    }
+    return true;
+  }
+
+  /**
+   * Method returns the amount of pending requests of this mailbox.
+   *
+   * @return int Amount of pending requests.
+   */
+  int getPendingCount( ) {
+    return Math.max(0, pendingCount.get());
+  }
+
+  /**
+   * Method drains the mailbox. After a defined amount of requests the mailbox is handed over to the pipeline again so
+   * that other requests get their chance.
+   */
+  @Override
+  public void run( ) {
+    boolean lMoreRequests = true;
+    for (int i = 0; i < MAX_REQUESTS_PER_TURN && lMoreRequests; i++) {
+      CommandExecutor lCommandExecutor = this.nextRequest();
+      try {
+        lCommandExecutor.run();
+      }
+      catch (RuntimeException e) {
+        lCommandExecutor.reportFailure(e);
+      }
+      lMoreRequests = this.requestDone();
+    }
+    if (lMoreRequests) {
+      this.schedule();
+    }
+  }
+
+  /**
+   * Method hands over the mailbox to the pipeline. If the pipeline rejects it then all pending requests are rejected.
+   */
+  private void schedule( ) {
+    RejectedExecutionException lException = pipeline.executeInternal(this);
+    if (lException != null) {
+      this.rejectPendingRequests(lException);
+    }
+  }
+
+  /**
+   * Method rejects all pending requests of the mailbox and closes it. The method must only be called by the thread
+   * that currently owns the mailbox, e.g. if the mailbox was removed from the queue of the pipeline.
+   *
+   * @param pException Exception describing the reason of the rejection. The parameter must not be null.
+   */
+  void rejectPendingRequests( RejectedExecutionException pException ) {
+    boolean lMoreRequests = true;
+    while (lMoreRequests) {
+      pipeline.rejectCommand(this.nextRequest(), pException);
+      lMoreRequests = this.requestDone();
+    }
+  }
+
+  /**
+   * Method returns the next pending request. As the counter is incremented before the request is added to the queue,
+   * the request may not be visible for a very short moment.
+   *
+   * @return {@link CommandExecutor} Next request. The method never returns null.
+   */
+  private CommandExecutor nextRequest( ) {
+    CommandExecutor lCommandExecutor = pendingRequests.poll();
+    while (lCommandExecutor == null) {
+      Thread.onSpinWait();
+      lCommandExecutor = pendingRequests.poll();
+    }
+    return lCommandExecutor;
+  }
+
+  /**
+   * Method marks the current request as done. If it was the last pending one then the mailbox gets closed.
+   *
+   * @return boolean Method returns true if there are further pending requests and false if the mailbox was closed.
+   */
+  private boolean requestDone( ) {
+    boolean lMoreRequests;
+    if (pendingCount.compareAndSet(1, CLOSED)) {
+      mailboxes.remove(orderingKey, this);
+      lMoreRequests = false;
+    }
+    else {
+      pendingCount.decrementAndGet();
+      lMoreRequests = true;
+    }
+    return lMoreRequests;
+  }
+
+  @Override
+  public String toString( ) {
+    return "OrderedMailbox[" + orderingKey + "]";
+  }
+}
@@ -5,11 +5,31 @@
  */
 package com.anaptecs.jeaf.workload.impl;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.management.AttributeChangeNotification;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanNotificationInfo;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
 
 import com.anaptecs.jeaf.tools.api.Tools;
 import com.anaptecs.jeaf.workload.annotations.ElasticWorkloadConfig;
@@ -19,6 +39,7 @@ import com.anaptecs.jeaf.workload.annotations.StaticWorkloadConfig;
 import com.anaptecs.jeaf.workload.annotations.WorkloadMapping;
 import com.anaptecs.jeaf.workload.api.RequestTypeKey;
 import com.anaptecs.jeaf.workload.api.WorkloadErrorHandler;
+import com.anaptecs.jeaf.xfun.api.XFun;
 import com.anaptecs.jeaf.xfun.api.checks.Assert;
 import com.anaptecs.jeaf.xfun.api.checks.Check;
 
@@ -28,9 +49,39 @@ import com.anaptecs.jeaf.xfun.api.checks.Check;
  * type can be configured using so called workload mappings. All those configurations are done using annotations:
  * {@link StaticWorkloadConfig}, {@link ElasticWorkloadConfig}, {@link WorkloadMapping} and {@link PipelineConfig}
  * 
+ * The size of the thread pool, the keep alive time, the maximum latency and the maximum queue depth can be changed
+ * while the pipeline is running, e.g. through JMX. Every change is sent as {@link AttributeChangeNotification} so that
+ * it can be audited.
+ * 
+ * Request types that share a pipeline can define their own maximum latency, maximum execution time and priority, see
+ * {@link RequestTypeSettings}. Priorities are respected by pipelines with queue type {@link QueueType#PRIORIZED}.
+ * 
+ * In order to avoid latency spikes right after startup core threads can be started together with the pipeline and the
+ * amount of concurrently executed requests can be ramped up during a warm-up time, see {@link ExtendedPipelineConfig}.
+ * 
+ * A pipeline can be paused e.g. during maintenance. Requests are then queued but not executed until it is resumed. When
+ * a pipeline is shut down it stops accepting new requests and drains its queues until a deadline. Requests that are
+ * still queued afterwards are rejected through their error handler.
+ * 
  * @author JEAF Development Team
  */
-public class Pipeline implements PipelineMBean {
+public class Pipeline implements PipelineMBean, NotificationEmitter {
+  /**
+   * Amount of request types that are tracked as heavy hitters for submissions and rejections.
+   */
+  private static final int HEAVY_HITTER_COUNT = 20;
+
+  /**
+   * Interval in milliseconds in which it is checked if the pipeline is drained during its shutdown.
+   */
+  private static final long DRAIN_CHECK_INTERVAL = 10;
+
+  /**
+   * Maximum amount of request type keys whose resolved settings are cached. As request type keys may contain request
+   * specific parts the cache must not grow without limit. Settings of all further keys are resolved on every lookup.
+   */
+  private static final int MAX_CACHED_REQUEST_TYPES = 1024;
+
   /**
    * ID of the pipeline. The class / interface that defines the pipeline is used as ID.
    */
@@ -46,20 +97,184 @@ public class Pipeline implements PipelineMBean {
    */
   private final PipelineConfig pipelineConfig;
 
+  /**
+   * Maximum latency of requests in the time unit of the pipeline configuration. Changes only apply to requests that are
+   * handed over afterwards.
+   */
+  private volatile int maxLatency;
+
+  /**
+   * Maximum amount of queued requests. For ordered executions and batches it limits the amount of pending requests per
+   * ordering key and batch.
+   */
+  private volatile int maxQueueDepth;
+
+  /**
+   * Flag indicates if the pipeline was shut down. A pipeline that is shut down does not accept any new requests.
+   */
+  private volatile boolean shutdown;
+
+  /**
+   * Time after which unused admission permits expire in the time unit of the pipeline configuration.
+   */
+  private final int admissionPermitTimeout;
+
+  /**
+   * Amount of admission permits that currently reserve capacity of this pipeline.
+   */
+  private final AtomicInteger reservedPermits = new AtomicInteger();
+
+  /**
+   * Counter to track amount of admission permits that expired without being used.
+   */
+  private final LongAdder expiredPermitCounter = new LongAdder();
+
+  /**
+   * Support to send notifications about changes of the pipeline.
+   */
+  private final NotificationBroadcasterSupport notificationSupport = new NotificationBroadcasterSupport(
+      new MBeanNotificationInfo(new String[] { AttributeChangeNotification.ATTRIBUTE_CHANGE },
+          AttributeChangeNotification.class.getName(), "Configuration of the pipeline changed."));
+
+  /**
+   * Sequence number of the last notification that was sent.
+   */
+  private final AtomicLong notificationSequence = new AtomicLong();
+
+  /**
+   * Settings that are used for all request types that do not have specific settings.
+   */
+  private final RequestTypeSettings defaultRequestTypeSettings;
+
+  /**
+   * Map contains the settings that were configured for specific request types. If the settings are reconfigured as a
+   * whole then the map is replaced.
+   */
+  private volatile Map<RequestTypeKey, RequestTypeSettings> requestTypeSettings = new ConcurrentHashMap<>();
+
+  /**
+   * Map caches the resolved settings of request type keys. As request type keys may be reduced, resolving them may
+   * require several lookups. Whenever settings are configured the cache is replaced by an empty one, so that resolved
+   * settings never outlive the configuration they were resolved from.
+   */
+  private volatile Map<RequestTypeKey, RequestTypeSettings> resolvedRequestTypeSettings = new ConcurrentHashMap<>();
+
+  /**
+   * Factory that creates the threads of the pipeline.
+   */
+  private final PipelineThreadFactory threadFactory;
+
   /**
    * Executor represents the thread pool that is used to execute requests.
    */
-  private final ThreadPoolExecutor threadPool;
+  private final PipelineExecutor threadPool;
+
+  /**
+   * Map contains all coalesced executions that are currently queued or running.
+   */
+  private final Map<CoalescedExecution.Key, CoalescedExecution<?>> inflightExecutions = new ConcurrentHashMap<>();
+
+  /**
+   * Statistics of all request types of this pipeline.
+   */
+  private final PipelineStatistics statistics;
+
+  /**
+   * Latencies of all requests of this pipeline.
+   */
+  private final RequestLatencies latencies = new RequestLatencies();
+
+  /**
+   * Map contains the batch accumulators of all request types that are executed in batches.
+   */
+  private final Map<RequestTypeKey, BatchAccumulator<?>> batchAccumulators = new ConcurrentHashMap<>();
+
+  /**
+   * Map contains the mailboxes of all ordering keys that currently have pending requests.
+   */
+  private final Map<Object, OrderedMailbox> mailboxes = new ConcurrentHashMap<>();
+
+  /**
+   * Maximum amount of requests per batch.
+   */
+  private final int maxBatchSize;
+
+  /**
+   * Maximum time that the first request of a batch waits for further requests.
+   */
+  private final int maxBatchLinger;
+
+  /**
+   * Interval in which the resource usage of requests is measured. Values of 0 or less disable the measurement.
+   */
+  private final int resourceSamplingInterval;
+
+  /**
+   * Detector for slow requests. The attribute is null if the detection of slow requests is not enabled.
+   */
+  private final SlowRequestDetector slowRequestDetector;
+
+  /**
+   * Time series with the state of this pipeline during the last minutes.
+   */
+  private final PipelineTimeSeries timeSeries;
 
   /**
    * Counter to track amount of rejected requests.
    */
-  private long rejectionCounter = 0;
+  private final LongAdder rejectionCounter = new LongAdder();
 
   /**
    * Counter to track amount of request that were rejected due to too high queue wait time
    */
-  private long maxLatencyExceededCounter;
+  private final LongAdder maxLatencyExceededCounter = new LongAdder();
+
+  /**
+   * Counter to track amount of requests that were interrupted due to too long execution time.
+   */
+  private final LongAdder maxExecutionTimeExceededCounter = new LongAdder();
+
+  /**
+   * Rates of requests that were handed over to the pipeline.
+   */
+  private final RateCounter submissionRate;
+
+  /**
+   * Rates of requests whose execution was completed.
+   */
+  private final RateCounter completionRate;
+
+  /**
+   * Service times of completed requests in micro seconds per second. Together with the completion rate this provides
+   * the mean service time for the same windows as the rates.
+   */
+  private final RateCounter serviceTimeRate;
+
+  /**
+   * Rates of requests that were rejected.
+   */
+  private final RateCounter rejectionRate;
+
+  /**
+   * Rates of requests that exceeded their maximum latency or maximum execution time.
+   */
+  private final RateCounter latencyViolationRate;
+
+  /**
+   * Request types that are submitted most often.
+   */
+  private final HeavyHitters topSubmissions = new HeavyHitters(HEAVY_HITTER_COUNT);
+
+  /**
+   * Request types that are rejected most often.
+   */
+  private final HeavyHitters topRejections = new HeavyHitters(HEAVY_HITTER_COUNT);
+
+  static {
+    // Flight recorder events are registered together with the first pipeline so that this does not delay the first
+    // request.
+    WorkloadEvent.registerEventClasses();
+  }
 
   /**
    * Initialize object.
@@ -69,9 +284,46 @@ public class Pipeline implements PipelineMBean {
    * @param pPipelineConfig Configuration of the pipeline. The parameter must not be null.
    */
   public Pipeline( String pPipelineID, PipelineConfig pPipelineConfig ) {
+    this(pPipelineID, pPipelineConfig, DefaultExtendedPipelineConfig.DEFAULTS);
+  }
+
+  /**
+   * Initialize object.
+   * 
+   * @param pPipelineClass Class that defines the pipeline configuration. The parameter must not be null. This class is
+   * also used as ID for the pipeline.
+   * @param pPipelineConfig Configuration of the pipeline. The parameter must not be null.
+   * @param pExtendedPipelineConfig Extended configuration of the pipeline. The parameter must not be null.
+   */
+  public Pipeline( String pPipelineID, PipelineConfig pPipelineConfig,
+      ExtendedPipelineConfig pExtendedPipelineConfig ) {
+    this(pPipelineID, pPipelineConfig, pExtendedPipelineConfig, RateCounter.SYSTEM_NANO_TIME);
+  }
+
+  /**
+   * Initialize object.
+   * 
+   * @param pPipelineClass Class that defines the pipeline configuration. The parameter must not be null. This class is
+   * also used as ID for the pipeline.
+   * @param pPipelineConfig Configuration of the pipeline. The parameter must not be null.
+   * @param pExtendedPipelineConfig Extended configuration of the pipeline. The parameter must not be null.
+   * @param pNanoTime Time source in nano seconds on which the rates of the pipeline are based. The parameter must not
+   * be null.
+   */
+  Pipeline( String pPipelineID, PipelineConfig pPipelineConfig, ExtendedPipelineConfig pExtendedPipelineConfig,
+      LongSupplier pNanoTime ) {
     // Check parameters.
     Check.checkInvalidParameterNull(pPipelineID, "pPipelineID");
     Check.checkInvalidParameterNull(pPipelineConfig, "pPipelineConfig");
+    Check.checkInvalidParameterNull(pExtendedPipelineConfig, "pExtendedPipelineConfig");
+    Check.checkInvalidParameterNull(pNanoTime, "pNanoTime");
+
+    // All rates of the pipeline share the same time source so that their windows are aligned.
+    submissionRate = new RateCounter(pNanoTime);
+    completionRate = new RateCounter(pNanoTime);
+    serviceTimeRate = new RateCounter(pNanoTime);
+    rejectionRate = new RateCounter(pNanoTime);
+    latencyViolationRate = new RateCounter(pNanoTime);
 
     // Resolve pipeline configuration values
     pipelineID = pPipelineID;
@@ -87,6 +339,28 @@ public class Pipeline implements PipelineMBean {
 
     // Resolve additional parameters from configuration.
     pipelineConfig = pPipelineConfig;
+    maxLatency = pPipelineConfig.maxLatency();
+    maxQueueDepth = pPipelineConfig.maxQueueDepth();
+    statistics = new PipelineStatistics(pPipelineID);
+    defaultRequestTypeSettings =
+        new RequestTypeSettings(pExtendedPipelineConfig.maxExecutionTime(), pPipelineConfig.timeUnit());
+    maxBatchSize = pExtendedPipelineConfig.maxBatchSize();
+    maxBatchLinger = pExtendedPipelineConfig.maxBatchLinger();
+    resourceSamplingInterval = pExtendedPipelineConfig.resourceSamplingInterval();
+    admissionPermitTimeout = pExtendedPipelineConfig.admissionPermitTimeout();
+
+    // Create detector for slow requests if enabled.
+    int lSlowRequestThreshold = pExtendedPipelineConfig.slowRequestThreshold();
+    if (lSlowRequestThreshold > 0) {
+      slowRequestDetector = new SlowRequestDetector(pPipelineID, lSlowRequestThreshold, pPipelineConfig.timeUnit());
+      int lReportInterval = pExtendedPipelineConfig.slowRequestReportInterval();
+      if (lReportInterval > 0) {
+        slowRequestDetector.startReporting(lReportInterval, pPipelineConfig.timeUnit());
+      }
+    }
+    else {
+      slowRequestDetector = null;
+    }
 
     // Create new thread pool for pipeline
     QueueType lQueueType = pPipelineConfig.queueType();
@@ -97,9 +371,11 @@ public class Pipeline implements PipelineMBean {
         lRequestQueue = new ArrayBlockingQueue<>(1, true);
         break;
       case FIFO:
-        lRequestQueue = new ArrayBlockingQueue<>(pipelineConfig.maxQueueDepth(), true);
+        lRequestQueue = new ResizableBlockingQueue<>(maxQueueDepth);
         break;
       case PRIORIZED:
+        lRequestQueue = new ResizableBlockingQueue<>(maxQueueDepth, new PrioritizedRequestQueue());
+        break;
       case FAIR_WEIGHTED:
         Assert.internalError("Not yet implemented.");
         lRequestQueue = null;
@@ -110,8 +386,19 @@ public class Pipeline implements PipelineMBean {
     }
     // Create new thread pool
     int lMaxThreads = Math.max(pPipelineConfig.coreThreads(), pPipelineConfig.maxThreads());
-    threadPool = new ThreadPoolExecutor(pPipelineConfig.coreThreads(), lMaxThreads,
-        pPipelineConfig.maxThreadKeepAlive(), pPipelineConfig.timeUnit(), lRequestQueue);
+    threadFactory = new PipelineThreadFactory(pPipelineID, name, pPipelineConfig, pExtendedPipelineConfig);
+    threadPool = new PipelineExecutor(pPipelineConfig.coreThreads(), lMaxThreads,
+        pPipelineConfig.maxThreadKeepAlive(), pPipelineConfig.timeUnit(), lRequestQueue, threadFactory);
+
+    // Warm up thread pool so that the first requests do not run cold at full concurrency.
+    if (pExtendedPipelineConfig.prestartCoreThreads()) {
+      threadPool.prestartAllCoreThreads();
+    }
+    threadPool.startWarmUp(pExtendedPipelineConfig.warmUpTime(), pPipelineConfig.timeUnit());
+
+    // Start to record time series of the pipeline's state.
+    timeSeries = new PipelineTimeSeries(pPipelineID, Math.max(0, pExtendedPipelineConfig.timeSeriesSize()));
+    timeSeries.startSampling(this);
   }
 
   /**
@@ -145,99 +432,1345 @@ public class Pipeline implements PipelineMBean {
   }
 
   /**
-   * Method returns information about the thread pool of this pipeline.
+   * Method returns the statistics of all request types of this pipeline.
    * 
-   * @return {@link PipelineInfo} Info about the thread pool of this pipeline. The method never returns null.
+   * @return {@link PipelineStatistics} Statistics of this pipeline. The method never returns null.
    */
-  public PipelineInfo getPipelineInfo( ) {
-    return new PipelineInfo(pipelineID, name, this.getDescription(), threadPool);
+  public PipelineStatistics getStatistics( ) {
+    return statistics;
   }
 
   /**
-   * Method can be used to hand over a request to the pipeline. Depending on the current load on the pipeline and its
-   * queuing strategy the request may be executed directly, queued or rejected.
+   * Method returns the latencies of all requests of this pipeline. Latencies of single request types can be retrieved
+   * through {@link #getStatistics()}.
    * 
-   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
-   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of requests.
-   * @param pCommand Runnable object representing the request that should be executed. The parameter must not be null.
+   * @return {@link RequestLatencies} Latencies of this pipeline. The method never returns null.
    */
-  public void execute( RequestTypeKey pRequestTypeKey, WorkloadErrorHandler pErrorHandler, Runnable pCommand ) {
-    // Create new executor for the request.
-    CommandExecutor lCommandExecutor = new CommandExecutor(pRequestTypeKey, pCommand, this, pipelineConfig.maxLatency(),
-        pipelineConfig.timeUnit(), pErrorHandler);
+  public RequestLatencies getLatencies( ) {
+    return latencies;
+  }
 
-    // Hand over request to executor.
-    try {
-      threadPool.execute(lCommandExecutor);
+  /**
+   * Method records the latencies of an executed request for the pipeline and its request type.
+   * 
+   * @param pStatistics Statistics of the request type of the request. The parameter must not be null.
+   * @param pQueueWaitNanos Time that the request waited in nano seconds before its execution was started.
+   * @param pServiceNanos Time that the execution of the request took in nano seconds.
+   */
+  void recordLatencies( RequestTypeStatistics pStatistics, long pQueueWaitNanos, long pServiceNanos ) {
+    completionRate.increment();
+    serviceTimeRate.add((int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMicros(pServiceNanos)));
+    latencies.record(pQueueWaitNanos, pServiceNanos);
+    pStatistics.getLatencies().record(pQueueWaitNanos, pServiceNanos);
+  }
+
+  /**
+   * Method decides if the resource usage of the next request should be measured. Requests are selected randomly so that
+   * no request type is measured more often than others due to regular request patterns.
+   * 
+   * @return boolean Method returns true if the resource usage of the request should be measured and false otherwise.
+   */
+  boolean sampleResourceUsage( ) {
+    boolean lSample;
+    if (resourceSamplingInterval <= 0) {
+      lSample = false;
     }
-    catch (RejectedExecutionException e) {
-      rejectionCounter++;
-      pErrorHandler.requestRejected(pRequestTypeKey, e);
+    else if (resourceSamplingInterval == 1) {
+      lSample = true;
+    }
+    else {
+      lSample = ThreadLocalRandom.current().nextInt(resourceSamplingInterval) == 0;
     }
+    return lSample;
   }
 
-  // Implements methods for MBean
-  @Override
-  public int getPoolSize( ) {
-    return threadPool.getPoolSize();
+  /**
+   * Method returns the detector for slow requests of this pipeline.
+   * 
+   * @return {@link SlowRequestDetector} Detector for slow requests or null if the detection of slow requests is not
+   * enabled.
+   */
+  SlowRequestDetector getSlowRequestDetector( ) {
+    return slowRequestDetector;
   }
 
-  @Override
-  public int getCorePoolSize( ) {
-    return threadPool.getCorePoolSize();
+  /**
+   * Method returns all requests that are currently running longer than the slow request threshold of this pipeline.
+   * 
+   * @return {@link List} List with all slow requests sorted by descending running time. If the detection of slow
+   * requests is not enabled then an empty list will be returned. The method never returns null.
+   */
+  public List<SlowRequest> getSlowRequests( ) {
+    List<SlowRequest> lSlowRequests;
+    if (slowRequestDetector != null) {
+      lSlowRequests = slowRequestDetector.getSlowRequests();
+    }
+    else {
+      lSlowRequests = Collections.emptyList();
+    }
+    return lSlowRequests;
   }
 
-  @Override
-  public int getMaximumPoolSize( ) {
-    return threadPool.getMaximumPoolSize();
+  /**
+   * Method returns the time series with the state of this pipeline during the last minutes.
+   * 
+   * @return {@link PipelineTimeSeries} Time series of this pipeline. If the time series is disabled then its capacity
+   * is 0. The method never returns null.
+   */
+  public PipelineTimeSeries getTimeSeries( ) {
+    return timeSeries;
   }
 
-  @Override
-  public int getLargestPoolSize( ) {
-    return threadPool.getMaximumPoolSize();
+  /**
+   * Method records that a request was handed over to the pipeline.
+   * 
+   * @param pStatistics Statistics of the request type of the request. The parameter must not be null.
+   */
+  void recordSubmitted( RequestTypeStatistics pStatistics ) {
+    submissionRate.increment();
+    topSubmissions.add(pStatistics.getRequestTypeKey());
+    pStatistics.recordSubmitted();
   }
 
-  @Override
-  public int getActiveCount( ) {
-    return threadPool.getActiveCount();
+  /**
+   * Method returns the value of the passed percentile of the passed latency type in micro seconds.
+   * 
+   * @param pLatencyType Latency type that should be used. The parameter must not be null.
+   * @param pPercentile Percentile that should be returned. In order to get the maximum 100 has to be passed.
+   * @return long Value of the percentile in micro seconds.
+   */
+  private long getLatencyMicros( LatencyType pLatencyType, double pPercentile ) {
+    LatencySnapshot lSnapshot = latencies.getSnapshot(pLatencyType);
+    long lNanos;
+    if (pPercentile < 100) {
+      lNanos = lSnapshot.getValueAtPercentile(pPercentile);
+    }
+    else {
+      lNanos = lSnapshot.getMax();
+    }
+    return TimeUnit.NANOSECONDS.toMicros(lNanos);
   }
 
-  @Override
-  public long getKeepAliveTime( ) {
-    return threadPool.getKeepAliveTime(TimeUnit.MILLISECONDS);
+  /**
+   * Method returns an immutable snapshot of the current state of the thread pool of this pipeline. The snapshot is
+   * created without taking any locks of the thread pool.
+   * 
+   * @return {@link PipelineInfo} Info about the thread pool of this pipeline. The method never returns null.
+   */
+  public PipelineInfo getPipelineInfo( ) {
+    return threadPool.createSnapshot(pipelineID, name, this.getDescription(), submissionRate.snapshot(),
+        completionRate.snapshot(), rejectionRate.snapshot(), latencyViolationRate.snapshot());
   }
 
-  @Override
-  public int getRemainingQueueCapacity( ) {
-    return threadPool.getQueue().remainingCapacity();
+  /**
+   * Method can be used to hand over a request to the pipeline. Depending on the current load on the pipeline and its
+   * queuing strategy the request may be executed directly, queued or rejected.
+   * 
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of requests.
+   * @param pCommand Runnable object representing the request that should be executed. The parameter must not be null.
+   */
+  public void execute( RequestTypeKey pRequestTypeKey, WorkloadErrorHandler pErrorHandler, Runnable pCommand ) {
+    RequestTypeStatistics lStatistics = statistics.getStatistics(pRequestTypeKey);
+    this.recordSubmitted(lStatistics);
+    if (shutdown == false) {
+      this.executeCommand(pRequestTypeKey, pErrorHandler, pCommand, lStatistics);
+    }
+    // Pipeline does not accept new requests any longer.
+    else {
+      this.rejectCommand(this.createCommandExecutor(pRequestTypeKey, pErrorHandler, pCommand, lStatistics),
+          this.createShutdownException());
+    }
   }
 
-  @Override
-  public int getQueueSize( ) {
-    return threadPool.getQueue().size();
+  /**
+   * Method tries to reserve capacity of this pipeline for one request of the passed type. In contrast to
+   * {@link #execute(RequestTypeKey, WorkloadErrorHandler, Runnable)} the method never calls an error handler. This way
+   * callers can reject a request cheaply before they start to work on it. If no permit is available this is counted as
+   * rejection of the request type.
+   * 
+   * Capacity is free as long as the amount of running, queued and reserved requests is less than the maximum amount of
+   * threads plus the remaining capacity of the queue. Requests that are handed over without permit are not aware of
+   * reservations. So permits only guarantee capacity if all requests of the pipeline are handed over with permits.
+   * 
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @return {@link AdmissionPermit} Permit that has to be used to hand over the request through
+   * {@link #execute(AdmissionPermit, WorkloadErrorHandler, Runnable)} or null if the pipeline is overloaded or shut
+   * down.
+   */
+  public AdmissionPermit tryAcquire( RequestTypeKey pRequestTypeKey ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pRequestTypeKey, "pRequestTypeKey");
+
+    AdmissionPermit lPermit = null;
+    if (shutdown == false) {
+      // Reservation is done optimistically and undone if there is not enough capacity.
+      reservedPermits.incrementAndGet();
+      if (this.getUnreservedCapacity() >= 0) {
+        lPermit = new AdmissionPermit(this, pRequestTypeKey);
+        lPermit.scheduleExpiry(admissionPermitTimeout, pipelineConfig.timeUnit());
+      }
+      else {
+        reservedPermits.decrementAndGet();
+      }
+    }
+    if (lPermit == null) {
+      RequestTypeStatistics lStatistics = statistics.getStatistics(pRequestTypeKey);
+      this.recordSubmitted(lStatistics);
+      lStatistics.recordRejected();
+      this.incrementRejectionCounter(pRequestTypeKey);
+    }
+    return lPermit;
   }
 
-  @Override
-  public long getCompletedTaskCount( ) {
-    return threadPool.getCompletedTaskCount();
+  /**
+   * Method hands over a request that was admitted before through {@link #tryAcquire(RequestTypeKey)}. The permit is
+   * consumed by this call. If the permit is not valid any longer, e.g. because it expired, then the request is rejected
+   * through the passed error handler.
+   * 
+   * @param pPermit Permit that was acquired for the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of requests.
+   * @param pCommand Runnable object representing the request that should be executed. The parameter must not be null.
+   */
+  public void execute( AdmissionPermit pPermit, WorkloadErrorHandler pErrorHandler, Runnable pCommand ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pPermit, "pPermit");
+    if (pPermit.getPipeline() != this) {
+      throw new IllegalArgumentException(
+          "Admission permit does not belong to pipeline '" + pipelineID + "' but to '"
+              + pPermit.getPipeline().getPipelineID() + "'.");
+    }
+
+    RequestTypeKey lRequestTypeKey = pPermit.getRequestTypeKey();
+    if (pPermit.use()) {
+      // Reservation is kept until the request was handed over so that no other permit can take its place.
+      try {
+        this.execute(lRequestTypeKey, pErrorHandler, pCommand);
+      }
+      finally {
+        this.releasePermit(false);
+      }
+    }
+    else {
+      RequestTypeStatistics lStatistics = statistics.getStatistics(lRequestTypeKey);
+      this.recordSubmitted(lStatistics);
+      this.rejectCommand(this.createCommandExecutor(lRequestTypeKey, pErrorHandler, pCommand, lStatistics),
+          new RejectedExecutionException("Admission permit for pipeline '" + pipelineID
+              + "' is not valid any longer. It was already used, released or it expired."));
+    }
   }
 
-  @Override
-  public long getTaskCount( ) {
-    return threadPool.getTaskCount();
+  /**
+   * Method releases the capacity that was reserved by an admission permit.
+   * 
+   * @param pExpired Flag indicates if the permit expired without being used.
+   */
+  void releasePermit( boolean pExpired ) {
+    reservedPermits.decrementAndGet();
+    if (pExpired) {
+      expiredPermitCounter.increment();
+    }
   }
 
-  @Override
-  public long getRejectedTaskCount( ) {
-    return rejectionCounter;
+  /**
+   * Method returns the capacity of this pipeline that is neither used by running or queued requests nor reserved by
+   * admission permits.
+   * 
+   * @return int Free capacity of the pipeline. The value is less than or equal to 0 if the pipeline is overloaded.
+   */
+  int getUnreservedCapacity( ) {
+    int lFreeThreads = threadPool.getMaximumPoolSize() - threadPool.getActiveCountLockFree();
+    return Math.max(0, lFreeThreads) + threadPool.getQueue().remainingCapacity() - reservedPermits.get();
   }
 
-  @Override
-  public long getMaxLatencyExceededCounter( ) {
-    return maxLatencyExceededCounter;
+  /**
+   * Method checks if this pipeline is overloaded which means that a request that is handed over now would be rejected.
+   * 
+   * @return boolean Method returns true if the pipeline is overloaded or shut down and false otherwise.
+   */
+  boolean isOverloaded( ) {
+    return shutdown || this.getUnreservedCapacity() <= 0;
   }
 
-  public void incrementMaxLatencyExceededCounter( ) {
-    maxLatencyExceededCounter++;
+  /**
+   * Method hands over a command to the pipeline.
+   * 
+   * @param pRequestTypeKey Request type of the command. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of the command.
+   * @param pCommand Runnable object representing the command that should be executed. The parameter must not be null.
+   * @param pStatistics Statistics that should be updated during the execution of the command. The parameter may be null
+   * if the command does not represent a single request.
+   */
+  void executeCommand( RequestTypeKey pRequestTypeKey, WorkloadErrorHandler pErrorHandler, Runnable pCommand,
+      RequestTypeStatistics pStatistics ) {
+    // Create new executor for the request.
+    CommandExecutor lCommandExecutor =
+        this.createCommandExecutor(pRequestTypeKey, pErrorHandler, pCommand, pStatistics);
+
+    // Hand over request to executor. Request is registered for expiry before so that it can be removed from the queue
+    // as soon as its maximum latency is exceeded.
+    lCommandExecutor.scheduleExpiry();
+    RequestEnqueuedEvent.emit(this, pRequestTypeKey);
+    RejectedExecutionException lException = this.executeInternal(lCommandExecutor);
+    if (lException != null) {
+      this.rejectCommand(lCommandExecutor, lException);
+    }
+  }
+
+  /**
+   * Method can be used to hand over a request that must be executed in order with all other requests that share the
+   * same ordering key, e.g. updates of the same entity. Requests with the same ordering key are collected in a mailbox
+   * and are executed one after the other by one worker thread at a time. Requests with different ordering keys are
+   * executed in parallel. Worker threads are never blocked by waiting for requests of the same ordering key.
+   * 
+   * The maximum queue depth of the pipeline limits the amount of pending requests per ordering key and the maximum
+   * latency of the pipeline is checked before each request is executed.
+   * 
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of requests.
+   * @param pOrderingKey Key that identifies requests that have to be executed in order. The key has to implement
+   * {@link Object#equals(Object)} and {@link Object#hashCode()} properly. The parameter must not be null.
+   * @param pCommand Runnable object representing the request that should be executed. The parameter must not be null.
+   */
+  public void executeOrdered( RequestTypeKey pRequestTypeKey, WorkloadErrorHandler pErrorHandler,
+      Object pOrderingKey, Runnable pCommand ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pOrderingKey, "pOrderingKey");
+
+    // Create new executor for the request.
+    RequestTypeStatistics lStatistics = statistics.getStatistics(pRequestTypeKey);
+    this.recordSubmitted(lStatistics);
+    CommandExecutor lCommandExecutor =
+        this.createCommandExecutor(pRequestTypeKey, pErrorHandler, pCommand, lStatistics);
+    if (shutdown) {
+      this.rejectCommand(lCommandExecutor, this.createShutdownException());
+      return;
+    }
+    RequestEnqueuedEvent.emit(this, pRequestTypeKey);
+
+    // Add request to the mailbox of its ordering key. If the mailbox was closed in the meantime we have to try again
+    // with a new one.
+    boolean lAdded = false;
+    while (lAdded == false) {
+      OrderedMailbox lMailbox = mailboxes.get(pOrderingKey);
+      if (lMailbox == null) {
+        OrderedMailbox lNewMailbox = new OrderedMailbox(pOrderingKey, this, mailboxes, maxQueueDepth);
+        lMailbox = mailboxes.putIfAbsent(pOrderingKey, lNewMailbox);
+        if (lMailbox == null) {
+          lMailbox = lNewMailbox;
+        }
+      }
+      lAdded = lMailbox.add(lCommandExecutor);
+      if (lAdded == false) {
+        mailboxes.remove(pOrderingKey, lMailbox);
+      }
+    }
+  }
+
+  /**
+   * Method creates a new executor for the passed request using the settings of its request type.
+   * 
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of requests.
+   * @param pCommand Runnable object representing the request that should be executed. The parameter must not be null.
+   * @param pStatistics Statistics that should be updated by the executor. The parameter may be null.
+   * @return {@link CommandExecutor} Created executor. The method never returns null.
+   */
+  private CommandExecutor createCommandExecutor( RequestTypeKey pRequestTypeKey, WorkloadErrorHandler pErrorHandler,
+      Runnable pCommand, RequestTypeStatistics pStatistics ) {
+    RequestTypeSettings lSettings = this.resolveRequestTypeSettings(pRequestTypeKey);
+    return new CommandExecutor(pRequestTypeKey, pCommand, this, this.getMaxNanoLatency(lSettings),
+        lSettings.getMaxNanoExecutionTime(), TimeUnit.NANOSECONDS, pErrorHandler, pStatistics,
+        lSettings.getPriority());
+  }
+
+  /**
+   * Method resolves the maximum latency of requests with the passed settings. If the settings do not define their own
+   * maximum latency then the current maximum latency of the pipeline is used.
+   * 
+   * @param pSettings Settings of the request type. The parameter must not be null.
+   * @return long Maximum latency in nano seconds. Values of 0 or less mean that the latency is not checked.
+   */
+  private long getMaxNanoLatency( RequestTypeSettings pSettings ) {
+    long lMaxNanoLatency = pSettings.getMaxNanoLatency();
+    if (lMaxNanoLatency <= 0) {
+      lMaxNanoLatency = this.getMaxNanoLatency();
+    }
+    return lMaxNanoLatency;
+  }
+
+  /**
+   * Method returns the maximum latency of requests of the passed request type based on the current settings.
+   * 
+   * @param pRequestTypeKey Request type of the requests. The parameter must not be null.
+   * @return long Maximum latency in nano seconds. Values of 0 or less mean that the latency is not checked.
+   */
+  long getMaxNanoLatency( RequestTypeKey pRequestTypeKey ) {
+    return this.getMaxNanoLatency(this.resolveRequestTypeSettings(pRequestTypeKey));
+  }
+
+  /**
+   * Method returns the current maximum latency of the pipeline.
+   * 
+   * @return long Maximum latency in nano seconds. Values of 0 or less mean that the latency is not checked.
+   */
+  long getMaxNanoLatency( ) {
+    return pipelineConfig.timeUnit().toNanos(maxLatency);
+  }
+
+  /**
+   * Method hands over the passed runnable to the thread pool of this pipeline.
+   * 
+   * @param pRunnable Runnable that should be executed. The parameter must not be null.
+   * @return {@link RejectedExecutionException} Exception in case that the thread pool rejected the runnable or null if
+   * it was accepted.
+   */
+  RejectedExecutionException executeInternal( Runnable pRunnable ) {
+    RejectedExecutionException lException;
+    try {
+      threadPool.execute(pRunnable);
+      lException = null;
+    }
+    catch (RejectedExecutionException e) {
+      lException = e;
+    }
+    return lException;
+  }
+
+  /**
+   * Method rejects the passed request and reports it to its error handler.
+   * 
+   * @param pCommandExecutor Request that is rejected. The parameter must not be null.
+   * @param pException Exception describing the reason of the rejection. The parameter must not be null.
+   */
+  void rejectCommand( CommandExecutor pCommandExecutor, RejectedExecutionException pException ) {
+    // Request already expired and was reported.
+    if (pCommandExecutor.isExpired()) {
+      return;
+    }
+    if (pCommandExecutor.representsSingleRequest()) {
+      this.incrementRejectionCounter(pCommandExecutor.getRequestTypeKey());
+    }
+    pCommandExecutor.reportRejected(pException);
+  }
+
+  /**
+   * Method can be used to hand over a request whose execution can be shared with identical requests (single flight).
+   * If an identical request, identified by the request type and the passed coalescing key, is already queued or running
+   * then the request will be attached to it and share its result. Otherwise the request will be handed over to the
+   * pipeline like any other request.
+   * 
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of requests.
+   * @param pCoalescingKey Key that identifies identical requests of the same request type. The key has to implement
+   * {@link Object#equals(Object)} and {@link Object#hashCode()} properly. The parameter must not be null.
+   * @param pCommand Callable representing the request that should be executed. The parameter must not be null.
+   * @return {@link CompletableFuture} Future that will be completed with the shared result of the execution. In case of
+   * problems the future will be completed exceptionally. The method never returns null.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<T> executeCoalesced( RequestTypeKey pRequestTypeKey, WorkloadErrorHandler pErrorHandler,
+      Object pCoalescingKey, Callable<T> pCommand ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pRequestTypeKey, "pRequestTypeKey");
+    Check.checkInvalidParameterNull(pErrorHandler, "pErrorHandler");
+    Check.checkInvalidParameterNull(pCoalescingKey, "pCoalescingKey");
+    Check.checkInvalidParameterNull(pCommand, "pCommand");
+
+    CoalescedExecution.Key lKey = new CoalescedExecution.Key(pRequestTypeKey, pCoalescingKey);
+    while (true) {
+      // Try to attach request to an execution that is already in flight.
+      CoalescedExecution<?> lExecution = inflightExecutions.get(lKey);
+      if (lExecution != null) {
+        if (lExecution.attach(pErrorHandler)) {
+          RequestTypeStatistics lStatistics = statistics.getStatistics(pRequestTypeKey);
+          this.recordSubmitted(lStatistics);
+          lStatistics.recordCoalesced();
+          return (CompletableFuture<T>) lExecution.getFuture();
+        }
+        // Execution finished in the meantime. So we have to try again.
+        else {
+          continue;
+        }
+      }
+      // Request has to be executed on its own.
+      else {
+        CoalescedExecution<T> lNewExecution =
+            new CoalescedExecution<>(lKey, pCommand, pErrorHandler, inflightExecutions);
+        if (inflightExecutions.putIfAbsent(lKey, lNewExecution) == null) {
+          this.execute(pRequestTypeKey, lNewExecution, lNewExecution);
+          return lNewExecution.getFuture();
+        }
+      }
+    }
+  }
+
+  /**
+   * Method registers the handler that executes all requests of the passed request type in batches. Requests of the
+   * request type then have to be handed over through
+   * {@link #executeBatched(RequestTypeKey, WorkloadErrorHandler, Object)}. An already registered handler is replaced.
+   * 
+   * @param pRequestTypeKey Request type whose requests should be executed in batches. The parameter must not be null.
+   * @param pBatchHandler Handler that executes the batches. The parameter must not be null.
+   */
+  public <T> void registerBatchHandler( RequestTypeKey pRequestTypeKey, BatchHandler<T> pBatchHandler ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pRequestTypeKey, "pRequestTypeKey");
+    Check.checkInvalidParameterNull(pBatchHandler, "pBatchHandler");
+
+    // Maximum latency is resolved by the accumulator whenever a batch is taken as request type settings may change.
+    BatchAccumulator<T> lAccumulator = new BatchAccumulator<>(pRequestTypeKey, pBatchHandler, this,
+        statistics.getStatistics(pRequestTypeKey), maxBatchSize, pipelineConfig.timeUnit().toNanos(maxBatchLinger),
+        maxQueueDepth, TimeUnit.NANOSECONDS);
+    batchAccumulators.put(pRequestTypeKey, lAccumulator);
+  }
+
+  /**
+   * Method can be used to hand over a request that should be executed together with other requests of the same request
+   * type as one batch. Batches are executed by the {@link BatchHandler} that was registered for the request type. Each
+   * batch only occupies one worker thread and one place in the queue of the pipeline.
+   * 
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of the request.
+   * The parameter must not be null.
+   * @param pRequest Request that should be executed as part of a batch. The parameter must not be null.
+   * @return {@link CompletableFuture} Future that will be completed as soon as the request was processed. In case of
+   * problems the future will be completed exceptionally. The method never returns null.
+   * @throws IllegalArgumentException if no batch handler is registered for the passed request type.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletableFuture<Void> executeBatched( RequestTypeKey pRequestTypeKey, WorkloadErrorHandler pErrorHandler,
+      T pRequest ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pRequestTypeKey, "pRequestTypeKey");
+    Check.checkInvalidParameterNull(pErrorHandler, "pErrorHandler");
+    Check.checkInvalidParameterNull(pRequest, "pRequest");
+
+    BatchAccumulator<T> lAccumulator = (BatchAccumulator<T>) batchAccumulators.get(pRequestTypeKey);
+    if (lAccumulator != null) {
+      if (shutdown == false) {
+        return lAccumulator.add(pRequest, pErrorHandler);
+      }
+      else {
+        return lAccumulator.reject(pRequest, pErrorHandler, this.createShutdownException());
+      }
+    }
+    else {
+      throw new IllegalArgumentException(
+          "No batch handler registered for request type '" + pRequestTypeKey.getKey() + "' in pipeline " + name + ".");
+    }
+  }
+
+  /**
+   * Method removes the passed command from the queue of this pipeline. This is used to free queue capacity for requests
+   * that expired before they could be marked as queued. Resizable queues never accept such requests so only other
+   * queues have to be searched.
+   * 
+   * @param pCommandExecutor Command that should be removed from the queue. The parameter must not be null.
+   */
+  void removeQueuedCommand( CommandExecutor pCommandExecutor ) {
+    if (threadPool.getRequestQueue() instanceof ResizableBlockingQueue == false) {
+      threadPool.remove(pCommandExecutor);
+    }
+  }
+
+  /**
+   * Method marks the passed queued command as expired. Expired commands no longer count against the queue capacity and
+   * are skipped when the next command is taken from the queue. In contrast to removing the command this does not
+   * require to search the queue.
+   * 
+   * @param pCommandExecutor Command that is queued and exceeded its maximum latency. The parameter must not be null.
+   * @return boolean Method returns true if the command was expired and false if it is no longer queued.
+   */
+  boolean expireQueuedCommand( CommandExecutor pCommandExecutor ) {
+    // Only resizable queues mark commands as queued.
+    boolean lExpired = ((ResizableBlockingQueue<?>) threadPool.getRequestQueue()).expire(pCommandExecutor);
+    if (lExpired) {
+      threadPool.queuedTaskExpired();
+    }
+    return lExpired;
+  }
+
+  /**
+   * Method defines specific settings for the passed request type. Settings for a request type also apply to all request
+   * types whose keys can be reduced to the passed key.
+   * 
+   * @param pRequestTypeKey Request type for which the settings should be used. The parameter must not be null.
+   * @param pSettings Settings that should be used for the request type. The parameter must not be null.
+   */
+  public void configureRequestType( RequestTypeKey pRequestTypeKey, RequestTypeSettings pSettings ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pRequestTypeKey, "pRequestTypeKey");
+    Check.checkInvalidParameterNull(pSettings, "pSettings");
+
+    requestTypeSettings.put(pRequestTypeKey, pSettings);
+    resolvedRequestTypeSettings = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Method replaces the settings of all request types at once. Request types that are not part of the passed map will
+   * use the default settings of the pipeline afterwards.
+   * 
+   * @param pSettings Map with the settings of all request types that define their own settings. The parameter must not
+   * be null.
+   */
+  void replaceRequestTypeSettings( Map<RequestTypeKey, RequestTypeSettings> pSettings ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pSettings, "pSettings");
+
+    requestTypeSettings = new ConcurrentHashMap<>(pSettings);
+    resolvedRequestTypeSettings = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Method resolves the settings that have to be used for the passed request type.
+   * 
+   * @param pRequestTypeKey Request type key for which the settings should be resolved. The parameter must not be null.
+   * @return {@link RequestTypeSettings} Settings for the request type. The method never returns null.
+   */
+  private RequestTypeSettings resolveRequestTypeSettings( RequestTypeKey pRequestTypeKey ) {
+    // Cache has to be read before the settings. As it is replaced after the settings were changed, settings that are
+    // resolved from outdated settings can only end up in an outdated cache.
+    Map<RequestTypeKey, RequestTypeSettings> lCache = resolvedRequestTypeSettings;
+    RequestTypeSettings lSettings = lCache.get(pRequestTypeKey);
+    if (lSettings == null) {
+      lSettings = this.resolveRequestTypeSettings(pRequestTypeKey, requestTypeSettings);
+      if (lCache.size() < MAX_CACHED_REQUEST_TYPES) {
+        lCache.put(pRequestTypeKey, lSettings);
+      }
+    }
+    return lSettings;
+  }
+
+  /**
+   * Method resolves the settings that have to be used for the passed request type from the passed map.
+   * 
+   * @param pRequestTypeKey Request type key for which the settings should be resolved. The parameter must not be null.
+   * @param pSettings Map with the settings of all request types. The parameter must not be null.
+   * @return {@link RequestTypeSettings} Settings for the request type. The method never returns null.
+   */
+  private RequestTypeSettings resolveRequestTypeSettings( RequestTypeKey pRequestTypeKey,
+      Map<RequestTypeKey, RequestTypeSettings> pSettings ) {
+    // No request type specific settings are defined at all.
+    RequestTypeSettings lSettings;
+    if (pSettings.isEmpty()) {
+      lSettings = defaultRequestTypeSettings;
+    }
+    else {
+      lSettings = pSettings.get(pRequestTypeKey);
+
+      // No settings found for key. Try to work with reduced key.
+      if (lSettings == null) {
+        RequestTypeKey lReducedKey = pRequestTypeKey.reduceKey();
+        if (lReducedKey != null) {
+          lSettings = this.resolveRequestTypeSettings(lReducedKey, pSettings);
+        }
+        else {
+          lSettings = defaultRequestTypeSettings;
+        }
+      }
+    }
+    return lSettings;
+  }
+
+  /**
+   * Method changes the size of the thread pool of this pipeline while it is running. Threads that are no longer needed
+   * are terminated as soon as they are idle.
+   * 
+   * @param pCoreThreads New amount of core threads. The value must not be negative.
+   * @param pMaxThreads New maximum amount of threads. Values less than the amount of core threads mean that the
+   * amount of core threads is used.
+   * @param pKeepAlive Time after which threads that exceed the amount of core threads are terminated.
+   * @param pTimeUnit Time unit of the keep alive time. The parameter must not be null.
+   */
+  synchronized void resize( int pCoreThreads, int pMaxThreads, long pKeepAlive, TimeUnit pTimeUnit ) {
+    this.resizeThreadPool(pCoreThreads, pMaxThreads);
+    this.setKeepAliveTime(pTimeUnit.toMillis(pKeepAlive));
+  }
+
+  /**
+   * Method changes the amount of core threads and the maximum amount of threads of this pipeline at once. Threads that
+   * are no longer needed are terminated as soon as they are idle.
+   * 
+   * @param pCoreThreads New amount of core threads. The value must not be negative.
+   * @param pMaxThreads New maximum amount of threads. Values less than the amount of core threads mean that the
+   * amount of core threads is used. There must be at least 1 thread.
+   */
+  @Override
+  public synchronized void resizeThreadPool( int pCoreThreads, int pMaxThreads ) {
+    int lMaxThreads = Math.max(pCoreThreads, pMaxThreads);
+    if (pCoreThreads < 0 || lMaxThreads <= 0) {
+      throw new IllegalArgumentException("Invalid thread pool size for pipeline '" + pipelineID + "'. Core threads: "
+          + pCoreThreads + ", max threads: " + pMaxThreads);
+    }
+
+    // Core threads must never exceed the maximum so the order depends on the direction of the change.
+    int lOldCoreThreads = threadPool.getCorePoolSize();
+    int lOldMaxThreads = threadPool.getMaximumPoolSize();
+    if (pCoreThreads > lOldMaxThreads) {
+      threadPool.setMaximumPoolSize(lMaxThreads);
+      threadPool.setCorePoolSize(pCoreThreads);
+    }
+    else {
+      threadPool.setCorePoolSize(pCoreThreads);
+      threadPool.setMaximumPoolSize(lMaxThreads);
+    }
+    this.sendAttributeChange("CorePoolSize", lOldCoreThreads, pCoreThreads);
+    this.sendAttributeChange("MaximumPoolSize", lOldMaxThreads, lMaxThreads);
+  }
+
+  /**
+   * Method checks if this pipeline currently has any work, which means queued or running requests, pending requests of
+   * ordered executions or pending requests of batches.
+   * 
+   * @return boolean Method returns true if the pipeline has no work at all and false otherwise.
+   */
+  boolean isIdle( ) {
+    boolean lIdle =
+        threadPool.getQueue().isEmpty() && threadPool.getActiveCountLockFree() == 0 && mailboxes.isEmpty();
+    if (lIdle) {
+      for (BatchAccumulator<?> lNextAccumulator : batchAccumulators.values()) {
+        if (lNextAccumulator.getPendingCount() > 0) {
+          lIdle = false;
+          break;
+        }
+      }
+    }
+    return lIdle;
+  }
+
+  /**
+   * Method terminates this pipeline. Requests that are already queued are still executed but no new requests are
+   * accepted. Also all periodic activities of the pipeline are stopped.
+   */
+  void terminate( ) {
+    threadPool.shutdown();
+    timeSeries.stopSampling();
+    if (slowRequestDetector != null) {
+      slowRequestDetector.stopReporting();
+    }
+  }
+
+  /**
+   * Method shuts down this pipeline. The pipeline immediately stops accepting new requests. Requests that are already
+   * queued or pending are still executed until the passed timeout is reached. Requests that are still queued afterwards
+   * are rejected through their error handler and running requests are interrupted. Finally the thread pool and all
+   * periodic activities of the pipeline are terminated.
+   * 
+   * @param pTimeout Maximum time to wait until the pipeline is drained.
+   * @param pTimeUnit Time unit of the timeout. The parameter must not be null.
+   * @return boolean Method returns true if the pipeline was drained completely and false if requests were rejected.
+   */
+  public boolean shutdown( long pTimeout, TimeUnit pTimeUnit ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pTimeUnit, "pTimeUnit");
+
+    long lDeadline = System.nanoTime() + pTimeUnit.toNanos(Math.max(0, pTimeout));
+    this.initiateShutdown();
+    return this.awaitShutdown(lDeadline);
+  }
+
+  /**
+   * Method lets the pipeline stop accepting new requests. If the pipeline is paused then it is resumed so that it can
+   * be drained.
+   */
+  synchronized void initiateShutdown( ) {
+    if (shutdown == false) {
+      shutdown = true;
+      threadPool.resume();
+      this.sendAttributeChange("Shutdown", false, true);
+    }
+  }
+
+  /**
+   * Method waits until the pipeline is drained or the passed deadline is reached and terminates the pipeline
+   * afterwards. Requests that are still queued when the deadline is reached are rejected through their error handler.
+   * 
+   * @param pDeadlineNanos Deadline as value of {@link System#nanoTime()}.
+   * @return boolean Method returns true if the pipeline was drained completely and false if requests were rejected.
+   */
+  boolean awaitShutdown( long pDeadlineNanos ) {
+    // Wait until all queued and pending requests are executed.
+    boolean lDrained = this.isIdle();
+    while (lDrained == false && System.nanoTime() - pDeadlineNanos < 0) {
+      try {
+        Thread.sleep(DRAIN_CHECK_INTERVAL);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      lDrained = this.isIdle();
+    }
+
+    // Deadline was reached. Queued requests are rejected and running ones are interrupted.
+    if (lDrained == false) {
+      RejectedExecutionException lException = new RejectedExecutionException(
+          "Pipeline '" + pipelineID + "' was shut down before the request could be executed.");
+      int lRejected = 0;
+      for (Runnable lNextRunnable : threadPool.shutdownNow()) {
+        if (lNextRunnable instanceof CommandExecutor) {
+          this.rejectCommand((CommandExecutor) lNextRunnable, lException);
+          lRejected++;
+        }
+        else if (lNextRunnable instanceof OrderedMailbox) {
+          lRejected += ((OrderedMailbox) lNextRunnable).getPendingCount();
+          ((OrderedMailbox) lNextRunnable).rejectPendingRequests(lException);
+        }
+      }
+      XFun.getTrace().warn("Pipeline '" + pipelineID + "' could not be drained in time. " + lRejected
+          + " queued requests were rejected.");
+    }
+    this.terminate();
+    return lDrained;
+  }
+
+  /**
+   * Method creates the exception that is used to reject requests that are handed over after the pipeline was shut
+   * down.
+   * 
+   * @return {@link RejectedExecutionException} Exception for the rejection. The method never returns null.
+   */
+  private RejectedExecutionException createShutdownException( ) {
+    return new RejectedExecutionException("Pipeline '" + pipelineID + "' is shut down and does not accept requests.");
+  }
+
+  @Override
+  public boolean isShutdown( ) {
+    return shutdown;
+  }
+
+  /**
+   * Method pauses this pipeline. Requests that are already running are completed but no further requests are started
+   * until the pipeline is resumed. New requests are still queued as long as the queue has capacity. The maximum latency
+   * of queued requests is still checked.
+   */
+  @Override
+  public synchronized void pause( ) {
+    if (shutdown) {
+      throw new IllegalStateException("Pipeline '" + pipelineID + "' is shut down and can not be paused.");
+    }
+    boolean lOldPaused = threadPool.isPaused();
+    threadPool.pause();
+    this.sendAttributeChange("Paused", lOldPaused, true);
+  }
+
+  /**
+   * Method resumes this pipeline after it was paused.
+   */
+  @Override
+  public synchronized void resume( ) {
+    boolean lOldPaused = threadPool.isPaused();
+    threadPool.resume();
+    this.sendAttributeChange("Paused", lOldPaused, false);
+  }
+
+  @Override
+  public boolean isPaused( ) {
+    return threadPool.isPaused();
+  }
+
+  @Override
+  public int getReservedPermitCount( ) {
+    return Math.max(0, reservedPermits.get());
+  }
+
+  @Override
+  public long getExpiredPermitCount( ) {
+    return expiredPermitCounter.sum();
+  }
+
+  // Implements methods for MBean
+  @Override
+  public int getPoolSize( ) {
+    return threadPool.getPoolSizeLockFree();
+  }
+
+  @Override
+  public int getCorePoolSize( ) {
+    return threadPool.getCorePoolSize();
+  }
+
+  @Override
+  public int getMaximumPoolSize( ) {
+    return threadPool.getMaximumPoolSize();
+  }
+
+  @Override
+  public int getLargestPoolSize( ) {
+    return threadPool.getLargestPoolSizeLockFree();
+  }
+
+  @Override
+  public int getActiveCount( ) {
+    return threadPool.getActiveCountLockFree();
+  }
+
+  /**
+   * Method changes the amount of core threads. If the new amount exceeds the maximum amount of threads then the maximum
+   * is raised as well.
+   * 
+   * @param pCorePoolSize New amount of core threads. The value must not be negative.
+   */
+  @Override
+  public synchronized void setCorePoolSize( int pCorePoolSize ) {
+    this.resizeThreadPool(pCorePoolSize, threadPool.getMaximumPoolSize());
+  }
+
+  /**
+   * Method changes the maximum amount of threads.
+   * 
+   * @param pMaximumPoolSize New maximum amount of threads. The value must not be less than the amount of core threads
+   * and must be greater than 0.
+   */
+  @Override
+  public synchronized void setMaximumPoolSize( int pMaximumPoolSize ) {
+    int lCoreThreads = threadPool.getCorePoolSize();
+    if (pMaximumPoolSize < lCoreThreads) {
+      throw new IllegalArgumentException("Maximum pool size " + pMaximumPoolSize + " of pipeline '" + pipelineID
+          + "' must not be less than the core pool size " + lCoreThreads + ".");
+    }
+    this.resizeThreadPool(lCoreThreads, pMaximumPoolSize);
+  }
+
+  @Override
+  public long getKeepAliveTime( ) {
+    return threadPool.getKeepAliveTime(TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Method changes the time after which threads that exceed the amount of core threads are terminated.
+   * 
+   * @param pKeepAliveTime New keep alive time in milliseconds. The value must not be negative.
+   */
+  @Override
+  public synchronized void setKeepAliveTime( long pKeepAliveTime ) {
+    if (pKeepAliveTime < 0) {
+      throw new IllegalArgumentException(
+          "Keep alive time of pipeline '" + pipelineID + "' must not be negative. Keep alive: " + pKeepAliveTime);
+    }
+    long lOldKeepAliveTime = threadPool.getKeepAliveTime(TimeUnit.MILLISECONDS);
+    threadPool.setKeepAliveTime(pKeepAliveTime, TimeUnit.MILLISECONDS);
+    this.sendAttributeChange("KeepAliveTime", lOldKeepAliveTime, pKeepAliveTime);
+  }
+
+  @Override
+  public int getMaxLatency( ) {
+    return maxLatency;
+  }
+
+  /**
+   * Method changes the maximum latency of requests. The new value applies to all requests that are handed over
+   * afterwards. Requests that are already queued keep the maximum latency they were handed over with.
+   * 
+   * @param pMaxLatency New maximum latency in the time unit of the pipeline, see {@link #getTimeUnit()}. Values of 0 or
+   * less disable the check of the latency.
+   */
+  @Override
+  public synchronized void setMaxLatency( int pMaxLatency ) {
+    int lOldMaxLatency = maxLatency;
+    maxLatency = pMaxLatency;
+    this.sendAttributeChange("MaxLatency", lOldMaxLatency, pMaxLatency);
+  }
+
+  @Override
+  public String getTimeUnit( ) {
+    return pipelineConfig.timeUnit().name();
+  }
+
+  @Override
+  public int getMaxQueueDepth( ) {
+    return maxQueueDepth;
+  }
+
+  /**
+   * Method returns the queue type of this pipeline.
+   * 
+   * @return {@link QueueType} Queue type of the pipeline. The method never returns null.
+   */
+  QueueType getQueueType( ) {
+    return pipelineConfig.queueType();
+  }
+
+  /**
+   * Method changes the maximum amount of queued requests. If the queue currently contains more requests than the new
+   * maximum then these requests are still executed but new requests are rejected until the queue is small enough.
+   * 
+   * @param pMaxQueueDepth New maximum queue depth. The value must be greater than 0.
+   * @throws IllegalStateException if the pipeline does not queue requests.
+   */
+  @Override
+  public synchronized void setMaxQueueDepth( int pMaxQueueDepth ) {
+    if (threadPool.getRequestQueue() instanceof ResizableBlockingQueue) {
+      ((ResizableBlockingQueue<?>) threadPool.getRequestQueue()).setCapacity(pMaxQueueDepth);
+      int lOldMaxQueueDepth = maxQueueDepth;
+      maxQueueDepth = pMaxQueueDepth;
+      this.sendAttributeChange("MaxQueueDepth", lOldMaxQueueDepth, pMaxQueueDepth);
+    }
+    else {
+      throw new IllegalStateException("Queue depth of pipeline '" + pipelineID
+          + "' can not be changed as its queue type is " + pipelineConfig.queueType() + ".");
+    }
+  }
+
+  /**
+   * Method sends a notification about the change of the passed attribute if its value really changed. The change is
+   * also traced.
+   * 
+   * @param pAttributeName Name of the attribute that changed. The parameter must not be null.
+   * @param pOldValue Old value of the attribute.
+   * @param pNewValue New value of the attribute.
+   */
+  private void sendAttributeChange( String pAttributeName, Object pOldValue, Object pNewValue ) {
+    if (Objects.equals(pOldValue, pNewValue) == false) {
+      String lMessage = "Attribute " + pAttributeName + " of pipeline '" + pipelineID + "' changed from " + pOldValue
+          + " to " + pNewValue + ".";
+      XFun.getTrace().info(lMessage);
+      AttributeChangeNotification lNotification = new AttributeChangeNotification(this,
+          notificationSequence.incrementAndGet(), System.currentTimeMillis(), lMessage, pAttributeName,
+          pNewValue.getClass().getName(), pOldValue, pNewValue);
+      notificationSupport.sendNotification(lNotification);
+    }
+  }
+
+  @Override
+  public void addNotificationListener( NotificationListener pListener, NotificationFilter pFilter,
+      Object pHandback ) {
+    notificationSupport.addNotificationListener(pListener, pFilter, pHandback);
+  }
+
+  @Override
+  public void removeNotificationListener( NotificationListener pListener ) throws ListenerNotFoundException {
+    notificationSupport.removeNotificationListener(pListener);
+  }
+
+  @Override
+  public void removeNotificationListener( NotificationListener pListener, NotificationFilter pFilter,
+      Object pHandback ) throws ListenerNotFoundException {
+    notificationSupport.removeNotificationListener(pListener, pFilter, pHandback);
+  }
+
+  @Override
+  public MBeanNotificationInfo[] getNotificationInfo( ) {
+    return notificationSupport.getNotificationInfo();
+  }
+
+  @Override
+  public int getRemainingQueueCapacity( ) {
+    return threadPool.getQueue().remainingCapacity();
+  }
+
+  @Override
+  public int getQueueSize( ) {
+    return threadPool.getQueue().size();
+  }
+
+  @Override
+  public long getCompletedTaskCount( ) {
+    return threadPool.getCompletedTaskCountLockFree();
+  }
+
+  @Override
+  public long getTaskCount( ) {
+    return threadPool.getTaskCountLockFree();
+  }
+
+  @Override
+  public long getRejectedTaskCount( ) {
+    return rejectionCounter.sum();
+  }
+
+  @Override
+  public long getMaxLatencyExceededCounter( ) {
+    return maxLatencyExceededCounter.sum();
+  }
+
+  void incrementRejectionCounter( RequestTypeKey pRequestTypeKey ) {
+    rejectionCounter.increment();
+    rejectionRate.increment();
+    topRejections.add(pRequestTypeKey);
+  }
+
+  @Override
+  public Map<String, Long> getTopSubmittedRequestTypes( ) {
+    return topSubmissions.getTopCounts();
+  }
+
+  @Override
+  public Map<String, Long> getTopRejectedRequestTypes( ) {
+    return topRejections.getTopCounts();
+  }
+
+  @Override
+  public void resetTopRequestTypes( ) {
+    topSubmissions.reset();
+    topRejections.reset();
+  }
+
+  public void incrementMaxLatencyExceededCounter( ) {
+    maxLatencyExceededCounter.increment();
+    latencyViolationRate.increment();
+  }
+
+  @Override
+  public long getCoalescedRequestCount( ) {
+    return statistics.getCoalescedCount();
+  }
+
+  @Override
+  public Map<String, Long> getCoalescedRequestCounts( ) {
+    Map<String, Long> lCounts = new HashMap<>();
+    for (RequestTypeStatistics lNextStatistics : statistics.getAllStatistics()) {
+      long lCount = lNextStatistics.getCoalescedCount();
+      if (lCount > 0) {
+        lCounts.put(lNextStatistics.getRequestTypeKey().getKey(), lCount);
+      }
+    }
+    return lCounts;
+  }
+
+  @Override
+  public int getOrderedMailboxCount( ) {
+    return mailboxes.size();
+  }
+
+  @Override
+  public int getOrderedRequestCount( ) {
+    int lCount = 0;
+    for (OrderedMailbox lNextMailbox : mailboxes.values()) {
+      lCount += lNextMailbox.getPendingCount();
+    }
+    return lCount;
+  }
+
+  @Override
+  public long getMaxExecutionTimeExceededCounter( ) {
+    return maxExecutionTimeExceededCounter.sum();
+  }
+
+  @Override
+  public int getSlowRequestCount( ) {
+    return this.getSlowRequests().size();
+  }
+
+  @Override
+  public String[] getSlowRequestDetails( ) {
+    List<SlowRequest> lSlowRequests = this.getSlowRequests();
+    String[] lDetails = new String[lSlowRequests.size()];
+    for (int i = 0; i < lDetails.length; i++) {
+      lDetails[i] = lSlowRequests.get(i).toString();
+    }
+    return lDetails;
+  }
+
+  @Override
+  public int getTimeSeriesSize( ) {
+    return timeSeries.getSize();
+  }
+
+  @Override
+  public String dumpTimeSeriesAsCSV( ) {
+    return timeSeries.toCSV();
+  }
+
+  @Override
+  public String dumpTimeSeriesAsJSON( ) {
+    return timeSeries.toJSON();
+  }
+
+  @Override
+  public int getResourceSamplingInterval( ) {
+    return resourceSamplingInterval;
+  }
+
+  @Override
+  public String getThreadGroupName( ) {
+    return threadFactory.getThreadGroup().getName();
+  }
+
+  @Override
+  public int getThreadPriority( ) {
+    return pipelineConfig.threadPriority();
+  }
+
+  @Override
+  public boolean isWarmingUp( ) {
+    return threadPool.isWarmingUp();
+  }
+
+  @Override
+  public long getRemainingWarmUpTime( ) {
+    return threadPool.getRemainingWarmUpTime(TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public int getConcurrencyLimit( ) {
+    return threadPool.getConcurrencyLimit();
+  }
+
+  void incrementMaxExecutionTimeExceededCounter( ) {
+    maxExecutionTimeExceededCounter.increment();
+    latencyViolationRate.increment();
+  }
+
+  @Override
+  public long getQueueWaitP50Micros( ) {
+    return this.getLatencyMicros(LatencyType.QUEUE_WAIT, 50);
+  }
+
+  @Override
+  public long getQueueWaitP99Micros( ) {
+    return this.getLatencyMicros(LatencyType.QUEUE_WAIT, 99);
+  }
+
+  @Override
+  public long getQueueWaitP999Micros( ) {
+    return this.getLatencyMicros(LatencyType.QUEUE_WAIT, 99.9);
+  }
+
+  @Override
+  public long getQueueWaitMaxMicros( ) {
+    return this.getLatencyMicros(LatencyType.QUEUE_WAIT, 100);
+  }
+
+  @Override
+  public long getServiceTimeP50Micros( ) {
+    return this.getLatencyMicros(LatencyType.SERVICE_TIME, 50);
+  }
+
+  @Override
+  public long getServiceTimeP99Micros( ) {
+    return this.getLatencyMicros(LatencyType.SERVICE_TIME, 99);
+  }
+
+  @Override
+  public long getServiceTimeP999Micros( ) {
+    return this.getLatencyMicros(LatencyType.SERVICE_TIME, 99.9);
+  }
+
+  @Override
+  public long getServiceTimeMaxMicros( ) {
+    return this.getLatencyMicros(LatencyType.SERVICE_TIME, 100);
+  }
+
+  @Override
+  public long getEndToEndP50Micros( ) {
+    return this.getLatencyMicros(LatencyType.END_TO_END, 50);
+  }
+
+  @Override
+  public long getEndToEndP99Micros( ) {
+    return this.getLatencyMicros(LatencyType.END_TO_END, 99);
+  }
+
+  @Override
+  public long getEndToEndP999Micros( ) {
+    return this.getLatencyMicros(LatencyType.END_TO_END, 99.9);
+  }
+
+  @Override
+  public long getEndToEndMaxMicros( ) {
+    return this.getLatencyMicros(LatencyType.END_TO_END, 100);
+  }
+
+  @Override
+  public double getSubmissionRate1s( ) {
+    return submissionRate.snapshot().getRate1s();
+  }
+
+  @Override
+  public double getSubmissionRate10s( ) {
+    return submissionRate.snapshot().getRate10s();
+  }
+
+  @Override
+  public double getSubmissionRate60s( ) {
+    return submissionRate.snapshot().getRate60s();
+  }
+
+  @Override
+  public long getSubmissionPeakRate( ) {
+    return submissionRate.snapshot().getPeak();
+  }
+
+  @Override
+  public double getCompletionRate1s( ) {
+    return completionRate.snapshot().getRate1s();
+  }
+
+  @Override
+  public double getCompletionRate10s( ) {
+    return completionRate.snapshot().getRate10s();
+  }
+
+  @Override
+  public double getCompletionRate60s( ) {
+    return completionRate.snapshot().getRate60s();
+  }
+
+  @Override
+  public long getCompletionPeakRate( ) {
+    return completionRate.snapshot().getPeak();
+  }
+
+  /**
+   * Method returns the mean service time of the requests that were completed within the last 60 seconds. In contrast
+   * to the service time histogram this covers the same window as {@link #getSubmissionRate60s()}.
+   * 
+   * @return long Mean service time in nano seconds. If no request was completed within the last 60 seconds then 0 is
+   * returned.
+   */
+  long getMeanServiceNanos60s( ) {
+    double lCompletionRate = completionRate.snapshot().getRate60s();
+    long lMeanServiceNanos;
+    if (lCompletionRate > 0) {
+      // Requests that took less than a micro second still have a service time.
+      double lServiceMicros = serviceTimeRate.snapshot().getRate60s() / lCompletionRate;
+      lMeanServiceNanos = Math.max(1, Math.round(lServiceMicros * TimeUnit.MICROSECONDS.toNanos(1)));
+    }
+    else {
+      lMeanServiceNanos = 0;
+    }
+    return lMeanServiceNanos;
+  }
+
+  @Override
+  public double getRejectionRate1s( ) {
+    return rejectionRate.snapshot().getRate1s();
+  }
+
+  @Override
+  public double getRejectionRate10s( ) {
+    return rejectionRate.snapshot().getRate10s();
+  }
+
+  @Override
+  public double getRejectionRate60s( ) {
+    return rejectionRate.snapshot().getRate60s();
+  }
+
+  @Override
+  public long getRejectionPeakRate( ) {
+    return rejectionRate.snapshot().getPeak();
+  }
+
+  @Override
+  public double getLatencyViolationRate1s( ) {
+    return latencyViolationRate.snapshot().getRate1s();
+  }
+
+  @Override
+  public double getLatencyViolationRate10s( ) {
+    return latencyViolationRate.snapshot().getRate10s();
+  }
+
+  @Override
+  public double getLatencyViolationRate60s( ) {
+    return latencyViolationRate.snapshot().getRate60s();
+  }
+
+  @Override
+  public long getLatencyViolationPeakRate( ) {
+    return latencyViolationRate.snapshot().getPeak();
   }
 }
@@ -0,0 +1,990 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class implements the thread pool of a pipeline. In addition to the standard thread pool it maintains its own
+ * counters that are updated in the hot path. This way metrics can be read without taking the main lock of the thread
+ * pool which is also required to execute requests. Please be aware that {@link ThreadPoolExecutor#getActiveCount()},
+ * {@link ThreadPoolExecutor#getPoolSize()}, {@link ThreadPoolExecutor#getLargestPoolSize()},
+ * {@link ThreadPoolExecutor#getTaskCount()} and {@link ThreadPoolExecutor#getCompletedTaskCount()} all take this lock.
+ *
+ * After a warm-up was started the amount of concurrently executed tasks is limited. The limit ramps up linearly from 1
+ * to the maximum pool size during the warm-up time. Threads that would exceed the limit wait before they take a task
+ * from the queue. The same way threads wait while the pool is paused. This way a thread never holds a task that it must
+ * not execute yet, so interrupted threads do not execute tasks early and {@link #shutdownNow()} returns all tasks that
+ * were not started. Only while the pool is paused or warming up threads take their tasks through a common lock.
+ * Otherwise they take them directly from the queue. Threads that wait directly on the queue when the pool is paused are
+ * interrupted so that they continue to wait behind the lock. Tasks that are handed over while the pool is paused are
+ * only queued. During the warm-up all core threads are started when the first task is handed over and tasks are only
+ * queued as well. If the queue is full then additional threads are started without a task, so that they also respect
+ * the concurrency limit, and tasks that still do not fit into the queue are rejected.
+ *
+ * @author JEAF Development Team
+ */
+class PipelineExecutor extends ThreadPoolExecutor {
+  /**
+   * Maximum time in nano seconds that a thread waits during warm-up before it checks the concurrency limit again.
+   */
+  private static final long WARM_UP_CHECK_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /**
+   * Task that does nothing. It is used to start a thread for queued tasks if the pool does not have any thread after it
+   * was resumed and to start additional threads during the warm-up.
+   */
+  private static final Runnable START_WORKER = new Runnable() {
+    @Override
+    public void run( ) {
+      // Nothing to do.
+    }
+  };
+
+  /**
+   * Queue that actually stores the tasks of the pool.
+   */
+  private final BlockingQueue<Runnable> requestQueue;
+
+  /**
+   * Amount of tasks that were accepted by the thread pool.
+   */
+  private final LongAdder taskCount = new LongAdder();
+
+  /**
+   * Amount of tasks whose execution is completed.
+   */
+  private final LongAdder completedTaskCount = new LongAdder();
+
+  /**
+   * Amount of tasks that are currently executed.
+   */
+  private final AtomicInteger activeCount = new AtomicInteger();
+
+  /**
+   * Current amount of threads of the pool.
+   */
+  private final AtomicInteger poolSize = new AtomicInteger();
+
+  /**
+   * Largest amount of threads that the pool ever had.
+   */
+  private final AtomicInteger largestPoolSize = new AtomicInteger();
+
+  /**
+   * Lock that is used by threads to take tasks from the queue while the pool is paused or warming up. Checking whether
+   * a task may be started and taking it from the queue is done atomically so that tasks are held back in the queue. The
+   * lock is fair so that a thread that was woken up for a queued task takes it before further tasks are queued.
+   */
+  private final ReentrantLock gateLock = new ReentrantLock(true);
+
+  /**
+   * Condition for threads that wait until they may take a task from the queue because the pool is paused or the
+   * concurrency limit of the warm-up is reached.
+   */
+  private final Condition gateCondition = gateLock.newCondition();
+
+  /**
+   * Condition for threads that may take a task but the queue is empty.
+   */
+  private final Condition notEmpty = gateLock.newCondition();
+
+  /**
+   * Amount of threads that wait behind {@link #gateLock} for tasks to be queued.
+   */
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  /**
+   * Amount of tasks that were taken from the queue during warm-up but are not yet counted as active. Together with the
+   * active tasks they are limited by the concurrency limit of the warm-up.
+   */
+  private final AtomicInteger dispatchedCount = new AtomicInteger();
+
+  /**
+   * State of all threads of the pool. They are used to find the threads that take their tasks directly from the queue.
+   */
+  private final Set<TakeState> takeStates = ConcurrentHashMap.newKeySet();
+
+  /**
+   * State of the current thread if it is a thread of the pool.
+   */
+  private final ThreadLocal<TakeState> currentTakeState = new ThreadLocal<>();
+
+  /**
+   * Point in time in nano seconds when the warm-up was started.
+   */
+  private volatile long warmUpStart;
+
+  /**
+   * Duration of the warm-up in nano seconds.
+   */
+  private volatile long warmUpDuration;
+
+  /**
+   * Flag indicates if the pool is still warming up. After the warm-up the flag is the only overhead in the hot path.
+   */
+  private volatile boolean warmingUp;
+
+  /**
+   * Flag indicates if the pool is paused. Tasks that are already executed are not affected.
+   */
+  private volatile boolean paused;
+
+  /**
+   * Initialize object.
+   *
+   * @param pCorePoolSize Amount of core threads.
+   * @param pMaximumPoolSize Maximum amount of threads.
+   * @param pKeepAliveTime Time after which threads that exceed the amount of core threads are terminated.
+   * @param pTimeUnit Time unit of the keep alive time. The parameter must not be null.
+   * @param pWorkQueue Queue that is used to hold requests before they are executed. The parameter must not be null.
+   */
+  PipelineExecutor( int pCorePoolSize, int pMaximumPoolSize, long pKeepAliveTime, TimeUnit pTimeUnit,
+      BlockingQueue<Runnable> pWorkQueue ) {
+    this(pCorePoolSize, pMaximumPoolSize, pKeepAliveTime, pTimeUnit, pWorkQueue, Executors.defaultThreadFactory());
+  }
+
+  /**
+   * Initialize object.
+   *
+   * @param pCorePoolSize Amount of core threads.
+   * @param pMaximumPoolSize Maximum amount of threads.
+   * @param pKeepAliveTime Time after which threads that exceed the amount of core threads are terminated.
+   * @param pTimeUnit Time unit of the keep alive time. The parameter must not be null.
+   * @param pWorkQueue Queue that is used to hold requests before they are executed. The parameter must not be null.
+   * @param pThreadFactory Factory that is used to create the threads of the pool. The parameter must not be null.
+   */
+  PipelineExecutor( int pCorePoolSize, int pMaximumPoolSize, long pKeepAliveTime, TimeUnit pTimeUnit,
+      BlockingQueue<Runnable> pWorkQueue, ThreadFactory pThreadFactory ) {
+    this(pCorePoolSize, pMaximumPoolSize, pKeepAliveTime, pTimeUnit, new GatedQueue(pWorkQueue), pThreadFactory);
+  }
+
+  /**
+   * Initialize object.
+   *
+   * @param pCorePoolSize Amount of core threads.
+   * @param pMaximumPoolSize Maximum amount of threads.
+   * @param pKeepAliveTime Time after which threads that exceed the amount of core threads are terminated.
+   * @param pTimeUnit Time unit of the keep alive time. The parameter must not be null.
+   * @param pGatedQueue Queue through which the threads of the pool take their tasks. The parameter must not be null.
+   * @param pThreadFactory Factory that is used to create the threads of the pool. The parameter must not be null.
+   */
+  private PipelineExecutor( int pCorePoolSize, int pMaximumPoolSize, long pKeepAliveTime, TimeUnit pTimeUnit,
+      GatedQueue pGatedQueue, ThreadFactory pThreadFactory ) {
+    super(pCorePoolSize, pMaximumPoolSize, pKeepAliveTime, pTimeUnit, pGatedQueue);
+
+    // Check parameter
+    Check.checkInvalidParameterNull(pThreadFactory, "pThreadFactory");
+
+    // Threads are only started afterwards so they always see the executor.
+    requestQueue = pGatedQueue.delegate;
+    pGatedQueue.executor = this;
+
+    // Threads of the pool are counted by the factory so that the pool size can be tracked without locks.
+    this.setThreadFactory(new CountingThreadFactory(pThreadFactory));
+  }
+
+  @Override
+  public void execute( Runnable pCommand ) {
+    // Task is counted before so that it is always counted before it is completed.
+    taskCount.increment();
+    try {
+      if (paused) {
+        this.queueWhilePaused(pCommand);
+      }
+      // Threads must not start with a task during the warm-up as they would not respect the concurrency limit.
+      else if (warmingUp && this.isWarmingUp()) {
+        this.queueWhileWarmingUp(pCommand);
+      }
+      else {
+        super.execute(pCommand);
+      }
+    }
+    catch (RejectedExecutionException e) {
+      taskCount.decrement();
+      throw e;
+    }
+  }
+
+  /**
+   * Method queues the passed task while the pool is paused. In contrast to {@link ThreadPoolExecutor#execute(Runnable)}
+   * no thread is started with the task so that it is never executed before the pool is resumed.
+   *
+   * @param pCommand Task that should be queued. The parameter must not be null.
+   * @throws RejectedExecutionException if the queue is full or if the pool is shut down.
+   */
+  private void queueWhilePaused( Runnable pCommand ) {
+    gateLock.lock();
+    try {
+      if (paused) {
+        if (this.isShutdown() || requestQueue.offer(pCommand) == false) {
+          this.getRejectedExecutionHandler().rejectedExecution(pCommand, this);
+        }
+      }
+      // Pool was resumed in the meantime.
+      else {
+        super.execute(pCommand);
+      }
+    }
+    finally {
+      gateLock.unlock();
+    }
+  }
+
+  /**
+   * Method queues the passed task during the warm-up. In contrast to {@link ThreadPoolExecutor#execute(Runnable)} no
+   * thread is started with the task. Core threads are started in advance. If the queue is full then an additional
+   * thread is started without a task as long as the concurrency limit exceeds the amount of threads.
+   *
+   * @param pCommand Task that should be queued. The parameter must not be null.
+   * @throws RejectedExecutionException if the queue is full or if the pool is shut down.
+   */
+  private void queueWhileWarmingUp( Runnable pCommand ) {
+    this.prestartAllCoreThreads();
+    BlockingQueue<Runnable> lQueue = this.getQueue();
+    boolean lQueued = this.isShutdown() == false && lQueue.offer(pCommand);
+    if (lQueued == false && this.isShutdown() == false) {
+      int lPoolSize = this.getPoolSize();
+      if (lPoolSize < this.getConcurrencyLimit() && lPoolSize < this.getMaximumPoolSize()) {
+        this.startWorker();
+      }
+      lQueued = lQueue.offer(pCommand);
+    }
+    // Pool was shut down in the meantime.
+    if (lQueued && this.isShutdown() && lQueue.remove(pCommand)) {
+      lQueued = false;
+    }
+    if (lQueued == false) {
+      this.getRejectedExecutionHandler().rejectedExecution(pCommand, this);
+    }
+    // Pool without core threads requires a thread for the queued task.
+    else if (this.getCorePoolSize() == 0 && this.getPoolSize() == 0) {
+      this.startWorker();
+    }
+  }
+
+  /**
+   * Method starts a new thread without a task. The thread takes its first task from the queue.
+   */
+  private void startWorker( ) {
+    try {
+      super.execute(START_WORKER);
+    }
+    catch (RejectedExecutionException e) {
+      // Pool was shut down or reached its maximum size in the meantime.
+    }
+  }
+
+  @Override
+  public boolean remove( Runnable pTask ) {
+    boolean lRemoved = super.remove(pTask);
+    if (lRemoved) {
+      taskCount.decrement();
+    }
+    return lRemoved;
+  }
+
+  /**
+   * Method is called in case that a queued task expired. Expired tasks are dropped by the queue and will never be
+   * executed. Thus they are no longer counted as tasks just like tasks that are removed from the queue.
+   */
+  void queuedTaskExpired( ) {
+    taskCount.decrement();
+  }
+
+  @Override
+  protected void beforeExecute( Thread pThread, Runnable pRunnable ) {
+    activeCount.incrementAndGet();
+
+    // Task that was taken from the queue during warm-up is now counted as active. Threads that start with their first
+    // task were never dispatched, so the counter must not become negative.
+    int lDispatched = dispatchedCount.get();
+    while (lDispatched > 0 && dispatchedCount.compareAndSet(lDispatched, lDispatched - 1) == false) {
+      lDispatched = dispatchedCount.get();
+    }
+    super.beforeExecute(pThread, pRunnable);
+  }
+
+  @Override
+  protected void afterExecute( Runnable pRunnable, Throwable pThrowable ) {
+    try {
+      super.afterExecute(pRunnable, pThrowable);
+    }
+    finally {
+      if (pRunnable != START_WORKER) {
+        completedTaskCount.increment();
+      }
+      activeCount.decrementAndGet();
+
+      // Wake up a thread that waits for the concurrency limit.
+      if (warmingUp) {
+        gateLock.lock();
+        try {
+          gateCondition.signal();
+        }
+        finally {
+          gateLock.unlock();
+        }
+      }
+    }
+  }
+
+  /**
+   * Method starts the warm-up of the pool. During the warm-up the amount of concurrently executed tasks ramps up
+   * linearly from 1 to the maximum pool size.
+   *
+   * @param pWarmUpTime Duration of the warm-up. Values of 0 or less mean that there is no warm-up.
+   * @param pTimeUnit Time unit of the warm-up time. The parameter must not be null.
+   */
+  void startWarmUp( long pWarmUpTime, TimeUnit pTimeUnit ) {
+    if (pWarmUpTime > 0) {
+      warmUpDuration = pTimeUnit.toNanos(pWarmUpTime);
+      warmUpStart = System.nanoTime();
+      warmingUp = true;
+      this.releaseDirectTakers();
+    }
+  }
+
+  /**
+   * Method takes the next task from the queue as soon as the pool is not paused and the concurrency limit of the
+   * warm-up allows to start another task. The method is called by the threads of the pool through the queue. As no task
+   * is taken before, interrupted threads never hold a task. Unless the pool is paused or warming up the task is taken
+   * directly from the queue without any further synchronization.
+   *
+   * @param pTimed Flag indicates if the calling thread waits at most for the passed timeout.
+   * @param pTimeoutNanos Maximum time in nano seconds to wait if <code>pTimed</code> is true.
+   * @return {@link Runnable} Next task or null if the timeout elapsed.
+   * @throws InterruptedException if the calling thread is interrupted while waiting.
+   */
+  private Runnable takeTask( boolean pTimed, long pTimeoutNanos ) throws InterruptedException {
+    long lNanos = pTimeoutNanos;
+    TakeState lTakeState = currentTakeState.get();
+    while (true) {
+      // State has to be published before the flags are checked. This way a thread that pauses the pool either sees
+      // that this thread takes its task directly from the queue or this thread sees that the pool is paused.
+      if (lTakeState != null) {
+        lTakeState.state.set(TakeState.TAKING);
+        if (paused == false && this.isWarmingUp() == false) {
+          Runnable lTask = null;
+          try {
+            if (pTimed) {
+              lTask = requestQueue.poll(lNanos, TimeUnit.NANOSECONDS);
+            }
+            else {
+              lTask = requestQueue.take();
+            }
+          }
+          finally {
+            lTakeState.leave(lTask == null);
+          }
+          return lTask;
+        }
+        lTakeState.leave(true);
+      }
+
+      // Task has to be taken behind the gate.
+      long lStart = pTimed ? System.nanoTime() : 0;
+      Runnable lTask = this.takeGatedTask(pTimed, lNanos);
+      if (lTask != null) {
+        return lTask;
+      }
+      if (pTimed) {
+        lNanos = lNanos - (System.nanoTime() - lStart);
+        if (lNanos <= 0) {
+          return null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Method takes the next task from the queue while the pool is paused or warming up. The method returns as soon as the
+   * pool is neither paused nor warming up any longer so that the task can be taken directly from the queue.
+   *
+   * @param pTimed Flag indicates if the calling thread waits at most for the passed timeout.
+   * @param pTimeoutNanos Maximum time in nano seconds to wait if <code>pTimed</code> is true.
+   * @return {@link Runnable} Next task or null if the timeout elapsed or if the pool is neither paused nor warming up.
+   * @throws InterruptedException if the calling thread is interrupted while waiting.
+   */
+  private Runnable takeGatedTask( boolean pTimed, long pTimeoutNanos ) throws InterruptedException {
+    long lNanos = pTimeoutNanos;
+    Runnable lTask = null;
+    gateLock.lockInterruptibly();
+    try {
+      while (lTask == null && (paused || this.isWarmingUp())) {
+        if (this.isGateOpen()) {
+          // Thread is counted as idle before it checks the queue so that it never misses a signal.
+          idleCount.incrementAndGet();
+          try {
+            lTask = requestQueue.poll();
+            if (lTask == null) {
+              // During warm-up the thread has to check from time to time whether the warm-up is over.
+              long lWaitNanos;
+              if (this.isWarmingUp()) {
+                lWaitNanos = Math.min(warmUpDuration - (System.nanoTime() - warmUpStart), WARM_UP_CHECK_INTERVAL);
+              }
+              else {
+                lWaitNanos = Long.MAX_VALUE;
+              }
+              if (pTimed == false) {
+                if (lWaitNanos == Long.MAX_VALUE) {
+                  notEmpty.await();
+                }
+                else {
+                  notEmpty.awaitNanos(Math.max(0, lWaitNanos));
+                }
+              }
+              else if (lNanos > 0) {
+                lWaitNanos = Math.max(0, Math.min(lWaitNanos, lNanos));
+                lNanos = lNanos - lWaitNanos + notEmpty.awaitNanos(lWaitNanos);
+              }
+              else {
+                break;
+              }
+            }
+          }
+          finally {
+            idleCount.decrementAndGet();
+          }
+        }
+        else if (pTimed && lNanos <= 0) {
+          break;
+        }
+        else if (paused) {
+          if (pTimed) {
+            lNanos = gateCondition.awaitNanos(lNanos);
+          }
+          else {
+            gateCondition.await();
+          }
+        }
+        // While warming up the concurrency limit is checked again from time to time as it increases over time.
+        else {
+          long lRemainingNanos = Math.max(0, warmUpDuration - (System.nanoTime() - warmUpStart));
+          long lWaitNanos = Math.min(lRemainingNanos, WARM_UP_CHECK_INTERVAL);
+          if (pTimed) {
+            lWaitNanos = Math.min(lWaitNanos, lNanos);
+            lNanos = lNanos - lWaitNanos + gateCondition.awaitNanos(lWaitNanos);
+          }
+          else {
+            gateCondition.awaitNanos(lWaitNanos);
+          }
+        }
+      }
+      if (lTask != null && warmingUp) {
+        dispatchedCount.incrementAndGet();
+      }
+    }
+    finally {
+      gateLock.unlock();
+    }
+    return lTask;
+  }
+
+  /**
+   * Method interrupts all threads that currently wait directly on the queue so that they continue to take their tasks
+   * behind {@link #gateLock}. The method returns as soon as no thread takes a task directly from the queue any longer.
+   */
+  private void releaseDirectTakers( ) {
+    for (TakeState lNextState : takeStates) {
+      lNextState.interruptIfTaking();
+    }
+    // Threads that were not interrupted either already saw the changed flags or are about to return their task.
+    for (TakeState lNextState : takeStates) {
+      while (lNextState.state.get() != TakeState.IDLE) {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * Method checks if a thread may take another task from the queue. This is not the case while the pool is paused and
+   * while the concurrency limit of the warm-up is reached. A pool that is shut down is not paused any longer so that it
+   * can be drained.
+   *
+   * @return boolean Method returns true if another task may be taken and false otherwise.
+   */
+  private boolean isGateOpen( ) {
+    boolean lOpen;
+    if (paused && this.isShutdown() == false) {
+      lOpen = false;
+    }
+    else if (this.isWarmingUp()) {
+      lOpen = activeCount.get() + dispatchedCount.get() < this.getConcurrencyLimit();
+    }
+    else {
+      lOpen = true;
+    }
+    return lOpen;
+  }
+
+  /**
+   * Method queues the passed task. If threads wait for tasks then the task is queued while holding {@link #gateLock}.
+   * This way the woken up thread takes the task before another task can be queued, which is important for queues with
+   * low capacity.
+   *
+   * @param pTask Task that should be queued. The parameter must not be null.
+   * @return boolean Method returns true if the task was queued and false if the queue is full.
+   */
+  private boolean offerTask( Runnable pTask ) {
+    boolean lQueued;
+    if (idleCount.get() > 0) {
+      gateLock.lock();
+      try {
+        lQueued = requestQueue.offer(pTask);
+        if (lQueued) {
+          notEmpty.signal();
+        }
+      }
+      finally {
+        gateLock.unlock();
+      }
+    }
+    else {
+      lQueued = requestQueue.offer(pTask);
+      if (lQueued) {
+        this.signalTaskQueued();
+      }
+    }
+    return lQueued;
+  }
+
+  /**
+   * Method wakes up a thread that waits for tasks after a task was queued.
+   */
+  private void signalTaskQueued( ) {
+    if (idleCount.get() > 0) {
+      gateLock.lock();
+      try {
+        notEmpty.signal();
+      }
+      finally {
+        gateLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Method returns the queue that actually stores the tasks of the pool. In contrast to {@link #getQueue()} the queue
+   * has the type that was passed when the pool was created.
+   *
+   * @return {@link BlockingQueue} Queue of the pool. The method never returns null.
+   */
+  BlockingQueue<Runnable> getRequestQueue( ) {
+    return requestQueue;
+  }
+
+  /**
+   * Method pauses the pool. Tasks that are already executed are completed but no further task is started until the pool
+   * is resumed. New tasks are still queued as long as the queue has capacity.
+   */
+  void pause( ) {
+    // Threads that currently take a task are done before the method returns.
+    gateLock.lock();
+    try {
+      paused = true;
+    }
+    finally {
+      gateLock.unlock();
+    }
+    this.releaseDirectTakers();
+  }
+
+  /**
+   * Method resumes the pool after it was paused. Threads that were not started while the pool was paused are started
+   * now.
+   */
+  void resume( ) {
+    gateLock.lock();
+    try {
+      paused = false;
+      gateCondition.signalAll();
+    }
+    finally {
+      gateLock.unlock();
+    }
+
+    // Tasks that were queued while the pool was paused require threads. Without core threads a thread is only started
+    // through a new task.
+    if (this.isShutdown() == false) {
+      this.prestartAllCoreThreads();
+      if (requestQueue.isEmpty() == false && this.getPoolSize() == 0) {
+        this.startWorker();
+      }
+    }
+  }
+
+  /**
+   * Method checks if the pool is paused.
+   *
+   * @return boolean Method returns true if the pool is paused and false otherwise.
+   */
+  boolean isPaused( ) {
+    return paused;
+  }
+
+  /**
+   * Method checks if the pool is still warming up.
+   *
+   * @return boolean Method returns true if the pool is currently warming up and false otherwise.
+   */
+  boolean isWarmingUp( ) {
+    if (warmingUp && System.nanoTime() - warmUpStart >= warmUpDuration) {
+      warmingUp = false;
+    }
+    return warmingUp;
+  }
+
+  /**
+   * Method returns the current limit for the amount of concurrently executed tasks. Outside of the warm-up this is the
+   * maximum pool size.
+   *
+   * @return int Current concurrency limit. The value is always at least 1.
+   */
+  int getConcurrencyLimit( ) {
+    int lMaxPoolSize = this.getMaximumPoolSize();
+    int lLimit;
+    if (this.isWarmingUp()) {
+      double lProgress = (double) (System.nanoTime() - warmUpStart) / warmUpDuration;
+      lLimit = Math.min(lMaxPoolSize, 1 + (int) ((lMaxPoolSize - 1) * lProgress));
+    }
+    else {
+      lLimit = lMaxPoolSize;
+    }
+    return lLimit;
+  }
+
+  /**
+   * Method returns the remaining time of the warm-up.
+   *
+   * @param pTimeUnit Time unit in which the remaining time should be returned. The parameter must not be null.
+   * @return long Remaining time of the warm-up or 0 if the pool is not warming up.
+   */
+  long getRemainingWarmUpTime( TimeUnit pTimeUnit ) {
+    long lRemainingNanos;
+    if (this.isWarmingUp()) {
+      lRemainingNanos = Math.max(0, warmUpDuration - (System.nanoTime() - warmUpStart));
+    }
+    else {
+      lRemainingNanos = 0;
+    }
+    return pTimeUnit.convert(lRemainingNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Method creates an immutable snapshot of the current state of the thread pool without taking any of its locks. The
+   * values are read in an order that ensures that they are consistent with each other, e.g. that the amount of
+   * completed tasks never exceeds the amount of tasks.
+   *
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @param pName Name of the pipeline. The parameter must not be null.
+   * @param pDescription Description of the pipeline. The parameter may be null.
+   * @param pSubmissionRates Rates of submitted requests. The parameter must not be null.
+   * @param pCompletionRates Rates of completed requests. The parameter must not be null.
+   * @param pRejectionRates Rates of rejected requests. The parameter must not be null.
+   * @param pLatencyViolationRates Rates of requests that exceeded their maximum latency or execution time. The
+   * parameter must not be null.
+   * @return {@link PipelineInfo} Snapshot of the thread pool. The method never returns null.
+   */
+  PipelineInfo createSnapshot( String pPipelineID, String pName, String pDescription, RateSnapshot pSubmissionRates,
+      RateSnapshot pCompletionRates, RateSnapshot pRejectionRates, RateSnapshot pLatencyViolationRates ) {
+    // Completed tasks have to be read before active ones and active ones before all tasks as tasks are counted in the
+    // opposite order.
+    long lCompletedTaskCount = completedTaskCount.sum();
+    int lActiveCount = Math.max(0, activeCount.get());
+    long lTaskCount = Math.max(taskCount.sum(), lCompletedTaskCount + lActiveCount);
+    int lPoolSize = Math.max(this.getPoolSizeLockFree(), lActiveCount);
+    int lLargestPoolSize = Math.max(largestPoolSize.get(), lPoolSize);
+    BlockingQueue<Runnable> lQueue = this.getQueue();
+    return new PipelineInfo(pPipelineID, pName, pDescription, System.currentTimeMillis(), this.getCorePoolSize(),
+        this.getMaximumPoolSize(), lPoolSize, lLargestPoolSize, lActiveCount, lTaskCount, lCompletedTaskCount,
+        lQueue.size(), lQueue.remainingCapacity(), this.getKeepAliveTime(TimeUnit.MILLISECONDS), pSubmissionRates,
+        pCompletionRates, pRejectionRates, pLatencyViolationRates);
+  }
+
+  /**
+   * Method returns the amount of tasks that are currently executed without taking the main lock of the pool.
+   *
+   * @return int Amount of currently executed tasks.
+   */
+  int getActiveCountLockFree( ) {
+    return Math.max(0, activeCount.get());
+  }
+
+  /**
+   * Method returns the current amount of threads of the pool without taking the main lock of the pool.
+   *
+   * @return int Amount of threads.
+   */
+  int getPoolSizeLockFree( ) {
+    return Math.max(0, poolSize.get());
+  }
+
+  /**
+   * Method returns the largest amount of threads that the pool ever had without taking the main lock of the pool.
+   *
+   * @return int Largest amount of threads.
+   */
+  int getLargestPoolSizeLockFree( ) {
+    return largestPoolSize.get();
+  }
+
+  /**
+   * Method returns the amount of tasks that were accepted by the pool without taking the main lock of the pool.
+   *
+   * @return long Amount of tasks.
+   */
+  long getTaskCountLockFree( ) {
+    return taskCount.sum();
+  }
+
+  /**
+   * Method returns the amount of completed tasks without taking the main lock of the pool.
+   *
+   * @return long Amount of completed tasks.
+   */
+  long getCompletedTaskCountLockFree( ) {
+    return completedTaskCount.sum();
+  }
+
+  /**
+   * Thread factory counts the threads of the pool. Threads are counted as soon as they start running and until they
+   * terminate.
+   */
+  private final class CountingThreadFactory implements ThreadFactory {
+    private final ThreadFactory delegate;
+
+    CountingThreadFactory( ThreadFactory pDelegate ) {
+      delegate = pDelegate;
+    }
+
+    @Override
+    public Thread newThread( final Runnable pRunnable ) {
+      // Threads are counted when they actually run. Threads that are created but never started, e.g. as the thread pool
+      // was shut down in the meantime, are not counted at all.
+      return delegate.newThread(new Runnable() {
+        @Override
+        public void run( ) {
+          TakeState lTakeState = new TakeState(Thread.currentThread());
+          takeStates.add(lTakeState);
+          currentTakeState.set(lTakeState);
+          int lPoolSize = poolSize.incrementAndGet();
+          int lLargestPoolSize = largestPoolSize.get();
+          while (lPoolSize > lLargestPoolSize && largestPoolSize.compareAndSet(lLargestPoolSize, lPoolSize) == false) {
+            lLargestPoolSize = largestPoolSize.get();
+          }
+          try {
+            pRunnable.run();
+          }
+          finally {
+            poolSize.decrementAndGet();
+            takeStates.remove(lTakeState);
+            currentTakeState.remove();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Class tracks whether a thread of the pool currently takes its task directly from the queue. This way the thread can
+   * be interrupted when the pool is paused without interrupting a task that is executed by the thread.
+   */
+  private static final class TakeState {
+    /**
+     * Thread does not take a task directly from the queue.
+     */
+    static final int IDLE = 0;
+
+    /**
+     * Thread takes a task directly from the queue.
+     */
+    static final int TAKING = 1;
+
+    /**
+     * Thread is interrupted as the pool was paused.
+     */
+    static final int INTERRUPTING = 2;
+
+    /**
+     * Thread was interrupted as the pool was paused.
+     */
+    static final int INTERRUPTED = 3;
+
+    private final Thread thread;
+
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    TakeState( Thread pThread ) {
+      thread = pThread;
+    }
+
+    /**
+     * Method interrupts the thread if it currently takes a task directly from the queue.
+     */
+    void interruptIfTaking( ) {
+      if (state.compareAndSet(TAKING, INTERRUPTING)) {
+        thread.interrupt();
+        state.set(INTERRUPTED);
+      }
+    }
+
+    /**
+     * Method is called by the thread when it no longer takes a task directly from the queue.
+     *
+     * @param pFailed Flag indicates if the thread did not take a task. In this case an interrupt due to a paused pool
+     * is passed on to the thread pool so that it checks its state before it tries to take a task again.
+     * @throws InterruptedException if the thread was interrupted as the pool was paused and did not take a task.
+     */
+    void leave( boolean pFailed ) throws InterruptedException {
+      if (state.compareAndSet(TAKING, IDLE) == false) {
+        while (state.get() == INTERRUPTING) {
+          Thread.onSpinWait();
+        }
+        // Interrupt was only used to wake up the thread. It must not affect the task that is executed next.
+        boolean lInterrupted = Thread.interrupted();
+        state.set(IDLE);
+        if (pFailed && lInterrupted) {
+          throw new InterruptedException();
+        }
+      }
+    }
+  }
+
+  /**
+   * Queue through which the threads of the pool take their tasks. All tasks are stored in the passed queue. Taking
+   * tasks is delegated to {@link PipelineExecutor#takeTask(boolean, long)} so that threads only take tasks that they
+   * may execute right away.
+   */
+  private static final class GatedQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+    /**
+     * Queue that actually stores the tasks.
+     */
+    private final BlockingQueue<Runnable> delegate;
+
+    /**
+     * Pool that uses this queue. The attribute is set before any thread of the pool is started.
+     */
+    private PipelineExecutor executor;
+
+    GatedQueue( BlockingQueue<Runnable> pDelegate ) {
+      // Check parameter
+      Check.checkInvalidParameterNull(pDelegate, "pDelegate");
+      delegate = pDelegate;
+    }
+
+    @Override
+    public boolean offer( Runnable pTask ) {
+      return executor.offerTask(pTask);
+    }
+
+    @Override
+    public boolean offer( Runnable pTask, long pTimeout, TimeUnit pUnit ) throws InterruptedException {
+      boolean lQueued = delegate.offer(pTask, pTimeout, pUnit);
+      if (lQueued) {
+        executor.signalTaskQueued();
+      }
+      return lQueued;
+    }
+
+    @Override
+    public void put( Runnable pTask ) throws InterruptedException {
+      delegate.put(pTask);
+      executor.signalTaskQueued();
+    }
+
+    @Override
+    public Runnable take( ) throws InterruptedException {
+      return executor.takeTask(false, 0);
+    }
+
+    @Override
+    public Runnable poll( long pTimeout, TimeUnit pUnit ) throws InterruptedException {
+      return executor.takeTask(true, pUnit.toNanos(pTimeout));
+    }
+
+    @Override
+    public Runnable poll( ) {
+      return delegate.poll();
+    }
+
+    @Override
+    public Runnable peek( ) {
+      return delegate.peek();
+    }
+
+    @Override
+    public int size( ) {
+      return delegate.size();
+    }
+
+    @Override
+    public boolean isEmpty( ) {
+      return delegate.isEmpty();
+    }
+
+    @Override
+    public int remainingCapacity( ) {
+      return delegate.remainingCapacity();
+    }
+
+    @Override
+    public boolean remove( Object pTask ) {
+      return delegate.remove(pTask);
+    }
+
+    @Override
+    public boolean contains( Object pTask ) {
+      return delegate.contains(pTask);
+    }
+
+    @Override
+    public void clear( ) {
+      delegate.clear();
+    }
+
+    @Override
+    public int drainTo( Collection<? super Runnable> pCollection ) {
+      return delegate.drainTo(pCollection);
+    }
+
+    @Override
+    public int drainTo( Collection<? super Runnable> pCollection, int pMaxElements ) {
+      return delegate.drainTo(pCollection, pMaxElements);
+    }
+
+    @Override
+    public Iterator<Runnable> iterator( ) {
+      return delegate.iterator();
+    }
+
+    @Override
+    public Object[] toArray( ) {
+      return delegate.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray( T[] pArray ) {
+      return delegate.toArray(pArray);
+    }
+  }
+}
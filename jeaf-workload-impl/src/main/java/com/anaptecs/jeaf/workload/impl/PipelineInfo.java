@@ -6,11 +6,14 @@
 package com.anaptecs.jeaf.workload.impl;
 
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.anaptecs.jeaf.xfun.api.checks.Check;
 
 /**
- * Class provides information about the current state of the thread pool of a pipeline-
+ * Class provides an immutable snapshot of the state of the thread pool of a pipeline. All values of a snapshot are
+ * consistent with each other. Snapshots are created without taking any locks of the thread pool, so that they can be
+ * created frequently without affecting the execution of requests.
  * 
  * @author JEAF Development Team
  */
@@ -31,25 +34,120 @@ public class PipelineInfo {
   private final String description;
 
   /**
-   * Reference to thread pool that actually hold the information.
+   * Timestamp in milliseconds when the snapshot was taken.
    */
-  private final ThreadPoolExecutor threadPool;
+  private final long timestamp;
+
+  private final int corePoolSize;
+
+  private final int maximumPoolSize;
+
+  private final int poolSize;
+
+  private final int largestPoolSize;
+
+  private final int activeCount;
+
+  private final long taskCount;
+
+  private final long completedTaskCount;
+
+  private final int queueSize;
+
+  private final int remainingQueueCapacity;
+
+  private final long keepAliveTime;
 
   /**
-   * Initialize object.
+   * Rates of requests that were handed over to the pipeline.
+   */
+  private final RateSnapshot submissionRates;
+
+  /**
+   * Rates of requests whose execution was completed.
+   */
+  private final RateSnapshot completionRates;
+
+  /**
+   * Rates of requests that were rejected.
+   */
+  private final RateSnapshot rejectionRates;
+
+  /**
+   * Rates of requests that exceeded their maximum latency or maximum execution time.
+   */
+  private final RateSnapshot latencyViolationRates;
+
+  /**
+   * Initialize object. The passed thread pool is only used to read its current state once. Please be aware that this
+   * requires to take the main lock of the thread pool several times. As a plain thread pool does not track any rates
+   * all rates of the snapshot will be empty.
    * 
    * @param pThreadPool Thread pool which contains the actual information.
    */
   public PipelineInfo( String pPipelineID, String pName, String pDescription, ThreadPoolExecutor pThreadPool ) {
+    this(pPipelineID, pName, pDescription, System.currentTimeMillis(), pThreadPool.getCorePoolSize(),
+        pThreadPool.getMaximumPoolSize(), pThreadPool.getPoolSize(), pThreadPool.getLargestPoolSize(),
+        pThreadPool.getActiveCount(), pThreadPool.getTaskCount(), pThreadPool.getCompletedTaskCount(),
+        pThreadPool.getQueue().size(), pThreadPool.getQueue().remainingCapacity(),
+        pThreadPool.getKeepAliveTime(TimeUnit.MILLISECONDS), RateSnapshot.EMPTY, RateSnapshot.EMPTY,
+        RateSnapshot.EMPTY, RateSnapshot.EMPTY);
+  }
+
+  /**
+   * Initialize object.
+   * 
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @param pName Name of the pipeline. The parameter must not be null.
+   * @param pDescription Description of the pipeline. The parameter may be null.
+   * @param pTimestamp Timestamp in milliseconds when the snapshot was taken.
+   * @param pCorePoolSize Amount of core threads.
+   * @param pMaximumPoolSize Maximum amount of threads.
+   * @param pPoolSize Current amount of threads.
+   * @param pLargestPoolSize Largest amount of threads that the pool ever had.
+   * @param pActiveCount Amount of threads that are currently executing requests.
+   * @param pTaskCount Amount of requests that were accepted by the pool.
+   * @param pCompletedTaskCount Amount of requests whose execution is completed.
+   * @param pQueueSize Amount of queued requests.
+   * @param pRemainingQueueCapacity Remaining capacity of the queue.
+   * @param pKeepAliveTime Keep alive time of threads in milliseconds.
+   * @param pSubmissionRates Rates of submitted requests. The parameter must not be null.
+   * @param pCompletionRates Rates of completed requests. The parameter must not be null.
+   * @param pRejectionRates Rates of rejected requests. The parameter must not be null.
+   * @param pLatencyViolationRates Rates of requests that exceeded their maximum latency or execution time. The
+   * parameter must not be null.
+   */
+  PipelineInfo( String pPipelineID, String pName, String pDescription, long pTimestamp, int pCorePoolSize,
+      int pMaximumPoolSize, int pPoolSize, int pLargestPoolSize, int pActiveCount, long pTaskCount,
+      long pCompletedTaskCount, int pQueueSize, int pRemainingQueueCapacity, long pKeepAliveTime,
+      RateSnapshot pSubmissionRates, RateSnapshot pCompletionRates, RateSnapshot pRejectionRates,
+      RateSnapshot pLatencyViolationRates ) {
     // Check parameter
     Check.checkInvalidParameterNull(pPipelineID, "pPipelineID");
     Check.checkInvalidParameterNull(pName, "pName");
-    Check.checkInvalidParameterNull(pThreadPool, "pThreadPool");
+    Check.checkInvalidParameterNull(pSubmissionRates, "pSubmissionRates");
+    Check.checkInvalidParameterNull(pCompletionRates, "pCompletionRates");
+    Check.checkInvalidParameterNull(pRejectionRates, "pRejectionRates");
+    Check.checkInvalidParameterNull(pLatencyViolationRates, "pLatencyViolationRates");
 
     pipelineID = pPipelineID;
     name = pName;
     description = pDescription;
-    threadPool = pThreadPool;
+    timestamp = pTimestamp;
+    corePoolSize = pCorePoolSize;
+    maximumPoolSize = pMaximumPoolSize;
+    poolSize = pPoolSize;
+    largestPoolSize = pLargestPoolSize;
+    activeCount = pActiveCount;
+    taskCount = pTaskCount;
+    completedTaskCount = pCompletedTaskCount;
+    queueSize = pQueueSize;
+    remainingQueueCapacity = pRemainingQueueCapacity;
+    keepAliveTime = pKeepAliveTime;
+    submissionRates = pSubmissionRates;
+    completionRates = pCompletionRates;
+    rejectionRates = pRejectionRates;
+    latencyViolationRates = pLatencyViolationRates;
   }
 
   /**
@@ -80,52 +178,124 @@ public class PipelineInfo {
     return description;
   }
 
+  /**
+   * Method returns the timestamp when the snapshot was taken.
+   * 
+   * @return long Timestamp in milliseconds since 1970-01-01.
+   */
+  public long getTimestamp( ) {
+    return timestamp;
+  }
+
   /**
    * @see ThreadPoolExecutor#getCorePoolSize()
    */
   public int getCorePoolSize( ) {
-    return threadPool.getCorePoolSize();
+    return corePoolSize;
   }
 
   /**
    * @see ThreadPoolExecutor#getActiveCount()
    */
   public int getActiveCount( ) {
-    return threadPool.getActiveCount();
+    return activeCount;
   }
 
   /**
    * @see ThreadPoolExecutor#getTaskCount()
    */
   public long getTaskCount( ) {
-    return threadPool.getTaskCount();
+    return taskCount;
   }
 
   /**
    * @see ThreadPoolExecutor#getCompletedTaskCount()
    */
   public long getCompletedTaskCount( ) {
-    return threadPool.getCompletedTaskCount();
+    return completedTaskCount;
   }
 
   /**
    * @see ThreadPoolExecutor#getLargestPoolSize()
    */
   public int getLargestPoolSize( ) {
-    return threadPool.getLargestPoolSize();
+    return largestPoolSize;
   }
 
   /**
    * @see ThreadPoolExecutor#getMaximumPoolSize()
    */
   public int getMaximumPoolSize( ) {
-    return threadPool.getMaximumPoolSize();
+    return maximumPoolSize;
   }
 
   /**
    * @see ThreadPoolExecutor#getPoolSize()
    */
   public int getPoolSize( ) {
-    return threadPool.getPoolSize();
+    return poolSize;
+  }
+
+  /**
+   * Method returns the amount of requests that were queued when the snapshot was taken.
+   * 
+   * @return int Amount of queued requests.
+   */
+  public int getQueueSize( ) {
+    return queueSize;
+  }
+
+  /**
+   * Method returns the remaining capacity of the queue when the snapshot was taken.
+   * 
+   * @return int Remaining capacity of the queue.
+   */
+  public int getRemainingQueueCapacity( ) {
+    return remainingQueueCapacity;
+  }
+
+  /**
+   * @see ThreadPoolExecutor#getKeepAliveTime(TimeUnit)
+   * 
+   * @return long Keep alive time in milliseconds.
+   */
+  public long getKeepAliveTime( ) {
+    return keepAliveTime;
+  }
+
+  /**
+   * Method returns the rates of requests that were handed over to the pipeline.
+   * 
+   * @return {@link RateSnapshot} Submission rates. The method never returns null.
+   */
+  public RateSnapshot getSubmissionRates( ) {
+    return submissionRates;
+  }
+
+  /**
+   * Method returns the rates of requests whose execution was completed.
+   * 
+   * @return {@link RateSnapshot} Completion rates. The method never returns null.
+   */
+  public RateSnapshot getCompletionRates( ) {
+    return completionRates;
+  }
+
+  /**
+   * Method returns the rates of requests that were rejected.
+   * 
+   * @return {@link RateSnapshot} Rejection rates. The method never returns null.
+   */
+  public RateSnapshot getRejectionRates( ) {
+    return rejectionRates;
+  }
+
+  /**
+   * Method returns the rates of requests that exceeded their maximum latency or maximum execution time.
+   * 
+   * @return {@link RateSnapshot} Latency violation rates. The method never returns null.
+   */
+  public RateSnapshot getLatencyViolationRates( ) {
+    return latencyViolationRates;
   }
 }
@@ -5,6 +5,8 @@
  */
 package com.anaptecs.jeaf.workload.impl;
 
+import java.util.Map;
+
 public interface PipelineMBean {
   String getName( );
 
@@ -14,14 +16,32 @@ public interface PipelineMBean {
 
   int getCorePoolSize( );
 
+  void setCorePoolSize( int pCorePoolSize );
+
   int getMaximumPoolSize( );
 
+  void setMaximumPoolSize( int pMaximumPoolSize );
+
+  void resizeThreadPool( int pCoreThreads, int pMaxThreads );
+
   int getLargestPoolSize( );
 
   int getActiveCount( );
 
   long getKeepAliveTime( );
 
+  void setKeepAliveTime( long pKeepAliveTime );
+
+  int getMaxLatency( );
+
+  void setMaxLatency( int pMaxLatency );
+
+  String getTimeUnit( );
+
+  int getMaxQueueDepth( );
+
+  void setMaxQueueDepth( int pMaxQueueDepth );
+
   int getRemainingQueueCapacity( );
 
   int getQueueSize( );
@@ -33,4 +53,110 @@ public interface PipelineMBean {
   long getRejectedTaskCount( );
 
   long getMaxLatencyExceededCounter( );
+
+  long getMaxExecutionTimeExceededCounter( );
+
+  int getResourceSamplingInterval( );
+
+  String getThreadGroupName( );
+
+  int getThreadPriority( );
+
+  boolean isWarmingUp( );
+
+  long getRemainingWarmUpTime( );
+
+  int getConcurrencyLimit( );
+
+  void pause( );
+
+  void resume( );
+
+  boolean isPaused( );
+
+  boolean isShutdown( );
+
+  int getReservedPermitCount( );
+
+  long getExpiredPermitCount( );
+
+  int getSlowRequestCount( );
+
+  String[] getSlowRequestDetails( );
+
+  int getTimeSeriesSize( );
+
+  String dumpTimeSeriesAsCSV( );
+
+  String dumpTimeSeriesAsJSON( );
+
+  long getCoalescedRequestCount( );
+
+  Map<String, Long> getCoalescedRequestCounts( );
+
+  Map<String, Long> getTopSubmittedRequestTypes( );
+
+  Map<String, Long> getTopRejectedRequestTypes( );
+
+  void resetTopRequestTypes( );
+
+  int getOrderedMailboxCount( );
+
+  int getOrderedRequestCount( );
+
+  long getQueueWaitP50Micros( );
+
+  long getQueueWaitP99Micros( );
+
+  long getQueueWaitP999Micros( );
+
+  long getQueueWaitMaxMicros( );
+
+  long getServiceTimeP50Micros( );
+
+  long getServiceTimeP99Micros( );
+
+  long getServiceTimeP999Micros( );
+
+  long getServiceTimeMaxMicros( );
+
+  long getEndToEndP50Micros( );
+
+  long getEndToEndP99Micros( );
+
+  long getEndToEndP999Micros( );
+
+  long getEndToEndMaxMicros( );
+
+  double getSubmissionRate1s( );
+
+  double getSubmissionRate10s( );
+
+  double getSubmissionRate60s( );
+
+  long getSubmissionPeakRate( );
+
+  double getCompletionRate1s( );
+
+  double getCompletionRate10s( );
+
+  double getCompletionRate60s( );
+
+  long getCompletionPeakRate( );
+
+  double getRejectionRate1s( );
+
+  double getRejectionRate10s( );
+
+  double getRejectionRate60s( );
+
+  long getRejectionPeakRate( );
+
+  double getLatencyViolationRate1s( );
+
+  double getLatencyViolationRate10s( );
+
+  double getLatencyViolationRate60s( );
+
+  long getLatencyViolationPeakRate( );
 }
@@ -0,0 +1,339 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import com.anaptecs.jeaf.workload.api.GenericRequestTypeKey;
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.xfun.api.XFun;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class contains the statistics of all request types of a pipeline. Statistics of a request type are created with the
+ * first request of the type and are updated without any locks afterwards. The statistics are exposed as separate MBean
+ * of the pipeline.
+ *
+ * As request type keys may contain request specific parts, e.g. IDs within URLs, the amount of request types with own
+ * statistics is limited to {@link #MAX_REQUEST_TYPES}. Requests of all further request types are counted within the
+ * statistics of request type {@link #OVERFLOW_REQUEST_TYPE}.
+ *
+ * @author JEAF Development Team
+ */
+public class PipelineStatistics implements PipelineStatisticsMBean {
+  /**
+   * Maximum amount of request types per pipeline that have their own statistics.
+   */
+  public static final int MAX_REQUEST_TYPES = 256;
+
+  /**
+   * Request type whose statistics contain all requests of request types that exceed {@link #MAX_REQUEST_TYPES}.
+   */
+  public static final String OVERFLOW_REQUEST_TYPE = "<other>";
+
+  /**
+   * Key of the request type that collects the statistics of all request types that exceed the limit.
+   */
+  private static final RequestTypeKey OVERFLOW_REQUEST_TYPE_KEY = new GenericRequestTypeKey(OVERFLOW_REQUEST_TYPE);
+
+  /**
+   * Names of the columns of the request type statistics table.
+   */
+  private static final String[] COLUMN_NAMES = new String[] { "requestType", "submitted", "executed", "rejected",
+    "maxLatencyExceeded", "maxExecutionTimeExceeded", "failed", "coalesced", "queueWaitP99Micros",
+    "serviceTimeP99Micros", "endToEndP99Micros", "sampled", "cpuTimeMicros", "allocatedBytes", "avgCpuTimeMicros",
+    "avgAllocatedBytes" };
+
+  /**
+   * Type of the rows of the request type statistics table.
+   */
+  private static final CompositeType ROW_TYPE;
+
+  /**
+   * Type of the request type statistics table.
+   */
+  private static final TabularType TABLE_TYPE;
+
+  static {
+    try {
+      OpenType<?>[] lColumnTypes = new OpenType<?>[] { SimpleType.STRING, SimpleType.LONG, SimpleType.LONG,
+        SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG,
+        SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG,
+        SimpleType.LONG };
+      ROW_TYPE = new CompositeType("RequestTypeStatistics", "Statistics of a request type", COLUMN_NAMES,
+          COLUMN_NAMES, lColumnTypes);
+      TABLE_TYPE = new TabularType("RequestTypeStatisticsTable", "Statistics of all request types of a pipeline",
+          ROW_TYPE, new String[] { COLUMN_NAMES[0] });
+    }
+    catch (OpenDataException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  /**
+   * ID of the pipeline to which the statistics belong.
+   */
+  private final String pipelineID;
+
+  /**
+   * Map contains the statistics of all request types of the pipeline.
+   */
+  private final Map<RequestTypeKey, RequestTypeStatistics> statistics = new ConcurrentHashMap<>();
+
+  /**
+   * Amount of request types with own statistics. The overflow statistics are not counted.
+   */
+  private final AtomicInteger requestTypeCount = new AtomicInteger();
+
+  /**
+   * Attribute indicates if the limit of request types was already reported.
+   */
+  private final AtomicBoolean limitReported = new AtomicBoolean(false);
+
+  /**
+   * Initialize object.
+   *
+   * @param pPipelineID ID of the pipeline to which the statistics belong. The parameter must not be null.
+   */
+  PipelineStatistics( String pPipelineID ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pPipelineID, "pPipelineID");
+
+    pipelineID = pPipelineID;
+  }
+
+  /**
+   * Method returns the statistics of the passed request type. If there are no statistics yet then they will be
+   * created. If the limit of request types is already reached then the overflow statistics are returned.
+   *
+   * @param pRequestTypeKey Request type whose statistics should be returned. The parameter must not be null.
+   * @return {@link RequestTypeStatistics} Statistics of the request type. The method never returns null.
+   */
+  public RequestTypeStatistics getStatistics( RequestTypeKey pRequestTypeKey ) {
+    // Statistics are looked up first as creating them is only necessary for the first request of a type.
+    RequestTypeStatistics lStatistics = statistics.get(pRequestTypeKey);
+    if (lStatistics == null) {
+      // Place for the new request type is reserved before so that the limit is never exceeded.
+      if (requestTypeCount.incrementAndGet() <= MAX_REQUEST_TYPES) {
+        lStatistics = this.createStatistics(pRequestTypeKey);
+        // Statistics were created concurrently by another thread that also reserved a place for them.
+        if (lStatistics.getRequestTypeKey() != pRequestTypeKey) {
+          requestTypeCount.decrementAndGet();
+        }
+      }
+      else {
+        requestTypeCount.decrementAndGet();
+        lStatistics = this.getOverflowStatistics();
+      }
+    }
+    return lStatistics;
+  }
+
+  /**
+   * Method returns the statistics that are used for all request types that exceed the limit of request types.
+   *
+   * @return {@link RequestTypeStatistics} Overflow statistics. The method never returns null.
+   */
+  private RequestTypeStatistics getOverflowStatistics( ) {
+    if (limitReported.compareAndSet(false, true)) {
+      XFun.getTrace().warn("Pipeline '" + pipelineID + "' exceeded the limit of " + MAX_REQUEST_TYPES
+          + " request types with own statistics. Statistics of further request types are collected as request type '"
+          + OVERFLOW_REQUEST_TYPE + "'. Please check if request type keys contain request specific parts.");
+    }
+    RequestTypeStatistics lStatistics = statistics.get(OVERFLOW_REQUEST_TYPE_KEY);
+    if (lStatistics == null) {
+      lStatistics = this.createStatistics(OVERFLOW_REQUEST_TYPE_KEY);
+    }
+    return lStatistics;
+  }
+
+  /**
+   * Method creates the statistics of the passed request type unless they were created concurrently.
+   *
+   * @param pRequestTypeKey Request type whose statistics should be created. The parameter must not be null.
+   * @return {@link RequestTypeStatistics} Statistics of the request type. The method never returns null.
+   */
+  private RequestTypeStatistics createStatistics( RequestTypeKey pRequestTypeKey ) {
+    RequestTypeStatistics lNewStatistics = new RequestTypeStatistics(pRequestTypeKey);
+    RequestTypeStatistics lStatistics = statistics.putIfAbsent(pRequestTypeKey, lNewStatistics);
+    if (lStatistics == null) {
+      lStatistics = lNewStatistics;
+    }
+    return lStatistics;
+  }
+
+  /**
+   * Method returns the statistics of all request types that were processed by the pipeline so far.
+   *
+   * @return {@link Collection} Statistics of all request types. The method never returns null.
+   */
+  public Collection<RequestTypeStatistics> getAllStatistics( ) {
+    return Collections.unmodifiableCollection(statistics.values());
+  }
+
+  @Override
+  public String getPipelineID( ) {
+    return pipelineID;
+  }
+
+  @Override
+  public int getRequestTypeCount( ) {
+    return statistics.size();
+  }
+
+  @Override
+  public long getSubmittedCount( ) {
+    long lCount = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lCount += lNext.getSubmittedCount();
+    }
+    return lCount;
+  }
+
+  @Override
+  public long getExecutedCount( ) {
+    long lCount = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lCount += lNext.getExecutedCount();
+    }
+    return lCount;
+  }
+
+  @Override
+  public long getRejectedCount( ) {
+    long lCount = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lCount += lNext.getRejectedCount();
+    }
+    return lCount;
+  }
+
+  @Override
+  public long getMaxLatencyExceededCount( ) {
+    long lCount = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lCount += lNext.getMaxLatencyExceededCount();
+    }
+    return lCount;
+  }
+
+  @Override
+  public long getMaxExecutionTimeExceededCount( ) {
+    long lCount = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lCount += lNext.getMaxExecutionTimeExceededCount();
+    }
+    return lCount;
+  }
+
+  @Override
+  public long getFailedCount( ) {
+    long lCount = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lCount += lNext.getFailedCount();
+    }
+    return lCount;
+  }
+
+  @Override
+  public long getCoalescedCount( ) {
+    long lCount = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lCount += lNext.getCoalescedCount();
+    }
+    return lCount;
+  }
+
+  @Override
+  public long getSampledCount( ) {
+    long lCount = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lCount += lNext.getSampledCount();
+    }
+    return lCount;
+  }
+
+  @Override
+  public long getCpuTimeMicros( ) {
+    long lCpuTime = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lCpuTime += lNext.getCpuTimeNanos();
+    }
+    return TimeUnit.NANOSECONDS.toMicros(lCpuTime);
+  }
+
+  @Override
+  public long getAllocatedBytes( ) {
+    long lAllocatedBytes = 0;
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lAllocatedBytes += lNext.getAllocatedBytes();
+    }
+    return lAllocatedBytes;
+  }
+
+  @Override
+  public TabularData getRequestTypeStatistics( ) {
+    TabularDataSupport lTable = new TabularDataSupport(TABLE_TYPE);
+    List<RequestTypeStatistics> lAllStatistics = new ArrayList<>(statistics.values());
+    for (RequestTypeStatistics lNext : lAllStatistics) {
+      RequestLatencies lLatencies = lNext.getLatencies();
+
+      // Averages are only based on requests whose resource usage was measured.
+      long lSampled = lNext.getSampledCount();
+      long lCpuTime = lNext.getCpuTimeNanos();
+      long lAllocatedBytes = lNext.getAllocatedBytes();
+      long lAvgCpuTime;
+      long lAvgAllocatedBytes;
+      if (lSampled > 0) {
+        lAvgCpuTime = lCpuTime / lSampled;
+        lAvgAllocatedBytes = lAllocatedBytes / lSampled;
+      }
+      else {
+        lAvgCpuTime = 0;
+        lAvgAllocatedBytes = 0;
+      }
+      Object[] lValues = new Object[] { lNext.getRequestTypeKey().getKey(), lNext.getSubmittedCount(),
+        lNext.getExecutedCount(), lNext.getRejectedCount(), lNext.getMaxLatencyExceededCount(),
+        lNext.getMaxExecutionTimeExceededCount(), lNext.getFailedCount(), lNext.getCoalescedCount(),
+        TimeUnit.NANOSECONDS.toMicros(lLatencies.getSnapshot(LatencyType.QUEUE_WAIT).getP99()),
+        TimeUnit.NANOSECONDS.toMicros(lLatencies.getSnapshot(LatencyType.SERVICE_TIME).getP99()),
+        TimeUnit.NANOSECONDS.toMicros(lLatencies.getSnapshot(LatencyType.END_TO_END).getP99()), lSampled,
+        TimeUnit.NANOSECONDS.toMicros(lCpuTime), lAllocatedBytes, TimeUnit.NANOSECONDS.toMicros(lAvgCpuTime),
+        lAvgAllocatedBytes };
+      try {
+        lTable.put(new CompositeDataSupport(ROW_TYPE, COLUMN_NAMES, lValues));
+      }
+      catch (OpenDataException e) {
+        XFun.getTrace().error(e.getMessage(), e);
+      }
+    }
+    return lTable;
+  }
+
+  @Override
+  public void resetStatistics( ) {
+    for (RequestTypeStatistics lNext : statistics.values()) {
+      lNext.reset();
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import javax.management.openmbean.TabularData;
+
+public interface PipelineStatisticsMBean {
+  String getPipelineID( );
+
+  int getRequestTypeCount( );
+
+  long getSubmittedCount( );
+
+  long getExecutedCount( );
+
+  long getRejectedCount( );
+
+  long getMaxLatencyExceededCount( );
+
+  long getMaxExecutionTimeExceededCount( );
+
+  long getFailedCount( );
+
+  long getCoalescedCount( );
+
+  long getSampledCount( );
+
+  long getCpuTimeMicros( );
+
+  long getAllocatedBytes( );
+
+  TabularData getRequestTypeStatistics( );
+
+  void resetStatistics( );
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
+import com.anaptecs.jeaf.xfun.api.XFun;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class implements the thread factory of a pipeline. All threads of a pipeline belong to its own thread group and are
+ * named after the pipeline, e.g. "FIFO-Pipeline-thread-3". This way threads can be assigned to their pipeline in thread
+ * dumps and profiles. Priority, daemon flag, stack size and uncaught exception handler of the threads are taken from
+ * {@link PipelineConfig} and {@link ExtendedPipelineConfig}.
+ *
+ * If no uncaught exception handler is configured then uncaught exceptions are traced by the thread group of the
+ * pipeline.
+ *
+ * @author JEAF Development Team
+ */
+class PipelineThreadFactory implements ThreadFactory {
+  /**
+   * Thread group to which all threads of the pipeline belong.
+   */
+  private final ThreadGroup threadGroup;
+
+  /**
+   * Prefix of the names of all threads of the pipeline.
+   */
+  private final String namePrefix;
+
+  /**
+   * Counter that is used to create unique thread names.
+   */
+  private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+  /**
+   * Priority of the threads.
+   */
+  private final int priority;
+
+  /**
+   * Flag defines if threads are daemon threads.
+   */
+  private final boolean daemon;
+
+  /**
+   * Stack size of the threads in bytes. 0 means that the default stack size of the JVM is used.
+   */
+  private final long stackSize;
+
+  /**
+   * Handler for uncaught exceptions. The attribute is null if the thread group should handle them.
+   */
+  private final UncaughtExceptionHandler exceptionHandler;
+
+  /**
+   * Initialize object.
+   *
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @param pName Name of the pipeline that is used for the thread group and the thread names. The parameter must not be
+   * null.
+   * @param pPipelineConfig Configuration of the pipeline. The parameter must not be null.
+   * @param pExtendedPipelineConfig Extended configuration of the pipeline. The parameter must not be null.
+   */
+  PipelineThreadFactory( String pPipelineID, String pName, PipelineConfig pPipelineConfig,
+      ExtendedPipelineConfig pExtendedPipelineConfig ) {
+    // Check parameters.
+    Check.checkInvalidParameterNull(pPipelineID, "pPipelineID");
+    Check.checkInvalidParameterNull(pName, "pName");
+    Check.checkInvalidParameterNull(pPipelineConfig, "pPipelineConfig");
+    Check.checkInvalidParameterNull(pExtendedPipelineConfig, "pExtendedPipelineConfig");
+
+    priority = pPipelineConfig.threadPriority();
+    if (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY) {
+      throw new IllegalArgumentException("Thread priority of pipeline '" + pPipelineID + "' must be between "
+          + Thread.MIN_PRIORITY + " and " + Thread.MAX_PRIORITY + ". Priority: " + priority);
+    }
+    stackSize = Math.max(0, pExtendedPipelineConfig.threadStackSize());
+    daemon = pExtendedPipelineConfig.daemonThreads();
+    exceptionHandler = this.createExceptionHandler(pPipelineID, pExtendedPipelineConfig.uncaughtExceptionHandler());
+    threadGroup = new PipelineThreadGroup(pPipelineID, pName);
+    namePrefix = pName + "-thread-";
+  }
+
+  /**
+   * Method creates the configured handler for uncaught exceptions.
+   *
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @param pHandlerClass Class of the handler. The class must provide a public default constructor. If
+   * {@link UncaughtExceptionHandler} itself is passed then no handler is created.
+   * @return {@link UncaughtExceptionHandler} Created handler or null if no handler is configured.
+   */
+  private UncaughtExceptionHandler createExceptionHandler( String pPipelineID,
+      Class<? extends UncaughtExceptionHandler> pHandlerClass ) {
+    UncaughtExceptionHandler lHandler;
+    if (pHandlerClass != null && pHandlerClass != UncaughtExceptionHandler.class) {
+      try {
+        lHandler = pHandlerClass.getDeclaredConstructor().newInstance();
+      }
+      catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+        throw new IllegalArgumentException("Unable to create uncaught exception handler " + pHandlerClass.getName()
+            + " of pipeline '" + pPipelineID + "'. " + e.getMessage(), e);
+      }
+    }
+    else {
+      lHandler = null;
+    }
+    return lHandler;
+  }
+
+  /**
+   * Method returns the thread group to which all threads of the pipeline belong.
+   *
+   * @return {@link ThreadGroup} Thread group of the pipeline. The method never returns null.
+   */
+  ThreadGroup getThreadGroup( ) {
+    return threadGroup;
+  }
+
+  @Override
+  public Thread newThread( Runnable pRunnable ) {
+    Thread lThread = new Thread(threadGroup, pRunnable, namePrefix + threadNumber.getAndIncrement(), stackSize);
+    lThread.setDaemon(daemon);
+    lThread.setPriority(priority);
+    if (exceptionHandler != null) {
+      lThread.setUncaughtExceptionHandler(exceptionHandler);
+    }
+    return lThread;
+  }
+
+  /**
+   * Thread group of a pipeline. Uncaught exceptions are traced together with the ID of the pipeline.
+   */
+  private static final class PipelineThreadGroup extends ThreadGroup {
+    private final String pipelineID;
+
+    PipelineThreadGroup( String pPipelineID, String pName ) {
+      super(pName);
+      pipelineID = pPipelineID;
+    }
+
+    @Override
+    public void uncaughtException( Thread pThread, Throwable pThrowable ) {
+      if (pThrowable instanceof ThreadDeath == false) {
+        XFun.getTrace().error("Uncaught exception in thread '" + pThread.getName() + "' of pipeline '" + pipelineID
+            + "'. " + pThrowable.getMessage(), pThrowable);
+      }
+    }
+  }
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class retains the state of a pipeline of the last minutes as time series of per second samples. Samples are kept in a
+ * ring buffer of primitive values whose size is defined when the time series is created. This way the memory footprint
+ * is constant no matter how long the pipeline is running. Once the ring buffer is full, the oldest sample is
+ * overwritten.
+ *
+ * Each sample contains the queue size, the amount of active threads, the pool size, the amount of submitted,
+ * completed, rejected and latency violating requests within the second as well as the latency percentiles of the
+ * requests that were completed within the second.
+ *
+ * Samples are triggered by the shared {@link TimingWheel} and taken by its callback threads so no additional thread is
+ * required. The pipeline is only referenced weakly and sampling stops as soon as it is shut down. The whole time series
+ * can be dumped as CSV or JSON for post-incident analysis. Time series are disabled by default and have to be enabled
+ * through {@link ExtendedPipelineConfig#timeSeriesSize()}.
+ *
+ * @author JEAF Development Team
+ */
+public class PipelineTimeSeries {
+  /**
+   * Names of all columns of a sample.
+   */
+  private static final String[] COLUMN_NAMES = new String[] { "timestamp", "queueSize", "activeCount", "poolSize",
+    "submitted", "completed", "rejected", "latencyViolations", "queueWaitP50Micros", "queueWaitP99Micros",
+    "serviceTimeP50Micros", "serviceTimeP99Micros", "endToEndP50Micros", "endToEndP99Micros" };
+
+  /**
+   * Interval in which samples are taken.
+   */
+  private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Latency types whose percentiles are part of a sample. Their columns follow directly after the rate columns.
+   */
+  private static final LatencyType[] LATENCY_TYPES =
+      new LatencyType[] { LatencyType.QUEUE_WAIT, LatencyType.SERVICE_TIME, LatencyType.END_TO_END };
+
+  /**
+   * ID of the pipeline to which the time series belongs.
+   */
+  private final String pipelineID;
+
+  /**
+   * Maximum amount of samples.
+   */
+  private final int capacity;
+
+  /**
+   * Values of all samples. The first index is the column, the second one the position within the ring buffer. Access
+   * to the array is synchronized on this object.
+   */
+  private final long[][] values;
+
+  /**
+   * Latency snapshots of the previous sample. They are required to calculate the latencies within a second. Access to
+   * the array is synchronized on this object.
+   */
+  private final LatencySnapshot[] previousLatencies = new LatencySnapshot[LATENCY_TYPES.length];
+
+  /**
+   * Amount of samples that were taken so far. Access to the attribute is synchronized on this object.
+   */
+  private long sampleCount;
+
+  /**
+   * Timeout of the next sample. The attribute is null if no samples are taken. Access to the attribute is synchronized
+   * on this object.
+   */
+  private TimingWheel.Timeout sampleTimeout;
+
+  /**
+   * Initialize object.
+   *
+   * @param pPipelineID ID of the pipeline to which the time series belongs. The parameter must not be null.
+   * @param pCapacity Maximum amount of samples that are retained. The value must not be negative.
+   */
+  PipelineTimeSeries( String pPipelineID, int pCapacity ) {
+    if (pCapacity < 0) {
+      throw new IllegalArgumentException("Capacity of time series must not be negative. Capacity: " + pCapacity);
+    }
+    pipelineID = pPipelineID;
+    capacity = pCapacity;
+    values = new long[COLUMN_NAMES.length][pCapacity];
+  }
+
+  /**
+   * Method returns the maximum amount of samples of this time series.
+   *
+   * @return int Maximum amount of samples.
+   */
+  public int getCapacity( ) {
+    return capacity;
+  }
+
+  /**
+   * Method returns the amount of samples that are currently retained.
+   *
+   * @return int Amount of samples.
+   */
+  public synchronized int getSize( ) {
+    return (int) Math.min(sampleCount, capacity);
+  }
+
+  /**
+   * Method checks whether samples are currently taken. Time series without capacity never take samples.
+   *
+   * @return boolean Method returns true if the next sample is already scheduled and false otherwise.
+   */
+  public synchronized boolean isSampling( ) {
+    return sampleTimeout != null;
+  }
+
+  /**
+   * Method starts to sample the state of the passed pipeline once per second. Samples are taken at a fixed rate so that
+   * delays of single samples do not accumulate. Sampling stops automatically as soon as the pipeline is shut down or
+   * garbage collected.
+   *
+   * @param pPipeline Pipeline that should be sampled. The parameter must not be null.
+   */
+  synchronized void startSampling( Pipeline pPipeline ) {
+    // Time series without capacity is disabled.
+    if (capacity > 0 && sampleTimeout == null) {
+      // Initial latencies are taken so that the first sample only contains the latencies of its own second.
+      for (int i = 0; i < LATENCY_TYPES.length; i++) {
+        previousLatencies[i] = pPipeline.getLatencies().getSnapshot(LATENCY_TYPES[i]);
+      }
+      // Pipeline is only referenced weakly so that pipelines that are not shut down properly can still be collected.
+      final WeakReference<Pipeline> lPipelineReference = new WeakReference<>(pPipeline);
+      final long lStartNanos = System.nanoTime();
+      final TimingWheel lTimingWheel = TimingWheel.getSharedTimingWheel();
+      sampleTimeout = lTimingWheel.schedule(new Runnable() {
+        private long nextSampleNanos = lStartNanos + SAMPLE_INTERVAL_NANOS;
+
+        @Override
+        public void run( ) {
+          // Copying the latency histograms takes too long for the thread of the timing wheel.
+          final Runnable lSampleTask = this;
+          lTimingWheel.executeCallback(new Runnable() {
+            @Override
+            public void run( ) {
+              Pipeline lPipeline = lPipelineReference.get();
+              if (lPipeline == null || lPipeline.isShutdown()) {
+                PipelineTimeSeries.this.stopSampling();
+                return;
+              }
+              try {
+                PipelineTimeSeries.this.takeSample(lPipeline);
+              }
+              finally {
+                // Schedule next sample unless sampling was stopped in the meantime.
+                synchronized (PipelineTimeSeries.this) {
+                  if (sampleTimeout != null) {
+                    nextSampleNanos += SAMPLE_INTERVAL_NANOS;
+                    long lDelay = Math.max(0, nextSampleNanos - System.nanoTime());
+                    sampleTimeout = lTimingWheel.schedule(lSampleTask, lDelay, TimeUnit.NANOSECONDS);
+                  }
+                }
+              }
+            }
+          });
+        }
+      }, SAMPLE_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Method stops sampling. Samples that were already taken are kept.
+   */
+  synchronized void stopSampling( ) {
+    if (sampleTimeout != null) {
+      sampleTimeout.cancel();
+      sampleTimeout = null;
+    }
+  }
+
+  /**
+   * Method takes a sample of the current state of the passed pipeline.
+   *
+   * @param pPipeline Pipeline that should be sampled. The parameter must not be null.
+   */
+  private void takeSample( Pipeline pPipeline ) {
+    PipelineInfo lInfo = pPipeline.getPipelineInfo();
+    RequestLatencies lLatencies = pPipeline.getLatencies();
+    synchronized (this) {
+      int lIndex = (int) (sampleCount % capacity);
+      values[0][lIndex] = lInfo.getTimestamp();
+      values[1][lIndex] = lInfo.getQueueSize();
+      values[2][lIndex] = lInfo.getActiveCount();
+      values[3][lIndex] = lInfo.getPoolSize();
+      values[4][lIndex] = (long) lInfo.getSubmissionRates().getRate1s();
+      values[5][lIndex] = (long) lInfo.getCompletionRates().getRate1s();
+      values[6][lIndex] = (long) lInfo.getRejectionRates().getRate1s();
+      values[7][lIndex] = (long) lInfo.getLatencyViolationRates().getRate1s();
+
+      // Percentiles are only based on the latencies of the requests that were completed since the previous sample.
+      int lColumn = 8;
+      for (int i = 0; i < LATENCY_TYPES.length; i++) {
+        LatencySnapshot lCurrent = lLatencies.getSnapshot(LATENCY_TYPES[i]);
+        LatencySnapshot lDifference = lCurrent.subtract(previousLatencies[i]);
+        previousLatencies[i] = lCurrent;
+        values[lColumn++][lIndex] = TimeUnit.NANOSECONDS.toMicros(lDifference.getP50());
+        values[lColumn++][lIndex] = TimeUnit.NANOSECONDS.toMicros(lDifference.getP99());
+      }
+      sampleCount++;
+    }
+  }
+
+  /**
+   * Method dumps all samples as CSV. The first line contains the names of the columns. Samples are ordered from the
+   * oldest to the newest one. Timestamps are in milliseconds since 1970-01-01.
+   *
+   * @return {@link String} All samples as CSV. The method never returns null.
+   */
+  public synchronized String toCSV( ) {
+    StringBuilder lBuilder = new StringBuilder();
+    for (int i = 0; i < COLUMN_NAMES.length; i++) {
+      if (i > 0) {
+        lBuilder.append(',');
+      }
+      lBuilder.append(COLUMN_NAMES[i]);
+    }
+    lBuilder.append('\n');
+    long lFirstSample = Math.max(0, sampleCount - capacity);
+    for (long lSample = lFirstSample; lSample < sampleCount; lSample++) {
+      this.appendSample(lBuilder, (int) (lSample % capacity));
+      lBuilder.append('\n');
+    }
+    return lBuilder.toString();
+  }
+
+  /**
+   * Method dumps all samples as compact JSON. The names of the columns are only contained once and each sample is an
+   * array of values in the same order. Samples are ordered from the oldest to the newest one. Timestamps are in
+   * milliseconds since 1970-01-01.
+   *
+   * @return {@link String} All samples as JSON. The method never returns null.
+   */
+  public synchronized String toJSON( ) {
+    StringBuilder lBuilder = new StringBuilder();
+    lBuilder.append("{\"pipelineID\":\"");
+    for (char lNext : pipelineID.toCharArray()) {
+      if (lNext == '"' || lNext == '\\') {
+        lBuilder.append('\\');
+      }
+      lBuilder.append(lNext);
+    }
+    lBuilder.append("\",\"interval\":").append(TimeUnit.NANOSECONDS.toMillis(SAMPLE_INTERVAL_NANOS));
+    lBuilder.append(",\"columns\":[");
+    for (int i = 0; i < COLUMN_NAMES.length; i++) {
+      if (i > 0) {
+        lBuilder.append(',');
+      }
+      lBuilder.append('"').append(COLUMN_NAMES[i]).append('"');
+    }
+    lBuilder.append("],\"samples\":[");
+    long lFirstSample = Math.max(0, sampleCount - capacity);
+    for (long lSample = lFirstSample; lSample < sampleCount; lSample++) {
+      if (lSample > lFirstSample) {
+        lBuilder.append(',');
+      }
+      lBuilder.append('[');
+      this.appendSample(lBuilder, (int) (lSample % capacity));
+      lBuilder.append(']');
+    }
+    lBuilder.append("]}");
+    return lBuilder.toString();
+  }
+
+  /**
+   * Method appends the values of the sample at the passed position as comma separated list.
+   *
+   * @param pBuilder Builder to which the values should be appended. The parameter must not be null.
+   * @param pIndex Position of the sample within the ring buffer.
+   */
+  private void appendSample( StringBuilder pBuilder, int pIndex ) {
+    for (int i = 0; i < COLUMN_NAMES.length; i++) {
+      if (i > 0) {
+        pBuilder.append(',');
+      }
+      pBuilder.append(values[i][pIndex]);
+    }
+  }
+}
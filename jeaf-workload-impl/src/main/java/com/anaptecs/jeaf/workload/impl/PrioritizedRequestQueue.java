@@ -0,0 +1,164 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import com.anaptecs.jeaf.workload.annotations.QueueType;
+
+/**
+ * Class implements the order of requests in pipelines with queue type {@link QueueType#PRIORIZED}. Requests with higher
+ * priority are taken first. Requests with the same priority are taken in the order in which they were added. The
+ * priority of a request is defined through the {@link RequestTypeSettings} of its request type. Runnables that do not
+ * represent a single request, e.g. mailboxes of ordered executions, have {@link RequestTypeSettings#NORMAL_PRIORITY}.
+ *
+ * Requests with low priority may wait as long as requests with higher priority are queued. Their maximum latency still
+ * applies, so they are rejected instead of waiting forever.
+ *
+ * The class is not thread safe. It is intended to be used as storage of {@link ResizableBlockingQueue}.
+ *
+ * @author JEAF Development Team
+ */
+class PrioritizedRequestQueue extends AbstractQueue<Runnable> {
+  /**
+   * Requests grouped by their priority. The highest priority comes first.
+   */
+  private final TreeMap<Integer, ArrayDeque<Runnable>> requests = new TreeMap<>(Collections.reverseOrder());
+
+  /**
+   * Amount of requests in the queue.
+   */
+  private int size;
+
+  /**
+   * Method returns the priority of the passed runnable.
+   *
+   * @param pRunnable Runnable whose priority should be returned. The parameter must not be null.
+   * @return int Priority of the runnable.
+   */
+  private static int getPriority( Object pRunnable ) {
+    int lPriority;
+    if (pRunnable instanceof CommandExecutor) {
+      lPriority = ((CommandExecutor) pRunnable).getPriority();
+    }
+    else {
+      lPriority = RequestTypeSettings.NORMAL_PRIORITY;
+    }
+    return lPriority;
+  }
+
+  @Override
+  public boolean offer( Runnable pRunnable ) {
+    if (pRunnable == null) {
+      throw new NullPointerException("Queue does not support null elements.");
+    }
+    Integer lPriority = getPriority(pRunnable);
+    ArrayDeque<Runnable> lRequests = requests.get(lPriority);
+    if (lRequests == null) {
+      lRequests = new ArrayDeque<>();
+      requests.put(lPriority, lRequests);
+    }
+    lRequests.addLast(pRunnable);
+    size++;
+    return true;
+  }
+
+  @Override
+  public Runnable poll( ) {
+    Runnable lRunnable;
+    Map.Entry<Integer, ArrayDeque<Runnable>> lEntry = requests.firstEntry();
+    if (lEntry != null) {
+      lRunnable = lEntry.getValue().pollFirst();
+      if (lEntry.getValue().isEmpty()) {
+        requests.remove(lEntry.getKey());
+      }
+      size--;
+    }
+    else {
+      lRunnable = null;
+    }
+    return lRunnable;
+  }
+
+  @Override
+  public Runnable peek( ) {
+    Runnable lRunnable;
+    Map.Entry<Integer, ArrayDeque<Runnable>> lEntry = requests.firstEntry();
+    if (lEntry != null) {
+      lRunnable = lEntry.getValue().peekFirst();
+    }
+    else {
+      lRunnable = null;
+    }
+    return lRunnable;
+  }
+
+  @Override
+  public boolean remove( Object pRunnable ) {
+    // Only requests with the same priority have to be checked.
+    boolean lRemoved = false;
+    Integer lPriority = getPriority(pRunnable);
+    ArrayDeque<Runnable> lRequests = requests.get(lPriority);
+    if (lRequests != null) {
+      lRemoved = lRequests.removeFirstOccurrence(pRunnable);
+      if (lRemoved) {
+        size--;
+        if (lRequests.isEmpty()) {
+          requests.remove(lPriority);
+        }
+      }
+    }
+    return lRemoved;
+  }
+
+  @Override
+  public boolean contains( Object pRunnable ) {
+    ArrayDeque<Runnable> lRequests = requests.get(getPriority(pRunnable));
+    return lRequests != null && lRequests.contains(pRunnable);
+  }
+
+  @Override
+  public void clear( ) {
+    requests.clear();
+    size = 0;
+  }
+
+  @Override
+  public int size( ) {
+    return size;
+  }
+
+  @Override
+  public Iterator<Runnable> iterator( ) {
+    // Iterator returns requests in the order in which they are taken. Modifications are not supported.
+    final Iterator<ArrayDeque<Runnable>> lGroups = requests.values().iterator();
+    return new Iterator<Runnable>() {
+      private Iterator<Runnable> current = Collections.emptyIterator();
+
+      @Override
+      public boolean hasNext( ) {
+        while (current.hasNext() == false && lGroups.hasNext()) {
+          current = lGroups.next().iterator();
+        }
+        return current.hasNext();
+      }
+
+      @Override
+      public Runnable next( ) {
+        if (this.hasNext() == false) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+    };
+  }
+}
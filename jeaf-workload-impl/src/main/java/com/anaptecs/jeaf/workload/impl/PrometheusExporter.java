@@ -0,0 +1,468 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.anaptecs.jeaf.xfun.api.XFun;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Class implements an embedded HTTP endpoint that exposes the metrics of all pipelines in Prometheus text format. It is
+ * built on the HTTP server of the JDK so no additional dependencies are required.
+ *
+ * For every scrape all values are collected first and rendered afterwards. Gauges of a pipeline are taken from one
+ * {@link PipelineInfo} snapshot and all counters and latency histograms of a request type are read together, so that
+ * values within one scrape are consistent with each other. Rendering writes directly into a reused buffer and latency
+ * histograms are read into fixed buckets without creating full histogram snapshots.
+ *
+ * Pipeline gauges are labeled with the pipeline ID. Counters and histograms are labeled with the pipeline ID and the
+ * request type.
+ *
+ * @author JEAF Development Team
+ */
+public class PrometheusExporter {
+  /**
+   * Path under which the metrics are provided.
+   */
+  public static final String METRICS_PATH = "/metrics";
+
+  /**
+   * Content type of Prometheus text format.
+   */
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  /**
+   * Prefix of all metric names.
+   */
+  private static final String PREFIX = "jeaf_workload_";
+
+  /**
+   * Names, types and descriptions of all metrics of a pipeline. The order matches {@link #collectPipelineValues}.
+   */
+  private static final String[][] PIPELINE_METRICS = new String[][] {
+    { "queue_size", "gauge", "Amount of requests that are currently queued." },
+    { "queue_remaining_capacity", "gauge", "Amount of requests that can still be queued." },
+    { "active_threads", "gauge", "Amount of threads that are currently executing requests." },
+    { "pool_size", "gauge", "Current amount of threads of the pipeline." },
+    { "largest_pool_size", "gauge", "Largest amount of threads that the pipeline ever had." },
+    { "core_pool_size", "gauge", "Amount of core threads of the pipeline." },
+    { "max_pool_size", "gauge", "Maximum amount of threads of the pipeline." },
+    { "tasks_total", "counter", "Amount of tasks that were accepted by the thread pool of the pipeline." },
+    { "completed_tasks_total", "counter", "Amount of tasks whose execution is completed." } };
+
+  /**
+   * Names, types and descriptions of all counters of a request type. The order matches
+   * {@link #collectRequestTypeValues}.
+   */
+  private static final String[][] REQUEST_TYPE_METRICS = new String[][] {
+    { "requests_submitted_total", "counter", "Amount of requests that were handed over to the pipeline." },
+    { "requests_executed_total", "counter", "Amount of requests that were executed." },
+    { "requests_rejected_total", "counter", "Amount of requests that were rejected." },
+    { "requests_max_latency_exceeded_total", "counter", "Amount of requests that exceeded their maximum latency." },
+    { "requests_max_execution_time_exceeded_total", "counter",
+      "Amount of requests that exceeded their maximum execution time." },
+    { "requests_failed_total", "counter", "Amount of requests whose execution failed." },
+    { "requests_coalesced_total", "counter", "Amount of requests that shared the execution of another request." },
+    { "requests_resource_sampled_total", "counter", "Amount of requests whose resource usage was measured." },
+    { "request_cpu_time_seconds_total", "counter", "CPU time of all requests whose resource usage was measured." },
+    { "request_allocated_bytes_total", "counter",
+      "Memory allocated by all requests whose resource usage was measured." } };
+
+  /**
+   * Index of the CPU time within the values of a request type. The value is collected in nano seconds but rendered in
+   * seconds.
+   */
+  private static final int CPU_TIME_INDEX = 8;
+
+  /**
+   * Latency types that are rendered as histograms.
+   */
+  private static final LatencyType[] LATENCY_TYPES =
+      new LatencyType[] { LatencyType.QUEUE_WAIT, LatencyType.SERVICE_TIME, LatencyType.END_TO_END };
+
+  /**
+   * Names and descriptions of the histograms of all latency types. The order matches {@link #LATENCY_TYPES}.
+   */
+  private static final String[][] LATENCY_METRICS = new String[][] {
+    { "queue_wait_seconds", "Time that requests waited before their execution was started." },
+    { "service_time_seconds", "Time that the execution of requests took." },
+    { "end_to_end_seconds", "Time from handing over requests to the pipeline until their execution was completed." } };
+
+  /**
+   * Upper bounds of the histogram buckets in nano seconds.
+   */
+  private static final long[] BUCKET_BOUNDS = new long[] { 100000L, 250000L, 500000L, 1000000L, 2500000L, 5000000L,
+    10000000L, 25000000L, 50000000L, 100000000L, 250000000L, 500000000L, 1000000000L, 2500000000L, 5000000000L,
+    10000000000L, 30000000000L, 60000000000L };
+
+  /**
+   * Labels of the histogram buckets. The last one is used for the total amount.
+   */
+  private static final String[] BUCKET_LABELS = new String[] { "0.0001", "0.00025", "0.0005", "0.001", "0.0025",
+    "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10", "30", "60", "+Inf" };
+
+  /**
+   * Pipelines whose metrics are exported. The collection is read for every scrape so it may change over time.
+   */
+  private final Collection<Pipeline> pipelines;
+
+  /**
+   * Buffer into which the metrics are rendered. Access to the buffer is synchronized on this object.
+   */
+  private final StringBuilder buffer = new StringBuilder(16384);
+
+  /**
+   * HTTP server that provides the metrics. The attribute is null if the exporter is not started. Access to the
+   * attribute is synchronized on this object.
+   */
+  private HttpServer server;
+
+  /**
+   * Initialize object.
+   *
+   * @param pPipelines Pipelines whose metrics should be exported. The collection is read for every scrape so it may be
+   * a live view on the pipelines of a workload manager. It must be safe to iterate over it concurrently. The parameter
+   * must not be null.
+   */
+  public PrometheusExporter( Collection<Pipeline> pPipelines ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pPipelines, "pPipelines");
+
+    pipelines = pPipelines;
+  }
+
+  /**
+   * Method starts the HTTP endpoint. Metrics are provided under {@link #METRICS_PATH}.
+   *
+   * @param pAddress Address on which the endpoint should listen. Port 0 means that any free port will be used. The
+   * parameter must not be null.
+   * @throws IOException If the HTTP server can not be started.
+   */
+  public synchronized void start( InetSocketAddress pAddress ) throws IOException {
+    // Check parameter
+    Check.checkInvalidParameterNull(pAddress, "pAddress");
+
+    if (server != null) {
+      throw new IllegalStateException("Prometheus exporter is already started on port " + this.getPort() + ".");
+    }
+    HttpServer lServer = HttpServer.create(pAddress, 0);
+    lServer.createContext(METRICS_PATH, new HttpHandler() {
+      @Override
+      public void handle( HttpExchange pExchange ) throws IOException {
+        PrometheusExporter.this.handleScrape(pExchange);
+      }
+    });
+    lServer.start();
+    server = lServer;
+    XFun.getTrace().info("Started Prometheus exporter for workload metrics on port " + this.getPort() + ".");
+  }
+
+  /**
+   * Method stops the HTTP endpoint. If it is not started then nothing happens.
+   */
+  public synchronized void stop( ) {
+    if (server != null) {
+      server.stop(0);
+      server = null;
+    }
+  }
+
+  /**
+   * Method returns the port on which the HTTP endpoint listens.
+   *
+   * @return int Port of the endpoint or -1 if the exporter is not started.
+   */
+  public synchronized int getPort( ) {
+    int lPort;
+    if (server != null) {
+      lPort = server.getAddress().getPort();
+    }
+    else {
+      lPort = -1;
+    }
+    return lPort;
+  }
+
+  /**
+   * Method renders the current metrics of all pipelines in Prometheus text format.
+   *
+   * @return {@link String} Metrics in Prometheus text format. The method never returns null.
+   */
+  public synchronized String render( ) {
+    this.renderInternal();
+    return buffer.toString();
+  }
+
+  /**
+   * Method answers a scrape request.
+   *
+   * @param pExchange HTTP exchange of the request. The parameter must not be null.
+   * @throws IOException If the response can not be written.
+   */
+  private void handleScrape( HttpExchange pExchange ) throws IOException {
+    try {
+      String lMethod = pExchange.getRequestMethod();
+      if (METRICS_PATH.equals(pExchange.getRequestURI().getPath()) == false) {
+        pExchange.sendResponseHeaders(404, -1);
+      }
+      else if ("GET".equals(lMethod) == false && "HEAD".equals(lMethod) == false) {
+        pExchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        pExchange.sendResponseHeaders(405, -1);
+      }
+      else {
+        byte[] lBody;
+        synchronized (this) {
+          this.renderInternal();
+          lBody = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        pExchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        if ("HEAD".equals(lMethod)) {
+          pExchange.sendResponseHeaders(200, -1);
+        }
+        else {
+          pExchange.sendResponseHeaders(200, lBody.length);
+          try (OutputStream lOutputStream = pExchange.getResponseBody()) {
+            lOutputStream.write(lBody);
+          }
+        }
+      }
+    }
+    finally {
+      pExchange.close();
+    }
+  }
+
+  /**
+   * Method collects the metrics of all pipelines and renders them into the buffer.
+   */
+  private void renderInternal( ) {
+    // Collect all values before anything is rendered.
+    List<PipelineSample> lSamples = new ArrayList<>();
+    for (Pipeline lNextPipeline : pipelines) {
+      lSamples.add(this.collectPipeline(lNextPipeline));
+    }
+
+    // Render all metrics. Samples of the same metric have to be grouped together.
+    StringBuilder lBuffer = buffer;
+    lBuffer.setLength(0);
+    for (int i = 0; i < PIPELINE_METRICS.length; i++) {
+      this.appendHeader(lBuffer, PIPELINE_METRICS[i][0], PIPELINE_METRICS[i][1], PIPELINE_METRICS[i][2]);
+      for (PipelineSample lNextSample : lSamples) {
+        lBuffer.append(PREFIX).append(PIPELINE_METRICS[i][0]).append("{pipeline=\"");
+        this.appendEscaped(lBuffer, lNextSample.pipelineID);
+        lBuffer.append("\"} ").append(lNextSample.values[i]).append('\n');
+      }
+    }
+    for (int i = 0; i < REQUEST_TYPE_METRICS.length; i++) {
+      this.appendHeader(lBuffer, REQUEST_TYPE_METRICS[i][0], REQUEST_TYPE_METRICS[i][1], REQUEST_TYPE_METRICS[i][2]);
+      for (PipelineSample lNextSample : lSamples) {
+        for (RequestTypeSample lNextRequestType : lNextSample.requestTypes) {
+          lBuffer.append(PREFIX).append(REQUEST_TYPE_METRICS[i][0]);
+          this.appendLabels(lBuffer, lNextSample.pipelineID, lNextRequestType.requestType, null);
+          lBuffer.append(' ');
+          if (i == CPU_TIME_INDEX) {
+            this.appendSeconds(lBuffer, lNextRequestType.values[i]);
+          }
+          else {
+            lBuffer.append(lNextRequestType.values[i]);
+          }
+          lBuffer.append('\n');
+        }
+      }
+    }
+    for (int i = 0; i < LATENCY_TYPES.length; i++) {
+      String lName = LATENCY_METRICS[i][0];
+      this.appendHeader(lBuffer, lName, "histogram", LATENCY_METRICS[i][1]);
+      for (PipelineSample lNextSample : lSamples) {
+        for (RequestTypeSample lNextRequestType : lNextSample.requestTypes) {
+          long[] lCounts = lNextRequestType.latencyCounts[i];
+          for (int lBucket = 0; lBucket < BUCKET_LABELS.length; lBucket++) {
+            lBuffer.append(PREFIX).append(lName).append("_bucket");
+            this.appendLabels(lBuffer, lNextSample.pipelineID, lNextRequestType.requestType, BUCKET_LABELS[lBucket]);
+            lBuffer.append(' ').append(lCounts[lBucket]).append('\n');
+          }
+          lBuffer.append(PREFIX).append(lName).append("_sum");
+          this.appendLabels(lBuffer, lNextSample.pipelineID, lNextRequestType.requestType, null);
+          lBuffer.append(' ');
+          this.appendSeconds(lBuffer, lNextRequestType.latencySums[i]);
+          lBuffer.append('\n');
+          lBuffer.append(PREFIX).append(lName).append("_count");
+          this.appendLabels(lBuffer, lNextSample.pipelineID, lNextRequestType.requestType, null);
+          lBuffer.append(' ').append(lCounts[BUCKET_BOUNDS.length]).append('\n');
+        }
+      }
+    }
+  }
+
+  /**
+   * Method collects all values of the passed pipeline.
+   *
+   * @param pPipeline Pipeline whose values should be collected. The parameter must not be null.
+   * @return {@link PipelineSample} Collected values. The method never returns null.
+   */
+  private PipelineSample collectPipeline( Pipeline pPipeline ) {
+    PipelineSample lSample = new PipelineSample(pPipeline.getPipelineID());
+    this.collectPipelineValues(pPipeline.getPipelineInfo(), lSample.values);
+    for (RequestTypeStatistics lNextStatistics : pPipeline.getStatistics().getAllStatistics()) {
+      RequestTypeSample lRequestType = new RequestTypeSample(lNextStatistics.getRequestTypeKey().getKey());
+      this.collectRequestTypeValues(lNextStatistics, lRequestType.values);
+      RequestLatencies lLatencies = lNextStatistics.getLatencies();
+      for (int i = 0; i < LATENCY_TYPES.length; i++) {
+        lRequestType.latencySums[i] =
+            lLatencies.getCumulativeCounts(LATENCY_TYPES[i], BUCKET_BOUNDS, lRequestType.latencyCounts[i]);
+      }
+      lSample.requestTypes.add(lRequestType);
+    }
+    return lSample;
+  }
+
+  /**
+   * Method collects the values of all pipeline metrics from the passed snapshot.
+   *
+   * @param pInfo Snapshot of the pipeline. The parameter must not be null.
+   * @param pValues Array into which the values are written in the order of {@link #PIPELINE_METRICS}. The parameter
+   * must not be null.
+   */
+  private void collectPipelineValues( PipelineInfo pInfo, long[] pValues ) {
+    pValues[0] = pInfo.getQueueSize();
+    pValues[1] = pInfo.getRemainingQueueCapacity();
+    pValues[2] = pInfo.getActiveCount();
+    pValues[3] = pInfo.getPoolSize();
+    pValues[4] = pInfo.getLargestPoolSize();
+    pValues[5] = pInfo.getCorePoolSize();
+    pValues[6] = pInfo.getMaximumPoolSize();
+    pValues[7] = pInfo.getTaskCount();
+    pValues[8] = pInfo.getCompletedTaskCount();
+  }
+
+  /**
+   * Method collects the values of all counters of the passed request type.
+   *
+   * @param pStatistics Statistics of the request type. The parameter must not be null.
+   * @param pValues Array into which the values are written in the order of {@link #REQUEST_TYPE_METRICS}. The
+   * parameter must not be null.
+   */
+  private void collectRequestTypeValues( RequestTypeStatistics pStatistics, long[] pValues ) {
+    // Executed requests are read first so that they never exceed the submitted ones.
+    pValues[1] = pStatistics.getExecutedCount();
+    pValues[0] = pStatistics.getSubmittedCount();
+    pValues[2] = pStatistics.getRejectedCount();
+    pValues[3] = pStatistics.getMaxLatencyExceededCount();
+    pValues[4] = pStatistics.getMaxExecutionTimeExceededCount();
+    pValues[5] = pStatistics.getFailedCount();
+    pValues[6] = pStatistics.getCoalescedCount();
+    pValues[7] = pStatistics.getSampledCount();
+    pValues[CPU_TIME_INDEX] = pStatistics.getCpuTimeNanos();
+    pValues[9] = pStatistics.getAllocatedBytes();
+  }
+
+  /**
+   * Method appends the HELP and TYPE lines of a metric.
+   *
+   * @param pBuffer Buffer to which the lines should be appended. The parameter must not be null.
+   * @param pName Name of the metric without prefix. The parameter must not be null.
+   * @param pType Prometheus type of the metric. The parameter must not be null.
+   * @param pHelp Description of the metric. The parameter must not be null.
+   */
+  private void appendHeader( StringBuilder pBuffer, String pName, String pType, String pHelp ) {
+    pBuffer.append("# HELP ").append(PREFIX).append(pName).append(' ').append(pHelp).append('\n');
+    pBuffer.append("# TYPE ").append(PREFIX).append(pName).append(' ').append(pType).append('\n');
+  }
+
+  /**
+   * Method appends the labels of a request type metric.
+   *
+   * @param pBuffer Buffer to which the labels should be appended. The parameter must not be null.
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @param pRequestType Request type. The parameter must not be null.
+   * @param pBucketLabel Upper bound of a histogram bucket. The parameter may be null if the metric is no bucket.
+   */
+  private void appendLabels( StringBuilder pBuffer, String pPipelineID, String pRequestType, String pBucketLabel ) {
+    pBuffer.append("{pipeline=\"");
+    this.appendEscaped(pBuffer, pPipelineID);
+    pBuffer.append("\",request_type=\"");
+    this.appendEscaped(pBuffer, pRequestType);
+    if (pBucketLabel != null) {
+      pBuffer.append("\",le=\"").append(pBucketLabel);
+    }
+    pBuffer.append("\"}");
+  }
+
+  /**
+   * Method appends the passed nano seconds as seconds.
+   *
+   * @param pBuffer Buffer to which the value should be appended. The parameter must not be null.
+   * @param pNanos Value in nano seconds.
+   */
+  private void appendSeconds( StringBuilder pBuffer, long pNanos ) {
+    pBuffer.append(pNanos / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  /**
+   * Method appends the passed label value. Backslashes, double quotes and line feeds are escaped as required by
+   * Prometheus text format.
+   *
+   * @param pBuffer Buffer to which the value should be appended. The parameter must not be null.
+   * @param pValue Label value that should be appended. The parameter must not be null.
+   */
+  private void appendEscaped( StringBuilder pBuffer, String pValue ) {
+    for (int i = 0; i < pValue.length(); i++) {
+      char lNext = pValue.charAt(i);
+      if (lNext == '\\' || lNext == '"') {
+        pBuffer.append('\\').append(lNext);
+      }
+      else if (lNext == '\n') {
+        pBuffer.append("\\n");
+      }
+      else {
+        pBuffer.append(lNext);
+      }
+    }
+  }
+
+  /**
+   * Class contains the collected values of a pipeline.
+   */
+  private static final class PipelineSample {
+    private final String pipelineID;
+
+    private final long[] values = new long[PIPELINE_METRICS.length];
+
+    private final List<RequestTypeSample> requestTypes = new ArrayList<>();
+
+    PipelineSample( String pPipelineID ) {
+      pipelineID = pPipelineID;
+    }
+  }
+
+  /**
+   * Class contains the collected values of a request type.
+   */
+  private static final class RequestTypeSample {
+    private final String requestType;
+
+    private final long[] values = new long[REQUEST_TYPE_METRICS.length];
+
+    private final long[][] latencyCounts = new long[LATENCY_TYPES.length][BUCKET_BOUNDS.length + 1];
+
+    private final long[] latencySums = new long[LATENCY_TYPES.length];
+
+    RequestTypeSample( String pRequestType ) {
+      requestType = pRequestType;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Class counts events in a ring buffer of one second buckets. This way rates over sliding windows of up to
+ * {@link #MAX_WINDOW_SECONDS} seconds can be calculated. Updating the counter has constant costs: each bucket holds the
+ * second it belongs to together with its count in one single long value. Buckets of past seconds are reused by simply
+ * replacing their value with a CAS operation. Thus no locks are required.
+ *
+ * Rates are always calculated based on completed seconds. The current second is not considered as it is still
+ * incomplete. The time source of a counter can be replaced so that windows can be advanced without waiting for the
+ * system clock.
+ *
+ * @author JEAF Development Team
+ */
+class RateCounter {
+  /**
+   * Largest window in seconds for which rates can be calculated.
+   */
+  static final int MAX_WINDOW_SECONDS = 60;
+
+  /**
+   * Amount of buckets of the ring buffer. The size has to be a power of 2 and larger than the maximum window.
+   */
+  private static final int BUCKET_COUNT = 64;
+
+  /**
+   * Amount of bits of a bucket that are used for the count. The remaining bits are used for the second.
+   */
+  private static final int COUNT_BITS = 32;
+
+  /**
+   * Mask to extract the count from a bucket.
+   */
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+  /**
+   * Time source that is used by default. It is based on {@link System#nanoTime()}.
+   */
+  static final LongSupplier SYSTEM_NANO_TIME = new LongSupplier() {
+    @Override
+    public long getAsLong( ) {
+      return System.nanoTime();
+    }
+  };
+
+  /**
+   * Time source in nano seconds that defines the seconds of this counter.
+   */
+  private final LongSupplier nanoTime;
+
+  /**
+   * Nano time that is used as base for all seconds.
+   */
+  private final long baseNanos;
+
+  /**
+   * Buckets of the ring buffer. Each bucket contains the second in the upper bits and the count in the lower bits.
+   */
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+  /**
+   * Initialize object.
+   *
+   * @param pNanoTime Time source in nano seconds that is used to assign events to seconds. Only differences between
+   * values of the time source are relevant. The parameter must not be null.
+   */
+  RateCounter( LongSupplier pNanoTime ) {
+    nanoTime = pNanoTime;
+    baseNanos = pNanoTime.getAsLong();
+  }
+
+  /**
+   * Method counts one event.
+   */
+  void increment( ) {
+    this.add(1);
+  }
+
+  /**
+   * Method counts the passed amount of events.
+   *
+   * @param pCount Amount of events.
+   */
+  void add( int pCount ) {
+    long lSecond = this.currentSecond();
+    int lIndex = (int) (lSecond & (BUCKET_COUNT - 1));
+    while (true) {
+      long lValue = buckets.get(lIndex);
+      long lNewValue;
+      // Bucket belongs to current second.
+      if (secondOf(lValue) == lSecond) {
+        lNewValue = Math.min(lValue + pCount, (lSecond << COUNT_BITS) | COUNT_MASK);
+      }
+      // Bucket belongs to a past second and has to be reused.
+      else {
+        lNewValue = (lSecond << COUNT_BITS) | (pCount & COUNT_MASK);
+      }
+      if (buckets.compareAndSet(lIndex, lValue, lNewValue)) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Method creates a snapshot with the current rates.
+   *
+   * @return {@link RateSnapshot} Snapshot with the current rates. The method never returns null.
+   */
+  RateSnapshot snapshot( ) {
+    long lCurrentSecond = this.currentSecond();
+    long lSum1 = 0;
+    long lSum10 = 0;
+    long lSum60 = 0;
+    long lPeak = 0;
+    for (int i = 1; i <= MAX_WINDOW_SECONDS; i++) {
+      long lSecond = lCurrentSecond - i;
+      if (lSecond < 0) {
+        break;
+      }
+      long lValue = buckets.get((int) (lSecond & (BUCKET_COUNT - 1)));
+      long lCount;
+      if (secondOf(lValue) == lSecond) {
+        lCount = lValue & COUNT_MASK;
+      }
+      else {
+        lCount = 0;
+      }
+      if (i <= 1) {
+        lSum1 += lCount;
+      }
+      if (i <= 10) {
+        lSum10 += lCount;
+      }
+      lSum60 += lCount;
+      lPeak = Math.max(lPeak, lCount);
+    }
+    return new RateSnapshot(lSum1, lSum10 / 10.0, lSum60 / 60.0, lPeak);
+  }
+
+  /**
+   * Method returns the current second relative to the creation of this counter.
+   *
+   * @return long Current second.
+   */
+  private long currentSecond( ) {
+    // Seconds start with 1 so that empty buckets never belong to a valid second.
+    return TimeUnit.NANOSECONDS.toSeconds(nanoTime.getAsLong() - baseNanos) + 1;
+  }
+
+  /**
+   * Method returns the second to which the passed bucket value belongs.
+   *
+   * @param pValue Value of a bucket.
+   * @return long Second of the bucket.
+   */
+  private static long secondOf( long pValue ) {
+    return pValue >>> COUNT_BITS;
+  }
+}
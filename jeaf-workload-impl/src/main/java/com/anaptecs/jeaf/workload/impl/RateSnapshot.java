@@ -0,0 +1,83 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+/**
+ * Class represents an immutable snapshot of the rates of a certain kind of events over sliding windows of 1, 10 and 60
+ * seconds. All rates are events per second.
+ *
+ * @author JEAF Development Team
+ */
+public class RateSnapshot {
+  /**
+   * Snapshot without any events.
+   */
+  public static final RateSnapshot EMPTY = new RateSnapshot(0, 0, 0, 0);
+
+  private final double rate1s;
+
+  private final double rate10s;
+
+  private final double rate60s;
+
+  private final long peak;
+
+  /**
+   * Initialize object.
+   *
+   * @param pRate1s Rate during the last second.
+   * @param pRate10s Average rate during the last 10 seconds.
+   * @param pRate60s Average rate during the last 60 seconds.
+   * @param pPeak Highest amount of events within one second during the last 60 seconds.
+   */
+  RateSnapshot( double pRate1s, double pRate10s, double pRate60s, long pPeak ) {
+    rate1s = pRate1s;
+    rate10s = pRate10s;
+    rate60s = pRate60s;
+    peak = pPeak;
+  }
+
+  /**
+   * Method returns the rate during the last completed second.
+   *
+   * @return double Events per second.
+   */
+  public double getRate1s( ) {
+    return rate1s;
+  }
+
+  /**
+   * Method returns the average rate during the last 10 completed seconds.
+   *
+   * @return double Events per second.
+   */
+  public double getRate10s( ) {
+    return rate10s;
+  }
+
+  /**
+   * Method returns the average rate during the last 60 completed seconds.
+   *
+   * @return double Events per second.
+   */
+  public double getRate60s( ) {
+    return rate60s;
+  }
+
+  /**
+   * Method returns the highest amount of events within one second during the last 60 completed seconds.
+   *
+   * @return long Peak events per second.
+   */
+  public long getPeak( ) {
+    return peak;
+  }
+
+  @Override
+  public String toString( ) {
+    return "1s=" + rate1s + "/s, 10s=" + rate10s + "/s, 60s=" + rate60s + "/s, peak=" + peak + "/s";
+  }
+}
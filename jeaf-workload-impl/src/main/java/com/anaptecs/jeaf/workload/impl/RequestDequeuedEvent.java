@@ -0,0 +1,46 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Event is emitted when a request was taken from the queue of a pipeline in order to execute it.
+ *
+ * @author JEAF Development Team
+ */
+@Name("com.anaptecs.jeaf.workload.RequestDequeued")
+@Label("Request Dequeued")
+@Description("Request was taken from the queue of a pipeline")
+final class RequestDequeuedEvent extends WorkloadEvent {
+  /**
+   * Time that the request waited until its execution was started.
+   */
+  @Label("Queue Wait")
+  @Timespan(Timespan.NANOSECONDS)
+  long queueWait;
+
+  /**
+   * Method emits an event for the passed request if the event is enabled.
+   *
+   * @param pPipeline Pipeline that executes the request. The parameter must not be null.
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pQueueWaitNanos Time in nano seconds that the request waited until its execution was started.
+   */
+  static void emit( Pipeline pPipeline, RequestTypeKey pRequestTypeKey, long pQueueWaitNanos ) {
+    RequestDequeuedEvent lEvent = new RequestDequeuedEvent();
+    if (lEvent.isEnabled()) {
+      lEvent.setRequest(pPipeline, pRequestTypeKey);
+      lEvent.queueWait = pQueueWaitNanos;
+      lEvent.commit();
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event is emitted when a request is handed over to a pipeline. If the pipeline rejects the request then a
+ * {@link RequestRejectedEvent} will follow.
+ *
+ * @author JEAF Development Team
+ */
+@Name("com.anaptecs.jeaf.workload.RequestEnqueued")
+@Label("Request Enqueued")
+@Description("Request was handed over to a pipeline")
+final class RequestEnqueuedEvent extends WorkloadEvent {
+  /**
+   * Method emits an event for the passed request if the event is enabled.
+   *
+   * @param pPipeline Pipeline to which the request is handed over. The parameter must not be null.
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   */
+  static void emit( Pipeline pPipeline, RequestTypeKey pRequestTypeKey ) {
+    RequestEnqueuedEvent lEvent = new RequestEnqueuedEvent();
+    if (lEvent.isEnabled()) {
+      lEvent.setRequest(pPipeline, pRequestTypeKey);
+      lEvent.commit();
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event covers the execution of a request. Its duration is the service time of the request. The event has to be
+ * started with {@link #begin()} directly before the request is executed.
+ *
+ * @author JEAF Development Team
+ */
+@Name("com.anaptecs.jeaf.workload.RequestExecution")
+@Label("Request Execution")
+@Description("Execution of a request by a pipeline")
+final class RequestExecutionEvent extends WorkloadEvent {
+  /**
+   * Attribute indicates if the execution of the request failed with an exception.
+   */
+  @Label("Failed")
+  boolean failed;
+
+  /**
+   * Method ends the event and emits it if it is enabled and its duration exceeds the configured threshold.
+   *
+   * @param pPipeline Pipeline that executed the request. The parameter must not be null.
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pFailed Parameter defines if the execution of the request failed.
+   */
+  void complete( Pipeline pPipeline, RequestTypeKey pRequestTypeKey, boolean pFailed ) {
+    this.end();
+    if (this.shouldCommit()) {
+      this.setRequest(pPipeline, pRequestTypeKey);
+      failed = pFailed;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class tracks all latencies of requests as defined by {@link LatencyType}. Latencies are tracked for a pipeline as a
+ * whole as well as for each of its request types.
+ *
+ * @author JEAF Development Team
+ */
+public class RequestLatencies {
+  /**
+   * Recorders for all latency types. The index of the array is the ordinal of the latency type.
+   */
+  private final LatencyRecorder[] recorders;
+
+  /**
+   * Initialize object.
+   */
+  RequestLatencies( ) {
+    LatencyType[] lTypes = LatencyType.values();
+    recorders = new LatencyRecorder[lTypes.length];
+    for (int i = 0; i < lTypes.length; i++) {
+      recorders[i] = new LatencyRecorder();
+    }
+  }
+
+  /**
+   * Method records the latencies of an executed request.
+   *
+   * @param pQueueWaitNanos Time that the request waited in nano seconds before its execution was started.
+   * @param pServiceNanos Time that the execution of the request took in nano seconds.
+   */
+  void record( long pQueueWaitNanos, long pServiceNanos ) {
+    recorders[LatencyType.QUEUE_WAIT.ordinal()].record(pQueueWaitNanos);
+    recorders[LatencyType.SERVICE_TIME.ordinal()].record(pServiceNanos);
+    recorders[LatencyType.END_TO_END.ordinal()].record(pQueueWaitNanos + pServiceNanos);
+  }
+
+  /**
+   * Method returns a snapshot with all latencies of the passed type since the pipeline was started or the latencies
+   * were reset.
+   *
+   * @param pLatencyType Type of latencies that should be returned. The parameter must not be null.
+   * @return {@link LatencySnapshot} Snapshot of the latencies. The method never returns null.
+   */
+  public LatencySnapshot getSnapshot( LatencyType pLatencyType ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pLatencyType, "pLatencyType");
+
+    return recorders[pLatencyType.ordinal()].getSnapshot();
+  }
+
+  /**
+   * Method returns a snapshot with all latencies of the passed type since the last call of this method for the same
+   * type. Interval snapshots are intended for a single consumer like a monitoring system that periodically collects
+   * them.
+   *
+   * @param pLatencyType Type of latencies that should be returned. The parameter must not be null.
+   * @return {@link LatencySnapshot} Snapshot of the latencies of the last interval. The method never returns null.
+   */
+  public LatencySnapshot getIntervalSnapshot( LatencyType pLatencyType ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pLatencyType, "pLatencyType");
+
+    return recorders[pLatencyType.ordinal()].getIntervalSnapshot();
+  }
+
+  /**
+   * Method calculates the cumulative amount of all latencies of the passed type that are less or equal to each of the
+   * passed upper bounds. This is intended for exporters that use fixed buckets and should not allocate a snapshot for
+   * every request type.
+   *
+   * @param pLatencyType Type of latencies that should be used. The parameter must not be null.
+   * @param pUpperBounds Upper bounds in nano seconds in ascending order. The parameter must not be null.
+   * @param pCounts Array into which the cumulative counts are written. The array must be one element larger than the
+   * upper bounds as the last element receives the total amount of latencies. The parameter must not be null.
+   * @return long Approximate sum of all latencies in nano seconds.
+   */
+  long getCumulativeCounts( LatencyType pLatencyType, long[] pUpperBounds, long[] pCounts ) {
+    return recorders[pLatencyType.ordinal()].getCumulativeCounts(pUpperBounds, pCounts);
+  }
+
+  /**
+   * Method resets all latencies.
+   */
+  public void reset( ) {
+    for (LatencyRecorder lNextRecorder : recorders) {
+      lNextRecorder.reset();
+    }
+  }
+}
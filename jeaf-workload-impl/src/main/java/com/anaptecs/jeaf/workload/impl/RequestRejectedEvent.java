@@ -0,0 +1,44 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Event is emitted when a request was rejected by a pipeline.
+ *
+ * @author JEAF Development Team
+ */
+@Name("com.anaptecs.jeaf.workload.RequestRejected")
+@Label("Request Rejected")
+@Description("Request was rejected by a pipeline")
+final class RequestRejectedEvent extends WorkloadEvent {
+  /**
+   * Reason why the request was rejected.
+   */
+  @Label("Reason")
+  String reason;
+
+  /**
+   * Method emits an event for the passed request if the event is enabled.
+   *
+   * @param pPipeline Pipeline that rejected the request. The parameter must not be null.
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   * @param pException Exception describing the reason of the rejection. The parameter must not be null.
+   */
+  static void emit( Pipeline pPipeline, RequestTypeKey pRequestTypeKey, Exception pException ) {
+    RequestRejectedEvent lEvent = new RequestRejectedEvent();
+    if (lEvent.isEnabled()) {
+      lEvent.setRequest(pPipeline, pRequestTypeKey);
+      lEvent.reason = pException.getMessage();
+      lEvent.commit();
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class contains settings that are specific for a certain request type within a pipeline. Settings that are not
+ * defined for a request type are taken from the configuration of the pipeline. This way request types with different
+ * latency budgets can share one pipeline.
+ *
+ * The priority of a request type is only relevant for pipelines with queue type
+ * {@link com.anaptecs.jeaf.workload.annotations.QueueType#PRIORIZED}. Queued requests with higher priority are executed
+ * first. Requests with the same priority are executed in the order in which they were handed over.
+ *
+ * @author JEAF Development Team
+ */
+public class RequestTypeSettings {
+  /**
+   * Priority of request types that do not define their own priority.
+   */
+  public static final int NORMAL_PRIORITY = 0;
+
+  /**
+   * Maximum execution time in nano seconds. Values of 0 or less mean that the execution time is not limited.
+   */
+  private final long maxNanoExecutionTime;
+
+  /**
+   * Maximum latency in nano seconds. Values of 0 or less mean that the maximum latency of the pipeline is used.
+   */
+  private final long maxNanoLatency;
+
+  /**
+   * Priority of the request type. Higher values mean higher priority.
+   */
+  private final int priority;
+
+  /**
+   * Initialize object.
+   *
+   * @param pMaxExecutionTime Maximum time that the execution of a request of this type may take. Values of 0 or less
+   * mean that the execution time will not be limited.
+   * @param pTimeUnit Time unit of the passed values. The parameter must not be null.
+   */
+  public RequestTypeSettings( long pMaxExecutionTime, TimeUnit pTimeUnit ) {
+    this(pMaxExecutionTime, -1, NORMAL_PRIORITY, pTimeUnit);
+  }
+
+  /**
+   * Initialize object.
+   *
+   * @param pMaxExecutionTime Maximum time that the execution of a request of this type may take. Values of 0 or less
+   * mean that the execution time will not be limited.
+   * @param pMaxLatency Maximum time that a request of this type may wait until its execution is started. Values of 0 or
+   * less mean that the maximum latency of the pipeline is used.
+   * @param pPriority Priority of the request type. Higher values mean higher priority.
+   * @param pTimeUnit Time unit of the passed values. The parameter must not be null.
+   */
+  public RequestTypeSettings( long pMaxExecutionTime, long pMaxLatency, int pPriority, TimeUnit pTimeUnit ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pTimeUnit, "pTimeUnit");
+
+    maxNanoExecutionTime = pTimeUnit.toNanos(pMaxExecutionTime);
+    maxNanoLatency = pTimeUnit.toNanos(pMaxLatency);
+    priority = pPriority;
+  }
+
+  /**
+   * Method returns the maximum execution time of requests of this type.
+   *
+   * @return long Maximum execution time in nano seconds. Values of 0 or less mean that the execution time is not
+   * limited.
+   */
+  public long getMaxNanoExecutionTime( ) {
+    return maxNanoExecutionTime;
+  }
+
+  /**
+   * Method returns the maximum latency of requests of this type.
+   *
+   * @return long Maximum latency in nano seconds. Values of 0 or less mean that the maximum latency of the pipeline is
+   * used.
+   */
+  public long getMaxNanoLatency( ) {
+    return maxNanoLatency;
+  }
+
+  /**
+   * Method returns the priority of requests of this type.
+   *
+   * @return int Priority of the request type. Higher values mean higher priority.
+   */
+  public int getPriority( ) {
+    return priority;
+  }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class contains the statistics of one request type within a pipeline. All counters are striped so that they can be
+ * updated by many threads concurrently without contention and without losing updates.
+ *
+ * @author JEAF Development Team
+ */
+public class RequestTypeStatistics {
+  /**
+   * Request type to which the statistics belong.
+   */
+  private final RequestTypeKey requestTypeKey;
+
+  /**
+   * Amount of requests that were handed over to the pipeline.
+   */
+  private final LongAdder submitted = new LongAdder();
+
+  /**
+   * Amount of requests whose execution was started.
+   */
+  private final LongAdder executed = new LongAdder();
+
+  /**
+   * Amount of requests that were rejected by the pipeline.
+   */
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * Amount of requests that exceeded their maximum latency.
+   */
+  private final LongAdder maxLatencyExceeded = new LongAdder();
+
+  /**
+   * Amount of requests that exceeded their maximum execution time.
+   */
+  private final LongAdder maxExecutionTimeExceeded = new LongAdder();
+
+  /**
+   * Amount of requests whose execution failed with an exception.
+   */
+  private final LongAdder failed = new LongAdder();
+
+  /**
+   * Amount of requests that were attached to an identical request that was already queued or running.
+   */
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Counter for requests whose resource usage was measured.
+   */
+  private final LongAdder sampled = new LongAdder();
+
+  /**
+   * CPU time in nano seconds of all requests whose resource usage was measured.
+   */
+  private final LongAdder cpuTime = new LongAdder();
+
+  /**
+   * Allocated bytes of all requests whose resource usage was measured.
+   */
+  private final LongAdder allocatedBytes = new LongAdder();
+
+  /**
+   * Latencies of all executed requests of the request type.
+   */
+  private final RequestLatencies latencies = new RequestLatencies();
+
+  /**
+   * Initialize object.
+   *
+   * @param pRequestTypeKey Request type to which the statistics belong. The parameter must not be null.
+   */
+  RequestTypeStatistics( RequestTypeKey pRequestTypeKey ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pRequestTypeKey, "pRequestTypeKey");
+
+    requestTypeKey = pRequestTypeKey;
+  }
+
+  /**
+   * Method returns the request type to which the statistics belong.
+   *
+   * @return {@link RequestTypeKey} Request type of the statistics. The method never returns null.
+   */
+  public RequestTypeKey getRequestTypeKey( ) {
+    return requestTypeKey;
+  }
+
+  /**
+   * Method returns the latencies of all executed requests of this request type.
+   *
+   * @return {@link RequestLatencies} Latencies of the request type. The method never returns null.
+   */
+  public RequestLatencies getLatencies( ) {
+    return latencies;
+  }
+
+  public long getSubmittedCount( ) {
+    return submitted.sum();
+  }
+
+  public long getExecutedCount( ) {
+    return executed.sum();
+  }
+
+  public long getRejectedCount( ) {
+    return rejected.sum();
+  }
+
+  public long getMaxLatencyExceededCount( ) {
+    return maxLatencyExceeded.sum();
+  }
+
+  public long getMaxExecutionTimeExceededCount( ) {
+    return maxExecutionTimeExceeded.sum();
+  }
+
+  public long getFailedCount( ) {
+    return failed.sum();
+  }
+
+  public long getCoalescedCount( ) {
+    return coalesced.sum();
+  }
+
+  public long getSampledCount( ) {
+    return sampled.sum();
+  }
+
+  public long getCpuTimeNanos( ) {
+    return cpuTime.sum();
+  }
+
+  public long getAllocatedBytes( ) {
+    return allocatedBytes.sum();
+  }
+
+  void recordSubmitted( ) {
+    submitted.increment();
+  }
+
+  void recordSubmitted( int pCount ) {
+    submitted.add(pCount);
+  }
+
+  void recordExecuted( ) {
+    executed.increment();
+  }
+
+  void recordExecuted( int pCount ) {
+    executed.add(pCount);
+  }
+
+  void recordRejected( ) {
+    rejected.increment();
+  }
+
+  void recordMaxLatencyExceeded( ) {
+    maxLatencyExceeded.increment();
+  }
+
+  void recordMaxExecutionTimeExceeded( ) {
+    maxExecutionTimeExceeded.increment();
+  }
+
+  void recordFailed( ) {
+    failed.increment();
+  }
+
+  void recordFailed( int pCount ) {
+    failed.add(pCount);
+  }
+
+  void recordCoalesced( ) {
+    coalesced.increment();
+  }
+
+  void recordResourceUsage( long pCpuTimeNanos, long pAllocatedBytes ) {
+    sampled.increment();
+    cpuTime.add(pCpuTimeNanos);
+    allocatedBytes.add(pAllocatedBytes);
+  }
+
+  /**
+   * Method resets all counters of this request type. As the counters are reset one after the other, updates that happen
+   * concurrently may be lost.
+   */
+  void reset( ) {
+    submitted.reset();
+    executed.reset();
+    rejected.reset();
+    maxLatencyExceeded.reset();
+    maxExecutionTimeExceeded.reset();
+    failed.reset();
+    coalesced.reset();
+    sampled.reset();
+    cpuTime.reset();
+    allocatedBytes.reset();
+    latencies.reset();
+  }
+}
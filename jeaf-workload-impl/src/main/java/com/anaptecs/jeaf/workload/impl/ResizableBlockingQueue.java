@@ -0,0 +1,539 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class implements a bounded FIFO queue whose capacity can be changed while it is used. Apart from that it behaves like
+ * a fair {@link java.util.concurrent.ArrayBlockingQueue}.
+ *
+ * If the capacity is reduced below the current amount of elements then no element is dropped. New elements are just
+ * not accepted until enough elements were taken from the queue. Iterators work on a snapshot of the queue.
+ *
+ * By default elements are taken in FIFO order. Other orders can be defined by passing the queue that stores the
+ * elements, e.g. {@link PrioritizedRequestQueue}.
+ *
+ * Requests ({@link CommandExecutor}) that exceed their maximum latency while they are queued are not removed from the
+ * queue immediately as this would require a linear search. Instead they are marked as expired, do no longer count
+ * against the capacity of the queue and are skipped when elements are taken. Expired requests are purged as soon as
+ * they make up the majority of the queue so that memory stays bounded.
+ *
+ * @author JEAF Development Team
+ */
+class ResizableBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+  /**
+   * Lock that guards all access to the elements of the queue.
+   */
+  private final ReentrantLock lock = new ReentrantLock(true);
+
+  /**
+   * Condition for threads that wait for elements.
+   */
+  private final Condition notEmpty = lock.newCondition();
+
+  /**
+   * Condition for threads that wait for free capacity.
+   */
+  private final Condition notFull = lock.newCondition();
+
+  /**
+   * Elements of the queue. The queue defines the order in which elements are taken. Access is guarded by
+   * {@link #lock}.
+   */
+  private final Queue<E> elements;
+
+  /**
+   * Maximum amount of elements of the queue.
+   */
+  private volatile int capacity;
+
+  /**
+   * Amount of expired requests that are still stored in {@link #elements}. Access is guarded by {@link #lock}.
+   */
+  private int expiredCount;
+
+  /**
+   * Initialize object.
+   *
+   * @param pCapacity Maximum amount of elements of the queue. The value must be greater than 0.
+   */
+  ResizableBlockingQueue( int pCapacity ) {
+    this(pCapacity, new ArrayDeque<E>());
+  }
+
+  /**
+   * Initialize object.
+   *
+   * @param pCapacity Maximum amount of elements of the queue. The value must be greater than 0.
+   * @param pElements Empty queue that stores the elements and defines their order. The queue does not need to be thread
+   * safe. The parameter must not be null.
+   */
+  ResizableBlockingQueue( int pCapacity, Queue<E> pElements ) {
+    this.checkCapacity(pCapacity);
+    capacity = pCapacity;
+    elements = pElements;
+  }
+
+  /**
+   * Method returns the maximum amount of elements of the queue.
+   *
+   * @return int Capacity of the queue.
+   */
+  int getCapacity( ) {
+    return capacity;
+  }
+
+  /**
+   * Method changes the maximum amount of elements of the queue. Elements that exceed a reduced capacity remain in the
+   * queue.
+   *
+   * @param pCapacity New capacity of the queue. The value must be greater than 0.
+   */
+  void setCapacity( int pCapacity ) {
+    this.checkCapacity(pCapacity);
+    lock.lock();
+    try {
+      capacity = pCapacity;
+      notFull.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method checks the passed capacity.
+   *
+   * @param pCapacity Capacity that should be checked.
+   */
+  private void checkCapacity( int pCapacity ) {
+    if (pCapacity <= 0) {
+      throw new IllegalArgumentException("Capacity of queue must be greater than 0. Capacity: " + pCapacity);
+    }
+  }
+
+  /**
+   * Method marks the passed request as expired if it is still queued. Expired requests no longer count against the
+   * capacity of the queue and will never be taken from it.
+   *
+   * @param pCommandExecutor Request that exceeded its maximum latency. The parameter must not be null.
+   * @return boolean Method returns true if the request was queued and is now expired and false if the request is not
+   * queued (any longer).
+   */
+  boolean expire( CommandExecutor pCommandExecutor ) {
+    lock.lock();
+    try {
+      boolean lExpired = pCommandExecutor.markExpiredInQueue();
+      if (lExpired) {
+        expiredCount++;
+        // Purge expired requests once they make up the majority of the queue. This keeps the costs per expired request
+        // constant while the memory that is used by the queue stays bounded.
+        if (expiredCount * 2 >= elements.size()) {
+          this.purgeExpired();
+        }
+        notFull.signal();
+      }
+      return lExpired;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Method removes all expired requests from the queue. The lock of the queue has to be held.
+   */
+  private void purgeExpired( ) {
+    if (expiredCount == elements.size()) {
+      elements.clear();
+    }
+    else {
+      List<E> lLiveElements = new ArrayList<>(elements.size() - expiredCount);
+      E lElement = elements.poll();
+      while (lElement != null) {
+        if (this.isExpired(lElement) == false) {
+          lLiveElements.add(lElement);
+        }
+        lElement = elements.poll();
+      }
+      // Elements are re-added in the order in which they were taken, so the order of the queue is retained.
+      for (E lNext : lLiveElements) {
+        elements.offer(lNext);
+      }
+    }
+    expiredCount = 0;
+  }
+
+  /**
+   * Method checks if the passed element is an expired request.
+   *
+   * @param pElement Element that should be checked. The parameter must not be null.
+   * @return boolean Method returns true if the element is an expired request and false otherwise.
+   */
+  private boolean isExpired( Object pElement ) {
+    return pElement instanceof CommandExecutor && ((CommandExecutor) pElement).isExpired();
+  }
+
+  /**
+   * Method returns the amount of elements of the queue that are not expired. The lock of the queue has to be held.
+   *
+   * @return int Amount of elements that are not expired.
+   */
+  private int liveSize( ) {
+    return elements.size() - expiredCount;
+  }
+
+  /**
+   * Method adds the passed element. The lock of the queue has to be held and the queue must not be full.
+   *
+   * @param pElement Element that should be added. The parameter must not be null.
+   * @return boolean Method returns true if the element was added and false if it is a request that already expired.
+   */
+  private boolean enqueue( E pElement ) {
+    // Requests that already expired before they were queued are not accepted. They were already reported.
+    boolean lAdded;
+    if (pElement instanceof CommandExecutor && ((CommandExecutor) pElement).markQueued() == false) {
+      lAdded = false;
+    }
+    else {
+      elements.offer(pElement);
+      notEmpty.signal();
+      lAdded = true;
+    }
+    return lAdded;
+  }
+
+  /**
+   * Method removes the next element that is not expired. Expired requests are skipped and dropped. The lock of the
+   * queue has to be held.
+   *
+   * @return E Removed element or null if the queue is empty.
+   */
+  private E dequeue( ) {
+    E lElement = elements.poll();
+    while (lElement instanceof CommandExecutor && ((CommandExecutor) lElement).markDequeued() == false) {
+      expiredCount--;
+      lElement = elements.poll();
+    }
+    if (lElement != null) {
+      notFull.signal();
+    }
+    return lElement;
+  }
+
+  /**
+   * Method drops expired requests from the head of the queue. The lock of the queue has to be held.
+   */
+  private void dropExpiredHead( ) {
+    E lHead = elements.peek();
+    while (lHead != null && this.isExpired(lHead)) {
+      elements.poll();
+      expiredCount--;
+      lHead = elements.peek();
+    }
+  }
+
+  @Override
+  public boolean offer( E pElement ) {
+    this.checkElement(pElement);
+    lock.lock();
+    try {
+      boolean lAdded;
+      if (this.liveSize() < capacity) {
+        lAdded = this.enqueue(pElement);
+      }
+      else {
+        lAdded = false;
+      }
+      return lAdded;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean offer( E pElement, long pTimeout, TimeUnit pUnit ) throws InterruptedException {
+    this.checkElement(pElement);
+    long lNanos = pUnit.toNanos(pTimeout);
+    lock.lockInterruptibly();
+    try {
+      while (this.liveSize() >= capacity) {
+        if (lNanos <= 0) {
+          return false;
+        }
+        lNanos = notFull.awaitNanos(lNanos);
+      }
+      return this.enqueue(pElement);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put( E pElement ) throws InterruptedException {
+    this.checkElement(pElement);
+    lock.lockInterruptibly();
+    try {
+      while (this.liveSize() >= capacity) {
+        notFull.await();
+      }
+      this.enqueue(pElement);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public E poll( ) {
+    lock.lock();
+    try {
+      return this.dequeue();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public E poll( long pTimeout, TimeUnit pUnit ) throws InterruptedException {
+    long lNanos = pUnit.toNanos(pTimeout);
+    lock.lockInterruptibly();
+    try {
+      while (this.liveSize() == 0) {
+        if (lNanos <= 0) {
+          return null;
+        }
+        lNanos = notEmpty.awaitNanos(lNanos);
+      }
+      return this.dequeue();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public E take( ) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (this.liveSize() == 0) {
+        notEmpty.await();
+      }
+      return this.dequeue();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public E peek( ) {
+    lock.lock();
+    try {
+      this.dropExpiredHead();
+      return elements.peek();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size( ) {
+    lock.lock();
+    try {
+      return this.liveSize();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity( ) {
+    lock.lock();
+    try {
+      return Math.max(0, capacity - this.liveSize());
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean remove( Object pElement ) {
+    lock.lock();
+    try {
+      boolean lRemoved = elements.remove(pElement);
+      if (lRemoved) {
+        // Expired requests are not part of the queue any longer.
+        if (pElement instanceof CommandExecutor && ((CommandExecutor) pElement).markDequeued() == false) {
+          expiredCount--;
+          lRemoved = false;
+        }
+        else {
+          notFull.signal();
+        }
+      }
+      return lRemoved;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean contains( Object pElement ) {
+    lock.lock();
+    try {
+      return this.isExpired(pElement) == false && elements.contains(pElement);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear( ) {
+    lock.lock();
+    try {
+      elements.clear();
+      expiredCount = 0;
+      notFull.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int drainTo( Collection<? super E> pCollection ) {
+    return this.drainTo(pCollection, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo( Collection<? super E> pCollection, int pMaxElements ) {
+    if (pCollection == this) {
+      throw new IllegalArgumentException("Queue can not be drained to itself.");
+    }
+    lock.lock();
+    try {
+      int lCount = 0;
+      while (lCount < pMaxElements && this.liveSize() > 0) {
+        pCollection.add(this.dequeue());
+        lCount++;
+      }
+      if (lCount > 0) {
+        notFull.signalAll();
+      }
+      return lCount;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object[] toArray( ) {
+    lock.lock();
+    try {
+      return this.liveElements().toArray();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public <T> T[] toArray( T[] pArray ) {
+    lock.lock();
+    try {
+      return this.liveElements().toArray(pArray);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Iterator<E> iterator( ) {
+    // Iterator works on a snapshot. Removals are applied to the queue.
+    final List<E> lSnapshot;
+    lock.lock();
+    try {
+      lSnapshot = this.liveElements();
+    }
+    finally {
+      lock.unlock();
+    }
+    return new Iterator<E>() {
+      private final Iterator<E> snapshotIterator = lSnapshot.iterator();
+
+      private E current;
+
+      @Override
+      public boolean hasNext( ) {
+        return snapshotIterator.hasNext();
+      }
+
+      @Override
+      public E next( ) {
+        current = snapshotIterator.next();
+        return current;
+      }
+
+      @Override
+      public void remove( ) {
+        if (current == null) {
+          throw new IllegalStateException();
+        }
+        ResizableBlockingQueue.this.remove(current);
+        current = null;
+      }
+    };
+  }
+
+  /**
+   * Method returns all elements of the queue that are not expired. The lock of the queue has to be held.
+   *
+   * @return {@link List} List with all elements that are not expired in the order of the queue. The method never
+   * returns null.
+   */
+  private List<E> liveElements( ) {
+    List<E> lLiveElements = new ArrayList<>(this.liveSize());
+    for (E lElement : elements) {
+      if (this.isExpired(lElement) == false) {
+        lLiveElements.add(lElement);
+      }
+    }
+    return lLiveElements;
+  }
+
+  /**
+   * Method checks that the passed element is not null.
+   *
+   * @param pElement Element that should be checked.
+   */
+  private void checkElement( E pElement ) {
+    if (pElement == null) {
+      throw new NullPointerException("Queue does not support null elements.");
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Class measures the CPU time and the allocated memory of the current thread during the execution of a request. Values
+ * are read from the {@link ThreadMXBean} of the JVM. If the JVM does not support or has disabled the measurement of CPU
+ * time or allocated memory then the respective value will be reported as 0.
+ *
+ * A probe has to be started and stopped by the same thread.
+ *
+ * @author JEAF Development Team
+ */
+final class ResourceUsageProbe {
+  /**
+   * Thread MX bean of the JVM.
+   */
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  /**
+   * Extended thread MX bean that is able to measure allocated memory. The attribute is null if the JVM does not
+   * provide it.
+   */
+  private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN;
+
+  static {
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean lBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      if (lBean.isThreadAllocatedMemorySupported()) {
+        ALLOCATION_MX_BEAN = lBean;
+      }
+      else {
+        ALLOCATION_MX_BEAN = null;
+      }
+    }
+    else {
+      ALLOCATION_MX_BEAN = null;
+    }
+  }
+
+  /**
+   * CPU time of the current thread in nano seconds when the probe was started.
+   */
+  private final long startCpuTime;
+
+  /**
+   * Amount of bytes that were allocated by the current thread when the probe was started.
+   */
+  private final long startAllocatedBytes;
+
+  /**
+   * Initialize object and start measurement.
+   */
+  ResourceUsageProbe( ) {
+    startCpuTime = getCpuTime();
+    startAllocatedBytes = getAllocatedBytes();
+  }
+
+  /**
+   * Method stops the measurement and records the resources that were used since the probe was started.
+   *
+   * @param pStatistics Statistics to which the used resources should be added. The parameter must not be null.
+   */
+  void stop( RequestTypeStatistics pStatistics ) {
+    pStatistics.recordResourceUsage(difference(startCpuTime, getCpuTime()),
+        difference(startAllocatedBytes, getAllocatedBytes()));
+  }
+
+  /**
+   * Method returns the CPU time of the current thread.
+   *
+   * @return long CPU time in nano seconds or -1 if it can not be measured.
+   */
+  private static long getCpuTime( ) {
+    long lCpuTime;
+    if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+      lCpuTime = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+    else {
+      lCpuTime = -1;
+    }
+    return lCpuTime;
+  }
+
+  /**
+   * Method returns the amount of bytes that were allocated by the current thread so far.
+   *
+   * @return long Allocated bytes or -1 if they can not be measured.
+   */
+  private static long getAllocatedBytes( ) {
+    long lAllocatedBytes;
+    if (ALLOCATION_MX_BEAN != null) {
+      lAllocatedBytes = ALLOCATION_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    else {
+      lAllocatedBytes = -1;
+    }
+    return lAllocatedBytes;
+  }
+
+  /**
+   * Method calculates the difference between the passed values. If one of the values could not be measured then 0 will
+   * be returned.
+   *
+   * @param pStart Value at the start of the measurement.
+   * @param pEnd Value at the end of the measurement.
+   * @return long Difference of both values.
+   */
+  private static long difference( long pStart, long pEnd ) {
+    long lDifference;
+    if (pStart >= 0 && pEnd >= pStart) {
+      lDifference = pEnd - pStart;
+    }
+    else {
+      lDifference = 0;
+    }
+    return lDifference;
+  }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.anaptecs.jeaf.workload.annotations.ElasticWorkloadConfig;
+import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
+import com.anaptecs.jeaf.workload.annotations.StaticWorkloadConfig;
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.workload.impl.processor.RoutingIndexProcessor;
+import com.anaptecs.jeaf.workload.impl.yaml.PipelineConfigImpl;
+
+/**
+ * Interface describes all pipelines and workload mappings that are configured through annotations
+ * {@link PipelineConfig}, {@link ExtendedPipelineConfig}, {@link StaticWorkloadConfig} and
+ * {@link ElasticWorkloadConfig}. Implementations are generated at build time by {@link RoutingIndexProcessor} and are
+ * loaded through {@link java.util.ServiceLoader}. This way the workload manager does not have to resolve configuration
+ * classes and their annotations through reflection during startup. Configuration classes that are not covered by any
+ * routing index are still resolved through reflection.
+ *
+ * @author JEAF Development Team
+ */
+public interface RoutingIndex {
+  /**
+   * Method returns the configuration of all pipelines of this index. Request type keys of the pipelines are not set.
+   * They are defined through {@link #getWorkloadMappings()}.
+   *
+   * @return {@link List} List with the configuration of all pipelines. The method must not return null.
+   */
+  List<PipelineConfigImpl> getPipelines( );
+
+  /**
+   * Method returns all workload mappings of this index. Static workload mappings come first so that elastic workload
+   * mappings for the same request type key take precedence.
+   *
+   * @return {@link Map} Map with the request type keys as key and the ID of the pipeline as value. The pipeline may
+   * also be defined by another index. The method must not return null.
+   */
+  Map<RequestTypeKey, String> getWorkloadMappings( );
+
+  /**
+   * Method returns the names of all configuration classes that are covered by this index. This includes the classes of
+   * all pipelines as well as the ones of all static and elastic workload mappings.
+   *
+   * @return {@link Set} Set with the binary names of all covered configuration classes. The method must not return
+   * null.
+   */
+  Set<String> getConfigurationClasses( );
+}
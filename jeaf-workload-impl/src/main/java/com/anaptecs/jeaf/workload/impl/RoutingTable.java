@@ -0,0 +1,135 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.workload.api.WorkloadMessages;
+import com.anaptecs.jeaf.workload.api.WorkloadSystemException;
+
+/**
+ * Class defines which pipeline is used for which request type. The configured mappings of a routing table never change.
+ * If the configuration of a workload manager changes then a new routing table is created and published as a whole.
+ * This way a request is always routed based on one consistent configuration.
+ *
+ * As request type keys may be reduced, each routing table caches the pipelines that were resolved for request type
+ * keys without their own mapping. The cache is dropped together with the routing table.
+ *
+ * @author JEAF Development Team
+ */
+class RoutingTable {
+  /**
+   * Mappings between request type keys and pipelines as they are configured.
+   */
+  private final Map<RequestTypeKey, Pipeline> mappings;
+
+  /**
+   * Pipelines that were resolved for request type keys that do not have their own mapping.
+   */
+  private final Map<RequestTypeKey, Pipeline> resolvedMappings = new ConcurrentHashMap<>();
+
+  /**
+   * Pipeline that is used for all requests that can not be mapped. The attribute may be null.
+   */
+  private final Pipeline defaultPipeline;
+
+  /**
+   * Initialize object.
+   *
+   * @param pMappings Mappings between request type keys and pipelines. The parameter must not be null. The map is
+   * copied.
+   * @param pDefaultPipeline Pipeline that is used for all requests that can not be mapped. The parameter may be null.
+   */
+  RoutingTable( Map<RequestTypeKey, Pipeline> pMappings, Pipeline pDefaultPipeline ) {
+    mappings = Collections.unmodifiableMap(new HashMap<>(pMappings));
+    defaultPipeline = pDefaultPipeline;
+  }
+
+  /**
+   * Method resolves the pipeline for the passed request type key.
+   *
+   * @param pRequestTypeKey Request type key for which the associated pipeline should be returned. The parameter must
+   * not be null.
+   * @return {@link Pipeline} Pipeline that is defined to execute the passed request type. The method never returns
+   * null.
+   * @throws WorkloadSystemException In case that no pipeline could be found to execute for the request type.
+   */
+  Pipeline resolvePipeline( RequestTypeKey pRequestTypeKey ) {
+    // Try to find pipeline for the passed key.
+    Pipeline lPipeline = mappings.get(pRequestTypeKey);
+    if (lPipeline == null) {
+      lPipeline = resolvedMappings.get(pRequestTypeKey);
+    }
+
+    // No pipeline found for key. Try to work with reduced key.
+    if (lPipeline == null) {
+      RequestTypeKey lReducedKey = pRequestTypeKey.reduceKey();
+      if (lReducedKey != null) {
+        lPipeline = this.resolvePipeline(lReducedKey);
+      }
+      else if (defaultPipeline != null) {
+        lPipeline = defaultPipeline;
+      }
+      // We neither where able to find a pipeline nor do we have a default pipeline, so we have to give up :-(
+      else {
+        throw new WorkloadSystemException(WorkloadMessages.NO_PIPELINE_FOUND, pRequestTypeKey.getKey());
+      }
+      // In order to speedup pipeline lookup for the next time we will add the mapping between the request key and the
+      // pipeline.
+      resolvedMappings.put(pRequestTypeKey, lPipeline);
+    }
+    return lPipeline;
+  }
+
+  /**
+   * Method returns all mappings of this routing table including the ones that were resolved for reduced keys.
+   *
+   * @return {@link Map} Map with all mappings. The method never returns null.
+   */
+  Map<RequestTypeKey, Pipeline> getMappings( ) {
+    Map<RequestTypeKey, Pipeline> lMappings = new HashMap<>(resolvedMappings);
+    lMappings.putAll(mappings);
+    return lMappings;
+  }
+
+  /**
+   * Method returns all pipelines that are used by this routing table.
+   *
+   * @return {@link Set} Set with all pipelines including the default pipeline. The method never returns null.
+   */
+  Set<Pipeline> getPipelines( ) {
+    Set<Pipeline> lPipelines = new HashSet<>(mappings.values());
+    lPipelines.addAll(resolvedMappings.values());
+    if (defaultPipeline != null) {
+      lPipelines.add(defaultPipeline);
+    }
+    return lPipelines;
+  }
+
+  /**
+   * Method returns the pipeline that is used for all requests that can not be mapped.
+   *
+   * @return {@link Pipeline} Default pipeline or null if there is no default pipeline.
+   */
+  Pipeline getDefaultPipeline( ) {
+    return defaultPipeline;
+  }
+
+  /**
+   * Method checks if this routing table contains at least one mapping or a default pipeline.
+   *
+   * @return boolean Method returns true if the routing table is empty and false otherwise.
+   */
+  boolean isEmpty( ) {
+    return mappings.isEmpty() && defaultPipeline == null;
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+
+/**
+ * Class describes a request that was running longer than the slow request threshold of its pipeline at the time the
+ * information was created. Besides the request type and the running time it contains a sample of the stack trace of the
+ * thread that executes the request.
+ *
+ * @author JEAF Development Team
+ */
+public class SlowRequest {
+  /**
+   * Request type of the slow request.
+   */
+  private final RequestTypeKey requestTypeKey;
+
+  /**
+   * Name of the thread that executes the request.
+   */
+  private final String threadName;
+
+  /**
+   * Time in nano seconds that the request was already running.
+   */
+  private final long runningNanos;
+
+  /**
+   * Stack trace of the executing thread at the time the information was created.
+   */
+  private final StackTraceElement[] stackTrace;
+
+  /**
+   * Initialize object.
+   *
+   * @param pRequestTypeKey Request type of the slow request. The parameter must not be null.
+   * @param pThreadName Name of the thread that executes the request. The parameter must not be null.
+   * @param pRunningNanos Time in nano seconds that the request was already running.
+   * @param pStackTrace Stack trace of the executing thread. The parameter must not be null.
+   */
+  SlowRequest( RequestTypeKey pRequestTypeKey, String pThreadName, long pRunningNanos,
+      StackTraceElement[] pStackTrace ) {
+    requestTypeKey = pRequestTypeKey;
+    threadName = pThreadName;
+    runningNanos = pRunningNanos;
+    stackTrace = pStackTrace;
+  }
+
+  /**
+   * Method returns the request type of the slow request.
+   *
+   * @return {@link RequestTypeKey} Request type of the request. The method never returns null.
+   */
+  public RequestTypeKey getRequestTypeKey( ) {
+    return requestTypeKey;
+  }
+
+  /**
+   * Method returns the name of the thread that executes the request.
+   *
+   * @return {@link String} Name of the executing thread. The method never returns null.
+   */
+  public String getThreadName( ) {
+    return threadName;
+  }
+
+  /**
+   * Method returns the time that the request was already running.
+   *
+   * @param pTimeUnit Time unit in which the running time should be returned. The parameter must not be null.
+   * @return long Running time of the request.
+   */
+  public long getRunningTime( TimeUnit pTimeUnit ) {
+    return pTimeUnit.convert(runningNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Method returns the stack trace of the executing thread at the time this information was created.
+   *
+   * @return {@link StackTraceElement} Stack trace of the executing thread. The method never returns null.
+   */
+  public StackTraceElement[] getStackTrace( ) {
+    return stackTrace.clone();
+  }
+
+  @Override
+  public String toString( ) {
+    StringBuilder lBuilder = new StringBuilder();
+    lBuilder.append("Request '");
+    lBuilder.append(requestTypeKey.getKey());
+    lBuilder.append("' is running for ");
+    lBuilder.append(TimeUnit.NANOSECONDS.toMillis(runningNanos));
+    lBuilder.append("ms on thread '");
+    lBuilder.append(threadName);
+    lBuilder.append("'");
+    for (StackTraceElement lNextElement : stackTrace) {
+      lBuilder.append(System.lineSeparator());
+      lBuilder.append("\tat ");
+      lBuilder.append(lNextElement);
+    }
+    return lBuilder.toString();
+  }
+}
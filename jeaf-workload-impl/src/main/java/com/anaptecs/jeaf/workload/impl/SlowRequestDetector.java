@@ -0,0 +1,234 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.xfun.api.XFun;
+
+/**
+ * Class keeps track of all requests of a pipeline that are currently executed. Requests that run longer than the
+ * configured threshold are reported as slow requests together with a sample of the stack trace of their executing
+ * thread. Stack traces are only sampled when slow requests are queried so that tracking requests is cheap.
+ *
+ * Optionally the detector periodically writes a report about all slow requests to the log. As sampling stack traces and
+ * logging may take some time, reports are written by a separate thread that is shared by all detectors.
+ *
+ * @author JEAF Development Team
+ */
+class SlowRequestDetector {
+  /**
+   * Executor that writes the periodic reports of all detectors. Its only thread is started with the first report.
+   */
+  private static final ScheduledThreadPoolExecutor REPORT_EXECUTOR;
+
+  static {
+    REPORT_EXECUTOR = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+      @Override
+      public Thread newThread( Runnable pRunnable ) {
+        Thread lThread = new Thread(pRunnable, "JEAF-Workload-SlowRequestReporter");
+        lThread.setDaemon(true);
+        return lThread;
+      }
+    });
+    REPORT_EXECUTOR.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * ID of the pipeline whose requests are tracked.
+   */
+  private final String pipelineID;
+
+  /**
+   * Time in nano seconds after which a running request is considered to be slow.
+   */
+  private final long thresholdNanos;
+
+  /**
+   * All requests that are currently executed by the pipeline. As a thread executes only one request at a time, requests
+   * are identified by their executing thread.
+   */
+  private final Map<Thread, RunningRequest> runningRequests = new ConcurrentHashMap<>();
+
+  /**
+   * Periodic reporting of this detector. The attribute is null if no periodic reports are written. Access to the
+   * attribute is synchronized on this object.
+   */
+  private ScheduledFuture<?> reportFuture;
+
+  /**
+   * Initialize object.
+   *
+   * @param pPipelineID ID of the pipeline whose requests are tracked. The parameter must not be null.
+   * @param pThreshold Time after which a running request is considered to be slow. The value must be greater than 0.
+   * @param pTimeUnit Time unit of the threshold. The parameter must not be null.
+   */
+  SlowRequestDetector( String pPipelineID, long pThreshold, TimeUnit pTimeUnit ) {
+    if (pThreshold <= 0) {
+      throw new IllegalArgumentException("Slow request threshold must be greater than 0. Threshold: " + pThreshold);
+    }
+    pipelineID = pPipelineID;
+    thresholdNanos = pTimeUnit.toNanos(pThreshold);
+  }
+
+  /**
+   * Method registers that the current thread starts to execute a request of the passed type.
+   *
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   */
+  void requestStarted( RequestTypeKey pRequestTypeKey ) {
+    Thread lThread = Thread.currentThread();
+    runningRequests.put(lThread, new RunningRequest(pRequestTypeKey, lThread, System.nanoTime()));
+  }
+
+  /**
+   * Method registers that the current thread finished the execution of its request.
+   */
+  void requestFinished( ) {
+    runningRequests.remove(Thread.currentThread());
+  }
+
+  /**
+   * Method returns the amount of requests that are currently executed.
+   *
+   * @return int Amount of running requests.
+   */
+  int getRunningRequestCount( ) {
+    return runningRequests.size();
+  }
+
+  /**
+   * Method returns all requests that are currently running longer than the threshold. For each of them the stack trace
+   * of the executing thread is sampled.
+   *
+   * @return {@link List} List with all slow requests. The list is sorted by descending running time. The method never
+   * returns null.
+   */
+  List<SlowRequest> getSlowRequests( ) {
+    List<SlowRequest> lSlowRequests = new ArrayList<>();
+    for (RunningRequest lNextRequest : runningRequests.values()) {
+      long lRunningNanos = System.nanoTime() - lNextRequest.startNanos;
+      if (lRunningNanos > thresholdNanos) {
+        StackTraceElement[] lStackTrace = lNextRequest.thread.getStackTrace();
+
+        // Thread may have finished the request while its stack trace was sampled.
+        if (runningRequests.get(lNextRequest.thread) == lNextRequest) {
+          lSlowRequests.add(new SlowRequest(lNextRequest.requestTypeKey, lNextRequest.thread.getName(), lRunningNanos,
+              lStackTrace));
+        }
+      }
+    }
+    Collections.sort(lSlowRequests, new Comparator<SlowRequest>() {
+      @Override
+      public int compare( SlowRequest pFirst, SlowRequest pSecond ) {
+        return Long.compare(pSecond.getRunningTime(TimeUnit.NANOSECONDS), pFirst.getRunningTime(TimeUnit.NANOSECONDS));
+      }
+    });
+    return lSlowRequests;
+  }
+
+  /**
+   * Method creates a report about all requests that are currently running longer than the threshold.
+   *
+   * @return {@link String} Report about all slow requests. The method never returns null.
+   */
+  String createReport( ) {
+    List<SlowRequest> lSlowRequests = this.getSlowRequests();
+    StringBuilder lBuilder = new StringBuilder();
+    lBuilder.append("Pipeline '");
+    lBuilder.append(pipelineID);
+    lBuilder.append("': ");
+    lBuilder.append(lSlowRequests.size());
+    lBuilder.append(" of ");
+    lBuilder.append(runningRequests.size());
+    lBuilder.append(" running request(s) exceed the slow request threshold of ");
+    lBuilder.append(TimeUnit.NANOSECONDS.toMillis(thresholdNanos));
+    lBuilder.append("ms.");
+    for (SlowRequest lNextRequest : lSlowRequests) {
+      lBuilder.append(System.lineSeparator());
+      lBuilder.append(lNextRequest);
+    }
+    return lBuilder.toString();
+  }
+
+  /**
+   * Method starts to write periodic reports about slow requests to the log. Reports are only written if there are slow
+   * requests.
+   *
+   * @param pInterval Interval in which reports are written. The value must be greater than 0.
+   * @param pTimeUnit Time unit of the interval. The parameter must not be null.
+   */
+  synchronized void startReporting( long pInterval, TimeUnit pTimeUnit ) {
+    reportFuture = REPORT_EXECUTOR.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run( ) {
+        // Exceptions would stop further reports.
+        try {
+          SlowRequestDetector.this.writeReport();
+        }
+        catch (RuntimeException e) {
+          XFun.getTrace().error(e.getMessage(), e);
+        }
+      }
+    }, pInterval, pInterval, pTimeUnit);
+  }
+
+  /**
+   * Method stops writing periodic reports.
+   */
+  synchronized void stopReporting( ) {
+    if (reportFuture != null) {
+      reportFuture.cancel(false);
+      reportFuture = null;
+    }
+  }
+
+  /**
+   * Method writes a report about slow requests to the log if there are any.
+   */
+  private void writeReport( ) {
+    if (runningRequests.isEmpty() == false) {
+      boolean lSlowRequests = false;
+      long lNow = System.nanoTime();
+      for (RunningRequest lNextRequest : runningRequests.values()) {
+        if (lNow - lNextRequest.startNanos > thresholdNanos) {
+          lSlowRequests = true;
+          break;
+        }
+      }
+      if (lSlowRequests) {
+        XFun.getTrace().warn(this.createReport());
+      }
+    }
+  }
+
+  /**
+   * Class describes a request that is currently executed.
+   */
+  private static final class RunningRequest {
+    private final RequestTypeKey requestTypeKey;
+
+    private final Thread thread;
+
+    private final long startNanos;
+
+    RunningRequest( RequestTypeKey pRequestTypeKey, Thread pThread, long pStartNanos ) {
+      requestTypeKey = pRequestTypeKey;
+      thread = pThread;
+      startNanos = pStartNanos;
+    }
+  }
+}
@@ -0,0 +1,453 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.anaptecs.jeaf.xfun.api.XFun;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class distributes a fixed budget of threads across all pipelines of a workload manager. Instead of sizing every
+ * pipeline statically the allocator periodically measures the load of each pipeline and moves threads to where they
+ * are needed.
+ *
+ * The amount of threads a pipeline needs is derived from Little's law: the average amount of busy threads is the
+ * arrival rate multiplied by the mean service time. As queues grow quickly when threads are busy all the time, the
+ * pipeline needs this amount divided by {@link #TARGET_UTILIZATION}. Pipelines that violate their latency SLO get a
+ * higher weight, which is based on the rate of requests that exceeded their maximum latency and on the 99th percentile
+ * of the queue wait time compared to the maximum latency of the pipeline.
+ *
+ * Every pipeline first gets its minimum amount of threads. The remaining budget is handed out thread by thread to the
+ * pipeline with the highest weighted need per already assigned thread until the budget is used up or all pipelines
+ * reached their maximum. Core and maximum amount of threads of a pipeline are always set to the same value. Pipelines
+ * that are shut down or still warming up are not touched.
+ *
+ * Pipelines whose size is managed externally, e.g. through a YAML configuration file that may be reloaded at any time,
+ * are never resized by the allocator, so that the external configuration always wins. The threads of all pipelines
+ * that are not resized are still part of the budget. Their current maximum amount of threads is subtracted before the
+ * remaining budget is distributed.
+ *
+ * Minimum and maximum amount of threads per pipeline, the current allocations and the last decisions are available
+ * through JMX.
+ *
+ * @author JEAF Development Team
+ */
+public class ThreadBudgetAllocator implements ThreadBudgetAllocatorMBean {
+  /**
+   * Utilization of the threads of a pipeline that the allocator aims for.
+   */
+  public static final double TARGET_UTILIZATION = 0.8;
+
+  /**
+   * Maximum amount of decisions that are kept in the history.
+   */
+  public static final int HISTORY_SIZE = 100;
+
+  /**
+   * All pipelines between which the budget is distributed with their ID as key. The map is owned by the workload
+   * manager so that pipelines that are added or removed later are considered as well.
+   */
+  private final Map<String, Pipeline> pipelines;
+
+  /**
+   * Interval in milliseconds in which the threads are redistributed.
+   */
+  private final long rebalanceInterval;
+
+  /**
+   * Total amount of threads that are distributed across all pipelines.
+   */
+  private volatile int totalThreads;
+
+  /**
+   * Minimum and maximum amount of threads of the pipelines with their ID as key. Pipelines without explicit bounds get
+   * at least 1 thread and at most the whole budget.
+   */
+  private final Map<String, int[]> bounds = new ConcurrentHashMap<>();
+
+  /**
+   * IDs of all pipelines whose size is managed externally and that must not be resized by the allocator.
+   */
+  private volatile Set<String> externallyManagedPipelines = Collections.emptySet();
+
+  /**
+   * Current allocations of all pipelines with their ID as key.
+   */
+  private volatile Map<String, Integer> allocations = Collections.emptyMap();
+
+  /**
+   * Latencies of all pipelines at the previous rebalancing with their ID as key. Access to the attribute is
+   * synchronized on this object.
+   */
+  private final Map<String, Measurement> measurements = new HashMap<>();
+
+  /**
+   * Last decisions of the allocator. The oldest decision comes first. Access to the attribute is synchronized on this
+   * object.
+   */
+  private final ArrayDeque<String> history = new ArrayDeque<>();
+
+  /**
+   * Amount of rebalancings that were executed so far.
+   */
+  private volatile long rebalanceCount;
+
+  /**
+   * Timeout of the next periodic rebalancing. The attribute is null if threads are not redistributed periodically.
+   * Access to the attribute is synchronized on this object.
+   */
+  private TimingWheel.Timeout rebalanceTimeout;
+
+  /**
+   * Initialize object.
+   *
+   * @param pPipelines All pipelines between which the budget is distributed with their ID as key. The map is not
+   * copied. The parameter must not be null.
+   * @param pTotalThreads Total amount of threads that are distributed across all pipelines. The value must be greater
+   * than 0.
+   * @param pRebalanceInterval Interval in milliseconds in which the threads are redistributed. The value must be
+   * greater than 0.
+   */
+  public ThreadBudgetAllocator( Map<String, Pipeline> pPipelines, int pTotalThreads, long pRebalanceInterval ) {
+    // Check parameters.
+    Check.checkInvalidParameterNull(pPipelines, "pPipelines");
+    if (pRebalanceInterval <= 0) {
+      throw new IllegalArgumentException("Rebalance interval must be greater than 0. Interval: " + pRebalanceInterval);
+    }
+    pipelines = pPipelines;
+    rebalanceInterval = pRebalanceInterval;
+    this.setTotalThreads(pTotalThreads);
+  }
+
+  /**
+   * Method starts to redistribute the threads periodically.
+   */
+  synchronized void start( ) {
+    if (rebalanceTimeout == null) {
+      rebalanceTimeout = TimingWheel.getSharedTimingWheel().schedule(new Runnable() {
+        @Override
+        public void run( ) {
+          try {
+            ThreadBudgetAllocator.this.rebalance();
+          }
+          catch (RuntimeException e) {
+            XFun.getTrace().error("Unable to redistribute thread budget. " + e.getMessage(), e);
+          }
+          finally {
+            // Schedule next rebalancing unless the allocator was stopped in the meantime.
+            synchronized (ThreadBudgetAllocator.this) {
+              if (rebalanceTimeout != null) {
+                rebalanceTimeout = TimingWheel.getSharedTimingWheel().schedule(this, rebalanceInterval,
+                    TimeUnit.MILLISECONDS);
+              }
+            }
+          }
+        }
+      }, rebalanceInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Method stops to redistribute the threads periodically. The current size of all pipelines remains unchanged.
+   */
+  synchronized void stop( ) {
+    if (rebalanceTimeout != null) {
+      rebalanceTimeout.cancel();
+      rebalanceTimeout = null;
+    }
+  }
+
+  @Override
+  public int getTotalThreads( ) {
+    return totalThreads;
+  }
+
+  /**
+   * Method changes the total amount of threads. The new budget is applied with the next rebalancing.
+   *
+   * @param pTotalThreads Total amount of threads that are distributed across all pipelines. The value must be greater
+   * than 0.
+   */
+  @Override
+  public void setTotalThreads( int pTotalThreads ) {
+    if (pTotalThreads <= 0) {
+      throw new IllegalArgumentException("Thread budget must be greater than 0. Budget: " + pTotalThreads);
+    }
+    totalThreads = pTotalThreads;
+  }
+
+  @Override
+  public long getRebalanceInterval( ) {
+    return rebalanceInterval;
+  }
+
+  @Override
+  public long getRebalanceCount( ) {
+    return rebalanceCount;
+  }
+
+  @Override
+  public Map<String, Integer> getAllocations( ) {
+    return new TreeMap<>(allocations);
+  }
+
+  /**
+   * Method returns the bounds of all pipelines.
+   *
+   * @return {@link Map} Map with the ID of the pipeline as key and its bounds in the form "min..max" as value. The
+   * method never returns null.
+   */
+  @Override
+  public Map<String, String> getPipelineBounds( ) {
+    Map<String, String> lBounds = new TreeMap<>();
+    for (String lNextPipelineID : pipelines.keySet()) {
+      lBounds.put(lNextPipelineID, this.getMinThreads(lNextPipelineID) + ".." + this.getMaxThreads(lNextPipelineID));
+    }
+    return lBounds;
+  }
+
+  /**
+   * Method defines how many threads a pipeline gets at least and at most. The bounds are applied with the next
+   * rebalancing. Bounds may also be defined for pipelines that do not exist yet.
+   *
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @param pMinThreads Minimum amount of threads of the pipeline. The value must be greater than 0.
+   * @param pMaxThreads Maximum amount of threads of the pipeline. The value must not be less than the minimum.
+   */
+  @Override
+  public void setPipelineBounds( String pPipelineID, int pMinThreads, int pMaxThreads ) {
+    // Check parameters.
+    Check.checkInvalidParameterNull(pPipelineID, "pPipelineID");
+    if (pMinThreads <= 0 || pMaxThreads < pMinThreads) {
+      throw new IllegalArgumentException("Invalid thread bounds for pipeline '" + pPipelineID + "'. Min threads: "
+          + pMinThreads + ", max threads: " + pMaxThreads);
+    }
+    bounds.put(pPipelineID, new int[] { pMinThreads, pMaxThreads });
+  }
+
+  /**
+   * Method defines the pipelines whose size is managed externally. These pipelines are not resized by the allocator but
+   * their threads still count against the budget. As the method waits for a running rebalancing to be finished, the
+   * passed pipelines are not resized anymore as soon as the method returns.
+   *
+   * @param pPipelineIDs IDs of all pipelines that are managed externally. The set is copied. The parameter must not be
+   * null.
+   */
+  public synchronized void setExternallyManagedPipelines( Set<String> pPipelineIDs ) {
+    // Check parameters.
+    Check.checkInvalidParameterNull(pPipelineIDs, "pPipelineIDs");
+    externallyManagedPipelines = Collections.unmodifiableSet(new HashSet<>(pPipelineIDs));
+  }
+
+  /**
+   * Method returns the minimum amount of threads of the passed pipeline.
+   *
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @return int Minimum amount of threads.
+   */
+  private int getMinThreads( String pPipelineID ) {
+    int[] lBounds = bounds.get(pPipelineID);
+    return lBounds != null ? lBounds[0] : 1;
+  }
+
+  /**
+   * Method returns the maximum amount of threads of the passed pipeline. The maximum never exceeds the total budget.
+   *
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @return int Maximum amount of threads.
+   */
+  private int getMaxThreads( String pPipelineID ) {
+    int[] lBounds = bounds.get(pPipelineID);
+    int lMaxThreads = totalThreads;
+    if (lBounds != null) {
+      lMaxThreads = Math.max(lBounds[0], Math.min(lBounds[1], lMaxThreads));
+    }
+    return lMaxThreads;
+  }
+
+  /**
+   * Method returns the last decisions of the allocator.
+   *
+   * @return {@link String} Decisions with the oldest one first. The method never returns null.
+   */
+  @Override
+  public synchronized String[] getDecisionHistory( ) {
+    return history.toArray(new String[history.size()]);
+  }
+
+  /**
+   * Method redistributes the thread budget across all pipelines based on their current load.
+   */
+  @Override
+  public synchronized void rebalance( ) {
+    // Only pipelines that are running normally and are not managed externally are resized. Threads of all other
+    // pipelines are not available for redistribution. The order ensures stable results in case of ties.
+    List<Pipeline> lPipelines = new ArrayList<>();
+    Set<String> lExternallyManagedPipelines = externallyManagedPipelines;
+    int lBudget = totalThreads;
+    for (Pipeline lNextPipeline : pipelines.values()) {
+      if (lNextPipeline.isShutdown() == false && lNextPipeline.isWarmingUp() == false
+          && lExternallyManagedPipelines.contains(lNextPipeline.getPipelineID()) == false) {
+        lPipelines.add(lNextPipeline);
+      }
+      else {
+        lBudget -= lNextPipeline.getMaximumPoolSize();
+      }
+    }
+    lBudget = Math.max(0, lBudget);
+    Collections.sort(lPipelines, new Comparator<Pipeline>() {
+      @Override
+      public int compare( Pipeline pPipeline1, Pipeline pPipeline2 ) {
+        return pPipeline1.getPipelineID().compareTo(pPipeline2.getPipelineID());
+      }
+    });
+    measurements.keySet().retainAll(pipelines.keySet());
+    rebalanceCount++;
+
+    // Measure the load of all pipelines and assign their minimum amount of threads.
+    int lPipelineCount = lPipelines.size();
+    Measurement[] lMeasurements = new Measurement[lPipelineCount];
+    int[] lAllocations = new int[lPipelineCount];
+    int lAssigned = 0;
+    for (int i = 0; i < lPipelineCount; i++) {
+      lMeasurements[i] = this.measure(lPipelines.get(i));
+      lAllocations[i] = this.getMinThreads(lPipelines.get(i).getPipelineID());
+      lAssigned += lAllocations[i];
+    }
+    if (lAssigned > lBudget) {
+      String lMessage = "Thread budget of " + lBudget + " is less than the sum of all minimums (" + lAssigned
+          + "). Pipelines only get their minimum amount of threads.";
+      XFun.getTrace().warn(lMessage);
+      this.addDecision(lMessage);
+    }
+
+    // Hand out remaining threads one by one to the pipeline that needs them most.
+    while (lAssigned < lBudget) {
+      int lSelected = -1;
+      double lHighestScore = 0;
+      for (int i = 0; i < lPipelineCount; i++) {
+        if (lAllocations[i] < this.getMaxThreads(lPipelines.get(i).getPipelineID())) {
+          double lScore = lMeasurements[i].weight * lMeasurements[i].neededThreads / lAllocations[i];
+          if (lSelected < 0 || lScore > lHighestScore
+              || (lScore == lHighestScore && lAllocations[i] < lAllocations[lSelected])) {
+            lSelected = i;
+            lHighestScore = lScore;
+          }
+        }
+      }
+      // All pipelines reached their maximum.
+      if (lSelected < 0) {
+        break;
+      }
+      lAllocations[lSelected]++;
+      lAssigned++;
+    }
+
+    // Apply new allocations to all pipelines whose size changed.
+    Map<String, Integer> lNewAllocations = new HashMap<>();
+    for (int i = 0; i < lPipelineCount; i++) {
+      Pipeline lPipeline = lPipelines.get(i);
+      int lOldThreads = lPipeline.getMaximumPoolSize();
+      if (lAllocations[i] != lOldThreads || lAllocations[i] != lPipeline.getCorePoolSize()) {
+        lPipeline.resizeThreadPool(lAllocations[i], lAllocations[i]);
+        this.addDecision(String.format(Locale.ROOT,
+            "Pipeline '%s': %d -> %d threads (arrival rate %.2f/s, service time %.3f ms, needed %.2f, weight %.2f)",
+            lPipeline.getPipelineID(), lOldThreads, lAllocations[i], lMeasurements[i].arrivalRate,
+            lMeasurements[i].meanServiceNanos / 1000000.0, lMeasurements[i].neededThreads, lMeasurements[i].weight));
+      }
+      lNewAllocations.put(lPipeline.getPipelineID(), lAllocations[i]);
+    }
+    allocations = lNewAllocations;
+  }
+
+  /**
+   * Method measures the current load of the passed pipeline.
+   *
+   * @param pPipeline Pipeline that should be measured. The parameter must not be null.
+   * @return {@link Measurement} Measurement of the pipeline. The method never returns null.
+   */
+  private Measurement measure( Pipeline pPipeline ) {
+    Measurement lMeasurement = measurements.get(pPipeline.getPipelineID());
+    if (lMeasurement == null) {
+      lMeasurement = new Measurement();
+      measurements.put(pPipeline.getPipelineID(), lMeasurement);
+    }
+
+    // Only requests since the last rebalancing are considered. Without new requests the last mean is kept.
+    RequestLatencies lLatencies = pPipeline.getLatencies();
+    LatencySnapshot lServiceTimes = lLatencies.getSnapshot(LatencyType.SERVICE_TIME);
+    LatencySnapshot lQueueWaits = lLatencies.getSnapshot(LatencyType.QUEUE_WAIT);
+    LatencySnapshot lIntervalServiceTimes = lMeasurement.serviceTimes != null
+        ? lServiceTimes.subtract(lMeasurement.serviceTimes) : lServiceTimes;
+    LatencySnapshot lIntervalQueueWaits = lMeasurement.queueWaits != null
+        ? lQueueWaits.subtract(lMeasurement.queueWaits) : lQueueWaits;
+    lMeasurement.serviceTimes = lServiceTimes;
+    lMeasurement.queueWaits = lQueueWaits;
+    if (lIntervalServiceTimes.getCount() > 0) {
+      lMeasurement.meanServiceNanos = lIntervalServiceTimes.getMean();
+    }
+
+    // Little's law: busy threads = arrival rate * service time.
+    lMeasurement.arrivalRate = pPipeline.getSubmissionRate10s();
+    lMeasurement.neededThreads =
+        lMeasurement.arrivalRate * lMeasurement.meanServiceNanos / TimeUnit.SECONDS.toNanos(1) / TARGET_UTILIZATION;
+
+    // Pipelines that violate their latency SLO get a higher weight.
+    double lWeight = 1;
+    if (lMeasurement.arrivalRate > 0) {
+      lWeight += pPipeline.getLatencyViolationRate10s() / lMeasurement.arrivalRate;
+    }
+    long lMaxNanoLatency = pPipeline.getMaxNanoLatency();
+    if (lMaxNanoLatency > 0) {
+      lWeight += Math.min(1.0, (double) lIntervalQueueWaits.getP99() / lMaxNanoLatency);
+    }
+    lMeasurement.weight = lWeight;
+    return lMeasurement;
+  }
+
+  /**
+   * Method adds the passed decision to the history.
+   *
+   * @param pDecision Decision that should be added. The parameter must not be null.
+   */
+  private void addDecision( String pDecision ) {
+    if (history.size() >= HISTORY_SIZE) {
+      history.removeFirst();
+    }
+    history.addLast(Instant.now() + " " + pDecision);
+  }
+
+  /**
+   * Class contains the load of a pipeline that was measured during the last rebalancing.
+   */
+  private static final class Measurement {
+    private LatencySnapshot serviceTimes;
+
+    private LatencySnapshot queueWaits;
+
+    private long meanServiceNanos;
+
+    private double arrivalRate;
+
+    private double neededThreads;
+
+    private double weight;
+  }
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.Map;
+
+public interface ThreadBudgetAllocatorMBean {
+  int getTotalThreads( );
+
+  void setTotalThreads( int pTotalThreads );
+
+  long getRebalanceInterval( );
+
+  long getRebalanceCount( );
+
+  Map<String, Integer> getAllocations( );
+
+  Map<String, String> getPipelineBounds( );
+
+  void setPipelineBounds( String pPipelineID, int pMinThreads, int pMaxThreads );
+
+  String[] getDecisionHistory( );
+
+  void rebalance( );
+}
@@ -0,0 +1,460 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.anaptecs.jeaf.xfun.api.XFun;
+import com.anaptecs.jeaf.xfun.api.checks.Check;
+
+/**
+ * Class implements a hashed timing wheel. A timing wheel is able to manage a huge amount of timeouts with constant
+ * costs for scheduling and cancellation. All timeouts are processed by one single daemon thread that is started when
+ * the first timeout is scheduled.
+ *
+ * The precision of a timing wheel is limited by its tick duration. Tasks of expired timeouts are executed by the thread
+ * of the timing wheel. Thus they have to be short running and must not block. Everything that calls code outside of
+ * JEAF Workload Management, e.g. error handlers or completion of futures, has to be handed over to
+ * {@link #executeCallback(Runnable)}.
+ *
+ * The shared timing wheel is stopped when the JVM shuts down. Other timing wheels have to be stopped using
+ * {@link #stop()}.
+ *
+ * @author JEAF Development Team
+ */
+public class TimingWheel {
+  /**
+   * Tick duration of the shared timing wheel in milliseconds.
+   */
+  private static final int SHARED_TICK_DURATION = 5;
+
+  /**
+   * Amount of buckets of the shared timing wheel.
+   */
+  private static final int SHARED_WHEEL_SIZE = 512;
+
+  /**
+   * Maximum amount of new timeouts that will be transferred into the wheel during one tick. This ensures that the
+   * thread of the timing wheel will not starve in situations with extremely high load.
+   */
+  private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+  /**
+   * Amount of threads that execute callbacks of a timing wheel.
+   */
+  private static final int CALLBACK_THREADS = 2;
+
+  /**
+   * Time in seconds after which idle callback threads are terminated.
+   */
+  private static final int CALLBACK_THREAD_KEEP_ALIVE = 60;
+
+  /**
+   * Timing wheel that is shared by all pipelines.
+   */
+  private static final TimingWheel SHARED_TIMING_WHEEL =
+      new TimingWheel("JEAF-Workload-TimingWheel", SHARED_TICK_DURATION, TimeUnit.MILLISECONDS, SHARED_WHEEL_SIZE);
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+      @Override
+      public void run( ) {
+        SHARED_TIMING_WHEEL.stop();
+      }
+    }, "JEAF-Workload-TimingWheel-Shutdown"));
+  }
+
+  /**
+   * Duration of a tick in nano seconds.
+   */
+  private final long tickNanos;
+
+  /**
+   * Buckets of the timing wheel. Buckets are only accessed by the thread of the timing wheel.
+   */
+  private final Bucket[] wheel;
+
+  /**
+   * Mask that is used to calculate the bucket for a tick. Size of the wheel is always a power of 2.
+   */
+  private final int mask;
+
+  /**
+   * Queue with all timeouts that were scheduled but not yet transferred into the wheel.
+   */
+  private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Thread that processes all timeouts of this timing wheel.
+   */
+  private final Thread workerThread;
+
+  /**
+   * Attribute is used to ensure that the thread of the timing wheel is only started once.
+   */
+  private final AtomicBoolean started = new AtomicBoolean(false);
+
+  /**
+   * Attribute indicates if the timing wheel was stopped.
+   */
+  private volatile boolean stopped;
+
+  /**
+   * Executor that runs callbacks so that they do not delay or block the thread of the timing wheel.
+   */
+  private final ThreadPoolExecutor callbackExecutor;
+
+  /**
+   * Nano time when the timing wheel was created. All deadlines are relative to this point in time.
+   */
+  private final long startNanos;
+
+  /**
+   * Current tick of the wheel. The attribute is only accessed by the thread of the timing wheel.
+   */
+  private long tick;
+
+  /**
+   * Method returns the timing wheel that is shared by all pipelines.
+   *
+   * @return {@link TimingWheel} Shared timing wheel. The method never returns null.
+   */
+  public static TimingWheel getSharedTimingWheel( ) {
+    return SHARED_TIMING_WHEEL;
+  }
+
+  /**
+   * Initialize object.
+   *
+   * @param pThreadName Name of the thread that processes the timeouts. The parameter must not be null.
+   * @param pTickDuration Duration of a tick. The parameter must be greater than zero.
+   * @param pTimeUnit Time unit of the tick duration. The parameter must not be null.
+   * @param pWheelSize Amount of buckets of the wheel. The value will be rounded up to the next power of 2.
+   */
+  public TimingWheel( String pThreadName, long pTickDuration, TimeUnit pTimeUnit, int pWheelSize ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pThreadName, "pThreadName");
+    Check.checkInvalidParameterNull(pTimeUnit, "pTimeUnit");
+
+    tickNanos = Math.max(1, pTimeUnit.toNanos(pTickDuration));
+    int lWheelSize = Integer.highestOneBit(Math.max(1, pWheelSize - 1)) << 1;
+    wheel = new Bucket[lWheelSize];
+    for (int i = 0; i < wheel.length; i++) {
+      wheel[i] = new Bucket();
+    }
+    mask = lWheelSize - 1;
+    startNanos = System.nanoTime();
+
+    workerThread = new Thread(new Runnable() {
+      @Override
+      public void run( ) {
+        TimingWheel.this.processTicks();
+      }
+    }, pThreadName);
+    workerThread.setDaemon(true);
+
+    final String lCallbackThreadName = pThreadName + "-Callbacks-";
+    callbackExecutor = new ThreadPoolExecutor(CALLBACK_THREADS, CALLBACK_THREADS, CALLBACK_THREAD_KEEP_ALIVE,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+          @Override
+          public Thread newThread( Runnable pRunnable ) {
+            Thread lThread = new Thread(pRunnable, lCallbackThreadName + threadNumber.getAndIncrement());
+            lThread.setDaemon(true);
+            return lThread;
+          }
+        });
+    callbackExecutor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Method schedules the passed task for execution after the passed delay.
+   *
+   * @param pTask Task that should be executed when the timeout expires. The task will be executed by the thread of the
+   * timing wheel. The parameter must not be null.
+   * @param pDelay Delay after which the task should be executed.
+   * @param pTimeUnit Time unit of the delay. The parameter must not be null.
+   * @return {@link Timeout} Timeout that was scheduled. It can be used to cancel the execution of the task. If the
+   * timing wheel was already stopped then the returned timeout is already cancelled. The method never returns null.
+   */
+  public Timeout schedule( Runnable pTask, long pDelay, TimeUnit pTimeUnit ) {
+    // Check parameters
+    Check.checkInvalidParameterNull(pTask, "pTask");
+    Check.checkInvalidParameterNull(pTimeUnit, "pTimeUnit");
+
+    // Timing wheel was already stopped. So the task will never be executed.
+    if (stopped) {
+      Timeout lTimeout = new Timeout(pTask, 0);
+      lTimeout.cancel();
+      return lTimeout;
+    }
+
+    // Start worker thread lazily.
+    if (started.get() == false && started.compareAndSet(false, true)) {
+      workerThread.start();
+    }
+
+    long lDeadline = System.nanoTime() - startNanos + pTimeUnit.toNanos(Math.max(0, pDelay));
+    Timeout lTimeout = new Timeout(pTask, lDeadline);
+    pendingTimeouts.add(lTimeout);
+    return lTimeout;
+  }
+
+  /**
+   * Method hands over the passed callback to the callback threads of this timing wheel. Tasks of timeouts have to use
+   * this method for all calls that may take longer or may block, e.g. calls of error handlers. If the timing wheel was
+   * already stopped then the callback is executed by the calling thread.
+   *
+   * @param pCallback Callback that should be executed. The parameter must not be null.
+   */
+  public void executeCallback( final Runnable pCallback ) {
+    // Check parameter
+    Check.checkInvalidParameterNull(pCallback, "pCallback");
+
+    Runnable lCallback = new Runnable() {
+      @Override
+      public void run( ) {
+        try {
+          pCallback.run();
+        }
+        // Problems of callbacks are only traced. They must not affect other callbacks.
+        catch (Throwable e) {
+          XFun.getTrace().error(e.getMessage(), e);
+        }
+      }
+    };
+    try {
+      callbackExecutor.execute(lCallback);
+    }
+    catch (RejectedExecutionException e) {
+      lCallback.run();
+    }
+  }
+
+  /**
+   * Method stops this timing wheel. Timeouts that did not yet expire will never expire and new timeouts will not be
+   * scheduled any longer. Callbacks that were already handed over will still be executed.
+   */
+  public void stop( ) {
+    stopped = true;
+    workerThread.interrupt();
+    callbackExecutor.shutdown();
+  }
+
+  /**
+   * Method checks if this timing wheel was stopped.
+   *
+   * @return boolean Method returns true if the timing wheel was stopped and false otherwise.
+   */
+  public boolean isStopped( ) {
+    return stopped;
+  }
+
+  /**
+   * Method contains the main loop of the thread of the timing wheel.
+   */
+  private void processTicks( ) {
+    while (stopped == false) {
+      // Wait for next tick
+      this.waitForNextTick();
+      if (stopped) {
+        break;
+      }
+
+      // Process new timeouts and expire the ones of the current bucket.
+      this.transferPendingTimeouts();
+      wheel[(int) (tick & mask)].expireTimeouts();
+      tick++;
+    }
+  }
+
+  /**
+   * Method waits until the next tick of the wheel is reached.
+   */
+  private void waitForNextTick( ) {
+    long lDeadline = tickNanos * (tick + 1);
+    while (stopped == false) {
+      long lSleepNanos = lDeadline - (System.nanoTime() - startNanos);
+      if (lSleepNanos <= 0) {
+        return;
+      }
+      try {
+        TimeUnit.NANOSECONDS.sleep(lSleepNanos);
+      }
+      catch (InterruptedException e) {
+        // Thread of the timing wheel is only interrupted when it is stopped. Otherwise we just continue.
+        Thread.interrupted();
+      }
+    }
+  }
+
+  /**
+   * Method transfers all pending timeouts into their buckets.
+   */
+  private void transferPendingTimeouts( ) {
+    for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+      Timeout lTimeout = pendingTimeouts.poll();
+      if (lTimeout == null) {
+        break;
+      }
+      // Timeout was already cancelled.
+      if (lTimeout.state.get() == Timeout.CANCELLED) {
+        continue;
+      }
+      long lCalculatedTick = lTimeout.deadline / tickNanos;
+      lTimeout.remainingRounds = (lCalculatedTick - tick) / wheel.length;
+
+      // Ensure that timeouts from the past are scheduled for the current tick.
+      long lTicks = Math.max(lCalculatedTick, tick);
+      wheel[(int) (lTicks & mask)].add(lTimeout);
+    }
+  }
+
+  /**
+   * Class represents a timeout that was scheduled within a timing wheel.
+   */
+  public static final class Timeout {
+    private static final int INITIAL = 0;
+
+    private static final int CANCELLED = 1;
+
+    private static final int EXPIRED = 2;
+
+    /**
+     * Task that will be executed when the timeout expires.
+     */
+    private final Runnable task;
+
+    /**
+     * Deadline of the timeout relative to the start time of the timing wheel.
+     */
+    private final long deadline;
+
+    /**
+     * State of the timeout.
+     */
+    private final AtomicInteger state = new AtomicInteger(INITIAL);
+
+    /**
+     * Remaining rounds of the wheel until the timeout expires. The attribute is only accessed by the thread of the
+     * timing wheel.
+     */
+    private long remainingRounds;
+
+    /**
+     * Next and previous timeout of the same bucket. Attributes are only accessed by the thread of the timing wheel.
+     */
+    private Timeout next;
+
+    private Timeout previous;
+
+    Timeout( Runnable pTask, long pDeadline ) {
+      task = pTask;
+      deadline = pDeadline;
+    }
+
+    /**
+     * Method cancels this timeout. Cancelled timeouts will be removed lazily from the timing wheel.
+     *
+     * @return boolean Method returns true if the timeout was cancelled and false if it already expired or was already
+     * cancelled before.
+     */
+    public boolean cancel( ) {
+      return state.compareAndSet(INITIAL, CANCELLED);
+    }
+
+    /**
+     * Method checks if the timeout is already expired.
+     *
+     * @return boolean Method returns true if the timeout is expired and false otherwise.
+     */
+    public boolean isExpired( ) {
+      return state.get() == EXPIRED;
+    }
+
+    /**
+     * Method expires the timeout and executes its task.
+     */
+    private void expire( ) {
+      if (state.compareAndSet(INITIAL, EXPIRED)) {
+        try {
+          task.run();
+        }
+        // Neither exceptions nor errors must ever stop the thread of the timing wheel.
+        catch (Throwable e) {
+          XFun.getTrace().error(e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Class represents a bucket of the timing wheel. Buckets are implemented as double linked lists. They are only
+   * accessed by the thread of the timing wheel so no synchronization is required.
+   */
+  private static final class Bucket {
+    private Timeout head;
+
+    private Timeout tail;
+
+    void add( Timeout pTimeout ) {
+      if (head == null) {
+        head = pTimeout;
+        tail = pTimeout;
+      }
+      else {
+        tail.next = pTimeout;
+        pTimeout.previous = tail;
+        tail = pTimeout;
+      }
+    }
+
+    void expireTimeouts( ) {
+      Timeout lTimeout = head;
+      while (lTimeout != null) {
+        Timeout lNext = lTimeout.next;
+        if (lTimeout.state.get() == Timeout.CANCELLED) {
+          this.remove(lTimeout);
+        }
+        else if (lTimeout.remainingRounds <= 0) {
+          this.remove(lTimeout);
+          lTimeout.expire();
+        }
+        else {
+          lTimeout.remainingRounds--;
+        }
+        lTimeout = lNext;
+      }
+    }
+
+    private void remove( Timeout pTimeout ) {
+      Timeout lNext = pTimeout.next;
+      if (pTimeout.previous != null) {
+        pTimeout.previous.next = lNext;
+      }
+      if (lNext != null) {
+        lNext.previous = pTimeout.previous;
+      }
+      if (pTimeout == head) {
+        head = lNext;
+      }
+      if (pTimeout == tail) {
+        tail = pTimeout.previous;
+      }
+      pTimeout.next = null;
+      pTimeout.previous = null;
+    }
+  }
+}
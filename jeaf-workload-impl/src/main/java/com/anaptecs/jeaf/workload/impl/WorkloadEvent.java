@@ -0,0 +1,85 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.xfun.api.XFun;
+
+import jdk.jfr.Category;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Class is the base class of all Java Flight Recorder events of the workload management. All events are disabled by
+ * default and have to be enabled explicitly through the settings of a recording, e.g.
+ * <code>-XX:StartFlightRecording:settings=workload.jfc</code> with a settings file that enables the events. As long as
+ * an event is not enabled the JIT compiler eliminates its creation so that there is no overhead.
+ *
+ * Events are only filled with data after {@link #isEnabled()} or {@link #shouldCommit()} returned true. This way the
+ * request key is only resolved if the event will really be recorded.
+ *
+ * @author JEAF Development Team
+ */
+@Category({ "JEAF", "Workload" })
+@Enabled(false)
+@StackTrace(false)
+abstract class WorkloadEvent extends Event {
+  /**
+   * ID of the pipeline that processed the request.
+   */
+  @Label("Pipeline ID")
+  String pipelineID;
+
+  /**
+   * Key of the request type of the request.
+   */
+  @Label("Request Key")
+  String requestKey;
+
+  /**
+   * Method returns all event classes of the workload management.
+   *
+   * @return {@link List} List with all event classes. The method never returns null.
+   */
+  static List<Class<? extends WorkloadEvent>> getEventClasses( ) {
+    return Arrays.asList(RequestEnqueuedEvent.class, RequestDequeuedEvent.class, RequestExecutionEvent.class,
+        RequestRejectedEvent.class, MaxLatencyExceededEvent.class);
+  }
+
+  /**
+   * Method registers all event classes of the workload management at the flight recorder. Registering the first event
+   * class initializes the infrastructure of the flight recorder which takes quite some time. Thus event classes should
+   * be registered before the first request is executed. Problems during registration are only traced as events are
+   * then registered lazily with their first usage.
+   */
+  static void registerEventClasses( ) {
+    for (Class<? extends WorkloadEvent> lNextEventClass : getEventClasses()) {
+      try {
+        FlightRecorder.register(lNextEventClass);
+      }
+      catch (RuntimeException e) {
+        XFun.getTrace().warn("Unable to register flight recorder event " + lNextEventClass.getName() + ". " + e);
+      }
+    }
+  }
+
+  /**
+   * Method sets the pipeline and the request type of this event.
+   *
+   * @param pPipeline Pipeline that processed the request. The parameter must not be null.
+   * @param pRequestTypeKey Request type of the request. The parameter must not be null.
+   */
+  final void setRequest( Pipeline pPipeline, RequestTypeKey pRequestTypeKey ) {
+    pipelineID = pPipeline.getPipelineID();
+    requestKey = pRequestTypeKey.getKey();
+  }
+}
@@ -5,14 +5,37 @@
  */
 package com.anaptecs.jeaf.workload.impl;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
 import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.JMException;
 import javax.management.MBeanServer;
@@ -24,6 +47,7 @@ import com.anaptecs.jeaf.workload.annotations.ElasticWorkloadConfig;
 import com.anaptecs.jeaf.workload.annotations.EndpointsGroup;
 import com.anaptecs.jeaf.workload.annotations.HTTPMethod;
 import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
+import com.anaptecs.jeaf.workload.annotations.QueueType;
 import com.anaptecs.jeaf.workload.annotations.Resource;
 import com.anaptecs.jeaf.workload.annotations.StaticWorkloadConfig;
 import com.anaptecs.jeaf.workload.annotations.WorkloadMapping;
@@ -51,6 +75,25 @@ import com.anaptecs.jeaf.xfun.api.errorhandling.JEAFSystemException;
  * request depends on the so called workload mapping. The workload mapping can be defined using annotation
  * {@link WorkloadMapping} and defines for which endpoints which pipelines should be used.
  * 
+ * If a {@link RoutingIndex} was generated at build time then pipelines and workload mappings are taken from it. Only
+ * configuration classes that are not covered by any routing index are loaded and resolved through reflection. Without
+ * routing index all configuration classes are resolved through reflection.
+ * 
+ * Pipelines that are configured through a YAML file can be changed while the workload manager is running. The file is
+ * watched and every change is validated and applied as a whole. Existing pipelines are resized in place whenever
+ * possible, new pipelines are created and removed pipelines are drained before they are terminated. Requests are
+ * routed using a routing table that is replaced with a single publication so that a request is either routed based on
+ * the old or on the new configuration but never on a mixture of both.
+ * 
+ * When the workload manager is shut down all pipelines stop accepting new requests and are drained until a deadline.
+ * Requests that are still queued afterwards are rejected through their error handler. Single pipelines can be paused
+ * and resumed e.g. during maintenance.
+ * 
+ * Optionally a total thread budget can be defined through {@link #THREAD_BUDGET_PROPERTY_NAME}. It is then
+ * periodically redistributed across all pipelines based on their load and latency SLO by a
+ * {@link ThreadBudgetAllocator}. Recommendations for the size of all pipelines are provided through JMX by a
+ * {@link CapacityAdvisor}.
+ * 
  * @author JEAF Development Team
  */
 public class WorkloadManagerImpl implements WorkloadManager {
@@ -61,28 +104,209 @@ public class WorkloadManagerImpl implements WorkloadManager {
   public static final String YAML_CONFIG_PROPERTY_NAME = "jeaf.workload.config.yaml";
 
   /**
-   * Map contains all request type keys and their associated pipelines.
+   * Name of the system property that can be used to define the port of the embedded Prometheus exporter. If the
+   * property is not set then no exporter will be started.
+   */
+  public static final String PROMETHEUS_PORT_PROPERTY_NAME = "jeaf.workload.prometheus.port";
+
+  /**
+   * Name of the system property that can be used to define the host name or IP address to which the embedded Prometheus
+   * exporter is bound. Use e.g. <code>0.0.0.0</code> to make the exporter reachable through all network interfaces.
+   */
+  public static final String PROMETHEUS_HOST_PROPERTY_NAME = "jeaf.workload.prometheus.host";
+
+  /**
+   * Host to which the embedded Prometheus exporter is bound if nothing else is configured. By default metrics are only
+   * exposed locally.
+   */
+  public static final String DEFAULT_PROMETHEUS_HOST = "127.0.0.1";
+
+  /**
+   * Name of the system property that can be used to define the interval in milliseconds in which the YAML configuration
+   * file is checked for changes. Values less or equal 0 disable watching of the file.
+   */
+  public static final String YAML_WATCH_INTERVAL_PROPERTY_NAME = "jeaf.workload.config.yaml.watchInterval";
+
+  /**
+   * Interval in milliseconds in which the YAML configuration file is checked for changes if nothing else is configured.
+   */
+  public static final long DEFAULT_YAML_WATCH_INTERVAL = 5000;
+
+  /**
+   * Name of the system property that can be used to define a total amount of threads that is distributed across all
+   * pipelines by a {@link ThreadBudgetAllocator}. If the property is not set then all pipelines keep their configured
+   * size. Pipelines from the YAML configuration file always keep the size that is defined there.
+   */
+  public static final String THREAD_BUDGET_PROPERTY_NAME = "jeaf.workload.threadBudget";
+
+  /**
+   * Name of the system property that can be used to define the interval in milliseconds in which the thread budget is
+   * redistributed.
+   */
+  public static final String THREAD_BUDGET_INTERVAL_PROPERTY_NAME = "jeaf.workload.threadBudget.interval";
+
+  /**
+   * Interval in milliseconds in which the thread budget is redistributed if nothing else is configured.
+   */
+  public static final long DEFAULT_THREAD_BUDGET_INTERVAL = 10000;
+
+  /**
+   * Time in milliseconds that pipelines that were removed or replaced still accept requests of callers that resolved
+   * them before the routing table was replaced.
+   */
+  private static final long DRAIN_GRACE_PERIOD = 1000;
+
+  /**
+   * Interval in milliseconds in which pipelines that are drained are checked if they are idle.
+   */
+  private static final long DRAIN_CHECK_INTERVAL = 100;
+
+  /**
+   * Maximum time in milliseconds that pipelines that were removed or replaced may take to become idle. Requests that
+   * are still queued afterwards are rejected and running ones are interrupted.
+   */
+  private static final long RETIREMENT_TIMEOUT = 30000;
+
+  /**
+   * Prefix of the JMX object names of all pipelines.
+   */
+  private static final String PIPELINE_PREFIX = "com.anaptecs.jeaf.workload:type=Pipelines, name=";
+
+  /**
+   * Prefix of the JMX object names of the statistics of all pipelines.
+   */
+  private static final String STATISTICS_PREFIX = "com.anaptecs.jeaf.workload:type=PipelineStatistics, name=";
+
+  /**
+   * JMX object name of the thread budget allocator.
+   */
+  private static final String THREAD_BUDGET_ALLOCATOR_NAME = "com.anaptecs.jeaf.workload:type=ThreadBudgetAllocator";
+
+  /**
+   * JMX object name of the capacity advisor.
+   */
+  private static final String CAPACITY_ADVISOR_NAME = "com.anaptecs.jeaf.workload:type=CapacityAdvisor";
+
+  /**
+   * Map contains all pipelines of this workload manager with their ID as key.
+   */
+  private final Map<String, Pipeline> pipelines = new ConcurrentHashMap<>();
+
+  /**
+   * Exporter that provides the metrics of all pipelines in Prometheus format. The attribute is null if no exporter is
+   * configured.
+   */
+  private PrometheusExporter prometheusExporter;
+
+  /**
+   * Allocator that distributes the thread budget across all pipelines. The attribute is null if no budget is defined.
+   */
+  private ThreadBudgetAllocator threadBudgetAllocator;
+
+  /**
+   * Advisor that recommends settings for all pipelines based on their observed load.
+   */
+  private final CapacityAdvisor capacityAdvisor = new CapacityAdvisor(pipelines);
+
+  /**
+   * Pipelines that were successfully registered as MBeans. Only these pipelines are unregistered again.
+   */
+  private final Set<Pipeline> registeredPipelines = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Names of all other MBeans that were successfully registered by this workload manager. Only these MBeans are
+   * unregistered again.
+   */
+  private final Set<String> registeredMBeanNames = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Map contains all request type keys that are mapped through annotations and their associated pipelines. The map is
+   * only changed during initialization.
+   */
+  private final Map<RequestTypeKey, Pipeline> annotationMappings = new HashMap<>();
+
+  /**
+   * Default pipeline that is configured through annotations. The attribute may be null.
+   */
+  private Pipeline annotationDefaultPipeline;
+
+  /**
+   * Routing table that is currently used to resolve the pipeline of a request. Whenever the configuration changes a new
+   * routing table is published.
+   */
+  private volatile RoutingTable routingTable = new RoutingTable(Collections.emptyMap(), null);
+
+  /**
+   * Location of the YAML configuration file. The attribute is null if no YAML configuration file is defined.
+   */
+  private String yamlFileLocation;
+
+  /**
+   * Configurations of all pipelines that are currently configured through YAML with their ID as key. Access to the
+   * attribute is synchronized on this object.
+   */
+  private Map<String, PipelineConfigImpl> yamlConfigs = new HashMap<>();
+
+  /**
+   * Timeout of the next check of the YAML configuration file for changes. The attribute is null if the file is not
+   * watched. Access to the attribute is synchronized on this object.
+   */
+  private TimingWheel.Timeout yamlWatchTimeout;
+
+  /**
+   * Executor that checks the YAML configuration file for changes and reloads it. Reloading must not happen on the
+   * thread of the timing wheel as it may have to wait for the lock of this object. The attribute is null if the file is
+   * not watched. Access to the attribute is synchronized on this object.
+   */
+  private ThreadPoolExecutor yamlReloadExecutor;
+
+  /**
+   * Pipelines that were removed or replaced through a YAML reload and that are not yet terminated. They are drained in
+   * the background and also during shutdown of the workload manager.
    */
-  private Map<RequestTypeKey, Pipeline> workloadMapping = new HashMap<>();
+  private final Set<Pipeline> retiredPipelines = ConcurrentHashMap.newKeySet();
 
   /**
-   * Pipeline is used in cases where no other pipeline could be resolved to handle a certain request. Depending on the
-   * used configuration it may also be the case that no default pipeline is available.
+   * Flag indicates if the workload manager was shut down.
    */
-  private Pipeline defaultPipeline;
+  private volatile boolean shutdown;
 
   /**
    * Initialize object. Therefore the configured pipelines will be created as well as the workload configurations are
    * applied.
    */
   public WorkloadManagerImpl( ) {
-    // Resolve pipeline, static and elastic workload configuration.
-    Map<Class<?>, PipelineConfig> lPipelineConfigurations = this.getPipelineConfigurationClasses();
-    Map<Class<?>, StaticWorkloadConfig> lStaticWorkloadClasses = this.getStaticWorkloadConfigurationClasses();
-    Map<Class<?>, ElasticWorkloadConfig> lElasticWorkloadClasses = this.getElasticWorkloadConfigurationClasses();
+    // Configuration classes that are covered by a routing index that was generated at build time do not require any
+    // reflection. Without routing index all configuration classes are resolved through their annotations.
+    List<RoutingIndex> lRoutingIndexes = this.loadRoutingIndexes();
+    Map<Class<?>, PipelineConfig> lPipelineConfigurations;
+    Map<Class<?>, StaticWorkloadConfig> lStaticWorkloadClasses;
+    Map<Class<?>, ElasticWorkloadConfig> lElasticWorkloadClasses;
+    if (lRoutingIndexes.isEmpty()) {
+      lPipelineConfigurations = this.getPipelineConfigurationClasses();
+      lStaticWorkloadClasses = this.getStaticWorkloadConfigurationClasses();
+      lElasticWorkloadClasses = this.getElasticWorkloadConfigurationClasses();
+    }
+    else {
+      Set<String> lIndexedClasses = new HashSet<>();
+      for (RoutingIndex lNextIndex : lRoutingIndexes) {
+        lIndexedClasses.addAll(lNextIndex.getConfigurationClasses());
+      }
+      Set<String> lMissingClasses = new TreeSet<>();
+      lPipelineConfigurations = this.getUnindexedConfigurationClasses(Workload.PIPELINES_RESOURCE_NAME,
+          PipelineConfig.class, lIndexedClasses, lMissingClasses);
+      lStaticWorkloadClasses = this.getUnindexedConfigurationClasses(Workload.STATIC_WORKLOADS_RESOURCE_NAME,
+          StaticWorkloadConfig.class, lIndexedClasses, lMissingClasses);
+      lElasticWorkloadClasses = this.getUnindexedConfigurationClasses(Workload.ELASTIC_WORKLOADS_RESOURCE_NAME,
+          ElasticWorkloadConfig.class, lIndexedClasses, lMissingClasses);
+      if (lMissingClasses.isEmpty() == false) {
+        XFun.getTrace().warn("Workload configuration classes " + lMissingClasses
+            + " are not covered by any routing index. They are resolved through reflection.");
+      }
+    }
 
     // Create pipelines and initialize workload mappings.
-    this.initialize(lPipelineConfigurations, lStaticWorkloadClasses, lElasticWorkloadClasses);
+    this.initialize(lRoutingIndexes, lPipelineConfigurations, lStaticWorkloadClasses, lElasticWorkloadClasses);
   }
 
   /**
@@ -127,52 +351,79 @@ public class WorkloadManagerImpl implements WorkloadManager {
     }
 
     // Create pipelines and initialize workload mappings.
-    this.initialize(lPipelineConfigurations, lStaticWorkloadClasses, lElasticWorkloadClasses);
+    this.initialize(Collections.<RoutingIndex> emptyList(), lPipelineConfigurations, lStaticWorkloadClasses,
+        lElasticWorkloadClasses);
   }
 
   /**
    * Method initializes the workload manager. This means that all configured pipelines will be created and all workload
    * mappings will be applied.
    * 
+   * @param pRoutingIndexes Routing indexes that were generated at build time. Workload mappings of routing indexes may
+   * also refer to pipelines that are resolved through reflection and vice versa. The parameter must not be null.
    * @param pPipelineConfigurations Map with all pipeline configurations that should be used by the workload manager.
    * The parameter may be null.
    * @param pStaticWorkloadClasses Map with all static workload configuration classes that should be used by the
-   * workload manager. The parameter must not be null.
+   * workload manager. The parameter may be null.
    * @param pElasticWorkloadClasses Map with all elastic workload configuration classes that should be used by the
-   * workload manager. The parameter must not be null.
+   * workload manager. The parameter may be null.
    */
-  private void initialize( Map<Class<?>, PipelineConfig> pPipelineConfigurations,
+  private void initialize( List<RoutingIndex> pRoutingIndexes,
+      Map<Class<?>, PipelineConfig> pPipelineConfigurations,
       Map<Class<?>, StaticWorkloadConfig> pStaticWorkloadClasses,
       Map<Class<?>, ElasticWorkloadConfig> pElasticWorkloadClasses ) {
 
+    // Create pipelines of all routing indexes.
+    Map<String, Pipeline> lPipelines = new HashMap<>();
+    for (RoutingIndex lNextIndex : pRoutingIndexes) {
+      for (PipelineConfigImpl lNextConfig : lNextIndex.getPipelines()) {
+        Pipeline lPipeline = this.createPipeline(lNextConfig.getId(), lNextConfig.getPipelineConfig(),
+            lNextConfig.getExtendedPipelineConfig());
+        lPipelines.put(lPipeline.getPipelineID(), lPipeline);
+        if (lNextConfig.isDefaultPipeline() == true) {
+          this.setAnnotationDefaultPipeline(lPipeline);
+        }
+      }
+    }
+
     // Create pipelines based on annotations
     if (pPipelineConfigurations != null) {
-      Map<String, Pipeline> lPipelines = this.createPipelines(pPipelineConfigurations);
-
-      // Load and apply workload mappings.
-      if (lPipelines.size() > 0) {
-        // Static mappings
-        if (pStaticWorkloadClasses != null) {
-          Map<Class<?>, WorkloadMapping> lStaticWorkloadMappings =
-              this.loadStaticWorkloadMappings(pStaticWorkloadClasses);
-          this.applyWorkloadMappings(lPipelines, lStaticWorkloadMappings);
-        }
+      lPipelines.putAll(this.createPipelines(pPipelineConfigurations));
+    }
 
-        // Elastic mappings
-        if (pElasticWorkloadClasses != null) {
-          Map<Class<?>, WorkloadMapping> lElasticWorkloadMappings =
-              this.loadElasticWorkloadMappings(pElasticWorkloadClasses);
-          this.applyWorkloadMappings(lPipelines, lElasticWorkloadMappings);
+    // Load and apply workload mappings.
+    if (lPipelines.size() > 0) {
+      // Mappings of all routing indexes. They may also refer to pipelines of other indexes.
+      for (RoutingIndex lNextIndex : pRoutingIndexes) {
+        for (Entry<RequestTypeKey, String> lNextEntry : lNextIndex.getWorkloadMappings().entrySet()) {
+          Pipeline lPipeline = lPipelines.get(lNextEntry.getValue());
+          if (lPipeline != null) {
+            annotationMappings.put(lNextEntry.getKey(), lPipeline);
+          }
+          else {
+            throw new WorkloadSystemException(WorkloadMessages.NOT_EXISTING_PIPELINE_CONFIGURED,
+                lNextEntry.getValue(), lNextIndex.getClass().getName());
+          }
         }
+      }
 
-        // Ensure that at least 1 mapping is available.
-        if (workloadMapping.size() == 0 && defaultPipeline == null) {
-          throw new WorkloadSystemException(WorkloadMessages.NO_WORKLOAD_MAPPINGS_AVAILABLE);
-        }
+      // Static mappings
+      if (pStaticWorkloadClasses != null) {
+        Map<Class<?>, WorkloadMapping> lStaticWorkloadMappings =
+            this.loadStaticWorkloadMappings(pStaticWorkloadClasses);
+        this.applyWorkloadMappings(lPipelines, lStaticWorkloadMappings);
       }
-      // No pipelines were configured through annotations. May be they are configured through YAML file.
-      else {
-        // Nothing to do.
+
+      // Elastic mappings
+      if (pElasticWorkloadClasses != null) {
+        Map<Class<?>, WorkloadMapping> lElasticWorkloadMappings =
+            this.loadElasticWorkloadMappings(pElasticWorkloadClasses);
+        this.applyWorkloadMappings(lPipelines, lElasticWorkloadMappings);
+      }
+
+      // Ensure that at least 1 mapping is available.
+      if (annotationMappings.isEmpty() && annotationDefaultPipeline == null) {
+        throw new WorkloadSystemException(WorkloadMessages.NO_WORKLOAD_MAPPINGS_AVAILABLE);
       }
     }
     // No pipelines were configured through annotations. May be they are configured through YAML file.
@@ -180,20 +431,216 @@ public class WorkloadManagerImpl implements WorkloadManager {
       // Nothing to do.
     }
 
+    // Configuration through YAML and monitoring.
+    this.completeInitialization();
+  }
+
+  /**
+   * Method loads all routing indexes that were generated at build time.
+   * 
+   * @return {@link List} List with all routing indexes. If no routing index is available or if they can not be loaded
+   * then an empty list is returned. The method never returns null.
+   */
+  private List<RoutingIndex> loadRoutingIndexes( ) {
+    List<RoutingIndex> lRoutingIndexes = new ArrayList<>();
+    try {
+      for (RoutingIndex lNextIndex : ServiceLoader.load(RoutingIndex.class)) {
+        lRoutingIndexes.add(lNextIndex);
+      }
+    }
+    catch (ServiceConfigurationError e) {
+      XFun.getTrace().error("Unable to load workload routing index. Configuration will be resolved through reflection. "
+          + e.getMessage(), e);
+      lRoutingIndexes.clear();
+    }
+    return lRoutingIndexes;
+  }
+
+  /**
+   * Method completes the initialization of the workload manager after all pipelines that are configured through
+   * annotations were created.
+   */
+  private void completeInitialization( ) {
+    // Publish routing for pipelines that are configured through annotations.
+    routingTable = new RoutingTable(annotationMappings, annotationDefaultPipeline);
+
     // Also load pipelines from YAML configuration.
     this.loadPipelinesFromYAML();
 
     // After everything is done, we have to check if the configuration is correct.
     this.checkPipelineConfiguration();
+
+    // Start Prometheus exporter if configured.
+    this.startPrometheusExporter();
+
+    // Watch YAML configuration file for changes.
+    this.startWatchingYAML();
+
+    // Distribute thread budget across all pipelines if configured.
+    this.startThreadBudgetAllocator();
+
+    // Provide capacity recommendations through JMX.
+    this.registerMBean(capacityAdvisor, CAPACITY_ADVISOR_NAME);
+  }
+
+  /**
+   * Method starts a {@link ThreadBudgetAllocator} for all pipelines if a budget is defined through system property
+   * {@link #THREAD_BUDGET_PROPERTY_NAME}. The allocator is also registered as MBean. Pipelines from the YAML
+   * configuration file keep the size that is defined there.
+   */
+  private synchronized void startThreadBudgetAllocator( ) {
+    Configuration lSystemProperties = XFun.getConfigurationProvider().getSystemPropertiesConfiguration();
+    Integer lBudget = lSystemProperties.getConfigurationValue(THREAD_BUDGET_PROPERTY_NAME, Integer.class);
+
+    // Thread budget was provided.
+    if (lBudget != null) {
+      Long lInterval = lSystemProperties.getConfigurationValue(THREAD_BUDGET_INTERVAL_PROPERTY_NAME, Long.class);
+      if (lInterval == null) {
+        lInterval = DEFAULT_THREAD_BUDGET_INTERVAL;
+      }
+      ThreadBudgetAllocator lAllocator = new ThreadBudgetAllocator(pipelines, lBudget, lInterval);
+      lAllocator.setExternallyManagedPipelines(yamlConfigs.keySet());
+      XFun.getTrace().info("Distributing thread budget of " + lBudget + " threads across all pipelines.");
+      lAllocator.start();
+      threadBudgetAllocator = lAllocator;
+      this.registerMBean(lAllocator, THREAD_BUDGET_ALLOCATOR_NAME);
+    }
+    // No thread budget configured.
+    else {
+      // Nothing to do.
+    }
+  }
+
+  /**
+   * Method returns the thread budget allocator of this workload manager.
+   * 
+   * @return {@link ThreadBudgetAllocator} Thread budget allocator or null if no budget is configured through system
+   * property {@link #THREAD_BUDGET_PROPERTY_NAME}.
+   */
+  public ThreadBudgetAllocator getThreadBudgetAllocator( ) {
+    return threadBudgetAllocator;
+  }
+
+  /**
+   * Method returns the capacity advisor of this workload manager.
+   * 
+   * @return {@link CapacityAdvisor} Advisor that recommends settings for all pipelines of this workload manager. The
+   * method never returns null.
+   */
+  public CapacityAdvisor getCapacityAdvisor( ) {
+    return capacityAdvisor;
+  }
+
+  /**
+   * Method starts the embedded Prometheus exporter for all pipelines if a port is defined through system property
+   * {@link #PROMETHEUS_PORT_PROPERTY_NAME}. The exporter is bound to the host that is defined through system property
+   * {@link #PROMETHEUS_HOST_PROPERTY_NAME} or to {@link #DEFAULT_PROMETHEUS_HOST}.
+   */
+  private void startPrometheusExporter( ) {
+    Configuration lSystemProperties = XFun.getConfigurationProvider().getSystemPropertiesConfiguration();
+    Integer lPort = lSystemProperties.getConfigurationValue(PROMETHEUS_PORT_PROPERTY_NAME, Integer.class);
+
+    // Port for Prometheus exporter was provided.
+    if (lPort != null) {
+      String lHost = lSystemProperties.getConfigurationValue(PROMETHEUS_HOST_PROPERTY_NAME, String.class);
+      if (lHost == null || lHost.trim().isEmpty()) {
+        lHost = DEFAULT_PROMETHEUS_HOST;
+      }
+      PrometheusExporter lExporter = new PrometheusExporter(pipelines.values());
+      try {
+        lExporter.start(new InetSocketAddress(lHost.trim(), lPort));
+        prometheusExporter = lExporter;
+      }
+      catch (IOException e) {
+        XFun.getTrace().error(
+            "Unable to start Prometheus exporter on " + lHost + ":" + lPort + ". " + e.getMessage(), e);
+      }
+    }
+    // No Prometheus exporter configured.
+    else {
+      // Nothing to do.
+    }
+  }
+
+  /**
+   * Method returns the embedded Prometheus exporter of this workload manager.
+   * 
+   * @return {@link PrometheusExporter} Prometheus exporter or null if no exporter is configured through system property
+   * {@link #PROMETHEUS_PORT_PROPERTY_NAME} or if it could not be started.
+   */
+  public PrometheusExporter getPrometheusExporter( ) {
+    return prometheusExporter;
   }
 
   private void checkPipelineConfiguration( ) {
     // No pipelines were configured.
-    if (workloadMapping.size() == 0 && defaultPipeline == null) {
+    if (routingTable.isEmpty()) {
       throw new WorkloadSystemException(WorkloadMessages.NO_PIPELINES_CONFIGURED);
     }
   }
 
+  /**
+   * Method resolves the configuration classes that are listed in the passed configuration resource but that are not
+   * covered by any routing index. Only these classes are loaded and their annotations are read through reflection.
+   * 
+   * @param pResourceName Name of the configuration resource that lists the configuration classes. The parameter must
+   * not be null.
+   * @param pAnnotation Annotation that contains the configuration. The parameter must not be null.
+   * @param pIndexedClasses Names of all configuration classes that are covered by a routing index. The parameter must
+   * not be null.
+   * @param pMissingClasses Set to which the names of all classes that are not covered by a routing index are added. The
+   * parameter must not be null.
+   * @return {@link Map} Map with all configuration classes that are not covered by a routing index and their
+   * configuration. The method never returns null.
+   */
+  private <T extends Annotation> Map<Class<?>, T> getUnindexedConfigurationClasses( String pResourceName,
+      Class<T> pAnnotation, Set<String> pIndexedClasses, Set<String> pMissingClasses ) {
+
+    // Only class names are read from the configuration resources. Classes are not loaded before it is known that they
+    // are not covered by a routing index.
+    ClassLoader lClassLoader = Thread.currentThread().getContextClassLoader();
+    if (lClassLoader == null) {
+      lClassLoader = WorkloadManagerImpl.class.getClassLoader();
+    }
+    String lResourcePath = Workload.WORKLOAD_BASE_PATH + "/" + pResourceName;
+    List<Class<?>> lClasses = new ArrayList<>();
+    try {
+      Enumeration<URL> lResources = lClassLoader.getResources(lResourcePath);
+      while (lResources.hasMoreElements()) {
+        try (BufferedReader lReader =
+            new BufferedReader(new InputStreamReader(lResources.nextElement().openStream(), StandardCharsets.UTF_8))) {
+          String lLine = lReader.readLine();
+          while (lLine != null) {
+            String lClassName = lLine.trim();
+            if (lClassName.isEmpty() == false && lClassName.startsWith("#") == false
+                && pIndexedClasses.contains(lClassName) == false && pMissingClasses.add(lClassName)) {
+              lClasses.add(Class.forName(lClassName, true, lClassLoader));
+            }
+            lLine = lReader.readLine();
+          }
+        }
+      }
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(
+          "Unable to read workload configuration '" + lResourcePath + "'. " + e.getMessage(), e);
+    }
+    catch (ClassNotFoundException e) {
+      throw new IllegalStateException(
+          "Workload configuration class listed in '" + lResourcePath + "' not found. " + e.getMessage(), e);
+    }
+
+    // Read configuration of classes that are not covered by a routing index.
+    Map<Class<?>, T> lConfigurations;
+    if (lClasses.isEmpty() == false) {
+      lConfigurations = Tools.getReflectionTools().getAnnotations(lClasses, pAnnotation);
+    }
+    else {
+      lConfigurations = Collections.emptyMap();
+    }
+    return lConfigurations;
+  }
+
   /**
    * Method returns all classes that contain pipeline configuration as annotation.
    * 
@@ -219,49 +666,137 @@ public class WorkloadManagerImpl implements WorkloadManager {
     // Use all configuration classes to create pipelines.
     Map<String, Pipeline> lPipelines = new HashMap<>();
     for (Entry<Class<?>, PipelineConfig> lNextEntry : pPipelineConfigurations.entrySet()) {
-      // Create new pipeline.
+      // Create new pipeline. Extended configuration is optional and defined on the same class.
       PipelineConfig lPipelinConfig = lNextEntry.getValue();
-      Pipeline lPipeline = this.createPipeline(lNextEntry.getKey().getName(), lPipelinConfig);
+      ExtendedPipelineConfig lExtendedConfig = lNextEntry.getKey().getAnnotation(ExtendedPipelineConfig.class);
+      if (lExtendedConfig == null) {
+        lExtendedConfig = DefaultExtendedPipelineConfig.DEFAULTS;
+      }
+      Pipeline lPipeline = this.createPipeline(lNextEntry.getKey().getName(), lPipelinConfig, lExtendedConfig);
       lPipelines.put(lPipeline.getPipelineID(), lPipeline);
+
+      // Current pipeline should also be used as default pipeline.
+      if (lPipelinConfig.defaultPipeline() == true) {
+        this.setAnnotationDefaultPipeline(lPipeline);
+      }
     }
     return lPipelines;
   }
 
-  private Pipeline createPipeline( String pPipelineID, PipelineConfig pPipelineConfig ) {
+  /**
+   * Method sets the passed pipeline as default pipeline.
+   * 
+   * @param pPipeline Pipeline that should be used as default pipeline. The parameter must not be null.
+   * @throws WorkloadSystemException if another default pipeline is already defined.
+   */
+  private void setAnnotationDefaultPipeline( Pipeline pPipeline ) {
+    // We do not yet have a default pipeline.
+    if (annotationDefaultPipeline == null) {
+      annotationDefaultPipeline = pPipeline;
+    }
+    // Configuration error. More than 1 default pipeline is configured.
+    else {
+      throw new WorkloadSystemException(WorkloadMessages.MULTIPLE_DEFAULT_PIPELINES,
+          annotationDefaultPipeline.getPipelineID(), pPipeline.getPipelineID());
+    }
+  }
+
+  private Pipeline createPipeline( String pPipelineID, PipelineConfig pPipelineConfig,
+      ExtendedPipelineConfig pExtendedPipelineConfig ) {
     // Check parameters.
     Assert.assertNotNull(pPipelineID, "pPipelineID");
     Assert.assertNotNull(pPipelineConfig, "pPipelineConfig");
+    Assert.assertNotNull(pExtendedPipelineConfig, "pExtendedPipelineConfig");
 
     // Create new pipeline.
-    Pipeline lPipeline = new Pipeline(pPipelineID, pPipelineConfig);
-
-    // Current pipeline should also be used as default pipeline.
-    if (pPipelineConfig.defaultPipeline() == true) {
-      // We do not yet have a default pipeline.
-      if (defaultPipeline == null) {
-        defaultPipeline = lPipeline;
-      }
-      // Configuration error. More than 1 default pipeline is configured.
-      else {
-        throw new WorkloadSystemException(WorkloadMessages.MULTIPLE_DEFAULT_PIPELINES, defaultPipeline.getPipelineID(),
-            lPipeline.getPipelineID());
-      }
-    }
+    Pipeline lPipeline = new Pipeline(pPipelineID, pPipelineConfig, pExtendedPipelineConfig);
+    pipelines.put(lPipeline.getPipelineID(), lPipeline);
 
     // Try to register pipeline as MBean
+    this.registerMBeans(lPipeline);
+
+    // Return created pipeline.
+    return lPipeline;
+  }
+
+  /**
+   * Method registers the passed pipeline and its statistics as MBeans. Problems during registration are only traced.
+   * 
+   * @param pPipeline Pipeline that should be registered. The parameter must not be null.
+   */
+  private void registerMBeans( Pipeline pPipeline ) {
     try {
-      final String PIPELINE_PREFIX = "com.anaptecs.jeaf.workload:type=Pipelines, name=";
+      XFun.getTrace().info("Registering pipeline '" + pPipeline.getName() + "' as JMX MBean under name '"
+          + pPipeline.getPipelineID() + "'.");
+      MBeanServer lMBeanServer = ManagementFactory.getPlatformMBeanServer();
+      lMBeanServer.registerMBean(pPipeline, new ObjectName(PIPELINE_PREFIX + pPipeline.getPipelineID()));
+      registeredPipelines.add(pPipeline);
+      lMBeanServer.registerMBean(pPipeline.getStatistics(),
+          new ObjectName(STATISTICS_PREFIX + pPipeline.getPipelineID()));
+    }
+    catch (JMException e) {
+      XFun.getTrace().error(e.getMessage(), e);
+    }
+  }
 
-      XFun.getTrace().info("Registering pipeline '" + lPipeline.getName() + "' as JMX MBean under name '"
-          + lPipeline.getPipelineID() + "'.");
+  /**
+   * Method unregisters the MBeans of the passed pipeline if they were registered by this workload manager. Problems
+   * during unregistration are only traced.
+   * 
+   * @param pPipeline Pipeline whose MBeans should be unregistered. The parameter must not be null.
+   */
+  private void unregisterMBeans( Pipeline pPipeline ) {
+    if (registeredPipelines.remove(pPipeline)) {
       MBeanServer lMBeanServer = ManagementFactory.getPlatformMBeanServer();
-      lMBeanServer.registerMBean(lPipeline, new ObjectName(PIPELINE_PREFIX + lPipeline.getPipelineID()));
+      for (String lNextPrefix : new String[] { PIPELINE_PREFIX, STATISTICS_PREFIX }) {
+        try {
+          ObjectName lObjectName = new ObjectName(lNextPrefix + pPipeline.getPipelineID());
+          if (lMBeanServer.isRegistered(lObjectName)) {
+            lMBeanServer.unregisterMBean(lObjectName);
+          }
+        }
+        catch (JMException e) {
+          XFun.getTrace().error(e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Method registers the passed MBean under the passed name. Problems during registration are only traced.
+   * 
+   * @param pMBean MBean that should be registered. The parameter must not be null.
+   * @param pName JMX object name of the MBean. The parameter must not be null.
+   */
+  private void registerMBean( Object pMBean, String pName ) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(pMBean, new ObjectName(pName));
+      registeredMBeanNames.add(pName);
     }
     catch (JMException e) {
       XFun.getTrace().error(e.getMessage(), e);
     }
-    // Return created pipeline.
-    return lPipeline;
+  }
+
+  /**
+   * Method unregisters the MBean with the passed name if it was registered by this workload manager. Problems during
+   * unregistration are only traced.
+   * 
+   * @param pName JMX object name of the MBean. The parameter must not be null.
+   */
+  private void unregisterMBean( String pName ) {
+    if (registeredMBeanNames.remove(pName)) {
+      try {
+        MBeanServer lMBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName lObjectName = new ObjectName(pName);
+        if (lMBeanServer.isRegistered(lObjectName)) {
+          lMBeanServer.unregisterMBean(lObjectName);
+        }
+      }
+      catch (JMException e) {
+        XFun.getTrace().error(e.getMessage(), e);
+      }
+    }
   }
 
   /**
@@ -354,7 +889,7 @@ public class WorkloadManagerImpl implements WorkloadManager {
         // Build up mapping for all endpoints with the defined pipeline.
         List<RequestTypeKey> lRequestTypeKeys = this.createRequestTypeKeys(lWorkloadMapping.endpoints());
         for (RequestTypeKey lKey : lRequestTypeKeys) {
-          workloadMapping.put(lKey, lPipeline);
+          annotationMappings.put(lKey, lPipeline);
         }
       }
       // Workload config references a not existing pipeline.
@@ -413,24 +948,495 @@ public class WorkloadManagerImpl implements WorkloadManager {
 
     // Link to YAML configuration file was provided.
     if (lYAMLFileLocation != null) {
-      List<PipelineConfigImpl> lPipelines = PipelineConfiguration.loadPipelineConfigurations(lYAMLFileLocation);
-      for (PipelineConfigImpl lNextPipelineConfig : lPipelines) {
-        Pipeline lNewPipeline =
-            this.createPipeline(lNextPipelineConfig.getId(), lNextPipelineConfig.getPipelineConfig());
+      yamlFileLocation = lYAMLFileLocation;
+      this.applyYAMLConfiguration(PipelineConfiguration.loadPipelineConfigurations(lYAMLFileLocation));
+    }
+    // No YAML configuration file defined.
+    else {
+      // Nothing to do.
+    }
+  }
+
+  /**
+   * Method reloads the YAML configuration file and applies all changes. The new configuration is validated as a whole
+   * before anything is changed. If the configuration is invalid then an exception is thrown and the current
+   * configuration remains active.
+   *
+   * Pipelines whose thread pool settings, maximum latency, queue depth or request type settings changed are adjusted in
+   * place. Pipelines for which other settings changed are replaced by new pipelines. New pipelines are created and
+   * pipelines that are no longer configured are drained and terminated as soon as they are idle. The new routing is
+   * published at once.
+   *
+   * @throws IllegalStateException if no YAML configuration file is defined through system property
+   * {@link #YAML_CONFIG_PROPERTY_NAME} or if the workload manager is already shut down.
+   */
+  public void reloadYAMLConfiguration( ) {
+    if (yamlFileLocation != null) {
+      this.applyYAMLConfiguration(PipelineConfiguration.loadPipelineConfigurations(yamlFileLocation));
+    }
+    else {
+      throw new IllegalStateException(
+          "No YAML configuration file is defined through system property '" + YAML_CONFIG_PROPERTY_NAME + "'.");
+    }
+  }
 
-        // Process request type keys.
-        List<RequestTypeKey> lRequestTypeKeys = lNextPipelineConfig.getRequestTypeKeys();
+  /**
+   * Method applies the passed pipeline configurations from a YAML file. Pipelines that were loaded from YAML before but
+   * are not part of the passed configurations are removed.
+   *
+   * @param pPipelineConfigs Pipeline configurations that should be applied. The parameter must not be null.
+   */
+  private synchronized void applyYAMLConfiguration( List<PipelineConfigImpl> pPipelineConfigs ) {
+    // Check parameter
+    Assert.assertNotNull(pPipelineConfigs, "pPipelineConfigs");
+    if (shutdown) {
+      throw new IllegalStateException("Workload manager is shut down. YAML configuration can not be applied.");
+    }
+
+    // Nothing is changed before the whole configuration is known to be valid.
+    Map<String, PipelineConfigImpl> lNewConfigs = this.validateYAMLConfiguration(pPipelineConfigs);
+
+    // Size of pipelines from YAML is defined by the file. The thread budget allocator must not resize them anymore.
+    ThreadBudgetAllocator lAllocator = threadBudgetAllocator;
+    if (lAllocator != null) {
+      lAllocator.setExternallyManagedPipelines(lNewConfigs.keySet());
+    }
 
-        // Add workload mapping for all request type keys and the new pipeline.
-        for (RequestTypeKey lNextKey : lRequestTypeKeys) {
-          workloadMapping.put(lNextKey, lNewPipeline);
+    // Adjust existing pipelines in place where possible, otherwise create new ones.
+    Map<String, Pipeline> lNewPipelines = new HashMap<>();
+    List<Pipeline> lRetiredPipelines = new ArrayList<>();
+    for (PipelineConfigImpl lNextConfig : lNewConfigs.values()) {
+      PipelineConfigImpl lOldConfig = yamlConfigs.get(lNextConfig.getId());
+      Pipeline lPipeline;
+      if (lOldConfig != null && this.isResizable(lOldConfig, lNextConfig)) {
+        lPipeline = pipelines.get(lNextConfig.getId());
+        lPipeline.resize(lNextConfig.getCoreThreads(), lNextConfig.getMaxThreads(),
+            lNextConfig.getMaxThreadKeepAlive(), lNextConfig.getTimeUnit());
+        lPipeline.setMaxLatency(lNextConfig.getMaxLatency());
+        if (lNextConfig.getQueueType() != QueueType.NOT_QUEUED) {
+          lPipeline.setMaxQueueDepth(lNextConfig.getMaxQueueDepth());
         }
       }
+      else {
+        // Pipeline with the same ID has to be replaced. Its MBeans are released so that the new one can be registered.
+        if (lOldConfig != null) {
+          Pipeline lOldPipeline = pipelines.get(lNextConfig.getId());
+          this.unregisterMBeans(lOldPipeline);
+          lRetiredPipelines.add(lOldPipeline);
+        }
+        lPipeline = this.createPipeline(lNextConfig.getId(), lNextConfig.getPipelineConfig(),
+            lNextConfig.getExtendedPipelineConfig());
+      }
+      lPipeline.replaceRequestTypeSettings(lNextConfig.getRequestTypeSettings());
+      lNewPipelines.put(lNextConfig.getId(), lPipeline);
+    }
+
+    // Pipelines that are no longer configured.
+    for (String lNextID : yamlConfigs.keySet()) {
+      if (lNewConfigs.containsKey(lNextID) == false) {
+        Pipeline lOldPipeline = pipelines.remove(lNextID);
+        this.unregisterMBeans(lOldPipeline);
+        lRetiredPipelines.add(lOldPipeline);
+      }
+    }
+
+    // Build new routing table. Mappings from YAML take precedence over the ones from annotations.
+    Map<RequestTypeKey, Pipeline> lMappings = new HashMap<>(annotationMappings);
+    Pipeline lDefaultPipeline = annotationDefaultPipeline;
+    for (PipelineConfigImpl lNextConfig : lNewConfigs.values()) {
+      Pipeline lPipeline = lNewPipelines.get(lNextConfig.getId());
+      for (RequestTypeKey lNextKey : lNextConfig.getRequestTypeKeys()) {
+        lMappings.put(lNextKey, lPipeline);
+      }
+      if (lNextConfig.isDefaultPipeline() == true) {
+        lDefaultPipeline = lPipeline;
+      }
+    }
+
+    // Publish new configuration.
+    routingTable = new RoutingTable(lMappings, lDefaultPipeline);
+    yamlConfigs = lNewConfigs;
+    capacityAdvisor.setYAMLPipelines(lNewConfigs.keySet());
+
+    // Requests that already resolved a retired pipeline are still executed.
+    for (Pipeline lNextPipeline : lRetiredPipelines) {
+      this.retirePipeline(lNextPipeline);
+    }
+  }
+
+  /**
+   * Method validates the passed pipeline configurations from a YAML file as a whole.
+   *
+   * @param pPipelineConfigs Pipeline configurations that should be validated. The parameter must not be null.
+   * @return {@link Map} Map with all passed configurations with their pipeline ID as key. The method never returns
+   * null.
+   * @throws IllegalArgumentException if one of the configurations is invalid.
+   * @throws WorkloadSystemException if more than one default pipeline is configured or if no pipeline would be left.
+   */
+  private Map<String, PipelineConfigImpl> validateYAMLConfiguration( List<PipelineConfigImpl> pPipelineConfigs ) {
+    Map<String, PipelineConfigImpl> lConfigs = new HashMap<>();
+    String lDefaultPipelineID;
+    if (annotationDefaultPipeline != null) {
+      lDefaultPipelineID = annotationDefaultPipeline.getPipelineID();
     }
-    // No YAML configuration file defined.
     else {
-      // Nothing to do.
+      lDefaultPipelineID = null;
+    }
+    boolean lRoutingAvailable = annotationMappings.isEmpty() == false || lDefaultPipelineID != null;
+    for (PipelineConfigImpl lNextConfig : pPipelineConfigs) {
+      // Pipeline IDs must be unique, also in comparison to pipelines from annotations.
+      String lID = lNextConfig.getId();
+      if (lID == null || lID.isEmpty()) {
+        throw new IllegalArgumentException("Pipeline configured through YAML does not define an ID.");
+      }
+      if (lConfigs.put(lID, lNextConfig) != null) {
+        throw new IllegalArgumentException("Pipeline ID '" + lID + "' is used more than once.");
+      }
+      if (yamlConfigs.containsKey(lID) == false && pipelines.containsKey(lID)) {
+        throw new IllegalArgumentException("Pipeline ID '" + lID + "' is already used by another pipeline.");
+      }
+
+      // Check thread pool and queue settings.
+      int lMaxThreads = Math.max(lNextConfig.getCoreThreads(), lNextConfig.getMaxThreads());
+      if (lNextConfig.getCoreThreads() < 0 || lMaxThreads <= 0) {
+        throw new IllegalArgumentException("Pipeline '" + lID + "' must have at least 1 thread.");
+      }
+      if (lNextConfig.getMaxThreadKeepAlive() < 0 || lNextConfig.getTimeUnit() == null) {
+        throw new IllegalArgumentException("Pipeline '" + lID + "' defines an invalid thread keep alive.");
+      }
+      QueueType lQueueType = lNextConfig.getQueueType();
+      if (lQueueType == QueueType.FAIR_WEIGHTED) {
+        throw new IllegalArgumentException("Queue type " + lQueueType + " of pipeline '" + lID + "' is not supported.");
+      }
+      if (lQueueType != QueueType.NOT_QUEUED && lNextConfig.getMaxQueueDepth() <= 0) {
+        throw new IllegalArgumentException("Pipeline '" + lID + "' must have a positive max queue depth.");
+      }
+
+      // At most 1 default pipeline.
+      if (lNextConfig.isDefaultPipeline() == true) {
+        if (lDefaultPipelineID == null) {
+          lDefaultPipelineID = lID;
+        }
+        else {
+          throw new WorkloadSystemException(WorkloadMessages.MULTIPLE_DEFAULT_PIPELINES, lDefaultPipelineID, lID);
+        }
+      }
+      lRoutingAvailable = lRoutingAvailable || lNextConfig.isDefaultPipeline() == true
+          || lNextConfig.getRequestTypeKeys().isEmpty() == false;
+    }
+
+    // Configuration must not remove all routing.
+    if (lRoutingAvailable == false) {
+      throw new WorkloadSystemException(WorkloadMessages.NO_PIPELINES_CONFIGURED);
+    }
+    return lConfigs;
+  }
+
+  /**
+   * Method checks if a pipeline can be adjusted in place when its configuration changes. This is the case if only the
+   * thread pool settings, the maximum latency, the queue depth of FIFO queues, the default flag, the request type keys,
+   * the request type specific settings or the warm-up settings changed. Warm-up settings only apply to new pipelines.
+   *
+   * @param pOldConfig Current configuration of the pipeline. The parameter must not be null.
+   * @param pNewConfig New configuration of the pipeline. The parameter must not be null.
+   * @return boolean Method returns true if the pipeline can be adjusted in place and false if it has to be replaced.
+   */
+  private boolean isResizable( PipelineConfigImpl pOldConfig, PipelineConfigImpl pNewConfig ) {
+    return Objects.equals(pOldConfig.getName(), pNewConfig.getName())
+        && Objects.equals(pOldConfig.getDescription(), pNewConfig.getDescription())
+        && pOldConfig.getThreadPriority() == pNewConfig.getThreadPriority()
+        && pOldConfig.getQueueType() == pNewConfig.getQueueType()
+        && (pNewConfig.getQueueType() != QueueType.NOT_QUEUED
+            || pOldConfig.getMaxQueueDepth() == pNewConfig.getMaxQueueDepth())
+        && pOldConfig.getTimeUnit() == pNewConfig.getTimeUnit()
+        && pOldConfig.getMaxExecutionTime() == pNewConfig.getMaxExecutionTime()
+        && pOldConfig.getMaxBatchSize() == pNewConfig.getMaxBatchSize()
+        && pOldConfig.getMaxBatchLinger() == pNewConfig.getMaxBatchLinger()
+        && pOldConfig.getResourceSamplingInterval() == pNewConfig.getResourceSamplingInterval()
+        && pOldConfig.getSlowRequestThreshold() == pNewConfig.getSlowRequestThreshold()
+        && pOldConfig.getSlowRequestReportInterval() == pNewConfig.getSlowRequestReportInterval()
+        && pOldConfig.getTimeSeriesSize() == pNewConfig.getTimeSeriesSize()
+        && pOldConfig.isDaemonThreads() == pNewConfig.isDaemonThreads()
+        && pOldConfig.getThreadStackSize() == pNewConfig.getThreadStackSize()
+        && Objects.equals(pOldConfig.getUncaughtExceptionHandler(), pNewConfig.getUncaughtExceptionHandler());
+  }
+
+  /**
+   * Method drains the passed pipeline and terminates it as soon as it is idle. The pipeline is only checked after a
+   * grace period so that callers that resolved the pipeline before the routing table was replaced can still hand over
+   * their requests. Afterwards the pipeline stops accepting requests and is resumed if it is paused. If it is not idle
+   * within {@link #RETIREMENT_TIMEOUT} then its queued requests are rejected and running ones are interrupted. Retired
+   * pipelines that are not yet terminated are also drained by {@link #shutdown(long, TimeUnit)}.
+   *
+   * @param pPipeline Pipeline that should be drained. The parameter must not be null.
+   */
+  private void retirePipeline( final Pipeline pPipeline ) {
+    XFun.getTrace().info("Draining pipeline '" + pPipeline.getPipelineID() + "' as it is no longer configured.");
+    retiredPipelines.add(pPipeline);
+    final long lDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_GRACE_PERIOD + RETIREMENT_TIMEOUT);
+    TimingWheel.getSharedTimingWheel().schedule(new Runnable() {
+      @Override
+      public void run( ) {
+        // Pipeline is drained by shutdown of the workload manager.
+        if (retiredPipelines.contains(pPipeline) == false) {
+          return;
+        }
+        pPipeline.initiateShutdown();
+        if (pPipeline.isIdle()) {
+          if (retiredPipelines.remove(pPipeline)) {
+            pPipeline.terminate();
+            XFun.getTrace().info("Pipeline '" + pPipeline.getPipelineID() + "' was drained and terminated.");
+          }
+        }
+        else if (System.nanoTime() - lDeadline >= 0) {
+          // Rejecting requests calls their error handlers, which must not happen on the thread of the timing wheel.
+          if (retiredPipelines.remove(pPipeline)) {
+            TimingWheel.getSharedTimingWheel().executeCallback(new Runnable() {
+              @Override
+              public void run( ) {
+                pPipeline.awaitShutdown(System.nanoTime());
+                XFun.getTrace().warn("Pipeline '" + pPipeline.getPipelineID() + "' was not drained within "
+                    + RETIREMENT_TIMEOUT + "ms and was terminated.");
+              }
+            });
+          }
+        }
+        else {
+          TimingWheel.getSharedTimingWheel().schedule(this, DRAIN_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+      }
+    }, DRAIN_GRACE_PERIOD, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Method starts to watch the YAML configuration file for changes in the interval that is defined through system
+   * property {@link #YAML_WATCH_INTERVAL_PROPERTY_NAME}. Changes are detected based on the modification time and the
+   * size of the file. Invalid changes are only traced and the current configuration remains active. The timing wheel
+   * only hands over the check to a dedicated thread so that it is never blocked by a reload.
+   */
+  private synchronized void startWatchingYAML( ) {
+    Configuration lSystemProperties = XFun.getConfigurationProvider().getSystemPropertiesConfiguration();
+    Long lInterval = lSystemProperties.getConfigurationValue(YAML_WATCH_INTERVAL_PROPERTY_NAME, Long.class);
+    if (lInterval == null) {
+      lInterval = DEFAULT_YAML_WATCH_INTERVAL;
+    }
+
+    // Only files on the file system can be watched.
+    Path lPath = this.resolveYAMLPath();
+    if (lPath != null && lInterval > 0 && yamlWatchTimeout == null) {
+      final Path lYAMLPath = lPath;
+      final long lWatchInterval = lInterval;
+      final String lInitialState = this.getFileState(lYAMLPath);
+
+      // At most one check is waiting while another one is running. Further hand-overs are simply discarded.
+      yamlReloadExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(1),
+          new ThreadFactory() {
+            @Override
+            public Thread newThread( Runnable pRunnable ) {
+              Thread lThread = new Thread(pRunnable, "JEAF-Workload-YAMLReloader");
+              lThread.setDaemon(true);
+              return lThread;
+            }
+          }, new ThreadPoolExecutor.DiscardPolicy());
+
+      Runnable lCheck = new Runnable() {
+        private String fileState = lInitialState;
+
+        @Override
+        public void run( ) {
+          try {
+            String lCurrentState = WorkloadManagerImpl.this.getFileState(lYAMLPath);
+            if (shutdown == false && lCurrentState != null && lCurrentState.equals(fileState) == false) {
+              fileState = lCurrentState;
+              XFun.getTrace().info("YAML configuration file '" + yamlFileLocation + "' changed. Reloading it.");
+              WorkloadManagerImpl.this.reloadYAMLConfiguration();
+            }
+          }
+          catch (RuntimeException e) {
+            XFun.getTrace().error("Unable to reload YAML configuration file '" + yamlFileLocation
+                + "'. Current configuration remains active. " + e.getMessage(), e);
+          }
+          finally {
+            WorkloadManagerImpl.this.scheduleYAMLCheck(this, lWatchInterval);
+          }
+        }
+      };
+      this.scheduleYAMLCheck(lCheck, lWatchInterval);
+    }
+  }
+
+  /**
+   * Method schedules the next check of the YAML configuration file unless the workload manager is shut down. When the
+   * check is due the timing wheel hands it over to {@link #yamlReloadExecutor} without blocking.
+   *
+   * @param pCheck Check of the YAML configuration file. The parameter must not be null.
+   * @param pInterval Interval in milliseconds after which the check is due.
+   */
+  private synchronized void scheduleYAMLCheck( final Runnable pCheck, long pInterval ) {
+    if (shutdown == false) {
+      final ThreadPoolExecutor lExecutor = yamlReloadExecutor;
+      yamlWatchTimeout = TimingWheel.getSharedTimingWheel().schedule(new Runnable() {
+        @Override
+        public void run( ) {
+          lExecutor.execute(pCheck);
+        }
+      }, pInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Method resolves the YAML configuration file on the file system.
+   *
+   * @return {@link Path} Path of the YAML configuration file or null if no file is defined or if it is not located on
+   * the file system.
+   */
+  private Path resolveYAMLPath( ) {
+    Path lPath;
+    if (yamlFileLocation != null) {
+      try {
+        lPath = Paths.get(yamlFileLocation);
+        if (Files.isRegularFile(lPath) == false) {
+          lPath = null;
+        }
+      }
+      catch (RuntimeException e) {
+        lPath = null;
+      }
+    }
+    else {
+      lPath = null;
+    }
+    return lPath;
+  }
+
+  /**
+   * Method returns the current state of the passed file, which consists of its modification time and its size.
+   *
+   * @param pPath File whose state should be returned. The parameter must not be null.
+   * @return {@link String} State of the file or null if it can currently not be read.
+   */
+  private String getFileState( Path pPath ) {
+    String lState;
+    try {
+      lState = Files.getLastModifiedTime(pPath).toMillis() + "/" + Files.size(pPath);
+    }
+    catch (IOException e) {
+      lState = null;
+    }
+    return lState;
+  }
+
+  /**
+   * Method shuts down the workload manager. All pipelines immediately stop accepting new requests, which are rejected
+   * through their error handler from now on. Requests that are already queued are still executed until the passed
+   * timeout is reached. Requests that are still queued afterwards are rejected through their error handler as well and
+   * running requests are interrupted. Finally all thread pools are terminated, the MBeans of the pipelines are
+   * unregistered and the YAML file watcher, the thread budget allocator as well as the Prometheus exporter are
+   * stopped. The capacity advisor is unregistered as well. Pipelines that were retired through a YAML reload and that
+   * are not yet terminated are drained together with all other pipelines.
+   * 
+   * Calling the method on a workload manager that is already shut down has no effect.
+   * 
+   * @param pTimeout Maximum time to wait until all pipelines are drained.
+   * @param pTimeUnit Time unit of the timeout. The parameter must not be null.
+   * @return boolean Method returns true if all pipelines were drained completely and false if requests were rejected.
+   */
+  public synchronized boolean shutdown( long pTimeout, TimeUnit pTimeUnit ) {
+    // Check parameter
+    Assert.assertNotNull(pTimeUnit, "pTimeUnit");
+
+    boolean lDrained = true;
+    if (shutdown == false) {
+      shutdown = true;
+      long lDeadline = System.nanoTime() + pTimeUnit.toNanos(Math.max(0, pTimeout));
+      XFun.getTrace().info("Shutting down workload manager.");
+
+      // Configuration must not change any longer.
+      if (yamlWatchTimeout != null) {
+        yamlWatchTimeout.cancel();
+        yamlWatchTimeout = null;
+      }
+      if (yamlReloadExecutor != null) {
+        yamlReloadExecutor.shutdown();
+        yamlReloadExecutor = null;
+      }
+      if (threadBudgetAllocator != null) {
+        threadBudgetAllocator.stop();
+      }
+      this.unregisterMBean(THREAD_BUDGET_ALLOCATOR_NAME);
+      this.unregisterMBean(CAPACITY_ADVISOR_NAME);
+
+      // All pipelines stop accepting new requests before any pipeline is drained so that they are drained in parallel.
+      // This also includes retired pipelines that are not yet terminated.
+      List<Pipeline> lPipelines = new ArrayList<>(pipelines.values());
+      for (Pipeline lNextPipeline : new ArrayList<>(retiredPipelines)) {
+        if (retiredPipelines.remove(lNextPipeline)) {
+          lPipelines.add(lNextPipeline);
+        }
+      }
+      for (Pipeline lNextPipeline : lPipelines) {
+        lNextPipeline.initiateShutdown();
+      }
+      for (Pipeline lNextPipeline : lPipelines) {
+        lDrained = lNextPipeline.awaitShutdown(lDeadline) && lDrained;
+        this.unregisterMBeans(lNextPipeline);
+      }
+
+      // Stop Prometheus exporter.
+      if (prometheusExporter != null) {
+        prometheusExporter.stop();
+      }
+      XFun.getTrace().info("Workload manager was shut down. All pipelines drained: " + lDrained);
+    }
+    return lDrained;
+  }
+
+  /**
+   * Method checks if the workload manager was shut down.
+   * 
+   * @return boolean Method returns true if the workload manager was shut down and false otherwise.
+   */
+  public boolean isShutdown( ) {
+    return shutdown;
+  }
+
+  /**
+   * Method pauses the pipeline with the passed ID. Requests are still queued by the pipeline but not executed until it
+   * is resumed.
+   * 
+   * @param pPipelineID ID of the pipeline that should be paused. The parameter must not be null.
+   * @see Pipeline#pause()
+   */
+  public void pausePipeline( String pPipelineID ) {
+    this.getPipeline(pPipelineID).pause();
+  }
+
+  /**
+   * Method resumes the pipeline with the passed ID after it was paused.
+   * 
+   * @param pPipelineID ID of the pipeline that should be resumed. The parameter must not be null.
+   * @see Pipeline#resume()
+   */
+  public void resumePipeline( String pPipelineID ) {
+    this.getPipeline(pPipelineID).resume();
+  }
+
+  /**
+   * Method returns the pipeline with the passed ID.
+   * 
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @return {@link Pipeline} Pipeline with the passed ID. The method never returns null.
+   * @throws IllegalArgumentException if there is no pipeline with the passed ID.
+   */
+  private Pipeline getPipeline( String pPipelineID ) {
+    // Check parameter
+    Assert.assertNotNull(pPipelineID, "pPipelineID");
+
+    Pipeline lPipeline = pipelines.get(pPipelineID);
+    if (lPipeline == null) {
+      throw new IllegalArgumentException("Pipeline '" + pPipelineID + "' does not exist.");
     }
+    return lPipeline;
   }
 
   /**
@@ -447,6 +1453,124 @@ public class WorkloadManagerImpl implements WorkloadManager {
     lPipeline.execute(pRequestMetaInfo.getRequestKey(), pErrorHandler, pCommand);
   }
 
+  /**
+   * Method tries to reserve capacity for one request of the passed type at the pipeline that is responsible for it.
+   * Callers should acquire a permit before they do expensive work on a request so that requests can be rejected cheaply
+   * if the pipeline is overloaded. The method never calls an error handler.
+   * 
+   * @param pRequestType Request type of the request. The parameter must not be null.
+   * @return {@link AdmissionPermit} Permit that has to be used to hand over the request through
+   * {@link #execute(AdmissionPermit, WorkloadErrorHandler, Runnable)} or null if the pipeline is overloaded or shut
+   * down.
+   * @see Pipeline#tryAcquire(RequestTypeKey)
+   */
+  public AdmissionPermit tryAcquire( RequestType pRequestType ) {
+    // Resolve pipeline that should be used to execute the request.
+    Pipeline lPipeline = this.resolvePipeline(pRequestType.getRequestKey());
+
+    // Delegate reservation to pipeline.
+    return lPipeline.tryAcquire(pRequestType.getRequestKey());
+  }
+
+  /**
+   * Method is used to hand over a request for which an admission permit was acquired before. The request is executed by
+   * the pipeline that issued the permit. If the permit is not valid any longer then the request is rejected through the
+   * passed error handler.
+   * 
+   * @param pPermit Permit that was acquired for the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of the request.
+   * The parameter must not be null.
+   * @param pCommand Runnable object representing the request that should be executed. The parameter must not be null.
+   * @see Pipeline#execute(AdmissionPermit, WorkloadErrorHandler, Runnable)
+   */
+  public void execute( AdmissionPermit pPermit, WorkloadErrorHandler pErrorHandler, Runnable pCommand ) {
+    // Check parameter
+    Assert.assertNotNull(pPermit, "pPermit");
+
+    // Permit is bound to its pipeline even if the routing was changed in the meantime.
+    pPermit.getPipeline().execute(pPermit, pErrorHandler, pCommand);
+  }
+
+  /**
+   * Method is used to hand over a request to the workload manager whose execution can be shared with identical requests
+   * that are already queued or running (single flight).
+   * 
+   * @param pRequestType Request type of the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of the request.
+   * The parameter must not be null.
+   * @param pCoalescingKey Key that identifies identical requests of the same request type. The parameter must not be
+   * null.
+   * @param pCommand Callable representing the request that should be executed. The parameter must not be null.
+   * @return {@link CompletableFuture} Future that will be completed with the shared result of the execution. The method
+   * never returns null.
+   * @see Pipeline#executeCoalesced(RequestTypeKey, WorkloadErrorHandler, Object, Callable)
+   */
+  public <T> CompletableFuture<T> executeCoalesced( RequestType pRequestType, WorkloadErrorHandler pErrorHandler,
+      Object pCoalescingKey, Callable<T> pCommand ) {
+    // Resolve pipeline that should be used to execute the request.
+    Pipeline lPipeline = this.resolvePipeline(pRequestType.getRequestKey());
+
+    // Delegate request to pipeline.
+    return lPipeline.executeCoalesced(pRequestType.getRequestKey(), pErrorHandler, pCoalescingKey, pCommand);
+  }
+
+  /**
+   * Method can be used to hand over a request that must be executed in order with all other requests that share the
+   * same ordering key.
+   * 
+   * @param pRequestType Request type of the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of the request.
+   * The parameter must not be null.
+   * @param pOrderingKey Key that identifies requests that have to be executed in order. The parameter must not be null.
+   * @param pCommand Runnable object representing the request that should be executed. The parameter must not be null.
+   * @see Pipeline#executeOrdered(RequestTypeKey, WorkloadErrorHandler, Object, Runnable)
+   */
+  public void executeOrdered( RequestType pRequestType, WorkloadErrorHandler pErrorHandler, Object pOrderingKey,
+      Runnable pCommand ) {
+    // Resolve pipeline that should be used to execute the request.
+    Pipeline lPipeline = this.resolvePipeline(pRequestType.getRequestKey());
+
+    // Delegate request to pipeline.
+    lPipeline.executeOrdered(pRequestType.getRequestKey(), pErrorHandler, pOrderingKey, pCommand);
+  }
+
+  /**
+   * Method registers the handler that executes all requests of the passed request type in batches. The handler is
+   * registered at the pipeline that is responsible for the request type.
+   * 
+   * @param pRequestType Request type whose requests should be executed in batches. The parameter must not be null.
+   * @param pBatchHandler Handler that executes the batches. The parameter must not be null.
+   * @see Pipeline#registerBatchHandler(RequestTypeKey, BatchHandler)
+   */
+  public <T> void registerBatchHandler( RequestType pRequestType, BatchHandler<T> pBatchHandler ) {
+    // Resolve pipeline that should be used to execute the request.
+    Pipeline lPipeline = this.resolvePipeline(pRequestType.getRequestKey());
+
+    // Delegate registration to pipeline.
+    lPipeline.registerBatchHandler(pRequestType.getRequestKey(), pBatchHandler);
+  }
+
+  /**
+   * Method can be used to hand over a request that should be executed together with other requests of the same request
+   * type as one batch.
+   * 
+   * @param pRequestType Request type of the request. The parameter must not be null.
+   * @param pErrorHandler Error handler that should be used to indicate problems during the execution of the request.
+   * The parameter must not be null.
+   * @param pRequest Request that should be executed as part of a batch. The parameter must not be null.
+   * @return {@link CompletableFuture} Future that will be completed as soon as the request was processed. The method
+   * never returns null.
+   * @see Pipeline#executeBatched(RequestTypeKey, WorkloadErrorHandler, Object)
+   */
+  public <T> CompletableFuture<Void> executeBatched( RequestType pRequestType, WorkloadErrorHandler pErrorHandler,
+      T pRequest ) {
+    // Resolve pipeline that should be used to execute the request.
+    Pipeline lPipeline = this.resolvePipeline(pRequestType.getRequestKey());
+
+    // Delegate request to pipeline.
+    return lPipeline.executeBatched(pRequestType.getRequestKey(), pErrorHandler, pRequest);
+  }
+
   /**
    * Method resolves the associated pipeline for the passed request type key.
    * 
@@ -457,51 +1581,15 @@ public class WorkloadManagerImpl implements WorkloadManager {
    * @throws JEAFSystemException In case that no pipeline could be found to execute for the request type.
    */
   private Pipeline resolvePipeline( RequestTypeKey pRequestTypeKey ) {
-    // Try to find executor for the passed key.
-    Pipeline lPipeline = workloadMapping.get(pRequestTypeKey);
-
-    // Pipeline found ;-)
-    if (lPipeline != null) {
-      // Nothing to do.
-    }
-    // No pipeline found for key. Try to work with reduced key.
-    else {
-      // Reduce key and try again.
-      RequestTypeKey lReducedKey = pRequestTypeKey.reduceKey();
-
-      // Try to find pipeline for reduced key.
-      if (lReducedKey != null) {
-        // Do recursive call of this method to resolve pipeline for reduced key.
-        lPipeline = this.resolvePipeline(lReducedKey);
-      }
-      // Key can not be reduced any longer.
-      else {
-        // Nothing to do here. General behavior below is also sufficient for this case.
-      }
-
-      // We finally found the pipeline to be used or at least we have a default pipeline.
-      if (lPipeline != null || defaultPipeline != null) {
-        // Use default pipeline to execute request.
-        if (lPipeline == null) {
-          lPipeline = defaultPipeline;
-        }
-        // In order to speedup pipeline lookup for the next time we will add the mapping between the request key and
-        // the pipeline.
-        workloadMapping.put(pRequestTypeKey, lPipeline);
-      }
-      // We neither where able to find a pipeline nor do we have a default pipeline, so we have to give up :-(
-      else {
-        throw new WorkloadSystemException(WorkloadMessages.NO_PIPELINE_FOUND, pRequestTypeKey.getKey());
-      }
-    }
-    // Return pipeline that should be used to execute the request.
-    return lPipeline;
+    // Routing table is only read once so that the request is routed based on one consistent configuration.
+    return routingTable.resolvePipeline(pRequestTypeKey);
   }
 
   public PipelineInfo getDefaultPipeline( ) {
+    Pipeline lDefaultPipeline = routingTable.getDefaultPipeline();
     PipelineInfo lThreadPoolInfo;
-    if (defaultPipeline != null) {
-      lThreadPoolInfo = defaultPipeline.getPipelineInfo();
+    if (lDefaultPipeline != null) {
+      lThreadPoolInfo = lDefaultPipeline.getPipelineInfo();
     }
     else {
       lThreadPoolInfo = null;
@@ -510,18 +1598,8 @@ public class WorkloadManagerImpl implements WorkloadManager {
   }
 
   public List<PipelineInfo> getPipelines( ) {
-    Set<Pipeline> lPipelines = new HashSet<>();
-    // Add default pipeline.
-    if (defaultPipeline != null) {
-      lPipelines.add(defaultPipeline);
-    }
-
-    // Add pipelines from workload mapping.
-    for (Entry<RequestTypeKey, Pipeline> lNextEntry : workloadMapping.entrySet()) {
-      lPipelines.add(lNextEntry.getValue());
-    }
-
     // Return only pipeline info and not the pipeline itself.
+    Set<Pipeline> lPipelines = routingTable.getPipelines();
     List<PipelineInfo> lPipelineInfos = new ArrayList<>(lPipelines.size());
     for (Pipeline lNextPipeline : lPipelines) {
       lPipelineInfos.add(lNextPipeline.getPipelineInfo());
@@ -531,7 +1609,7 @@ public class WorkloadManagerImpl implements WorkloadManager {
 
   public Map<RequestTypeKey, PipelineInfo> getWorkloadMappings( ) {
     Map<RequestTypeKey, PipelineInfo> lWorkloadMappings = new HashMap<>();
-    for (Entry<RequestTypeKey, Pipeline> lEntry : workloadMapping.entrySet()) {
+    for (Entry<RequestTypeKey, Pipeline> lEntry : routingTable.getMappings().entrySet()) {
       lWorkloadMappings.put(lEntry.getKey(), lEntry.getValue().getPipelineInfo());
     }
     return lWorkloadMappings;
@@ -539,8 +1617,8 @@ public class WorkloadManagerImpl implements WorkloadManager {
 
   @Override
   public boolean isPipelineOverloaded( RequestType pRequestType ) {
-    // TODO Implement real overload detection based on the request and the associated pipeline.
-    return false;
+    // Pipeline is overloaded if it has neither free threads nor free queue capacity that is not reserved by permits.
+    return this.resolvePipeline(pRequestType.getRequestKey()).isOverloaded();
   }
 
 }
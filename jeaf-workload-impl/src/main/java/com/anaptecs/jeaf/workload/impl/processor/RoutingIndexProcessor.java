@@ -0,0 +1,474 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import com.anaptecs.jeaf.workload.annotations.ElasticWorkloadConfig;
+import com.anaptecs.jeaf.workload.annotations.EndpointsGroup;
+import com.anaptecs.jeaf.workload.annotations.HTTPMethod;
+import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
+import com.anaptecs.jeaf.workload.annotations.Resource;
+import com.anaptecs.jeaf.workload.annotations.StaticWorkloadConfig;
+import com.anaptecs.jeaf.workload.annotations.WorkloadMapping;
+import com.anaptecs.jeaf.workload.impl.ExtendedPipelineConfig;
+import com.anaptecs.jeaf.workload.impl.RoutingIndex;
+
+/**
+ * Annotation processor generates a {@link RoutingIndex} for all pipelines and workload mappings that are configured
+ * through annotations {@link PipelineConfig}, {@link ExtendedPipelineConfig}, {@link StaticWorkloadConfig} and
+ * {@link ElasticWorkloadConfig}. The generated class only consists of literal values and is registered in
+ * <code>META-INF/services</code>. This way the workload manager can be initialized without scanning configuration
+ * classes and reading their annotations through reflection.
+ *
+ * The processor is not registered automatically. It has to be added explicitly to the annotation processors of the
+ * compiler. The following options are supported:
+ * <ul>
+ * <li>{@value #CLASS_NAME_OPTION}: Fully qualified name of the generated class. By default class
+ * {@value #DEFAULT_SIMPLE_CLASS_NAME} is generated in the package of the first configuration class.</li>
+ * <li>{@value #EXCLUDES_OPTION}: Comma separated list of configuration classes that should not be part of the routing
+ * index. Entries ending with <code>.*</code> exclude a whole package including its sub packages.</li>
+ * </ul>
+ *
+ * @author JEAF Development Team
+ */
+@SupportedAnnotationTypes({ "com.anaptecs.jeaf.workload.annotations.PipelineConfig",
+  "com.anaptecs.jeaf.workload.annotations.StaticWorkloadConfig",
+  "com.anaptecs.jeaf.workload.annotations.ElasticWorkloadConfig" })
+@SupportedOptions({ RoutingIndexProcessor.CLASS_NAME_OPTION, RoutingIndexProcessor.EXCLUDES_OPTION })
+public class RoutingIndexProcessor extends AbstractProcessor {
+  /**
+   * Name of the option that defines the fully qualified name of the generated class.
+   */
+  public static final String CLASS_NAME_OPTION = "jeaf.workload.routingIndex";
+
+  /**
+   * Name of the option that defines the configuration classes that should be excluded.
+   */
+  public static final String EXCLUDES_OPTION = "jeaf.workload.routingIndex.excludes";
+
+  /**
+   * Simple name of the generated class if no class name is defined through option {@link #CLASS_NAME_OPTION}.
+   */
+  public static final String DEFAULT_SIMPLE_CLASS_NAME = "WorkloadRoutingIndex";
+
+  /**
+   * Attribute indicates whether the routing index was already generated.
+   */
+  private boolean generated = false;
+
+  @Override
+  public SourceVersion getSupportedSourceVersion( ) {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process( Set<? extends TypeElement> pAnnotations, RoundEnvironment pRoundEnvironment ) {
+    // Collect all configuration classes sorted by their name so that the generated code is stable.
+    Map<String, TypeElement> lPipelines = this.collect(pRoundEnvironment, PipelineConfig.class);
+    Map<String, TypeElement> lStaticWorkloads = this.collect(pRoundEnvironment, StaticWorkloadConfig.class);
+    Map<String, TypeElement> lElasticWorkloads = this.collect(pRoundEnvironment, ElasticWorkloadConfig.class);
+
+    // Routing index is generated in the first round that contains configuration classes.
+    if (lPipelines.isEmpty() == false || lStaticWorkloads.isEmpty() == false || lElasticWorkloads.isEmpty() == false) {
+      if (generated == false) {
+        generated = true;
+        try {
+          this.generate(lPipelines, lStaticWorkloads, lElasticWorkloads);
+        }
+        catch (IOException e) {
+          processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+              "Unable to generate workload routing index. " + e.getMessage());
+        }
+      }
+      else {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            "Workload configuration classes that are generated by other annotation processors can not be added to the "
+                + "routing index.");
+      }
+    }
+    // Annotations are not claimed as other processors may also be interested in them.
+    return false;
+  }
+
+  /**
+   * Method collects all classes of the current round that are annotated with the passed annotation and that are not
+   * excluded.
+   *
+   * @param pRoundEnvironment Current round. The parameter must not be null.
+   * @param pAnnotation Annotation that should be looked up. The parameter must not be null.
+   * @return {@link Map} Map with the binary names of the classes as key. The method never returns null.
+   */
+  private Map<String, TypeElement> collect( RoundEnvironment pRoundEnvironment,
+      Class<? extends Annotation> pAnnotation ) {
+    Map<String, TypeElement> lTypes = new TreeMap<>();
+    for (Element lNextElement : pRoundEnvironment.getElementsAnnotatedWith(pAnnotation)) {
+      if (lNextElement instanceof TypeElement) {
+        TypeElement lType = (TypeElement) lNextElement;
+        String lName = processingEnv.getElementUtils().getBinaryName(lType).toString();
+        if (this.isExcluded(lName) == false) {
+          lTypes.put(lName, lType);
+        }
+      }
+    }
+    return lTypes;
+  }
+
+  /**
+   * Method checks if the passed class is excluded through option {@link #EXCLUDES_OPTION}.
+   *
+   * @param pClassName Binary name of the class. The parameter must not be null.
+   * @return boolean Method returns true if the class is excluded and false otherwise.
+   */
+  private boolean isExcluded( String pClassName ) {
+    String lExcludes = processingEnv.getOptions().get(EXCLUDES_OPTION);
+    boolean lExcluded = false;
+    if (lExcludes != null) {
+      for (String lNextExclude : lExcludes.split(",")) {
+        String lExclude = lNextExclude.trim();
+        if (lExclude.endsWith(".*")) {
+          lExcluded = pClassName.startsWith(lExclude.substring(0, lExclude.length() - 1));
+        }
+        else {
+          lExcluded = lExclude.equals(pClassName);
+        }
+        if (lExcluded) {
+          break;
+        }
+      }
+    }
+    return lExcluded;
+  }
+
+  /**
+   * Method generates the routing index class and registers it as service.
+   *
+   * @param pPipelines All pipeline configuration classes. The parameter must not be null.
+   * @param pStaticWorkloads All static workload configuration classes. The parameter must not be null.
+   * @param pElasticWorkloads All elastic workload configuration classes. The parameter must not be null.
+   * @throws IOException if the generated files can not be written.
+   */
+  private void generate( Map<String, TypeElement> pPipelines, Map<String, TypeElement> pStaticWorkloads,
+      Map<String, TypeElement> pElasticWorkloads ) throws IOException {
+
+    // Originating elements are used by build tools for incremental compilation.
+    List<TypeElement> lOriginatingElements = new ArrayList<>(pPipelines.values());
+    lOriginatingElements.addAll(pStaticWorkloads.values());
+    lOriginatingElements.addAll(pElasticWorkloads.values());
+    Element[] lElements = lOriginatingElements.toArray(new Element[lOriginatingElements.size()]);
+
+    // Resolve name of generated class.
+    String lClassName = processingEnv.getOptions().get(CLASS_NAME_OPTION);
+    if (lClassName == null || lClassName.trim().isEmpty()) {
+      String lPackageName =
+          processingEnv.getElementUtils().getPackageOf(lOriginatingElements.get(0)).getQualifiedName().toString();
+      if (lPackageName.isEmpty()) {
+        lClassName = DEFAULT_SIMPLE_CLASS_NAME;
+      }
+      else {
+        lClassName = lPackageName + '.' + DEFAULT_SIMPLE_CLASS_NAME;
+      }
+    }
+    else {
+      lClassName = lClassName.trim();
+    }
+
+    // Write routing index class.
+    JavaFileObject lSourceFile = processingEnv.getFiler().createSourceFile(lClassName, lElements);
+    try (PrintWriter lWriter = new PrintWriter(lSourceFile.openWriter())) {
+      this.writeRoutingIndex(lWriter, lClassName, pPipelines, pStaticWorkloads, pElasticWorkloads);
+    }
+
+    // Register routing index as service.
+    FileObject lServiceFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+        "META-INF/services/" + RoutingIndex.class.getName(), lElements);
+    try (Writer lWriter = lServiceFile.openWriter()) {
+      lWriter.write(lClassName);
+      lWriter.write('\n');
+    }
+  }
+
+  /**
+   * Method writes the source code of the routing index class.
+   *
+   * @param pWriter Writer to which the source code is written. The parameter must not be null.
+   * @param pClassName Fully qualified name of the generated class. The parameter must not be null.
+   * @param pPipelines All pipeline configuration classes. The parameter must not be null.
+   * @param pStaticWorkloads All static workload configuration classes. The parameter must not be null.
+   * @param pElasticWorkloads All elastic workload configuration classes. The parameter must not be null.
+   */
+  private void writeRoutingIndex( PrintWriter pWriter, String pClassName, Map<String, TypeElement> pPipelines,
+      Map<String, TypeElement> pStaticWorkloads, Map<String, TypeElement> pElasticWorkloads ) {
+
+    int lIndex = pClassName.lastIndexOf('.');
+    if (lIndex > 0) {
+      pWriter.println("package " + pClassName.substring(0, lIndex) + ";");
+      pWriter.println();
+    }
+    pWriter.println("import java.util.ArrayList;");
+    pWriter.println("import java.util.HashSet;");
+    pWriter.println("import java.util.LinkedHashMap;");
+    pWriter.println("import java.util.List;");
+    pWriter.println("import java.util.Map;");
+    pWriter.println("import java.util.Set;");
+    pWriter.println();
+    pWriter.println("import com.anaptecs.jeaf.workload.api.RequestTypeKey;");
+    pWriter.println("import com.anaptecs.jeaf.workload.api.rest.RESTRequestTypeKey;");
+    pWriter.println("import com.anaptecs.jeaf.workload.impl.RoutingIndex;");
+    pWriter.println("import com.anaptecs.jeaf.workload.impl.yaml.PipelineConfigImpl;");
+    pWriter.println();
+    pWriter.println("/**");
+    pWriter.println(" * Routing index that was generated by " + RoutingIndexProcessor.class.getName() + ".");
+    pWriter.println(" * Do not edit.");
+    pWriter.println(" */");
+    pWriter.println("public final class " + pClassName.substring(lIndex + 1) + " implements RoutingIndex {");
+
+    // Pipelines
+    pWriter.println("  @Override");
+    pWriter.println("  public List<PipelineConfigImpl> getPipelines( ) {");
+    pWriter.println("    List<PipelineConfigImpl> lPipelines = new ArrayList<>();");
+    pWriter.println("    PipelineConfigImpl lPipeline;");
+    for (Map.Entry<String, TypeElement> lNextEntry : pPipelines.entrySet()) {
+      this.writePipeline(pWriter, lNextEntry.getKey(), lNextEntry.getValue());
+    }
+    pWriter.println("    return lPipelines;");
+    pWriter.println("  }");
+    pWriter.println();
+
+    // Workload mappings. Static ones first so that elastic ones take precedence.
+    pWriter.println("  @Override");
+    pWriter.println("  public Map<RequestTypeKey, String> getWorkloadMappings( ) {");
+    pWriter.println("    Map<RequestTypeKey, String> lMappings = new LinkedHashMap<>();");
+    for (Map.Entry<String, TypeElement> lNextEntry : pStaticWorkloads.entrySet()) {
+      WorkloadMapping lMapping = lNextEntry.getValue().getAnnotation(StaticWorkloadConfig.class).workloadMapping();
+      this.writeWorkloadMapping(pWriter, lNextEntry.getKey(), lMapping);
+    }
+    for (Map.Entry<String, TypeElement> lNextEntry : pElasticWorkloads.entrySet()) {
+      WorkloadMapping lMapping = lNextEntry.getValue().getAnnotation(ElasticWorkloadConfig.class).workloadMapping();
+      this.writeWorkloadMapping(pWriter, lNextEntry.getKey(), lMapping);
+    }
+    pWriter.println("    return lMappings;");
+    pWriter.println("  }");
+    pWriter.println();
+
+    // Covered configuration classes so that the workload manager can resolve all other ones through reflection.
+    pWriter.println("  @Override");
+    pWriter.println("  public Set<String> getConfigurationClasses( ) {");
+    pWriter.println("    Set<String> lClasses = new HashSet<>();");
+    Set<String> lClassNames = new TreeSet<>(pPipelines.keySet());
+    lClassNames.addAll(pStaticWorkloads.keySet());
+    lClassNames.addAll(pElasticWorkloads.keySet());
+    for (String lNextClassName : lClassNames) {
+      pWriter.println("    lClasses.add(" + this.toLiteral(lNextClassName) + ");");
+    }
+    pWriter.println("    return lClasses;");
+    pWriter.println("  }");
+    pWriter.println("}");
+  }
+
+  /**
+   * Method writes the code that creates the configuration of the passed pipeline.
+   *
+   * @param pWriter Writer to which the source code is written. The parameter must not be null.
+   * @param pPipelineID ID of the pipeline. The parameter must not be null.
+   * @param pType Class that contains the pipeline configuration. The parameter must not be null.
+   */
+  private void writePipeline( PrintWriter pWriter, String pPipelineID, TypeElement pType ) {
+    PipelineConfig lConfig = pType.getAnnotation(PipelineConfig.class);
+    pWriter.println("    // " + pPipelineID);
+    pWriter.println("    lPipeline = new PipelineConfigImpl();");
+    this.writeSetter(pWriter, "Id", this.toLiteral(pPipelineID));
+    this.writeSetter(pWriter, "Name", this.toLiteral(lConfig.name()));
+    this.writeSetter(pWriter, "Description", this.toLiteral(lConfig.description()));
+    this.writeSetter(pWriter, "CoreThreads", lConfig.coreThreads());
+    this.writeSetter(pWriter, "MaxThreads", lConfig.maxThreads());
+    this.writeSetter(pWriter, "ThreadPriority", lConfig.threadPriority());
+    this.writeSetter(pWriter, "MaxThreadKeepAlive", lConfig.maxThreadKeepAlive());
+    this.writeSetter(pWriter, "QueueType", "com.anaptecs.jeaf.workload.annotations.QueueType." + lConfig.queueType());
+    this.writeSetter(pWriter, "MaxQueueDepth", lConfig.maxQueueDepth());
+    this.writeSetter(pWriter, "MaxLatency", lConfig.maxLatency());
+    this.writeSetter(pWriter, "TimeUnit", "java.util.concurrent.TimeUnit." + lConfig.timeUnit());
+    this.writeSetter(pWriter, "DefaultPipeline", lConfig.defaultPipeline());
+
+    // Extended configuration is optional.
+    ExtendedPipelineConfig lExtendedConfig = pType.getAnnotation(ExtendedPipelineConfig.class);
+    if (lExtendedConfig != null) {
+      this.writeSetter(pWriter, "MaxExecutionTime", lExtendedConfig.maxExecutionTime());
+      this.writeSetter(pWriter, "MaxBatchSize", lExtendedConfig.maxBatchSize());
+      this.writeSetter(pWriter, "MaxBatchLinger", lExtendedConfig.maxBatchLinger());
+      this.writeSetter(pWriter, "ResourceSamplingInterval", lExtendedConfig.resourceSamplingInterval());
+      this.writeSetter(pWriter, "SlowRequestThreshold", lExtendedConfig.slowRequestThreshold());
+      this.writeSetter(pWriter, "SlowRequestReportInterval", lExtendedConfig.slowRequestReportInterval());
+      this.writeSetter(pWriter, "TimeSeriesSize", lExtendedConfig.timeSeriesSize());
+      this.writeSetter(pWriter, "PrestartCoreThreads", lExtendedConfig.prestartCoreThreads());
+      this.writeSetter(pWriter, "WarmUpTime", lExtendedConfig.warmUpTime());
+      this.writeSetter(pWriter, "DaemonThreads", lExtendedConfig.daemonThreads());
+      this.writeSetter(pWriter, "ThreadStackSize", lExtendedConfig.threadStackSize());
+      this.writeSetter(pWriter, "AdmissionPermitTimeout", lExtendedConfig.admissionPermitTimeout());
+      String lHandlerClassName = this.getUncaughtExceptionHandler(lExtendedConfig);
+      if (lHandlerClassName != null) {
+        this.writeSetter(pWriter, "UncaughtExceptionHandler", this.toLiteral(lHandlerClassName));
+      }
+    }
+    pWriter.println("    lPipelines.add(lPipeline);");
+  }
+
+  /**
+   * Method resolves the class of the uncaught exception handler of the passed extended pipeline configuration. As
+   * classes are not available during annotation processing the class is resolved as type mirror.
+   *
+   * @param pExtendedConfig Extended pipeline configuration. The parameter must not be null.
+   * @return {@link String} Binary name of the handler class or null if no handler is configured.
+   */
+  private String getUncaughtExceptionHandler( ExtendedPipelineConfig pExtendedConfig ) {
+    TypeMirror lHandlerType;
+    try {
+      pExtendedConfig.uncaughtExceptionHandler();
+      throw new IllegalStateException("Uncaught exception handler must be accessed as type mirror.");
+    }
+    catch (MirroredTypeException e) {
+      lHandlerType = e.getTypeMirror();
+    }
+    TypeElement lHandlerElement = (TypeElement) processingEnv.getTypeUtils().asElement(lHandlerType);
+    String lHandlerClassName = processingEnv.getElementUtils().getBinaryName(lHandlerElement).toString();
+    if (Thread.UncaughtExceptionHandler.class.getName().equals(lHandlerClassName)) {
+      lHandlerClassName = null;
+    }
+    return lHandlerClassName;
+  }
+
+  /**
+   * Method writes the call of a setter of the pipeline configuration.
+   *
+   * @param pWriter Writer to which the source code is written. The parameter must not be null.
+   * @param pProperty Name of the property. The parameter must not be null.
+   * @param pValue Value as Java expression. The parameter must not be null.
+   */
+  private void writeSetter( PrintWriter pWriter, String pProperty, Object pValue ) {
+    pWriter.println("    lPipeline.set" + pProperty + "(" + pValue + ");");
+  }
+
+  /**
+   * Method writes the code that adds all request type keys of the passed workload mapping.
+   *
+   * @param pWriter Writer to which the source code is written. The parameter must not be null.
+   * @param pConfigClassName Name of the class that defines the workload mapping. The parameter must not be null.
+   * @param pWorkloadMapping Workload mapping. The parameter must not be null.
+   */
+  private void writeWorkloadMapping( PrintWriter pWriter, String pConfigClassName, WorkloadMapping pWorkloadMapping ) {
+    // Referenced pipeline class is not available as class object during compilation.
+    TypeMirror lPipelineType;
+    try {
+      pWorkloadMapping.pipeline();
+      throw new IllegalStateException("Pipeline of workload mapping must be accessed as type mirror.");
+    }
+    catch (MirroredTypeException e) {
+      lPipelineType = e.getTypeMirror();
+    }
+    TypeElement lPipelineElement = (TypeElement) processingEnv.getTypeUtils().asElement(lPipelineType);
+    String lPipelineID = this.toLiteral(processingEnv.getElementUtils().getBinaryName(lPipelineElement).toString());
+
+    // Request type keys are created the same way as WorkloadManagerImpl does it when it uses reflection.
+    pWriter.println("    // " + pConfigClassName);
+    EndpointsGroup lEndpoints = pWorkloadMapping.endpoints();
+    for (Resource lNextResource : lEndpoints.resources()) {
+      HTTPMethod[] lHttpMethods = lNextResource.httpMethods();
+      if (lHttpMethods.length > 0) {
+        for (HTTPMethod lHttpMethod : lHttpMethods) {
+          this.writeMapping(pWriter, lNextResource.path(), this.toLiteral(lHttpMethod.name()), lPipelineID);
+        }
+      }
+      else {
+        this.writeMapping(pWriter, lNextResource.path(), "null", lPipelineID);
+      }
+    }
+    for (String lNextURL : lEndpoints.endpointURLs()) {
+      this.writeMapping(pWriter, lNextURL, "null", lPipelineID);
+    }
+  }
+
+  /**
+   * Method writes the code that adds a single mapping.
+   *
+   * @param pWriter Writer to which the source code is written. The parameter must not be null.
+   * @param pPath Path of the request type key. The parameter must not be null.
+   * @param pHttpMethod HTTP method of the request type key as Java expression. The parameter must not be null.
+   * @param pPipelineID ID of the pipeline as Java expression. The parameter must not be null.
+   */
+  private void writeMapping( PrintWriter pWriter, String pPath, String pHttpMethod, String pPipelineID ) {
+    pWriter.println("    lMappings.put(new RESTRequestTypeKey(" + this.toLiteral(pPath) + ", " + pHttpMethod + "), "
+        + pPipelineID + ");");
+  }
+
+  /**
+   * Method converts the passed string into a Java string literal.
+   *
+   * @param pValue String that should be converted. The parameter may be null.
+   * @return {@link String} Java string literal. The method never returns null.
+   */
+  private String toLiteral( String pValue ) {
+    String lLiteral;
+    if (pValue != null) {
+      StringBuilder lBuilder = new StringBuilder(pValue.length() + 2);
+      lBuilder.append('"');
+      for (char lNext : pValue.toCharArray()) {
+        switch (lNext) {
+          case '"':
+            lBuilder.append("\\\"");
+            break;
+          case '\\':
+            lBuilder.append("\\\\");
+            break;
+          case '\n':
+            lBuilder.append("\\n");
+            break;
+          case '\r':
+            lBuilder.append("\\r");
+            break;
+          case '\t':
+            lBuilder.append("\\t");
+            break;
+          default:
+            if (lNext < 0x20 || lNext > 0x7e) {
+              lBuilder.append(String.format("\\u%04x", (int) lNext));
+            }
+            else {
+              lBuilder.append(lNext);
+            }
+        }
+      }
+      lBuilder.append('"');
+      lLiteral = lBuilder.toString();
+    }
+    else {
+      lLiteral = "null";
+    }
+    return lLiteral;
+  }
+}
@@ -5,9 +5,26 @@
  */
 package com.anaptecs.jeaf.workload.impl.yaml;
 
+import com.anaptecs.jeaf.workload.impl.RequestTypeSettings;
+
 public class GenericRequestTypeKey {
   private String key;
 
+  /**
+   * Request type specific maximum execution time. Values of 0 or less mean that the value of the pipeline is used.
+   */
+  private int maxExecutionTime = -1;
+
+  /**
+   * Request type specific maximum latency. Values of 0 or less mean that the value of the pipeline is used.
+   */
+  private int maxLatency = -1;
+
+  /**
+   * Priority of the request type within a pipeline with prioritized queue. Higher values mean higher priority.
+   */
+  private int priority = RequestTypeSettings.NORMAL_PRIORITY;
+
   public String getKey( ) {
     return key;
   }
@@ -16,4 +33,36 @@ public class GenericRequestTypeKey {
     key = pKey;
   }
 
+  public int getMaxExecutionTime( ) {
+    return maxExecutionTime;
+  }
+
+  public void setMaxExecutionTime( int pMaxExecutionTime ) {
+    maxExecutionTime = pMaxExecutionTime;
+  }
+
+  public int getMaxLatency( ) {
+    return maxLatency;
+  }
+
+  public void setMaxLatency( int pMaxLatency ) {
+    maxLatency = pMaxLatency;
+  }
+
+  public int getPriority( ) {
+    return priority;
+  }
+
+  public void setPriority( int pPriority ) {
+    priority = pPriority;
+  }
+
+  /**
+   * Method checks if this key defines any request type specific settings.
+   * 
+   * @return boolean Method returns true if at least one setting differs from the settings of the pipeline.
+   */
+  boolean hasRequestTypeSettings( ) {
+    return maxExecutionTime > 0 || maxLatency > 0 || priority != RequestTypeSettings.NORMAL_PRIORITY;
+  }
 }
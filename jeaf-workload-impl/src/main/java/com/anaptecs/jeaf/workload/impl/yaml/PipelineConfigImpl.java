@@ -5,14 +5,19 @@
  */
 package com.anaptecs.jeaf.workload.impl.yaml;
 
+import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
 import com.anaptecs.jeaf.workload.annotations.QueueType;
 import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.workload.impl.ExtendedPipelineConfig;
+import com.anaptecs.jeaf.workload.impl.RequestTypeSettings;
 
 public class PipelineConfigImpl {
   /**
@@ -75,6 +80,72 @@ public class PipelineConfigImpl {
    */
   private boolean defaultPipeline;
 
+  /**
+   * {@link ExtendedPipelineConfig#maxExecutionTime()}
+   */
+  private int maxExecutionTime;
+
+  /**
+   * {@link ExtendedPipelineConfig#maxBatchSize()}
+   */
+  private int maxBatchSize;
+
+  /**
+   * {@link ExtendedPipelineConfig#maxBatchLinger()}
+   */
+  private int maxBatchLinger;
+
+  /**
+   * {@link ExtendedPipelineConfig#resourceSamplingInterval()}
+   */
+  private int resourceSamplingInterval;
+
+  /**
+   * {@link ExtendedPipelineConfig#slowRequestThreshold()}
+   */
+  private int slowRequestThreshold;
+
+  /**
+   * {@link ExtendedPipelineConfig#slowRequestReportInterval()}
+   */
+  private int slowRequestReportInterval;
+
+  /**
+   * {@link ExtendedPipelineConfig#timeSeriesSize()}
+   */
+  private int timeSeriesSize;
+
+  /**
+   * {@link ExtendedPipelineConfig#prestartCoreThreads()}
+   */
+  private boolean prestartCoreThreads;
+
+  /**
+   * {@link ExtendedPipelineConfig#warmUpTime()}
+   */
+  private int warmUpTime;
+
+  /**
+   * {@link ExtendedPipelineConfig#daemonThreads()}
+   */
+  private boolean daemonThreads;
+
+  /**
+   * {@link ExtendedPipelineConfig#threadStackSize()}
+   */
+  private int threadStackSize;
+
+  /**
+   * Fully qualified name of the class that is used as {@link ExtendedPipelineConfig#uncaughtExceptionHandler()}. If the
+   * attribute is null then uncaught exceptions are traced.
+   */
+  private String uncaughtExceptionHandler;
+
+  /**
+   * {@link ExtendedPipelineConfig#admissionPermitTimeout()}
+   */
+  private int admissionPermitTimeout;
+
   /**
    * List with all REST based request type key that should be processed by this pipeline.
    */
@@ -100,6 +171,19 @@ public class PipelineConfigImpl {
     maxLatency = -1;
     timeUnit = TimeUnit.MILLISECONDS;
     defaultPipeline = false;
+    maxExecutionTime = -1;
+    maxBatchSize = 50;
+    maxBatchLinger = 0;
+    resourceSamplingInterval = 0;
+    slowRequestThreshold = -1;
+    slowRequestReportInterval = -1;
+    timeSeriesSize = 0;
+    prestartCoreThreads = false;
+    warmUpTime = -1;
+    daemonThreads = false;
+    threadStackSize = 0;
+    uncaughtExceptionHandler = null;
+    admissionPermitTimeout = 1000;
   }
 
   public String getId( ) {
@@ -198,6 +282,110 @@ public class PipelineConfigImpl {
     defaultPipeline = pDefaultPipeline;
   }
 
+  public int getMaxExecutionTime( ) {
+    return maxExecutionTime;
+  }
+
+  public void setMaxExecutionTime( int pMaxExecutionTime ) {
+    maxExecutionTime = pMaxExecutionTime;
+  }
+
+  public int getMaxBatchSize( ) {
+    return maxBatchSize;
+  }
+
+  public void setMaxBatchSize( int pMaxBatchSize ) {
+    maxBatchSize = pMaxBatchSize;
+  }
+
+  public int getMaxBatchLinger( ) {
+    return maxBatchLinger;
+  }
+
+  public void setMaxBatchLinger( int pMaxBatchLinger ) {
+    maxBatchLinger = pMaxBatchLinger;
+  }
+
+  public int getResourceSamplingInterval( ) {
+    return resourceSamplingInterval;
+  }
+
+  public void setResourceSamplingInterval( int pResourceSamplingInterval ) {
+    resourceSamplingInterval = pResourceSamplingInterval;
+  }
+
+  public int getSlowRequestThreshold( ) {
+    return slowRequestThreshold;
+  }
+
+  public void setSlowRequestThreshold( int pSlowRequestThreshold ) {
+    slowRequestThreshold = pSlowRequestThreshold;
+  }
+
+  public int getSlowRequestReportInterval( ) {
+    return slowRequestReportInterval;
+  }
+
+  public void setSlowRequestReportInterval( int pSlowRequestReportInterval ) {
+    slowRequestReportInterval = pSlowRequestReportInterval;
+  }
+
+  public int getTimeSeriesSize( ) {
+    return timeSeriesSize;
+  }
+
+  public void setTimeSeriesSize( int pTimeSeriesSize ) {
+    timeSeriesSize = pTimeSeriesSize;
+  }
+
+  public boolean isPrestartCoreThreads( ) {
+    return prestartCoreThreads;
+  }
+
+  public void setPrestartCoreThreads( boolean pPrestartCoreThreads ) {
+    prestartCoreThreads = pPrestartCoreThreads;
+  }
+
+  public int getWarmUpTime( ) {
+    return warmUpTime;
+  }
+
+  public void setWarmUpTime( int pWarmUpTime ) {
+    warmUpTime = pWarmUpTime;
+  }
+
+  public boolean isDaemonThreads( ) {
+    return daemonThreads;
+  }
+
+  public void setDaemonThreads( boolean pDaemonThreads ) {
+    daemonThreads = pDaemonThreads;
+  }
+
+  public int getThreadStackSize( ) {
+    return threadStackSize;
+  }
+
+  public void setThreadStackSize( int pThreadStackSize ) {
+    threadStackSize = pThreadStackSize;
+  }
+
+  public String getUncaughtExceptionHandler( ) {
+    return uncaughtExceptionHandler;
+  }
+
+  public void setUncaughtExceptionHandler( String pUncaughtExceptionHandler ) {
+    uncaughtExceptionHandler = pUncaughtExceptionHandler;
+  }
+
+  public int getAdmissionPermitTimeout( ) {
+    return admissionPermitTimeout;
+  }
+
+  public void setAdmissionPermitTimeout( int pAdmissionPermitTimeout ) {
+    admissionPermitTimeout = pAdmissionPermitTimeout;
+  }
+
   public List<RESTRequestTypeKey> getRestKeys( ) {
     return restKeys;
   }
@@ -319,4 +507,155 @@ public class PipelineConfigImpl {
       }
     };
   }
+
+  /**
+   * Method returns all the extended configuration parameters of this pipeline as {@link ExtendedPipelineConfig} object.
+   * 
+   * @return {@link ExtendedPipelineConfig} All extended configuration parameters of the pipeline. The method never
+   * returns null.
+   */
+  public ExtendedPipelineConfig getExtendedPipelineConfig( ) {
+    return new ExtendedPipelineConfig() {
+
+      @Override
+      public Class<? extends Annotation> annotationType( ) {
+        return ExtendedPipelineConfig.class;
+      }
+
+      @Override
+      public int maxExecutionTime( ) {
+        return maxExecutionTime;
+      }
+
+      @Override
+      public int maxBatchSize( ) {
+        return maxBatchSize;
+      }
+
+      @Override
+      public int maxBatchLinger( ) {
+        return maxBatchLinger;
+      }
+
+      @Override
+      public int resourceSamplingInterval( ) {
+        return resourceSamplingInterval;
+      }
+
+      @Override
+      public int slowRequestThreshold( ) {
+        return slowRequestThreshold;
+      }
+
+      @Override
+      public int slowRequestReportInterval( ) {
+        return slowRequestReportInterval;
+      }
+
+      @Override
+      public int timeSeriesSize( ) {
+        return timeSeriesSize;
+      }
+
+      @Override
+      public boolean prestartCoreThreads( ) {
+        return prestartCoreThreads;
+      }
+
+      @Override
+      public int warmUpTime( ) {
+        return warmUpTime;
+      }
+
+      @Override
+      public boolean daemonThreads( ) {
+        return daemonThreads;
+      }
+
+      @Override
+      public int threadStackSize( ) {
+        return threadStackSize;
+      }
+
+      @Override
+      public Class<? extends UncaughtExceptionHandler> uncaughtExceptionHandler( ) {
+        Class<? extends UncaughtExceptionHandler> lHandlerClass;
+        if (uncaughtExceptionHandler != null && uncaughtExceptionHandler.trim().isEmpty() == false) {
+          try {
+            lHandlerClass = Class.forName(uncaughtExceptionHandler.trim(), true,
+                Thread.currentThread().getContextClassLoader()).asSubclass(UncaughtExceptionHandler.class);
+          }
+          catch (ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException("Invalid uncaught exception handler '" + uncaughtExceptionHandler
+                + "' for pipeline '" + id + "'. " + e.getMessage(), e);
+          }
+        }
+        else {
+          lHandlerClass = UncaughtExceptionHandler.class;
+        }
+        return lHandlerClass;
+      }
+
+      @Override
+      public int admissionPermitTimeout( ) {
+        return admissionPermitTimeout;
+      }
+    };
+  }
+
+  /**
+   * Method returns the request type specific settings of all request types of this pipeline that define their own
+   * settings. Settings that are not defined by a request type are taken from the pipeline.
+   * 
+   * @return {@link Map} Map with the request type specific settings. The method never returns null.
+   */
+  public Map<RequestTypeKey, RequestTypeSettings> getRequestTypeSettings( ) {
+    Map<RequestTypeKey, RequestTypeSettings> lSettings = new HashMap<>();
+
+    // Process all generic keys.
+    for (GenericRequestTypeKey lNextKey : genericKeys) {
+      if (lNextKey.hasRequestTypeSettings()) {
+        com.anaptecs.jeaf.workload.api.GenericRequestTypeKey lNewKey =
+            new com.anaptecs.jeaf.workload.api.GenericRequestTypeKey(lNextKey.getKey());
+        lSettings.put(lNewKey,
+            this.createRequestTypeSettings(lNextKey.getMaxExecutionTime(), lNextKey.getMaxLatency(),
+                lNextKey.getPriority()));
+      }
+    }
+
+    // Process all REST keys
+    for (RESTRequestTypeKey lNextKey : restKeys) {
+      if (lNextKey.hasRequestTypeSettings()) {
+        com.anaptecs.jeaf.workload.api.rest.RESTRequestTypeKey lNewKey =
+            new com.anaptecs.jeaf.workload.api.rest.RESTRequestTypeKey(lNextKey.getEndpointURL(),
+                lNextKey.getHttpMethod());
+        lSettings.put(lNewKey,
+            this.createRequestTypeSettings(lNextKey.getMaxExecutionTime(), lNextKey.getMaxLatency(),
+                lNextKey.getPriority()));
+      }
+    }
+    return lSettings;
+  }
+
+  /**
+   * Method creates the settings of a request type. If the request type does not define its own maximum execution time
+   * then the one of the pipeline is used.
+   * 
+   * @param pMaxExecutionTime Maximum execution time of the request type. Values of 0 or less mean that the value of the
+   * pipeline is used.
+   * @param pMaxLatency Maximum latency of the request type. Values of 0 or less mean that the value of the pipeline is
+   * used.
+   * @param pPriority Priority of the request type.
+   * @return {@link RequestTypeSettings} Created settings. The method never returns null.
+   */
+  private RequestTypeSettings createRequestTypeSettings( int pMaxExecutionTime, int pMaxLatency, int pPriority ) {
+    int lMaxExecutionTime;
+    if (pMaxExecutionTime > 0) {
+      lMaxExecutionTime = pMaxExecutionTime;
+    }
+    else {
+      lMaxExecutionTime = maxExecutionTime;
+    }
+    return new RequestTypeSettings(lMaxExecutionTime, pMaxLatency, pPriority, timeUnit);
+  }
 }
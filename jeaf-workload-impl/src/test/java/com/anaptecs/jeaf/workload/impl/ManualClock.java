@@ -0,0 +1,38 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
+
+/**
+ * Clock that is only advanced explicitly. Pipelines that are created through this clock base their rates on it so
+ * that tests can move the rate windows forward without waiting for the system clock.
+ */
+public class ManualClock implements LongSupplier {
+  private final AtomicLong nanos = new AtomicLong();
+
+  @Override
+  public long getAsLong( ) {
+    return nanos.get();
+  }
+
+  public void advance( long pTime, TimeUnit pTimeUnit ) {
+    nanos.addAndGet(pTimeUnit.toNanos(pTime));
+  }
+
+  public Pipeline createPipeline( String pPipelineID, PipelineConfig pPipelineConfig ) {
+    return this.createPipeline(pPipelineID, pPipelineConfig, DefaultExtendedPipelineConfig.DEFAULTS);
+  }
+
+  public Pipeline createPipeline( String pPipelineID, PipelineConfig pPipelineConfig,
+      ExtendedPipelineConfig pExtendedPipelineConfig ) {
+    return new Pipeline(pPipelineID, pPipelineConfig, pExtendedPipelineConfig, this);
+  }
+}
@@ -6,6 +6,7 @@
 package com.anaptecs.jeaf.workload.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -86,4 +87,46 @@ public class CommandExecutorTest {
       assertEquals("Check failed. pTimeUnit must not be NULL.", e.getMessage());
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  @Order(20)
+  public void testMaxExecutionTime( ) throws Exception {
+    PipelineConfig lPipelineConfig = NoQueuingPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(NoQueuingPipeline.class.getName(), lPipelineConfig);
+
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v2/hanging", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    TimeUnit lTimeUnit = TimeUnit.MILLISECONDS;
+
+    // Execute command that does not exceed its maximum execution time.
+    PipelineRunnable lFastRunnable = new PipelineRunnable(10);
+    CommandExecutor lExecutor =
+        new CommandExecutor(lRequestTypeKey, lFastRunnable, lPipeline, 0, 500, lTimeUnit, lErrorHandler);
+    lExecutor.run();
+    assertTrue(lFastRunnable.executed);
+    assertTrue(lErrorHandler.noExceptions);
+    assertFalse(Thread.currentThread().isInterrupted());
+
+    // Execute command that exceeds its maximum execution time. Command has to be interrupted by watchdog.
+    final boolean[] lInterrupted = new boolean[1];
+    lExecutor = new CommandExecutor(lRequestTypeKey, new Runnable() {
+      @Override
+      public void run( ) {
+        try {
+          Thread.sleep(5000);
+        }
+        catch (InterruptedException e) {
+          lInterrupted[0] = true;
+        }
+      }
+    }, lPipeline, 0, 50, lTimeUnit, lErrorHandler);
+    long lStart = System.currentTimeMillis();
+    lExecutor.run();
+    assertTrue(System.currentTimeMillis() - lStart < 1000, "Command was not interrupted in time.");
+    assertTrue(lInterrupted[0]);
+    assertFalse(Thread.currentThread().isInterrupted(), "Interrupt flag was not cleared.");
+    assertTrue(lErrorHandler.maximumExecutionTimeExceeded);
+    assertEquals(lRequestTypeKey, lErrorHandler.requestTypeKey);
+    assertEquals(1, lPipeline.getMaxExecutionTimeExceededCounter());
+  }
+}
@@ -8,20 +8,68 @@ package com.anaptecs.jeaf.workload.test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.Attribute;
+import javax.management.AttributeChangeNotification;
+import javax.management.MBeanServer;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
 
 import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
+import com.anaptecs.jeaf.workload.annotations.QueueType;
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.workload.api.WorkloadSystemException;
 import com.anaptecs.jeaf.workload.api.rest.RESTRequestTypeKey;
+import com.anaptecs.jeaf.workload.impl.AdmissionPermit;
+import com.anaptecs.jeaf.workload.impl.BatchEntry;
+import com.anaptecs.jeaf.workload.impl.BatchHandler;
+import com.anaptecs.jeaf.workload.impl.CapacityAdvisor;
+import com.anaptecs.jeaf.workload.impl.CapacityRecommendation;
+import com.anaptecs.jeaf.workload.impl.LatencySnapshot;
+import com.anaptecs.jeaf.workload.impl.LatencyType;
+import com.anaptecs.jeaf.workload.impl.ManualClock;
 import com.anaptecs.jeaf.workload.impl.Pipeline;
 import com.anaptecs.jeaf.workload.impl.PipelineInfo;
+import com.anaptecs.jeaf.workload.impl.PipelineStatistics;
+import com.anaptecs.jeaf.workload.impl.RateSnapshot;
+import com.anaptecs.jeaf.workload.impl.RequestLatencies;
+import com.anaptecs.jeaf.workload.impl.RequestTypeSettings;
+import com.anaptecs.jeaf.workload.impl.RequestTypeStatistics;
+import com.anaptecs.jeaf.workload.impl.SlowRequest;
+import com.anaptecs.jeaf.workload.impl.ThreadBudgetAllocator;
+import com.anaptecs.jeaf.workload.impl.yaml.PipelineConfigImpl;
 import com.anaptecs.jeaf.xfun.api.XFun;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.yaml.snakeyaml.Yaml;
 
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class PipelineTests {
@@ -113,7 +161,12 @@ public class PipelineTests {
     WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
     lPipeline.execute(lRequestTypeKey, lErrorHandler, lRunnable);
 
-    // Check thread pool info during execution
+    // Pipeline info is an immutable snapshot.
+    assertEquals(0, lThreadPoolInfo.getTaskCount());
+
+    // Check thread pool info during execution. Active threads are counted as soon as they start the execution.
+    Thread.sleep(10);
+    lThreadPoolInfo = lPipeline.getPipelineInfo();
     assertEquals(1, lThreadPoolInfo.getActiveCount());
     assertEquals(0, lThreadPoolInfo.getCompletedTaskCount());
     assertEquals(1, lThreadPoolInfo.getTaskCount());
@@ -129,6 +182,7 @@ public class PipelineTests {
     lErrorHandler.reset();
 
     // Check thread pool info after first execution
+    lThreadPoolInfo = lPipeline.getPipelineInfo();
     assertEquals(0, lThreadPoolInfo.getActiveCount());
     assertEquals(1, lThreadPoolInfo.getCompletedTaskCount());
     assertEquals(1, lThreadPoolInfo.getTaskCount());
@@ -151,7 +205,9 @@ public class PipelineTests {
 
     // Check thread pool info
     Thread.sleep(10);
+    lThreadPoolInfo = lPipeline.getPipelineInfo();
     assertEquals(FIFOPipeline.CORE_THREADS, lThreadPoolInfo.getActiveCount());
+    assertEquals(lCount - FIFOPipeline.CORE_THREADS, lThreadPoolInfo.getQueueSize());
     assertEquals(1, lThreadPoolInfo.getCompletedTaskCount());
     assertEquals(1 + lCount, lThreadPoolInfo.getTaskCount());
     assertEquals(FIFOPipeline.CORE_THREADS, lThreadPoolInfo.getCorePoolSize());
@@ -166,6 +222,7 @@ public class PipelineTests {
     assertTrue(lErrorHandler.noExceptions);
 
     // Check thread pool
+    lThreadPoolInfo = lPipeline.getPipelineInfo();
     assertEquals(0, lThreadPoolInfo.getActiveCount());
     assertEquals(1 + lCount, lThreadPoolInfo.getCompletedTaskCount());
     assertEquals(1 + lCount, lThreadPoolInfo.getTaskCount());
@@ -173,5 +230,1493 @@ public class PipelineTests {
     assertEquals(FIFOPipeline.MAX_THREADS, lThreadPoolInfo.getMaximumPoolSize());
     assertEquals(2, lThreadPoolInfo.getLargestPoolSize());
     assertEquals(FIFOPipeline.CORE_THREADS, lThreadPoolInfo.getPoolSize());
+    assertEquals(0, lThreadPoolInfo.getQueueSize());
+    assertEquals(FIFOPipeline.MAX_QUEUE_DEPTH, lThreadPoolInfo.getRemainingQueueCapacity());
+
+    // MBean has to provide the same values.
+    assertEquals(2, lPipeline.getLargestPoolSize());
+    assertEquals(FIFOPipeline.CORE_THREADS, lPipeline.getPoolSize());
+    assertEquals(1 + lCount, lPipeline.getCompletedTaskCount());
+    assertEquals(1 + lCount, lPipeline.getTaskCount());
+  }
+
+  @Test
+  @Order(20)
+  public void testProactiveExpiryOfQueuedRequests( ) throws Exception {
+    PipelineConfig lPipelineConfig = NoQueuingPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(NoQueuingPipeline.class.getName(), lPipelineConfig);
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Expiry", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // First request blocks the only thread of the pipeline, second one has to wait in the queue.
+    int lExecutionTime = NoQueuingPipeline.MAX_LATENCY * 5;
+    PipelineRunnable lFirstRunnable = new PipelineRunnable(lExecutionTime);
+    PipelineRunnable lSecondRunnable = new PipelineRunnable(lExecutionTime);
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, lFirstRunnable);
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, lSecondRunnable);
+    assertEquals(1, lPipeline.getQueueSize());
+
+    // Second request has to be expired while the first one is still running.
+    Thread.sleep(NoQueuingPipeline.MAX_LATENCY * 2);
+    assertFalse(lFirstRunnable.executed);
+    assertTrue(lErrorHandler.maximumLatencyExceeded);
+    assertEquals(1, lPipeline.getMaxLatencyExceededCounter());
+    assertEquals(0, lPipeline.getQueueSize());
+
+    // As queue capacity was reclaimed, a new request can be queued again.
+    lErrorHandler.reset();
+    PipelineRunnable lThirdRunnable = new PipelineRunnable(10);
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, lThirdRunnable);
+    assertFalse(lErrorHandler.requestRejected);
+    assertEquals(1, lPipeline.getQueueSize());
+
+    Thread.sleep(lExecutionTime * 2);
+    assertTrue(lFirstRunnable.executed);
+    assertFalse(lSecondRunnable.executed);
+  }
+
+  @Test
+  @Order(25)
+  public void testMassExpiryOfQueuedRequests( ) throws Exception {
+    PipelineConfigImpl lConfig = new PipelineConfigImpl();
+    lConfig.setId("MassExpiryPipeline");
+    lConfig.setCoreThreads(1);
+    lConfig.setMaxThreads(1);
+    lConfig.setQueueType(QueueType.FIFO);
+    lConfig.setMaxQueueDepth(200);
+    lConfig.setMaxLatency(200);
+    Pipeline lPipeline =
+        new Pipeline(lConfig.getId(), lConfig.getPipelineConfig(), lConfig.getExtendedPipelineConfig());
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/MassExpiry", "GET");
+
+    // Error handler must never be called by the thread of the timing wheel.
+    final List<String> lThreadNames = Collections.synchronizedList(new ArrayList<String>());
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl() {
+      @Override
+      public void maximumLatencyExceeded( RequestTypeKey pRequestTypeKey, Exception pException ) {
+        lThreadNames.add(Thread.currentThread().getName());
+      }
+    };
+
+    // Block the only thread and fill the queue completely.
+    PipelineRunnable lBlockingRunnable = new PipelineRunnable(1000);
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, lBlockingRunnable);
+    Thread.sleep(20);
+    List<PipelineRunnable> lQueuedRunnables = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      PipelineRunnable lRunnable = new PipelineRunnable(1);
+      lQueuedRunnables.add(lRunnable);
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, lRunnable);
+    }
+    assertEquals(200, lPipeline.getQueueSize());
+
+    // All queued requests expire while the thread is still blocked. Their capacity is available again.
+    Thread.sleep(400);
+    assertFalse(lBlockingRunnable.executed);
+    assertEquals(0, lPipeline.getQueueSize());
+    assertEquals(200, lPipeline.getMaxLatencyExceededCounter());
+    assertEquals(200, lThreadNames.size());
+    for (String lNextName : lThreadNames) {
+      assertFalse(lNextName.equals("JEAF-Workload-TimingWheel"), lNextName);
+    }
+
+    // Expired requests are never executed.
+    Thread.sleep(800);
+    assertTrue(lBlockingRunnable.executed);
+    for (PipelineRunnable lNextRunnable : lQueuedRunnables) {
+      assertFalse(lNextRunnable.executed);
+    }
+    assertTrue(lPipeline.shutdown(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @Order(30)
+  public void testCoalescedExecution( ) throws Exception {
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Coalescing", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // Execute several identical requests. Only the first one must be executed.
+    final AtomicInteger lExecutions = new AtomicInteger();
+    Callable<Integer> lCommand = new Callable<Integer>() {
+      @Override
+      public Integer call( ) throws Exception {
+        Thread.sleep(100);
+        return lExecutions.incrementAndGet();
+      }
+    };
+    List<CompletableFuture<Integer>> lFutures = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      lFutures.add(lPipeline.executeCoalesced(lRequestTypeKey, lErrorHandler, "Entity-4711", lCommand));
+    }
+    // Request with different coalescing key must not be attached.
+    CompletableFuture<Integer> lOtherFuture =
+        lPipeline.executeCoalesced(lRequestTypeKey, lErrorHandler, "Entity-0815", lCommand);
+
+    for (CompletableFuture<Integer> lNextFuture : lFutures) {
+      assertEquals(lFutures.get(0).get(1, TimeUnit.SECONDS), lNextFuture.get(1, TimeUnit.SECONDS));
+    }
+    assertNotNull(lOtherFuture.get(1, TimeUnit.SECONDS));
+    assertEquals(2, lExecutions.get());
+    assertEquals(4, lPipeline.getCoalescedRequestCount());
+    assertEquals(Long.valueOf(4), lPipeline.getCoalescedRequestCounts().get(lRequestTypeKey.getKey()));
+    assertTrue(lErrorHandler.noExceptions);
+
+    // After the execution is done, the next request has to be executed again.
+    assertEquals(Integer.valueOf(3),
+        lPipeline.executeCoalesced(lRequestTypeKey, lErrorHandler, "Entity-4711", lCommand).get(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @Order(40)
+  public void testBatchedExecution( ) throws Exception {
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Batching", "POST");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // Request type without batch handler can not be executed in batches.
+    try {
+      lPipeline.executeBatched(lRequestTypeKey, lErrorHandler, "Request");
+      fail("Exception expected as no batch handler is registered.");
+    }
+    catch (IllegalArgumentException e) {
+      // Nothing to do.
+    }
+
+    // Register batch handler that marks one request as failed.
+    final List<Integer> lBatchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+    final AtomicInteger lProcessedRequests = new AtomicInteger();
+    lPipeline.registerBatchHandler(lRequestTypeKey, new BatchHandler<String>() {
+      @Override
+      public void executeBatch( RequestTypeKey pRequestTypeKey, List<BatchEntry<String>> pBatch ) throws Exception {
+        Thread.sleep(20);
+        lBatchSizes.add(pBatch.size());
+        for (BatchEntry<String> lNextEntry : pBatch) {
+          if ("Request-13".equals(lNextEntry.getRequest())) {
+            lNextEntry.fail(new IllegalStateException("Request-13 failed."));
+          }
+          else {
+            lProcessedRequests.incrementAndGet();
+          }
+        }
+      }
+    });
+
+    List<CompletableFuture<Void>> lFutures = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      lFutures.add(lPipeline.executeBatched(lRequestTypeKey, lErrorHandler, "Request-" + i));
+    }
+    for (int i = 0; i < lFutures.size(); i++) {
+      CompletableFuture<Void> lNextFuture = lFutures.get(i);
+      try {
+        lNextFuture.get(2, TimeUnit.SECONDS);
+        assertTrue(i != 13);
+      }
+      catch (ExecutionException e) {
+        assertEquals(13, i);
+        assertEquals(IllegalStateException.class, e.getCause().getClass());
+      }
+    }
+    assertEquals(99, lProcessedRequests.get());
+    assertTrue(lErrorHandler.requestFailed);
+
+    // Requests must have been executed in less batches than requests and no batch must exceed the maximum batch size.
+    assertTrue(lBatchSizes.size() < 100);
+    int lTotal = 0;
+    for (Integer lNextSize : lBatchSizes) {
+      assertTrue(lNextSize <= 50);
+      lTotal += lNextSize;
+    }
+    assertEquals(100, lTotal);
+  }
+
+  @Test
+  @Order(45)
+  public void testBatchLatencyPerRequest( ) throws Exception {
+    PipelineConfigImpl lConfig = new PipelineConfigImpl();
+    lConfig.setId("BatchLatencyPipeline");
+    lConfig.setCoreThreads(1);
+    lConfig.setMaxThreads(1);
+    lConfig.setQueueType(QueueType.FIFO);
+    lConfig.setMaxQueueDepth(10);
+    lConfig.setMaxLatency(500);
+    lConfig.setMaxBatchSize(10);
+    Pipeline lPipeline =
+        new Pipeline(lConfig.getId(), lConfig.getPipelineConfig(), lConfig.getExtendedPipelineConfig());
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/BatchLatency", "POST");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    final List<String> lProcessedRequests = Collections.synchronizedList(new ArrayList<String>());
+    lPipeline.registerBatchHandler(lRequestTypeKey, new BatchHandler<String>() {
+      @Override
+      public void executeBatch( RequestTypeKey pRequestTypeKey, List<BatchEntry<String>> pBatch ) {
+        for (BatchEntry<String> lNextEntry : pBatch) {
+          lProcessedRequests.add(lNextEntry.getRequest());
+        }
+      }
+    });
+
+    // Block the only thread. The batch with the old request expires while the thread is blocked, but the request that
+    // was added later is still within its maximum latency and has to be executed.
+    final CountDownLatch lStarted = new CountDownLatch(1);
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, new PipelineRunnable(700) {
+      @Override
+      public void run( ) {
+        lStarted.countDown();
+        super.run();
+      }
+    });
+    assertTrue(lStarted.await(2, TimeUnit.SECONDS));
+    CompletableFuture<Void> lOldRequest = lPipeline.executeBatched(lRequestTypeKey, lErrorHandler, "Old");
+    Thread.sleep(350);
+    CompletableFuture<Void> lFreshRequest = lPipeline.executeBatched(lRequestTypeKey, lErrorHandler, "Fresh");
+    try {
+      lOldRequest.get(2, TimeUnit.SECONDS);
+      fail("Request must have exceeded its maximum latency.");
+    }
+    catch (ExecutionException e) {
+      assertEquals(WorkloadSystemException.class, e.getCause().getClass());
+    }
+    lFreshRequest.get(2, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList("Fresh"), lProcessedRequests);
+    assertEquals(1, lPipeline.getMaxLatencyExceededCounter());
+    assertTrue(lPipeline.shutdown(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  @Order(50)
+  public void testOrderedExecution( ) throws Exception {
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Ordering", "PUT");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // Execute several requests for a couple of entities. Requests of the same entity must be executed in order and
+    // never in parallel.
+    final int lEntities = 4;
+    final int lRequestsPerEntity = 30;
+    final CountDownLatch lLatch = new CountDownLatch(lEntities * lRequestsPerEntity);
+    final List<List<Integer>> lExecutionOrder = new ArrayList<>();
+    final List<AtomicInteger> lRunningRequests = new ArrayList<>();
+    final AtomicInteger lParallelExecutions = new AtomicInteger();
+    for (int i = 0; i < lEntities; i++) {
+      lExecutionOrder.add(Collections.synchronizedList(new ArrayList<Integer>()));
+      lRunningRequests.add(new AtomicInteger());
+    }
+    for (int i = 0; i < lRequestsPerEntity; i++) {
+      for (int lEntity = 0; lEntity < lEntities; lEntity++) {
+        final int lEntityID = lEntity;
+        final int lSequence = i;
+        lPipeline.executeOrdered(lRequestTypeKey, lErrorHandler, "Entity-" + lEntityID, new Runnable() {
+          @Override
+          public void run( ) {
+            if (lRunningRequests.get(lEntityID).incrementAndGet() > 1) {
+              lParallelExecutions.incrementAndGet();
+            }
+            try {
+              Thread.sleep(1);
+            }
+            catch (InterruptedException e) {
+              // Nothing to do.
+            }
+            lExecutionOrder.get(lEntityID).add(lSequence);
+            lRunningRequests.get(lEntityID).decrementAndGet();
+            lLatch.countDown();
+          }
+        });
+      }
+    }
+    assertTrue(lLatch.await(5, TimeUnit.SECONDS));
+    assertEquals(0, lParallelExecutions.get());
+    for (List<Integer> lNextOrder : lExecutionOrder) {
+      assertEquals(lRequestsPerEntity, lNextOrder.size());
+      for (int i = 0; i < lRequestsPerEntity; i++) {
+        assertEquals(Integer.valueOf(i), lNextOrder.get(i));
+      }
+    }
+    assertTrue(lErrorHandler.noExceptions);
+
+    // Mailboxes are removed as soon as they are drained.
+    long lEnd = System.currentTimeMillis() + 1000;
+    while (lPipeline.getOrderedMailboxCount() > 0 && System.currentTimeMillis() < lEnd) {
+      Thread.sleep(5);
+    }
+    assertEquals(0, lPipeline.getOrderedMailboxCount());
+    assertEquals(0, lPipeline.getOrderedRequestCount());
+  }
+
+  @Test
+  @Order(60)
+  public void testRequestTypeStatistics( ) throws Exception {
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    final Pipeline lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    final RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Statistics", "GET");
+    final RESTRequestTypeKey lFailingRequestTypeKey = new RESTRequestTypeKey("api/v1/Statistics", "DELETE");
+    final WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // Submit requests from several threads concurrently. Counters must not lose any updates.
+    final int lThreads = 8;
+    final int lRequestsPerThread = 500;
+    final CountDownLatch lStartLatch = new CountDownLatch(1);
+    List<Thread> lSubmitters = new ArrayList<>();
+    for (int i = 0; i < lThreads; i++) {
+      Thread lSubmitter = new Thread(new Runnable() {
+        @Override
+        public void run( ) {
+          try {
+            lStartLatch.await();
+          }
+          catch (InterruptedException e) {
+            return;
+          }
+          for (int j = 0; j < lRequestsPerThread; j++) {
+            lPipeline.execute(lRequestTypeKey, lErrorHandler, new PipelineRunnable(0));
+          }
+        }
+      });
+      lSubmitter.start();
+      lSubmitters.add(lSubmitter);
+    }
+    lStartLatch.countDown();
+    for (Thread lNextSubmitter : lSubmitters) {
+      lNextSubmitter.join();
+    }
+
+    // Wait until all accepted requests are processed.
+    RequestTypeStatistics lStatistics = lPipeline.getStatistics().getStatistics(lRequestTypeKey);
+    long lEnd = System.currentTimeMillis() + 5000;
+    while (lStatistics.getExecutedCount() + lStatistics.getRejectedCount()
+        + lStatistics.getMaxLatencyExceededCount() < lThreads * lRequestsPerThread
+        && System.currentTimeMillis() < lEnd) {
+      Thread.sleep(10);
+    }
+    assertEquals(lThreads * lRequestsPerThread, lStatistics.getSubmittedCount());
+    assertEquals(lStatistics.getSubmittedCount(), lStatistics.getExecutedCount() + lStatistics.getRejectedCount()
+        + lStatistics.getMaxLatencyExceededCount());
+    assertEquals(lPipeline.getRejectedTaskCount(), lStatistics.getRejectedCount());
+    assertEquals(lPipeline.getMaxLatencyExceededCounter(), lStatistics.getMaxLatencyExceededCount());
+    assertEquals(0, lStatistics.getFailedCount());
+
+    // Failed requests are tracked per request type.
+    final CountDownLatch lFailedLatch = new CountDownLatch(1);
+    lPipeline.execute(lFailingRequestTypeKey, lErrorHandler, new Runnable() {
+      @Override
+      public void run( ) {
+        lFailedLatch.countDown();
+        throw new IllegalStateException("Expected failure of test request.");
+      }
+    });
+    assertTrue(lFailedLatch.await(1, TimeUnit.SECONDS));
+    RequestTypeStatistics lFailingStatistics = lPipeline.getStatistics().getStatistics(lFailingRequestTypeKey);
+    lEnd = System.currentTimeMillis() + 1000;
+    while (lFailingStatistics.getFailedCount() == 0 && System.currentTimeMillis() < lEnd) {
+      Thread.sleep(5);
+    }
+    assertEquals(1, lFailingStatistics.getSubmittedCount());
+    assertEquals(1, lFailingStatistics.getExecutedCount());
+    assertEquals(1, lFailingStatistics.getFailedCount());
+
+    // Statistics table contains one row per request type.
+    assertEquals(2, lPipeline.getStatistics().getRequestTypeCount());
+    TabularData lTable = lPipeline.getStatistics().getRequestTypeStatistics();
+    assertEquals(2, lTable.size());
+    CompositeData lRow = lTable.get(new Object[] { lFailingRequestTypeKey.getKey() });
+    assertEquals(Long.valueOf(1), lRow.get("failed"));
+
+    lPipeline.getStatistics().resetStatistics();
+    assertEquals(0, lPipeline.getStatistics().getSubmittedCount());
+  }
+
+  @Test
+  @Order(65)
+  public void testRequestTypeStatisticsLimit( ) throws Exception {
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    PipelineStatistics lStatistics = lPipeline.getStatistics();
+
+    // Request types with request specific parts must not create statistics without limit.
+    for (int i = 0; i < PipelineStatistics.MAX_REQUEST_TYPES; i++) {
+      RequestTypeKey lKey = new RESTRequestTypeKey("api/v1/Customers/" + i, "GET");
+      assertEquals(lKey, lStatistics.getStatistics(lKey).getRequestTypeKey());
+    }
+    assertEquals(PipelineStatistics.MAX_REQUEST_TYPES, lStatistics.getRequestTypeCount());
+    RequestTypeKey lKey = new RESTRequestTypeKey("api/v1/Customers/Overflow", "GET");
+    RequestTypeStatistics lOverflowStatistics = lStatistics.getStatistics(lKey);
+    assertEquals(PipelineStatistics.OVERFLOW_REQUEST_TYPE, lOverflowStatistics.getRequestTypeKey().getKey());
+    assertEquals(PipelineStatistics.MAX_REQUEST_TYPES + 1, lStatistics.getRequestTypeCount());
+
+    // Known request types still use their own statistics.
+    lKey = new RESTRequestTypeKey("api/v1/Customers/0", "GET");
+    assertEquals(lKey, lStatistics.getStatistics(lKey).getRequestTypeKey());
+    assertTrue(lOverflowStatistics == lStatistics.getStatistics(new RESTRequestTypeKey("api/v1/Other", "GET")));
+  }
+
+  @Test
+  @Order(70)
+  public void testLatencyHistograms( ) throws Exception {
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Latencies", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // Execute requests with a known execution time one after the other.
+    int lExecutionTime = 20;
+    int lRequests = 10;
+    for (int i = 0; i < lRequests; i++) {
+      PipelineRunnable lRunnable = new PipelineRunnable(lExecutionTime);
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, lRunnable);
+      while (lRunnable.executed == false) {
+        Thread.sleep(5);
+      }
+    }
+    Thread.sleep(20);
+
+    // Check latencies of pipeline.
+    LatencySnapshot lServiceTime = lPipeline.getLatencies().getSnapshot(LatencyType.SERVICE_TIME);
+    assertEquals(lRequests, lServiceTime.getCount());
+    long lExecutionNanos = TimeUnit.MILLISECONDS.toNanos(lExecutionTime);
+    assertTrue(lServiceTime.getP50() >= lExecutionNanos * 0.95, lServiceTime.toString());
+    assertTrue(lServiceTime.getP50() <= lServiceTime.getP99());
+    assertTrue(lServiceTime.getP99() <= lServiceTime.getP999());
+    assertTrue(lServiceTime.getP999() <= lServiceTime.getMax());
+    LatencySnapshot lEndToEnd = lPipeline.getLatencies().getSnapshot(LatencyType.END_TO_END);
+    assertEquals(lRequests, lEndToEnd.getCount());
+    assertTrue(lEndToEnd.getMax() >= lServiceTime.getMax());
+    assertEquals(lRequests, lPipeline.getLatencies().getSnapshot(LatencyType.QUEUE_WAIT).getCount());
+    assertTrue(lPipeline.getServiceTimeP50Micros() >= TimeUnit.MILLISECONDS.toMicros(lExecutionTime) * 0.95);
+    assertTrue(lPipeline.getEndToEndMaxMicros() >= lPipeline.getServiceTimeP50Micros());
+
+    // Check latencies of request type.
+    RequestLatencies lRequestTypeLatencies = lPipeline.getStatistics().getStatistics(lRequestTypeKey).getLatencies();
+    assertEquals(lRequests, lRequestTypeLatencies.getSnapshot(LatencyType.SERVICE_TIME).getCount());
+
+    // Interval snapshots only contain the values since the last interval snapshot.
+    assertEquals(lRequests, lRequestTypeLatencies.getIntervalSnapshot(LatencyType.SERVICE_TIME).getCount());
+    assertEquals(0, lRequestTypeLatencies.getIntervalSnapshot(LatencyType.SERVICE_TIME).getCount());
+    assertEquals(lRequests, lRequestTypeLatencies.getSnapshot(LatencyType.SERVICE_TIME).getCount());
+
+    // Empty snapshot
+    lPipeline.getLatencies().reset();
+    LatencySnapshot lEmpty = lPipeline.getLatencies().getSnapshot(LatencyType.SERVICE_TIME);
+    assertEquals(0, lEmpty.getCount());
+    assertEquals(0, lEmpty.getP99());
+    assertEquals(0, lEmpty.getMax());
+  }
+
+  @Test
+  @Order(80)
+  public void testRates( ) throws Exception {
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    ManualClock lClock = new ManualClock();
+    Pipeline lPipeline = lClock.createPipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Rates", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // No requests so far.
+    RateSnapshot lRates = lPipeline.getPipelineInfo().getSubmissionRates();
+    assertEquals(0, lRates.getRate60s());
+    assertEquals(0, lRates.getPeak());
+
+    // Execute some requests within the first second and move on so that this second and an empty one are completed.
+    int lRequests = 10;
+    for (int i = 0; i < lRequests; i++) {
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, new PipelineRunnable(1));
+    }
+    while (lPipeline.getLatencies().getSnapshot(LatencyType.SERVICE_TIME).getCount() < lRequests) {
+      Thread.sleep(5);
+    }
+    lClock.advance(2, TimeUnit.SECONDS);
+
+    // Check rates of pipeline info.
+    PipelineInfo lPipelineInfo = lPipeline.getPipelineInfo();
+    lRates = lPipelineInfo.getSubmissionRates();
+    assertEquals(lRequests / 10.0, lRates.getRate10s(), 0.0001);
+    assertEquals(lRequests / 60.0, lRates.getRate60s(), 0.0001);
+    assertEquals(lRequests, lRates.getPeak());
+    assertEquals(0, lRates.getRate1s());
+    RateSnapshot lCompletionRates = lPipelineInfo.getCompletionRates();
+    assertEquals(lRequests / 10.0, lCompletionRates.getRate10s(), 0.0001);
+    assertEquals(0, lPipelineInfo.getRejectionRates().getRate60s());
+    assertEquals(0, lPipelineInfo.getLatencyViolationRates().getRate60s());
+
+    // Check rates of MBean.
+    assertEquals(lRequests / 10.0, lPipeline.getSubmissionRate10s(), 0.0001);
+    assertEquals(lRequests / 60.0, lPipeline.getCompletionRate60s(), 0.0001);
+    assertEquals(lRates.getPeak(), lPipeline.getSubmissionPeakRate());
+    assertEquals(0, lPipeline.getRejectionRate10s());
+    assertEquals(0, lPipeline.getLatencyViolationPeakRate());
+
+    // Requests drop out of the 10 seconds window first and then out of the 60 seconds window.
+    lClock.advance(9, TimeUnit.SECONDS);
+    assertEquals(0, lPipeline.getSubmissionRate10s());
+    assertEquals(lRequests / 60.0, lPipeline.getSubmissionRate60s(), 0.0001);
+    lClock.advance(50, TimeUnit.SECONDS);
+    assertEquals(0, lPipeline.getSubmissionRate60s());
+    assertEquals(0, lPipeline.getSubmissionPeakRate());
+  }
+
+  @Test
+  @Order(90)
+  public void testFlightRecorderEvents( ) throws Exception {
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Recorded", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // Events are disabled by default.
+    Path lFile = Files.createTempFile("workload", ".jfr");
+    try (Recording lRecording = new Recording()) {
+      lRecording.start();
+      PipelineRunnable lRunnable = new PipelineRunnable(1);
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, lRunnable);
+      while (lRunnable.executed == false) {
+        Thread.sleep(5);
+      }
+      lRecording.stop();
+      lRecording.dump(lFile);
+    }
+    for (RecordedEvent lNext : RecordingFile.readAllEvents(lFile)) {
+      assertFalse(lNext.getEventType().getName().startsWith("com.anaptecs.jeaf.workload"));
+    }
+
+    // Enable events of workload management.
+    try (Recording lRecording = new Recording()) {
+      lRecording.enable("com.anaptecs.jeaf.workload.RequestEnqueued");
+      lRecording.enable("com.anaptecs.jeaf.workload.RequestDequeued");
+      lRecording.enable("com.anaptecs.jeaf.workload.RequestExecution");
+      lRecording.start();
+      PipelineRunnable lRunnable = new PipelineRunnable(1);
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, lRunnable);
+      while (lRunnable.executed == false) {
+        Thread.sleep(5);
+      }
+      Thread.sleep(20);
+      lRecording.stop();
+      lRecording.dump(lFile);
+    }
+    List<String> lEventNames = new ArrayList<>();
+    for (RecordedEvent lNext : RecordingFile.readAllEvents(lFile)) {
+      String lName = lNext.getEventType().getName();
+      if (lName.startsWith("com.anaptecs.jeaf.workload")) {
+        lEventNames.add(lName);
+        assertEquals(FIFOPipeline.class.getName(), lNext.getString("pipelineID"));
+        assertEquals(lRequestTypeKey.getKey(), lNext.getString("requestKey"));
+      }
+    }
+    Files.delete(lFile);
+    assertTrue(lEventNames.contains("com.anaptecs.jeaf.workload.RequestEnqueued"), lEventNames.toString());
+    assertTrue(lEventNames.contains("com.anaptecs.jeaf.workload.RequestDequeued"), lEventNames.toString());
+    assertTrue(lEventNames.contains("com.anaptecs.jeaf.workload.RequestExecution"), lEventNames.toString());
+  }
+
+  @Test
+  @Order(100)
+  public void testResourceUsageSampling( ) throws Exception {
+    // Measure resource usage of every request.
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    PipelineConfigImpl lExtendedConfig = new PipelineConfigImpl();
+    lExtendedConfig.setResourceSamplingInterval(1);
+    Pipeline lPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig, lExtendedConfig.getExtendedPipelineConfig());
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Allocating", "POST");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // Execute request that allocates memory.
+    final int lBytes = 1024 * 1024;
+    final CountDownLatch lLatch = new CountDownLatch(1);
+    final byte[][] lResult = new byte[1][];
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, new Runnable() {
+      @Override
+      public void run( ) {
+        lResult[0] = new byte[lBytes];
+        lLatch.countDown();
+      }
+    });
+    assertTrue(lLatch.await(1, TimeUnit.SECONDS));
+    Thread.sleep(20);
+
+    RequestTypeStatistics lStatistics = lPipeline.getStatistics().getStatistics(lRequestTypeKey);
+    assertEquals(1, lStatistics.getSampledCount());
+    assertTrue(lStatistics.getAllocatedBytes() >= lBytes, "Allocated bytes: " + lStatistics.getAllocatedBytes());
+    assertTrue(lStatistics.getCpuTimeNanos() >= 0);
+    assertEquals(1, lPipeline.getStatistics().getSampledCount());
+    assertEquals(lStatistics.getAllocatedBytes(), lPipeline.getStatistics().getAllocatedBytes());
+    TabularData lTable = lPipeline.getStatistics().getRequestTypeStatistics();
+    CompositeData lRow = lTable.get(new Object[] { lRequestTypeKey.getKey() });
+    assertEquals(1L, lRow.get("sampled"));
+    assertEquals(lStatistics.getAllocatedBytes(), lRow.get("avgAllocatedBytes"));
+
+    // By default resource usage is not measured.
+    lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    PipelineRunnable lRunnable = new PipelineRunnable(1);
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, lRunnable);
+    while (lRunnable.executed == false) {
+      Thread.sleep(5);
+    }
+    Thread.sleep(20);
+    assertEquals(1, lPipeline.getStatistics().getStatistics(lRequestTypeKey).getExecutedCount());
+    assertEquals(0, lPipeline.getStatistics().getSampledCount());
+  }
+
+  @Test
+  @Order(110)
+  public void testHeavyHitters( ) throws Exception {
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // Execute many requests of one request type and a few requests of many other request types.
+    RESTRequestTypeKey lHotRequestTypeKey = new RESTRequestTypeKey("api/v1/Hot", "GET");
+    for (int i = 0; i < 100; i++) {
+      RESTRequestTypeKey lRequestTypeKey;
+      if (i % 2 == 0) {
+        lRequestTypeKey = lHotRequestTypeKey;
+      }
+      else {
+        lRequestTypeKey = new RESTRequestTypeKey("api/v1/Cold/" + i, "GET");
+      }
+      final CountDownLatch lLatch = new CountDownLatch(1);
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, new Runnable() {
+        @Override
+        public void run( ) {
+          lLatch.countDown();
+        }
+      });
+      assertTrue(lLatch.await(1, TimeUnit.SECONDS));
+    }
+
+    // Request type with most requests has to be the first heavy hitter.
+    Map<String, Long> lTopRequestTypes = lPipeline.getTopSubmittedRequestTypes();
+    assertTrue(lTopRequestTypes.size() <= 20, lTopRequestTypes.toString());
+    Map.Entry<String, Long> lFirst = lTopRequestTypes.entrySet().iterator().next();
+    assertEquals(lHotRequestTypeKey.getKey(), lFirst.getKey());
+    assertTrue(lFirst.getValue() >= 50, lTopRequestTypes.toString());
+    assertTrue(lPipeline.getTopRejectedRequestTypes().isEmpty());
+
+    // Reset heavy hitters.
+    lPipeline.resetTopRequestTypes();
+    assertTrue(lPipeline.getTopSubmittedRequestTypes().isEmpty());
+  }
+
+  @Test
+  @Order(120)
+  public void testSlowRequestDetection( ) throws Exception {
+    // Requests running longer than 50ms are slow.
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    PipelineConfigImpl lExtendedConfig = new PipelineConfigImpl();
+    lExtendedConfig.setSlowRequestThreshold(50);
+    lExtendedConfig.setSlowRequestReportInterval(100);
+    Pipeline lPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig, lExtendedConfig.getExtendedPipelineConfig());
+    RESTRequestTypeKey lSlowRequestTypeKey = new RESTRequestTypeKey("api/v1/Slow", "GET");
+    RESTRequestTypeKey lFastRequestTypeKey = new RESTRequestTypeKey("api/v1/Fast", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+
+    // Execute one slow and one fast request.
+    PipelineRunnable lSlowRunnable = new PipelineRunnable(500);
+    PipelineRunnable lFastRunnable = new PipelineRunnable(1);
+    lPipeline.execute(lSlowRequestTypeKey, lErrorHandler, lSlowRunnable);
+    lPipeline.execute(lFastRequestTypeKey, lErrorHandler, lFastRunnable);
+    Thread.sleep(150);
+
+    // Only the slow request has to be reported.
+    List<SlowRequest> lSlowRequests = lPipeline.getSlowRequests();
+    assertEquals(1, lSlowRequests.size());
+    SlowRequest lSlowRequest = lSlowRequests.get(0);
+    assertEquals(lSlowRequestTypeKey, lSlowRequest.getRequestTypeKey());
+    assertTrue(lSlowRequest.getRunningTime(TimeUnit.MILLISECONDS) >= 100);
+    assertTrue(lSlowRequest.toString().contains("Thread.sleep"), lSlowRequest.toString());
+    assertEquals(1, lPipeline.getSlowRequestCount());
+    assertEquals(1, lPipeline.getSlowRequestDetails().length);
+
+    // After the request is finished it is no longer reported.
+    while (lSlowRunnable.executed == false) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(20);
+    assertTrue(lPipeline.getSlowRequests().isEmpty());
+    assertEquals(0, lPipeline.getSlowRequestDetails().length);
+
+    // Detection of slow requests is disabled by default.
+    lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    lSlowRunnable = new PipelineRunnable(200);
+    lPipeline.execute(lSlowRequestTypeKey, lErrorHandler, lSlowRunnable);
+    Thread.sleep(100);
+    assertTrue(lPipeline.getSlowRequests().isEmpty());
+  }
+
+  @Test
+  @Order(130)
+  public void testTimeSeries( ) throws Exception {
+    // Time series is disabled by default.
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    assertEquals(0, new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig).getTimeSeries().getCapacity());
+
+    // Time series only keeps the last 3 seconds.
+    PipelineConfigImpl lExtendedConfig = new PipelineConfigImpl();
+    lExtendedConfig.setTimeSeriesSize(3);
+    Pipeline lPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig, lExtendedConfig.getExtendedPipelineConfig());
+    assertEquals(3, lPipeline.getTimeSeries().getCapacity());
+    assertTrue(lPipeline.getTimeSeries().isSampling());
+    assertEquals(0, lPipeline.getTimeSeries().getSize());
+    assertEquals(1, lPipeline.dumpTimeSeriesAsCSV().split("\n").length);
+    assertTrue(lPipeline.dumpTimeSeriesAsJSON().endsWith("\"samples\":[]}"), lPipeline.dumpTimeSeriesAsJSON());
+
+    // Execute requests while samples are taken.
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/TimeSeries", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    for (int i = 0; i < 20; i++) {
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, new PipelineRunnable(10));
+      Thread.sleep(200);
+    }
+    assertEquals(3, lPipeline.getTimeSeries().getSize());
+    assertEquals(3, lPipeline.getTimeSeriesSize());
+
+    // Check CSV dump.
+    String[] lLines = lPipeline.dumpTimeSeriesAsCSV().split("\n");
+    assertEquals(4, lLines.length);
+    assertTrue(lLines[0].startsWith("timestamp,queueSize,activeCount,poolSize,submitted,completed"), lLines[0]);
+    long lPreviousTimestamp = 0;
+    long lCompleted = 0;
+    for (int i = 1; i < lLines.length; i++) {
+      String[] lValues = lLines[i].split(",");
+      assertEquals(14, lValues.length);
+      long lTimestamp = Long.parseLong(lValues[0]);
+      assertTrue(lTimestamp > lPreviousTimestamp);
+      lPreviousTimestamp = lTimestamp;
+      lCompleted += Long.parseLong(lValues[5]);
+      assertEquals("0", lValues[6]);
+    }
+    assertTrue(lCompleted > 0);
+
+    // Check JSON dump.
+    String lJSON = lPipeline.dumpTimeSeriesAsJSON();
+    assertTrue(lJSON.startsWith("{\"pipelineID\":\"" + FIFOPipeline.class.getName() + "\",\"interval\":1000"), lJSON);
+    assertTrue(lJSON.contains("\"columns\":[\"timestamp\",\"queueSize\""), lJSON);
+    assertEquals(3, lJSON.split("\\],\\[").length);
+
+    // Time series can be disabled. In this case no samples are ever scheduled.
+    lExtendedConfig.setTimeSeriesSize(0);
+    lPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig, lExtendedConfig.getExtendedPipelineConfig());
+    assertEquals(0, lPipeline.getTimeSeries().getCapacity());
+    assertFalse(lPipeline.getTimeSeries().isSampling());
+    assertEquals(0, lPipeline.getTimeSeries().getSize());
+  }
+
+  @Test
+  @Order(140)
+  public void testRuntimeTuning( ) throws Exception {
+    Pipeline lPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), FIFOPipeline.class.getAnnotation(PipelineConfig.class));
+    final List<AttributeChangeNotification> lNotifications = Collections.synchronizedList(new ArrayList<>());
+    lPipeline.addNotificationListener(new NotificationListener() {
+      @Override
+      public void handleNotification( Notification pNotification, Object pHandback ) {
+        lNotifications.add((AttributeChangeNotification) pNotification);
+      }
+    }, null, null);
+
+    // Change thread pool.
+    lPipeline.setMaximumPoolSize(8);
+    assertEquals(FIFOPipeline.CORE_THREADS, lPipeline.getCorePoolSize());
+    assertEquals(8, lPipeline.getMaximumPoolSize());
+    assertEquals(1, lNotifications.size());
+    assertEquals("MaximumPoolSize", lNotifications.get(0).getAttributeName());
+    assertEquals(FIFOPipeline.MAX_THREADS, lNotifications.get(0).getOldValue());
+    assertEquals(8, lNotifications.get(0).getNewValue());
+
+    lPipeline.setCorePoolSize(10);
+    assertEquals(10, lPipeline.getCorePoolSize());
+    assertEquals(10, lPipeline.getMaximumPoolSize());
+    assertEquals(3, lNotifications.size());
+    try {
+      lPipeline.setMaximumPoolSize(3);
+      fail("Maximum pool size must not be less than core pool size.");
+    }
+    catch (IllegalArgumentException e) {
+      assertEquals(10, lPipeline.getMaximumPoolSize());
+    }
+    lPipeline.resizeThreadPool(1, 1);
+    assertEquals(1, lPipeline.getCorePoolSize());
+    assertEquals(1, lPipeline.getMaximumPoolSize());
+    lPipeline.setKeepAliveTime(1234);
+    assertEquals(1234, lPipeline.getKeepAliveTime());
+    assertEquals(6, lNotifications.size());
+
+    // Unchanged values do not cause notifications.
+    lPipeline.resizeThreadPool(1, 1);
+    assertEquals(6, lNotifications.size());
+
+    // Change max latency and queue depth.
+    lPipeline.setMaxLatency(0);
+    assertEquals(0, lPipeline.getMaxLatency());
+    assertEquals(FIFOPipeline.MAX_QUEUE_DEPTH, lPipeline.getMaxQueueDepth());
+    lPipeline.setMaxQueueDepth(2);
+    assertEquals(2, lPipeline.getMaxQueueDepth());
+    assertEquals(2, lPipeline.getRemainingQueueCapacity());
+    assertEquals(8, lNotifications.size());
+    assertEquals("MaxQueueDepth", lNotifications.get(7).getAttributeName());
+
+    // Block the only thread and fill the queue.
+    final CountDownLatch lLatch = new CountDownLatch(1);
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Tuning", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, new Runnable() {
+      @Override
+      public void run( ) {
+        try {
+          lLatch.await();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    Thread.sleep(50);
+    for (int i = 0; i < 3; i++) {
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, new PipelineRunnable(1));
+    }
+    assertEquals(2, lPipeline.getQueueSize());
+    assertEquals(1, lPipeline.getRejectedTaskCount());
+
+    // Reduced queue depth keeps queued requests, increased queue depth accepts further ones.
+    lPipeline.setMaxQueueDepth(1);
+    assertEquals(2, lPipeline.getQueueSize());
+    assertEquals(0, lPipeline.getRemainingQueueCapacity());
+    lPipeline.setMaxQueueDepth(4);
+    assertEquals(2, lPipeline.getRemainingQueueCapacity());
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, new PipelineRunnable(1));
+    assertEquals(3, lPipeline.getQueueSize());
+    assertEquals(1, lPipeline.getRejectedTaskCount());
+    lLatch.countDown();
+    long lEnd = System.currentTimeMillis() + 2000;
+    while (lPipeline.getCompletedTaskCount() < 4 && System.currentTimeMillis() < lEnd) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, lPipeline.getQueueSize());
+    assertEquals(4, lPipeline.getCompletedTaskCount());
+
+    // Changes are also possible through JMX.
+    MBeanServer lMBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName lObjectName = new ObjectName("com.anaptecs.jeaf.workload:type=Pipelines, name=RuntimeTuning");
+    lMBeanServer.registerMBean(lPipeline, lObjectName);
+    try {
+      lMBeanServer.setAttribute(lObjectName, new Attribute("MaxLatency", 500));
+      assertEquals(500, lPipeline.getMaxLatency());
+      lMBeanServer.invoke(lObjectName, "resizeThreadPool", new Object[] { 2, 4 },
+          new String[] { int.class.getName(), int.class.getName() });
+      assertEquals(2, lPipeline.getCorePoolSize());
+      assertEquals(4, lPipeline.getMaximumPoolSize());
+      assertEquals(1, lMBeanServer.getMBeanInfo(lObjectName).getNotifications().length);
+    }
+    finally {
+      lMBeanServer.unregisterMBean(lObjectName);
+    }
+
+    // Queue depth of pipelines without queue can not be changed.
+    Pipeline lNoQueuingPipeline =
+        new Pipeline(NoQueuingPipeline.class.getName(), NoQueuingPipeline.class.getAnnotation(PipelineConfig.class));
+    try {
+      lNoQueuingPipeline.setMaxQueueDepth(10);
+      fail("Queue depth of pipeline without queue must not be changeable.");
+    }
+    catch (IllegalStateException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  @Order(150)
+  public void testWarmUp( ) throws Exception {
+    // Without warm-up threads are started on demand and concurrency is not limited.
+    PipelineConfig lPipelineConfig = FIFOPipeline.class.getAnnotation(PipelineConfig.class);
+    Pipeline lPipeline = new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig);
+    assertEquals(0, lPipeline.getPoolSize());
+    assertFalse(lPipeline.isWarmingUp());
+    assertEquals(0, lPipeline.getRemainingWarmUpTime());
+    assertEquals(FIFOPipeline.MAX_THREADS, lPipeline.getConcurrencyLimit());
+
+    // Prestart core threads and ramp up concurrency during 2 seconds.
+    PipelineConfigImpl lExtendedConfig = new PipelineConfigImpl();
+    lExtendedConfig.setPrestartCoreThreads(true);
+    lExtendedConfig.setWarmUpTime(2000);
+    lPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), lPipelineConfig, lExtendedConfig.getExtendedPipelineConfig());
+    // Threads are only counted as soon as they are running.
+    for (int i = 0; i < 100 && lPipeline.getPoolSize() < FIFOPipeline.CORE_THREADS; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(FIFOPipeline.CORE_THREADS, lPipeline.getPoolSize());
+    assertTrue(lPipeline.isWarmingUp());
+    assertEquals(1, lPipeline.getConcurrencyLimit());
+    assertTrue(lPipeline.getRemainingWarmUpTime() > 1500);
+
+    // At the beginning of the warm-up only one request is executed at a time.
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/WarmUp", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    List<PipelineRunnable> lRunnables = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      PipelineRunnable lRunnable = new PipelineRunnable(100);
+      lRunnables.add(lRunnable);
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, lRunnable);
+    }
+    Thread.sleep(50);
+    assertEquals(1, lPipeline.getActiveCount());
+    // Requests that can not be started yet remain queued.
+    assertEquals(3, lPipeline.getQueueSize());
+    Thread.sleep(600);
+    for (PipelineRunnable lNextRunnable : lRunnables) {
+      assertTrue(lNextRunnable.executed);
+    }
+    assertTrue(lErrorHandler.noExceptions);
+
+    // After the warm-up the full concurrency is available.
+    for (int i = 0; i < 30 && lPipeline.isWarmingUp(); i++) {
+      Thread.sleep(100);
+    }
+    assertFalse(lPipeline.isWarmingUp());
+    assertEquals(0, lPipeline.getRemainingWarmUpTime());
+    assertEquals(FIFOPipeline.MAX_THREADS, lPipeline.getConcurrencyLimit());
+    final CountDownLatch lLatch = new CountDownLatch(1);
+    for (int i = 0; i < FIFOPipeline.MAX_THREADS; i++) {
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, new Runnable() {
+        @Override
+        public void run( ) {
+          try {
+            lLatch.await();
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+    }
+    for (int i = 0; i < 20 && lPipeline.getActiveCount() < FIFOPipeline.CORE_THREADS; i++) {
+      Thread.sleep(50);
+    }
+    assertEquals(FIFOPipeline.CORE_THREADS, lPipeline.getActiveCount());
+    lLatch.countDown();
+    assertTrue(lErrorHandler.noExceptions);
+  }
+
+  @Test
+  @Order(155)
+  public void testWarmUpWithFullQueue( ) throws Exception {
+    PipelineConfigImpl lConfig = new PipelineConfigImpl();
+    lConfig.setId("WarmUpOverflowPipeline");
+    lConfig.setCoreThreads(1);
+    lConfig.setMaxThreads(4);
+    lConfig.setMaxQueueDepth(2);
+    lConfig.setWarmUpTime(5000);
+    Pipeline lPipeline =
+        new Pipeline(lConfig.getId(), lConfig.getPipelineConfig(), lConfig.getExtendedPipelineConfig());
+    assertTrue(lPipeline.isWarmingUp());
+    assertEquals(1, lPipeline.getConcurrencyLimit());
+
+    // Requests that do not fit into the queue do not start additional threads that bypass the concurrency limit.
+    final CountDownLatch lLatch = new CountDownLatch(1);
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/WarmUpOverflow", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    for (int i = 0; i < 6; i++) {
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, new Runnable() {
+        @Override
+        public void run( ) {
+          try {
+            lLatch.await();
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      // Only the first request is started, so all others stay queued or are rejected.
+      for (int j = 0; j < 100 && i == 0 && lPipeline.getActiveCount() == 0; j++) {
+        Thread.sleep(10);
+      }
+    }
+    Thread.sleep(50);
+    assertEquals(1, lPipeline.getActiveCount());
+    assertEquals(2, lPipeline.getQueueSize());
+    assertTrue(lErrorHandler.requestRejected);
+    lLatch.countDown();
+    lPipeline.shutdown(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  @Order(160)
+  public void testPipelineThreads( ) throws Exception {
+    // Threads are named after the pipeline and use the configured priority.
+    PipelineConfigImpl lConfig = new PipelineConfigImpl();
+    lConfig.setId("ThreadPipeline");
+    lConfig.setName("Thread-Pipeline");
+    lConfig.setCoreThreads(1);
+    lConfig.setThreadPriority(Thread.MIN_PRIORITY);
+    lConfig.setDaemonThreads(true);
+    lConfig.setThreadStackSize(256 * 1024);
+    lConfig.setUncaughtExceptionHandler(RecordingExceptionHandler.class.getName());
+    Pipeline lPipeline =
+        new Pipeline(lConfig.getId(), lConfig.getPipelineConfig(), lConfig.getExtendedPipelineConfig());
+    assertEquals("Thread-Pipeline", lPipeline.getThreadGroupName());
+    assertEquals(Thread.MIN_PRIORITY, lPipeline.getThreadPriority());
+
+    Thread lThread = this.getExecutingThread(lPipeline);
+    assertEquals("Thread-Pipeline-thread-1", lThread.getName());
+    assertEquals("Thread-Pipeline", lThread.getThreadGroup().getName());
+    assertEquals(Thread.MIN_PRIORITY, lThread.getPriority());
+    assertTrue(lThread.isDaemon());
+    assertTrue(lThread.getUncaughtExceptionHandler() instanceof RecordingExceptionHandler);
+
+    // Invalid priorities are rejected.
+    lConfig.setThreadPriority(Thread.MAX_PRIORITY + 1);
+    try {
+      new Pipeline(lConfig.getId(), lConfig.getPipelineConfig(), lConfig.getExtendedPipelineConfig());
+      fail("Invalid thread priority must be rejected.");
+    }
+    catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("ThreadPipeline"), e.getMessage());
+    }
+
+    // Without uncaught exception handler the thread group of the pipeline handles exceptions.
+    Pipeline lDefaultPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), FIFOPipeline.class.getAnnotation(PipelineConfig.class));
+    lThread = this.getExecutingThread(lDefaultPipeline);
+    assertEquals("FIFO-Pipeline-thread-1", lThread.getName());
+    assertFalse(lThread.isDaemon());
+    assertEquals(Thread.NORM_PRIORITY, lThread.getPriority());
+    assertEquals(lThread.getThreadGroup(), lThread.getUncaughtExceptionHandler());
+  }
+
+  @Test
+  @Order(170)
+  public void testPauseAndShutdown( ) throws Exception {
+    Pipeline lPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), FIFOPipeline.class.getAnnotation(PipelineConfig.class));
+    final List<AttributeChangeNotification> lNotifications = Collections.synchronizedList(new ArrayList<>());
+    lPipeline.addNotificationListener(new NotificationListener() {
+      @Override
+      public void handleNotification( Notification pNotification, Object pHandback ) {
+        lNotifications.add((AttributeChangeNotification) pNotification);
+      }
+    }, null, null);
+
+    // Paused pipeline accepts requests but does not execute them.
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Lifecycle", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    lPipeline.pause();
+    assertTrue(lPipeline.isPaused());
+    assertEquals("Paused", lNotifications.get(0).getAttributeName());
+    List<PipelineRunnable> lRunnables = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      PipelineRunnable lRunnable = new PipelineRunnable(1);
+      lRunnables.add(lRunnable);
+      lPipeline.execute(lRequestTypeKey, lErrorHandler, lRunnable);
+    }
+    Thread.sleep(100);
+    assertEquals(0, lPipeline.getCompletedTaskCount());
+    // Requests remain queued. Threads do not take them while the pipeline is paused.
+    assertEquals(3, lPipeline.getQueueSize());
+
+    // After resume all requests are executed.
+    lPipeline.resume();
+    assertFalse(lPipeline.isPaused());
+    assertEquals(2, lNotifications.size());
+    Thread.sleep(100);
+    for (PipelineRunnable lNextRunnable : lRunnables) {
+      assertTrue(lNextRunnable.executed);
+    }
+    assertTrue(lErrorHandler.noExceptions);
+
+    // Drained pipeline is shut down in time.
+    assertTrue(lPipeline.shutdown(1, TimeUnit.SECONDS));
+    assertTrue(lPipeline.isShutdown());
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, new PipelineRunnable(1));
+    assertTrue(lErrorHandler.requestRejected);
+    try {
+      lPipeline.pause();
+      fail("Pipeline that is shut down must not be paused.");
+    }
+    catch (IllegalStateException e) {
+      // Expected.
+    }
+
+    // Requests that can not be drained in time are rejected.
+    lPipeline = new Pipeline(FIFOPipeline.class.getName(), FIFOPipeline.class.getAnnotation(PipelineConfig.class));
+    lPipeline.resizeThreadPool(1, 1);
+    final CountDownLatch lLatch = new CountDownLatch(1);
+    lPipeline.execute(lRequestTypeKey, new WorkloadErrorHandlerImpl(), new Runnable() {
+      @Override
+      public void run( ) {
+        try {
+          lLatch.await();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    lErrorHandler = new WorkloadErrorHandlerImpl();
+    PipelineRunnable lQueuedRunnable = new PipelineRunnable(1);
+    lPipeline.execute(lRequestTypeKey, lErrorHandler, lQueuedRunnable);
+    Thread.sleep(50);
+    assertFalse(lPipeline.shutdown(100, TimeUnit.MILLISECONDS));
+    assertTrue(lErrorHandler.requestRejected);
+    assertFalse(lQueuedRunnable.executed);
+    assertTrue(lPipeline.isShutdown());
+  }
+
+  @Test
+  @Order(180)
+  public void testAdmissionPermits( ) throws Exception {
+    // Pipeline can take one running and one queued request.
+    PipelineConfigImpl lConfig = new PipelineConfigImpl();
+    lConfig.setId("PermitPipeline");
+    lConfig.setCoreThreads(1);
+    lConfig.setMaxThreads(1);
+    lConfig.setMaxQueueDepth(1);
+    lConfig.setAdmissionPermitTimeout(200);
+    Pipeline lPipeline =
+        new Pipeline(lConfig.getId(), lConfig.getPipelineConfig(), lConfig.getExtendedPipelineConfig());
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Permits", "POST");
+
+    // Permits reserve capacity until they are used, released or expire.
+    AdmissionPermit lPermit1 = lPipeline.tryAcquire(lRequestTypeKey);
+    AdmissionPermit lPermit2 = lPipeline.tryAcquire(lRequestTypeKey);
+    assertNotNull(lPermit1);
+    assertNotNull(lPermit2);
+    assertEquals(lRequestTypeKey, lPermit1.getRequestTypeKey());
+    assertNull(lPipeline.tryAcquire(lRequestTypeKey));
+    assertEquals(2, lPipeline.getReservedPermitCount());
+    assertEquals(1, lPipeline.getRejectedTaskCount());
+    lPermit2.release();
+    assertFalse(lPermit2.isValid());
+    assertEquals(1, lPipeline.getReservedPermitCount());
+    AdmissionPermit lPermit3 = lPipeline.tryAcquire(lRequestTypeKey);
+    assertNotNull(lPermit3);
+
+    // Request that is handed over with a permit keeps its capacity.
+    final CountDownLatch lLatch = new CountDownLatch(1);
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    lPipeline.execute(lPermit1, lErrorHandler, new Runnable() {
+      @Override
+      public void run( ) {
+        try {
+          lLatch.await();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    assertFalse(lPermit1.isValid());
+    assertEquals(1, lPipeline.getReservedPermitCount());
+    Thread.sleep(50);
+    assertNull(lPipeline.tryAcquire(lRequestTypeKey));
+
+    // Unused permit expires and its capacity is available again.
+    for (int i = 0; i < 50 && lPermit3.isValid(); i++) {
+      Thread.sleep(20);
+    }
+    assertFalse(lPermit3.isValid());
+    assertEquals(1, lPipeline.getExpiredPermitCount());
+    assertEquals(0, lPipeline.getReservedPermitCount());
+    AdmissionPermit lPermit4 = lPipeline.tryAcquire(lRequestTypeKey);
+    assertNotNull(lPermit4);
+
+    // Expired permits can not be used any longer.
+    PipelineRunnable lRunnable = new PipelineRunnable(1);
+    lPipeline.execute(lPermit3, lErrorHandler, lRunnable);
+    assertTrue(lErrorHandler.requestRejected);
+    lErrorHandler.reset();
+
+    // Valid permit is consumed.
+    lRunnable = new PipelineRunnable(1);
+    lPipeline.execute(lPermit4, lErrorHandler, lRunnable);
+    lLatch.countDown();
+    Thread.sleep(100);
+    assertTrue(lRunnable.executed);
+    assertTrue(lErrorHandler.noExceptions);
+    assertEquals(0, lPipeline.getReservedPermitCount());
+    lPipeline.execute(lPermit4, lErrorHandler, new PipelineRunnable(1));
+    assertTrue(lErrorHandler.requestRejected);
+
+    // Permits are bound to their pipeline.
+    Pipeline lOtherPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), FIFOPipeline.class.getAnnotation(PipelineConfig.class));
+    try {
+      lOtherPipeline.execute(lPipeline.tryAcquire(lRequestTypeKey), lErrorHandler, new PipelineRunnable(1));
+      fail("Permit of other pipeline must be rejected.");
+    }
+    catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("PermitPipeline"), e.getMessage());
+    }
+
+    // Pipelines that are shut down do not issue permits.
+    lOtherPipeline.shutdown(0, TimeUnit.MILLISECONDS);
+    assertNull(lOtherPipeline.tryAcquire(lRequestTypeKey));
+  }
+
+  @Test
+  @Order(190)
+  public void testRequestTypePriorities( ) throws Exception {
+    PipelineConfigImpl lConfig = new PipelineConfigImpl();
+    lConfig.setId("PriorityPipeline");
+    lConfig.setCoreThreads(1);
+    lConfig.setMaxThreads(1);
+    lConfig.setQueueType(QueueType.PRIORIZED);
+    lConfig.setMaxQueueDepth(10);
+    lConfig.setMaxLatency(5000);
+    Pipeline lPipeline =
+        new Pipeline(lConfig.getId(), lConfig.getPipelineConfig(), lConfig.getExtendedPipelineConfig());
+
+    // Request types with their own priority and latency budget share one pipeline.
+    RESTRequestTypeKey lLowKey = new RESTRequestTypeKey("api/v1/Low", "GET");
+    RESTRequestTypeKey lHighKey = new RESTRequestTypeKey("api/v1/High", "GET");
+    RESTRequestTypeKey lStrictKey = new RESTRequestTypeKey("api/v1/Strict", "GET");
+    lPipeline.configureRequestType(lHighKey, new RequestTypeSettings(-1, -1, 10, TimeUnit.MILLISECONDS));
+    lPipeline.configureRequestType(lStrictKey, new RequestTypeSettings(-1, 50, 0, TimeUnit.MILLISECONDS));
+
+    // Block the only thread.
+    final CountDownLatch lLatch = new CountDownLatch(1);
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    lPipeline.execute(lLowKey, lErrorHandler, new Runnable() {
+      @Override
+      public void run( ) {
+        try {
+          lLatch.await();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    Thread.sleep(50);
+
+    // Queue requests with different priorities.
+    final List<String> lExecutionOrder = Collections.synchronizedList(new ArrayList<>());
+    WorkloadErrorHandlerImpl lStrictErrorHandler = new WorkloadErrorHandlerImpl();
+    lPipeline.execute(lLowKey, lErrorHandler, this.createRecordingRunnable(lExecutionOrder, "Low-1"));
+    lPipeline.execute(lStrictKey, lStrictErrorHandler, this.createRecordingRunnable(lExecutionOrder, "Strict"));
+    lPipeline.execute(lHighKey, lErrorHandler, this.createRecordingRunnable(lExecutionOrder, "High-1"));
+    lPipeline.execute(lLowKey, lErrorHandler, this.createRecordingRunnable(lExecutionOrder, "Low-2"));
+    lPipeline.execute(lHighKey, lErrorHandler, this.createRecordingRunnable(lExecutionOrder, "High-2"));
+    assertEquals(5, lPipeline.getQueueSize());
+
+    // Request with strict latency budget expires while the request types with the pipeline's budget are still queued.
+    Thread.sleep(200);
+    assertTrue(lStrictErrorHandler.maximumLatencyExceeded);
+    assertEquals(4, lPipeline.getQueueSize());
+
+    // Requests with higher priority are executed first, requests with the same priority in FIFO order.
+    lLatch.countDown();
+    long lEnd = System.currentTimeMillis() + 2000;
+    while (lExecutionOrder.size() < 4 && System.currentTimeMillis() < lEnd) {
+      Thread.sleep(10);
+    }
+    assertEquals(Arrays.asList("High-1", "High-2", "Low-1", "Low-2"), lExecutionOrder);
+    assertTrue(lErrorHandler.noExceptions);
+  }
+
+  @Test
+  @Order(200)
+  public void testThreadBudgetAllocator( ) throws Exception {
+    ManualClock lClock = new ManualClock();
+    Map<String, Pipeline> lPipelines = new HashMap<>();
+    for (String lNextID : new String[] { "BusyPipeline", "IdlePipeline" }) {
+      PipelineConfigImpl lConfig = new PipelineConfigImpl();
+      lConfig.setId(lNextID);
+      lConfig.setCoreThreads(2);
+      lConfig.setMaxThreads(2);
+      lConfig.setMaxQueueDepth(100);
+      lPipelines.put(lNextID,
+          lClock.createPipeline(lConfig.getId(), lConfig.getPipelineConfig(), lConfig.getExtendedPipelineConfig()));
+    }
+    ThreadBudgetAllocator lAllocator = new ThreadBudgetAllocator(lPipelines, 6, 1000);
+    lAllocator.setPipelineBounds("BusyPipeline", 1, 4);
+    assertEquals("1..4", lAllocator.getPipelineBounds().get("BusyPipeline"));
+    assertEquals("1..6", lAllocator.getPipelineBounds().get("IdlePipeline"));
+
+    // Create load on one pipeline. Arrival rates are only available for completed seconds.
+    Pipeline lBusyPipeline = lPipelines.get("BusyPipeline");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Budget", "GET");
+    for (int i = 0; i < 50; i++) {
+      lBusyPipeline.execute(lRequestTypeKey, lErrorHandler, new PipelineRunnable(5));
+    }
+    while (lBusyPipeline.getLatencies().getSnapshot(LatencyType.SERVICE_TIME).getCount() < 50) {
+      Thread.sleep(5);
+    }
+    lClock.advance(1, TimeUnit.SECONDS);
+    assertEquals(5.0, lBusyPipeline.getSubmissionRate10s(), 0.0001);
+    assertTrue(lErrorHandler.noExceptions);
+
+    // Busy pipeline gets as many threads as its bounds allow, the rest of the budget goes to the idle one.
+    lAllocator.rebalance();
+    assertEquals(1, lAllocator.getRebalanceCount());
+    assertEquals(Integer.valueOf(4), lAllocator.getAllocations().get("BusyPipeline"));
+    assertEquals(Integer.valueOf(2), lAllocator.getAllocations().get("IdlePipeline"));
+    assertEquals(4, lBusyPipeline.getCorePoolSize());
+    assertEquals(4, lBusyPipeline.getMaximumPoolSize());
+    assertEquals(1, lAllocator.getDecisionHistory().length);
+    assertTrue(lAllocator.getDecisionHistory()[0].contains("BusyPipeline': 2 -> 4 threads"),
+        lAllocator.getDecisionHistory()[0]);
+
+    // Budget that does not cover all minimums.
+    lAllocator.setTotalThreads(1);
+    lAllocator.rebalance();
+    assertEquals(Integer.valueOf(1), lAllocator.getAllocations().get("BusyPipeline"));
+    assertEquals(Integer.valueOf(1), lAllocator.getAllocations().get("IdlePipeline"));
+    assertEquals(1, lBusyPipeline.getMaximumPoolSize());
+    assertEquals(4, lAllocator.getDecisionHistory().length);
+
+    // Externally managed pipelines are not resized but their threads are not available for other pipelines.
+    lAllocator.setTotalThreads(6);
+    lAllocator.setPipelineBounds("BusyPipeline", 1, 6);
+    lAllocator.setExternallyManagedPipelines(Collections.singleton("IdlePipeline"));
+    lAllocator.rebalance();
+    assertEquals(Integer.valueOf(5), lAllocator.getAllocations().get("BusyPipeline"));
+    assertNull(lAllocator.getAllocations().get("IdlePipeline"));
+    assertEquals(5, lBusyPipeline.getMaximumPoolSize());
+    assertEquals(1, lPipelines.get("IdlePipeline").getMaximumPoolSize());
+
+    // Invalid bounds and budgets are rejected.
+    try {
+      lAllocator.setPipelineBounds("IdlePipeline", 3, 2);
+      fail("Invalid bounds must be rejected.");
+    }
+    catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("IdlePipeline"), e.getMessage());
+    }
+    try {
+      lAllocator.setTotalThreads(0);
+      fail("Invalid budget must be rejected.");
+    }
+    catch (IllegalArgumentException e) {
+      // Expected
+    }
+    for (Pipeline lNextPipeline : lPipelines.values()) {
+      lNextPipeline.shutdown(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  @Order(210)
+  public void testCapacityAdvisor( ) throws Exception {
+    ManualClock lClock = new ManualClock();
+    Map<String, Pipeline> lPipelines = new HashMap<>();
+    for (String lNextID : new String[] { "AdvisedPipeline", "UnusedPipeline" }) {
+      PipelineConfigImpl lConfig = new PipelineConfigImpl();
+      lConfig.setId(lNextID);
+      lConfig.setCoreThreads(2);
+      lConfig.setMaxThreads(3);
+      lConfig.setMaxQueueDepth(100);
+      lConfig.setMaxLatency(20);
+      lPipelines.put(lNextID,
+          lClock.createPipeline(lConfig.getId(), lConfig.getPipelineConfig(), lConfig.getExtendedPipelineConfig()));
+    }
+    CapacityAdvisor lAdvisor = new CapacityAdvisor(lPipelines);
+    assertEquals(CapacityAdvisor.DEFAULT_TARGET_UTILIZATION, lAdvisor.getTargetUtilization());
+
+    // Create load on one pipeline. Arrival rates are only available for completed seconds.
+    Pipeline lAdvisedPipeline = lPipelines.get("AdvisedPipeline");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Capacity", "GET");
+    for (int i = 0; i < 40; i++) {
+      lAdvisedPipeline.execute(lRequestTypeKey, lErrorHandler, new PipelineRunnable(10));
+      Thread.sleep(5);
+    }
+    while (lAdvisedPipeline.getCompletedTaskCount() < 40) {
+      Thread.sleep(5);
+    }
+    lClock.advance(1, TimeUnit.SECONDS);
+
+    // Recommendation is based on observed load.
+    List<CapacityRecommendation> lRecommendations = lAdvisor.recommend();
+    assertEquals(2, lRecommendations.size());
+    CapacityRecommendation lRecommendation = lRecommendations.get(0);
+    assertEquals("AdvisedPipeline", lRecommendation.getPipelineID());
+    assertTrue(lRecommendation.hasSufficientData());
+    assertEquals(40 / 60.0, lRecommendation.getArrivalRate(), 0.0001);
+    assertEquals(40, lRecommendation.getPeakArrivalRate());
+    assertTrue(lRecommendation.getMeanServiceNanos() >= TimeUnit.MILLISECONDS.toNanos(10), lRecommendation.toString());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(20), lRecommendation.getMaxNanoLatency());
+    assertTrue(lRecommendation.getCoreThreads() >= 1);
+    assertTrue(lRecommendation.getMaxThreads() >= 2, lRecommendation.toString());
+    assertTrue(lRecommendation.getMaxThreads() >= lRecommendation.getCoreThreads());
+    assertTrue(lRecommendation.getUtilization() <= CapacityAdvisor.DEFAULT_TARGET_UTILIZATION);
+    assertTrue(lRecommendation.getLatencyViolationProbability() <= CapacityAdvisor.MAX_LATENCY_VIOLATION_PROBABILITY);
+    assertEquals(Math.max(1, lRecommendation.getMaxNanoLatency() * lRecommendation.getCoreThreads()
+        / lRecommendation.getMeanServiceNanos()), lRecommendation.getMaxQueueDepth());
+
+    // Pipeline without requests keeps its settings.
+    lRecommendation = lRecommendations.get(1);
+    assertFalse(lRecommendation.hasSufficientData());
+    assertEquals(2, lRecommendation.getCoreThreads());
+    assertEquals(3, lRecommendation.getMaxThreads());
+    assertEquals(100, lRecommendation.getMaxQueueDepth());
+    assertEquals(2, lAdvisor.getRecommendations().length);
+
+    // YAML snippet has the structure of the YAML configuration. Pipelines that are not defined in YAML are comments.
+    String lYAML = lAdvisor.recommendAsYAML();
+    Map<String, List<Map<String, Object>>> lParsedYAML = new Yaml().load(lYAML);
+    assertTrue(lParsedYAML.get("pipelines").isEmpty(), lYAML);
+    assertTrue(lYAML.contains("# -   id: UnusedPipeline"), lYAML);
+    lAdvisor.setYAMLPipelines(new HashSet<>(Arrays.asList("AdvisedPipeline", "UnusedPipeline")));
+    lYAML = lAdvisor.recommendAsYAML();
+    lParsedYAML = new Yaml().load(lYAML);
+    List<Map<String, Object>> lParsedPipelines = lParsedYAML.get("pipelines");
+    assertEquals(2, lParsedPipelines.size());
+    assertEquals("AdvisedPipeline", lParsedPipelines.get(0).get("id"));
+    assertEquals(lRecommendations.get(0).getCoreThreads(), lParsedPipelines.get(0).get("coreThreads"));
+    assertEquals(100, lParsedPipelines.get(1).get("maxQueueDepth"));
+
+    // Target utilization must be a fraction.
+    try {
+      lAdvisor.setTargetUtilization(1);
+      fail("Invalid target utilization must be rejected.");
+    }
+    catch (IllegalArgumentException e) {
+      // Expected
+    }
+    for (Pipeline lNextPipeline : lPipelines.values()) {
+      lNextPipeline.shutdown(1, TimeUnit.SECONDS);
+    }
+  }
+
+  private Runnable createRecordingRunnable( final List<String> pExecutionOrder, final String pName ) {
+    return new Runnable() {
+      @Override
+      public void run( ) {
+        pExecutionOrder.add(pName);
+      }
+    };
+  }
+
+  private Thread getExecutingThread( Pipeline pPipeline ) throws InterruptedException {
+    final Thread[] lThreads = new Thread[1];
+    final CountDownLatch lLatch = new CountDownLatch(1);
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    pPipeline.execute(new RESTRequestTypeKey("api/v1/Threads", "GET"), lErrorHandler, new Runnable() {
+      @Override
+      public void run( ) {
+        lThreads[0] = Thread.currentThread();
+        lLatch.countDown();
+      }
+    });
+    assertTrue(lLatch.await(1, TimeUnit.SECONDS));
+    assertTrue(lErrorHandler.noExceptions);
+    return lThreads[0];
+  }
+
+  /**
+   * Handler for uncaught exceptions that is used to test the configuration of pipeline threads.
+   */
+  public static class RecordingExceptionHandler implements Thread.UncaughtExceptionHandler {
+    @Override
+    public void uncaughtException( Thread pThread, Throwable pThrowable ) {
+      XFun.getTrace().error("Uncaught exception in " + pThread.getName(), pThrowable);
+    }
   }
 }
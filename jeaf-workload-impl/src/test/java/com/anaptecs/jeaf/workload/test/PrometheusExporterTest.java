@@ -0,0 +1,136 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
+import com.anaptecs.jeaf.workload.api.rest.RESTRequestTypeKey;
+import com.anaptecs.jeaf.workload.impl.Pipeline;
+import com.anaptecs.jeaf.workload.impl.PrometheusExporter;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class PrometheusExporterTest {
+  @Test
+  @Order(10)
+  public void testPrometheusExporter( ) throws Exception {
+    Pipeline lFIFOPipeline =
+        new Pipeline(FIFOPipeline.class.getName(), FIFOPipeline.class.getAnnotation(PipelineConfig.class));
+    Pipeline lNoQueuingPipeline =
+        new Pipeline(NoQueuingPipeline.class.getName(), NoQueuingPipeline.class.getAnnotation(PipelineConfig.class));
+    List<Pipeline> lPipelines = Arrays.asList(lFIFOPipeline, lNoQueuingPipeline);
+
+    // Execute some requests.
+    RESTRequestTypeKey lRequestTypeKey = new RESTRequestTypeKey("api/v1/Prometheus", "GET");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    PipelineRunnable lRunnable = null;
+    for (int i = 0; i < 3; i++) {
+      lRunnable = new PipelineRunnable(5);
+      lFIFOPipeline.execute(lRequestTypeKey, lErrorHandler, lRunnable);
+    }
+    while (lRunnable.executed == false) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(50);
+
+    // Start exporter on any free port.
+    PrometheusExporter lExporter = new PrometheusExporter(lPipelines);
+    assertEquals(-1, lExporter.getPort());
+    lExporter.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    try {
+      assertTrue(lExporter.getPort() > 0);
+
+      // Scrape metrics.
+      HttpURLConnection lConnection = this.openConnection(lExporter, PrometheusExporter.METRICS_PATH);
+      assertEquals(200, lConnection.getResponseCode());
+      assertTrue(lConnection.getContentType().startsWith("text/plain; version=0.0.4"));
+      String lMetrics = this.read(lConnection.getInputStream());
+
+      // Check pipeline gauges.
+      String lFIFOLabel = "{pipeline=\"" + FIFOPipeline.class.getName() + "\"}";
+      String lNoQueuingLabel = "{pipeline=\"" + NoQueuingPipeline.class.getName() + "\"}";
+      assertTrue(lMetrics.contains("# TYPE jeaf_workload_queue_size gauge\n"), lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_queue_size" + lFIFOLabel + " 0\n"), lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_queue_size" + lNoQueuingLabel + " 0\n"), lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_completed_tasks_total" + lFIFOLabel + " 3\n"), lMetrics);
+      assertEquals(1, this.countOccurrences(lMetrics, "# TYPE jeaf_workload_queue_size "));
+
+      // Check request type counters and histograms.
+      String lLabels = "{pipeline=\"" + FIFOPipeline.class.getName() + "\",request_type=\"" + lRequestTypeKey.getKey();
+      assertTrue(lMetrics.contains("# TYPE jeaf_workload_requests_submitted_total counter\n"), lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_requests_submitted_total" + lLabels + "\"} 3\n"), lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_requests_executed_total" + lLabels + "\"} 3\n"), lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_requests_rejected_total" + lLabels + "\"} 0\n"), lMetrics);
+      assertTrue(lMetrics.contains("# TYPE jeaf_workload_service_time_seconds histogram\n"), lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_service_time_seconds_bucket" + lLabels + "\",le=\"0.001\"} 0\n"),
+          lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_service_time_seconds_bucket" + lLabels + "\",le=\"1\"} 3\n"),
+          lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_service_time_seconds_bucket" + lLabels + "\",le=\"+Inf\"} 3\n"),
+          lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_service_time_seconds_count" + lLabels + "\"} 3\n"), lMetrics);
+      assertTrue(lMetrics.contains("jeaf_workload_service_time_seconds_sum" + lLabels + "\"} 0.0"), lMetrics);
+      assertFalse(lMetrics.contains(NoQueuingPipeline.class.getName() + "\",request_type="), lMetrics);
+
+      // Rendering through the API returns the same metrics.
+      assertTrue(lExporter.render().contains("jeaf_workload_requests_executed_total" + lLabels + "\"} 3\n"));
+
+      // Other paths and methods are not supported.
+      lConnection = this.openConnection(lExporter, "/metricsXYZ");
+      assertEquals(404, lConnection.getResponseCode());
+      lConnection = this.openConnection(lExporter, PrometheusExporter.METRICS_PATH);
+      lConnection.setRequestMethod("DELETE");
+      assertEquals(405, lConnection.getResponseCode());
+    }
+    finally {
+      lExporter.stop();
+    }
+    assertEquals(-1, lExporter.getPort());
+  }
+
+  private HttpURLConnection openConnection( PrometheusExporter pExporter, String pPath ) throws Exception {
+    URL lURL = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), pExporter.getPort(), pPath);
+    return (HttpURLConnection) lURL.openConnection();
+  }
+
+  private String read( InputStream pInputStream ) throws Exception {
+    try (InputStream lInputStream = pInputStream) {
+      ByteArrayOutputStream lOutputStream = new ByteArrayOutputStream();
+      byte[] lBuffer = new byte[4096];
+      int lRead;
+      while ((lRead = lInputStream.read(lBuffer)) != -1) {
+        lOutputStream.write(lBuffer, 0, lRead);
+      }
+      return new String(lOutputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private int countOccurrences( String pText, String pPart ) {
+    int lCount = 0;
+    int lIndex = pText.indexOf(pPart);
+    while (lIndex >= 0) {
+      lCount++;
+      lIndex = pText.indexOf(pPart, lIndex + pPart.length());
+    }
+    return lCount;
+  }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2004 - 2021 anaptecs GmbH, Burgstr. 96, 72764 Reutlingen, Germany
+ *
+ * All rights reserved.
+ */
+package com.anaptecs.jeaf.workload.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
+import com.anaptecs.jeaf.workload.api.RequestTypeKey;
+import com.anaptecs.jeaf.workload.api.rest.RESTRequestType;
+import com.anaptecs.jeaf.workload.api.rest.RESTRequestTypeKey;
+import com.anaptecs.jeaf.workload.impl.PipelineInfo;
+import com.anaptecs.jeaf.workload.impl.RoutingIndex;
+import com.anaptecs.jeaf.workload.impl.WorkloadManagerImpl;
+import com.anaptecs.jeaf.workload.impl.processor.RoutingIndexProcessor;
+import com.anaptecs.jeaf.workload.impl.yaml.PipelineConfigImpl;
+import org.junit.jupiter.api.Test;
+
+public class RoutingIndexProcessorTest {
+  @Test
+  public void testRoutingIndexGeneration( ) throws Exception {
+    JavaCompiler lCompiler = ToolProvider.getSystemJavaCompiler();
+    assumeTrue(lCompiler != null, "Test requires a JDK.");
+
+    // Create configuration classes.
+    Path lBaseDir = Files.createTempDirectory("RoutingIndex");
+    Path lSourceDir = lBaseDir.resolve("src");
+    Path lClassesDir = lBaseDir.resolve("classes");
+    Files.createDirectories(lClassesDir);
+    List<String> lSourceFiles = new ArrayList<>();
+    lSourceFiles.add(this.writeSource(lSourceDir, "idx/IndexPipeline.java",
+        "package idx;\n" + "@com.anaptecs.jeaf.workload.annotations.PipelineConfig(name = \"Index \\\"Pipeline\\\"\", "
+            + "coreThreads = 2, maxThreads = 4, maxQueueDepth = 7, timeUnit = java.util.concurrent.TimeUnit.SECONDS)\n"
+            + "@com.anaptecs.jeaf.workload.impl.ExtendedPipelineConfig(timeSeriesSize = 10)\n"
+            + "public interface IndexPipeline {}\n"));
+    lSourceFiles.add(this.writeSource(lSourceDir, "idx/IndexWorkload.java",
+        "package idx;\n" + "import com.anaptecs.jeaf.workload.annotations.*;\n"
+            + "@StaticWorkloadConfig(workloadMapping = @WorkloadMapping(pipeline = IndexPipeline.class, "
+            + "endpoints = @EndpointsGroup(resources = @Resource(path = \"api/v1/index\", "
+            + "httpMethods = { HTTPMethod.GET, HTTPMethod.POST }), endpointURLs = \"api/v2/index\")))\n"
+            + "public interface IndexWorkload {}\n"));
+    lSourceFiles.add(this.writeSource(lSourceDir, "idx/excluded/ExcludedPipeline.java",
+        "package idx.excluded;\n"
+            + "@com.anaptecs.jeaf.workload.annotations.PipelineConfig(coreThreads = 1, defaultPipeline = true)\n"
+            + "public interface ExcludedPipeline {}\n"));
+    lSourceFiles.add(this.writeSource(lSourceDir, "idx/excluded/ReflectedPipeline.java",
+        "package idx.excluded;\n" + "@com.anaptecs.jeaf.workload.annotations.PipelineConfig(coreThreads = 3)\n"
+            + "public interface ReflectedPipeline {}\n"));
+    lSourceFiles.add(this.writeSource(lSourceDir, "idx/excluded/ReflectedWorkload.java",
+        "package idx.excluded;\n" + "import com.anaptecs.jeaf.workload.annotations.*;\n"
+            + "@StaticWorkloadConfig(workloadMapping = @WorkloadMapping(pipeline = ReflectedPipeline.class, "
+            + "endpoints = @EndpointsGroup(endpointURLs = \"api/v1/reflected\")))\n"
+            + "public interface ReflectedWorkload {}\n"));
+
+    // Compile them with routing index processor.
+    // Class path is resolved from the required classes as test runners do not always set "java.class.path".
+    String lClassPath = this.getLocation(RoutingIndexProcessor.class) + File.pathSeparator
+        + this.getLocation(PipelineConfig.class) + File.pathSeparator + this.getLocation(RequestTypeKey.class)
+        + File.pathSeparator + this.getLocation(RESTRequestTypeKey.class);
+    List<String> lArguments = new ArrayList<>(Arrays.asList("-classpath", lClassPath,
+        "-d", lClassesDir.toString(), "-s", lClassesDir.toString(), "-processor",
+        RoutingIndexProcessor.class.getName(), "-A" + RoutingIndexProcessor.CLASS_NAME_OPTION + "=idx.TestRoutingIndex",
+        "-A" + RoutingIndexProcessor.EXCLUDES_OPTION + "=idx.excluded.*"));
+    lArguments.addAll(lSourceFiles);
+    assertEquals(0, lCompiler.run(null, null, null, lArguments.toArray(new String[lArguments.size()])));
+    String lServiceFile = new String(
+        Files.readAllBytes(lClassesDir.resolve("META-INF/services/" + RoutingIndex.class.getName())),
+        StandardCharsets.UTF_8);
+    assertEquals("idx.TestRoutingIndex\n", lServiceFile);
+
+    // Load generated routing index.
+    ClassLoader lContextClassLoader = Thread.currentThread().getContextClassLoader();
+    try (URLClassLoader lClassLoader =
+        new URLClassLoader(new URL[] { lClassesDir.toUri().toURL() }, this.getClass().getClassLoader())) {
+      Iterator<RoutingIndex> lIterator = ServiceLoader.load(RoutingIndex.class, lClassLoader).iterator();
+      assertTrue(lIterator.hasNext());
+      RoutingIndex lRoutingIndex = lIterator.next();
+      assertFalse(lIterator.hasNext());
+      assertEquals("idx.TestRoutingIndex", lRoutingIndex.getClass().getName());
+
+      // Check pipelines. Excluded pipeline must not be part of the index.
+      List<PipelineConfigImpl> lPipelines = lRoutingIndex.getPipelines();
+      assertEquals(1, lPipelines.size());
+      PipelineConfigImpl lPipeline = lPipelines.get(0);
+      assertEquals("idx.IndexPipeline", lPipeline.getId());
+      assertEquals("Index \"Pipeline\"", lPipeline.getName());
+      assertEquals(2, lPipeline.getCoreThreads());
+      assertEquals(4, lPipeline.getMaxThreads());
+      assertEquals(7, lPipeline.getMaxQueueDepth());
+      assertEquals(TimeUnit.SECONDS, lPipeline.getTimeUnit());
+      assertEquals(10, lPipeline.getTimeSeriesSize());
+      assertEquals(50, lPipeline.getMaxBatchSize());
+      assertFalse(lPipeline.isDefaultPipeline());
+
+      // Check workload mappings.
+      Map<RequestTypeKey, String> lMappings = lRoutingIndex.getWorkloadMappings();
+      assertEquals(3, lMappings.size());
+      assertEquals("idx.IndexPipeline", lMappings.get(new RESTRequestTypeKey("api/v1/index", "GET")));
+      assertEquals("idx.IndexPipeline", lMappings.get(new RESTRequestTypeKey("api/v1/index", "POST")));
+      assertEquals("idx.IndexPipeline", lMappings.get(new RESTRequestTypeKey("api/v2/index", null)));
+
+      // Check covered configuration classes. Excluded classes are resolved through reflection.
+      assertEquals(new HashSet<>(Arrays.asList("idx.IndexPipeline", "idx.IndexWorkload")),
+          lRoutingIndex.getConfigurationClasses());
+
+      // Workload manager uses routing index. Configuration classes that are not covered by the index are still
+      // resolved through reflection.
+      Path lConfigDir = Files.createDirectories(lClassesDir.resolve("META-INF/JEAF/Workload"));
+      Files.write(lConfigDir.resolve("PipelineConfigs"),
+          "idx.IndexPipeline\nidx.excluded.ReflectedPipeline\n".getBytes(StandardCharsets.UTF_8));
+      Files.write(lConfigDir.resolve("StaticWorkloads"),
+          "idx.IndexWorkload\nidx.excluded.ReflectedWorkload\n".getBytes(StandardCharsets.UTF_8));
+      Thread.currentThread().setContextClassLoader(lClassLoader);
+      WorkloadManagerImpl lWorkloadManager = new WorkloadManagerImpl();
+      PipelineInfo lIndexPipelineInfo = null;
+      PipelineInfo lReflectedPipelineInfo = null;
+      for (PipelineInfo lNextInfo : lWorkloadManager.getPipelines()) {
+        if ("idx.IndexPipeline".equals(lNextInfo.getPipelineID())) {
+          lIndexPipelineInfo = lNextInfo;
+        }
+        else if ("idx.excluded.ReflectedPipeline".equals(lNextInfo.getPipelineID())) {
+          lReflectedPipelineInfo = lNextInfo;
+        }
+      }
+      assertNotNull(lIndexPipelineInfo);
+      assertEquals(2, lIndexPipelineInfo.getCorePoolSize());
+      assertNotNull(lReflectedPipelineInfo);
+      assertEquals(3, lReflectedPipelineInfo.getCorePoolSize());
+      Map<RequestTypeKey, PipelineInfo> lWorkloadMappings = lWorkloadManager.getWorkloadMappings();
+      for (RequestTypeKey lNextKey : lMappings.keySet()) {
+        assertEquals("idx.IndexPipeline", lWorkloadMappings.get(lNextKey).getPipelineID());
+      }
+
+      WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+      PipelineRunnable lRunnable = new PipelineRunnable(10);
+      lWorkloadManager.execute(new RESTRequestType("api/v2/index/123", "DELETE"), lErrorHandler, lRunnable);
+      Thread.sleep(100);
+      assertTrue(lErrorHandler.noExceptions);
+      assertTrue(lRunnable.executed);
+    }
+    finally {
+      Thread.currentThread().setContextClassLoader(lContextClassLoader);
+    }
+  }
+
+  private String getLocation( Class<?> pClass ) throws Exception {
+    return Paths.get(pClass.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+  }
+
+  private String writeSource( Path pSourceDir, String pFileName, String pContent ) throws Exception {
+    Path lFile = pSourceDir.resolve(pFileName.replace('/', File.separatorChar));
+    Files.createDirectories(lFile.getParent());
+    Files.write(lFile, pContent.getBytes(StandardCharsets.UTF_8));
+    return lFile.toString();
+  }
+}
@@ -6,10 +6,10 @@
 package com.anaptecs.jeaf.workload.test;
 
 import com.anaptecs.jeaf.workload.api.RequestTypeKey;
-import com.anaptecs.jeaf.workload.api.WorkloadErrorHandler;
+import com.anaptecs.jeaf.workload.impl.ExtendedWorkloadErrorHandler;
 import com.anaptecs.jeaf.xfun.api.XFun;
 
-class WorkloadErrorHandlerImpl implements WorkloadErrorHandler {
+class WorkloadErrorHandlerImpl implements ExtendedWorkloadErrorHandler {
   public RequestTypeKey requestTypeKey;
 
   public Exception exception;
@@ -18,6 +18,10 @@ class WorkloadErrorHandlerImpl implements WorkloadErrorHandler {
 
   public boolean maximumLatencyExceeded = false;
 
+  public boolean maximumExecutionTimeExceeded = false;
+
+  public boolean requestFailed = false;
+
   public boolean noExceptions = true;
 
   @Override
@@ -38,11 +42,31 @@ class WorkloadErrorHandlerImpl implements WorkloadErrorHandler {
     XFun.getTrace().error(pException.getMessage());
   }
 
+  @Override
+  public void maximumExecutionTimeExceeded( RequestTypeKey pRequestTypeKey, Exception pException ) {
+    requestTypeKey = pRequestTypeKey;
+    exception = pException;
+    maximumExecutionTimeExceeded = true;
+    noExceptions = false;
+    XFun.getTrace().error(pException.getMessage());
+  }
+
+  @Override
+  public void requestFailed( RequestTypeKey pRequestTypeKey, Exception pException ) {
+    requestTypeKey = pRequestTypeKey;
+    exception = pException;
+    requestFailed = true;
+    noExceptions = false;
+    XFun.getTrace().error(pException.getMessage());
+  }
+
   public void reset( ) {
     requestTypeKey = null;
     exception = null;
     requestRejected = false;
     maximumLatencyExceeded = false;
+    maximumExecutionTimeExceeded = false;
+    requestFailed = false;
     noExceptions = true;
   }
 }
\ No newline at end of file
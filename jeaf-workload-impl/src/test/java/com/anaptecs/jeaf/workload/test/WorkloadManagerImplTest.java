@@ -12,9 +12,18 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import com.anaptecs.jeaf.workload.api.RequestType;
 import com.anaptecs.jeaf.workload.api.RequestTypeKey;
@@ -240,6 +249,9 @@ public class WorkloadManagerImplTest {
       lWorkloadManager.execute(lRequestType, lErrorHandler, lRunnable);
       Thread.sleep(lExecutionTime * 2);
 
+      // Pipeline infos are snapshots so they have to be read again.
+      lDefaultPipeline = getPipelineInfo(lWorkloadManager, lDefaultPipeline.getPipelineID());
+      lMinimalPipeline = getPipelineInfo(lWorkloadManager, lMinimalPipeline.getPipelineID());
       assertTrue(lErrorHandler.noExceptions);
       assertTrue(lRunnable.executed);
       assertEquals(0, lDefaultPipeline.getCompletedTaskCount());
@@ -288,6 +300,8 @@ public class WorkloadManagerImplTest {
     Thread.sleep(lExecutionTime * 2);
 
     // Check execution result.
+    lPipeline1 = getPipelineInfo(lWorkloadManagerImpl, lPipeline1.getPipelineID());
+    lPipeline2 = getPipelineInfo(lWorkloadManagerImpl, lPipeline2.getPipelineID());
     assertTrue(lErrorHandler.noExceptions);
     assertTrue(lRunnable.executed);
     assertEquals(1, lPipeline1.getCompletedTaskCount());
@@ -300,6 +314,8 @@ public class WorkloadManagerImplTest {
     Thread.sleep(lExecutionTime * 2);
 
     // Check execution result.
+    lPipeline1 = getPipelineInfo(lWorkloadManagerImpl, lPipeline1.getPipelineID());
+    lPipeline2 = getPipelineInfo(lWorkloadManagerImpl, lPipeline2.getPipelineID());
     assertTrue(lErrorHandler.noExceptions);
     assertTrue(lRunnable.executed);
     assertEquals(2, lPipeline1.getCompletedTaskCount());
@@ -312,6 +328,8 @@ public class WorkloadManagerImplTest {
     Thread.sleep(lExecutionTime * 2);
 
     // Check execution result.
+    lPipeline1 = getPipelineInfo(lWorkloadManagerImpl, lPipeline1.getPipelineID());
+    lPipeline2 = getPipelineInfo(lWorkloadManagerImpl, lPipeline2.getPipelineID());
     assertTrue(lErrorHandler.noExceptions);
     assertTrue(lRunnable.executed);
     assertEquals(2, lPipeline1.getCompletedTaskCount());
@@ -329,6 +347,8 @@ public class WorkloadManagerImplTest {
     }
 
     // Check execution result.
+    lPipeline1 = getPipelineInfo(lWorkloadManagerImpl, lPipeline1.getPipelineID());
+    lPipeline2 = getPipelineInfo(lWorkloadManagerImpl, lPipeline2.getPipelineID());
     assertTrue(lErrorHandler.noExceptions);
     assertFalse(lRunnable.executed);
     assertEquals(2, lPipeline1.getCompletedTaskCount());
@@ -364,6 +384,9 @@ public class WorkloadManagerImplTest {
     Thread.sleep(lExecutionTime * 2);
 
     // Check status of pipelines.
+    lPipeline1 = getPipelineInfo(lWorkloadManagerImpl, lPipeline1.getPipelineID());
+    lPipeline2 = getPipelineInfo(lWorkloadManagerImpl, lPipeline2.getPipelineID());
+    lDefaultPipeline = getPipelineInfo(lWorkloadManagerImpl, lDefaultPipeline.getPipelineID());
     assertEquals(0, lPipeline1.getCompletedTaskCount());
     assertEquals(0, lPipeline2.getCompletedTaskCount());
     assertEquals(1, lDefaultPipeline.getCompletedTaskCount());
@@ -376,6 +399,9 @@ public class WorkloadManagerImplTest {
     Thread.sleep(lExecutionTime * 2);
 
     // Check status of pipelines.
+    lPipeline1 = getPipelineInfo(lWorkloadManagerImpl, lPipeline1.getPipelineID());
+    lPipeline2 = getPipelineInfo(lWorkloadManagerImpl, lPipeline2.getPipelineID());
+    lDefaultPipeline = getPipelineInfo(lWorkloadManagerImpl, lDefaultPipeline.getPipelineID());
     assertEquals(0, lPipeline1.getCompletedTaskCount());
     assertEquals(0, lPipeline2.getCompletedTaskCount());
     assertEquals(2, lDefaultPipeline.getCompletedTaskCount());
@@ -389,6 +415,9 @@ public class WorkloadManagerImplTest {
     Thread.sleep(lExecutionTime * 2);
 
     // Check execution result.
+    lPipeline1 = getPipelineInfo(lWorkloadManagerImpl, lPipeline1.getPipelineID());
+    lPipeline2 = getPipelineInfo(lWorkloadManagerImpl, lPipeline2.getPipelineID());
+    lDefaultPipeline = getPipelineInfo(lWorkloadManagerImpl, lDefaultPipeline.getPipelineID());
     assertTrue(lErrorHandler.noExceptions);
     assertTrue(lRunnable.executed);
     assertEquals(0, lPipeline1.getCompletedTaskCount());
@@ -400,6 +429,9 @@ public class WorkloadManagerImplTest {
     Thread.sleep(lExecutionTime * 2);
 
     // Check execution result.
+    lPipeline1 = getPipelineInfo(lWorkloadManagerImpl, lPipeline1.getPipelineID());
+    lPipeline2 = getPipelineInfo(lWorkloadManagerImpl, lPipeline2.getPipelineID());
+    lDefaultPipeline = getPipelineInfo(lWorkloadManagerImpl, lDefaultPipeline.getPipelineID());
     assertTrue(lErrorHandler.noExceptions);
     assertTrue(lRunnable.executed);
     assertEquals(0, lPipeline1.getCompletedTaskCount());
@@ -407,4 +439,157 @@ public class WorkloadManagerImplTest {
     assertEquals(2, lDefaultPipeline.getCompletedTaskCount());
   }
 
+  @Test
+  @Order(40)
+  public void testReloadOfYAMLConfiguration( ) throws Exception {
+    Path lYAMLFile = Files.createTempFile("PipelineConfiguration", ".yaml");
+    try {
+      // Create workload manager from a copy of the test configuration that is watched for changes.
+      String lConfig = new String(Files.readAllBytes(Paths.get("./src/test/resources/PipelineConfiguration.yaml")),
+          StandardCharsets.UTF_8);
+      Files.write(lYAMLFile, lConfig.getBytes(StandardCharsets.UTF_8));
+      System.setProperty(WorkloadManagerImpl.YAML_CONFIG_PROPERTY_NAME, lYAMLFile.toString());
+      System.setProperty(WorkloadManagerImpl.YAML_WATCH_INTERVAL_PROPERTY_NAME, "50");
+      WorkloadManagerImpl lWorkloadManager = new WorkloadManagerImpl(null, null, null);
+      assertEquals(5, getPipelineInfo(lWorkloadManager, "Pipeline1").getCorePoolSize());
+      assertNotNull(getPipelineInfo(lWorkloadManager, "MinimalPipeline"));
+
+      WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+      PipelineRunnable lRunnable = new PipelineRunnable(10);
+      lWorkloadManager.execute(new RESTRequestType("api/v4/resource", "POST"), lErrorHandler, lRunnable);
+      Thread.sleep(100);
+      assertTrue(lRunnable.executed);
+      assertEquals(1, getPipelineInfo(lWorkloadManager, "Pipeline1").getCompletedTaskCount());
+
+      // Resize Pipeline1, remove MinimalPipeline and add a new pipeline.
+      String lNewPipeline = "-   id: NewPipeline\n    coreThreads: 2\n    genericKeys: []\n    restKeys:\n"
+          + "    -   endpointURL: api/v5\n";
+      String lChangedConfig = lConfig.substring(0, lConfig.indexOf("# Pipeline for Fahrplan")).replace("coreThreads: 5",
+          "coreThreads: 8") + lNewPipeline;
+      Files.write(lYAMLFile, lChangedConfig.getBytes(StandardCharsets.UTF_8));
+      lWorkloadManager.reloadYAMLConfiguration();
+
+      // Pipeline1 was resized in place so its statistics are still available.
+      PipelineInfo lPipeline1 = getPipelineInfo(lWorkloadManager, "Pipeline1");
+      assertEquals(8, lPipeline1.getCorePoolSize());
+      assertEquals(10, lPipeline1.getMaximumPoolSize());
+      assertEquals(1, lPipeline1.getCompletedTaskCount());
+      assertEquals("Pipeline1", lWorkloadManager.getDefaultPipeline().getPipelineID());
+      assertEquals(2, lWorkloadManager.getPipelines().size());
+      assertNull(getPipelineInfo(lWorkloadManager, "MinimalPipeline"));
+
+      // Requests are routed to the new pipeline.
+      lRunnable = new PipelineRunnable(10);
+      lWorkloadManager.execute(new RESTRequestType("api/v5/xyz", "GET"), lErrorHandler, lRunnable);
+      Thread.sleep(100);
+      assertTrue(lErrorHandler.noExceptions);
+      assertTrue(lRunnable.executed);
+      assertEquals(1, getPipelineInfo(lWorkloadManager, "NewPipeline").getCompletedTaskCount());
+
+      // Invalid configuration is rejected as a whole and the current configuration remains active.
+      Files.write(lYAMLFile, (lChangedConfig.replace("coreThreads: 8", "coreThreads: 9") + lNewPipeline)
+          .getBytes(StandardCharsets.UTF_8));
+      try {
+        lWorkloadManager.reloadYAMLConfiguration();
+        fail("Invalid configuration must be rejected.");
+      }
+      catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().contains("NewPipeline"));
+      }
+      assertEquals(8, getPipelineInfo(lWorkloadManager, "Pipeline1").getCorePoolSize());
+      assertEquals(2, lWorkloadManager.getPipelines().size());
+
+      // Changes of the file are detected automatically.
+      Files.write(lYAMLFile, lChangedConfig.replace("coreThreads: 8", "coreThreads: 12")
+          .getBytes(StandardCharsets.UTF_8));
+      long lEnd = System.currentTimeMillis() + 5000;
+      while (getPipelineInfo(lWorkloadManager, "Pipeline1").getCorePoolSize() != 12
+          && System.currentTimeMillis() < lEnd) {
+        Thread.sleep(20);
+      }
+      assertEquals(12, getPipelineInfo(lWorkloadManager, "Pipeline1").getCorePoolSize());
+      assertEquals(12, getPipelineInfo(lWorkloadManager, "Pipeline1").getMaximumPoolSize());
+    }
+    finally {
+      System.getProperties().remove(WorkloadManagerImpl.YAML_CONFIG_PROPERTY_NAME);
+      System.getProperties().remove(WorkloadManagerImpl.YAML_WATCH_INTERVAL_PROPERTY_NAME);
+      Files.deleteIfExists(lYAMLFile);
+    }
+  }
+
+  @Test
+  @Order(50)
+  public void testShutdown( ) throws Exception {
+    List<Class<?>> lPipelineClasses = new ArrayList<>();
+    lPipelineClasses.add(Pipeline1.class);
+    lPipelineClasses.add(Pipeline2.class);
+    List<Class<?>> lWorkloadMappingClasses = new ArrayList<>();
+    lWorkloadMappingClasses.add(WorkloadMapping1.class);
+
+    // MBeans of workload managers from previous tests are removed so that the new one can register its own.
+    ObjectName lObjectName =
+        new ObjectName("com.anaptecs.jeaf.workload:type=Pipelines, name=" + Pipeline1.class.getName());
+    MBeanServer lMBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName lStatisticsName =
+        new ObjectName("com.anaptecs.jeaf.workload:type=PipelineStatistics, name=" + Pipeline1.class.getName());
+    for (ObjectName lNextName : new ObjectName[] { lObjectName, lStatisticsName }) {
+      if (lMBeanServer.isRegistered(lNextName)) {
+        lMBeanServer.unregisterMBean(lNextName);
+      }
+    }
+    WorkloadManagerImpl lWorkloadManager = new WorkloadManagerImpl(lPipelineClasses, lWorkloadMappingClasses, null);
+    assertTrue(lMBeanServer.isRegistered(lObjectName));
+
+    // Paused pipeline does not execute requests until it is resumed.
+    RequestType lRequestType = new RESTRequestType("api/v1/xyz", "POST");
+    WorkloadErrorHandlerImpl lErrorHandler = new WorkloadErrorHandlerImpl();
+    PipelineRunnable lRunnable = new PipelineRunnable(10);
+    lWorkloadManager.pausePipeline(Pipeline1.class.getName());
+    lWorkloadManager.execute(lRequestType, lErrorHandler, lRunnable);
+    Thread.sleep(50);
+    assertFalse(lRunnable.executed);
+    lWorkloadManager.resumePipeline(Pipeline1.class.getName());
+    Thread.sleep(50);
+    assertTrue(lRunnable.executed);
+    assertTrue(lErrorHandler.noExceptions);
+    try {
+      lWorkloadManager.pausePipeline("UnknownPipeline");
+      fail("Unknown pipeline must be rejected.");
+    }
+    catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage().contains("UnknownPipeline"));
+    }
+
+    // Drained workload manager shuts down in time and rejects further requests.
+    assertFalse(lWorkloadManager.isShutdown());
+    assertTrue(lWorkloadManager.shutdown(1, TimeUnit.SECONDS));
+    assertTrue(lWorkloadManager.isShutdown());
+    assertFalse(lMBeanServer.isRegistered(lObjectName));
+    assertFalse(lMBeanServer.isRegistered(lStatisticsName));
+    lRunnable = new PipelineRunnable(10);
+    lWorkloadManager.execute(lRequestType, lErrorHandler, lRunnable);
+    Thread.sleep(50);
+    assertFalse(lRunnable.executed);
+    assertTrue(lErrorHandler.requestRejected);
+
+    // Further calls have no effect.
+    assertTrue(lWorkloadManager.shutdown(1, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Method returns a current snapshot of the pipeline with the passed ID.
+   * 
+   * @param pWorkloadManager Workload manager to which the pipeline belongs.
+   * @param pPipelineID ID of the pipeline.
+   * @return {@link PipelineInfo} Snapshot of the pipeline or null if there is no pipeline with the passed ID.
+   */
+  private static PipelineInfo getPipelineInfo( WorkloadManagerImpl pWorkloadManager, String pPipelineID ) {
+    PipelineInfo lPipelineInfo = null;
+    for (PipelineInfo lNextPipeline : pWorkloadManager.getPipelines()) {
+      if (lNextPipeline.getPipelineID().equals(pPipelineID)) {
+        lPipelineInfo = lNextPipeline;
+      }
+    }
+    return lPipelineInfo;
+  }
 }
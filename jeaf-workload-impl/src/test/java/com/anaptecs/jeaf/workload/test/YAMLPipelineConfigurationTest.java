@@ -8,13 +8,16 @@ package com.anaptecs.jeaf.workload.test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import com.anaptecs.jeaf.workload.annotations.PipelineConfig;
 import com.anaptecs.jeaf.workload.annotations.QueueType;
 import com.anaptecs.jeaf.workload.api.RequestTypeKey;
 import com.anaptecs.jeaf.workload.api.WorkloadMessages;
+import com.anaptecs.jeaf.workload.impl.RequestTypeSettings;
 import com.anaptecs.jeaf.workload.impl.yaml.GenericRequestTypeKey;
 import com.anaptecs.jeaf.workload.impl.yaml.PipelineConfigImpl;
 import com.anaptecs.jeaf.workload.impl.yaml.PipelineConfiguration;
@@ -68,6 +71,8 @@ public class YAMLPipelineConfigurationTest {
     assertEquals(1, lRESTKeys.size());
     assertEquals("api/v4/resource", lRESTKeys.get(0).getEndpointURL());
     assertEquals("POST", lRESTKeys.get(0).getHttpMethod());
+    assertEquals(1000000000, lRESTKeys.get(0).getMaxExecutionTime());
+    assertEquals(-1, lGenericKey.getMaxExecutionTime());
 
     List<RequestTypeKey> lAllKeys = lPipeline.getRequestTypeKeys();
     assertEquals(2, lAllKeys.size());
@@ -87,6 +92,32 @@ public class YAMLPipelineConfigurationTest {
     assertEquals(37, lPipelineConfig.maxQueueDepth());
     assertEquals(5000000, lPipelineConfig.maxLatency());
     assertEquals(TimeUnit.NANOSECONDS, lPipelineConfig.timeUnit());
+
+    // Check extended configuration.
+    assertEquals(2000000000, lPipeline.getMaxExecutionTime());
+    assertEquals(2000000000, lPipeline.getExtendedPipelineConfig().maxExecutionTime());
+    assertEquals(20, lPipeline.getExtendedPipelineConfig().maxBatchSize());
+    assertEquals(5, lPipeline.getExtendedPipelineConfig().maxBatchLinger());
+    assertEquals(10, lPipeline.getExtendedPipelineConfig().resourceSamplingInterval());
+    assertEquals(1500000000, lPipeline.getExtendedPipelineConfig().slowRequestThreshold());
+    assertEquals(2000000000, lPipeline.getExtendedPipelineConfig().slowRequestReportInterval());
+    assertEquals(300, lPipeline.getExtendedPipelineConfig().timeSeriesSize());
+    assertEquals(true, lPipeline.getExtendedPipelineConfig().prestartCoreThreads());
+    assertEquals(100000000, lPipeline.getExtendedPipelineConfig().warmUpTime());
+    assertEquals(true, lPipeline.getExtendedPipelineConfig().daemonThreads());
+    assertEquals(524288, lPipeline.getExtendedPipelineConfig().threadStackSize());
+    assertEquals(UncaughtExceptionHandler.class, lPipeline.getExtendedPipelineConfig().uncaughtExceptionHandler());
+    assertEquals(250000000, lPipeline.getExtendedPipelineConfig().admissionPermitTimeout());
+    Map<RequestTypeKey, RequestTypeSettings> lSettings = lPipeline.getRequestTypeSettings();
+    assertEquals(2, lSettings.size());
+    RequestTypeSettings lKeySettings = lSettings.get(lAllKeys.get(0));
+    assertEquals(2000000000, lKeySettings.getMaxNanoExecutionTime());
+    assertEquals(-1, lKeySettings.getMaxNanoLatency());
+    assertEquals(5, lKeySettings.getPriority());
+    lKeySettings = lSettings.get(lAllKeys.get(1));
+    assertEquals(1000000000, lKeySettings.getMaxNanoExecutionTime());
+    assertEquals(3000000, lKeySettings.getMaxNanoLatency());
+    assertEquals(RequestTypeSettings.NORMAL_PRIORITY, lKeySettings.getPriority());
   }
 
   @Test
@@ -140,7 +171,19 @@ public class YAMLPipelineConfigurationTest {
     assertEquals(50, lPipelineConfig.maxQueueDepth());
     assertEquals(-1, lPipelineConfig.maxLatency());
     assertEquals(TimeUnit.MILLISECONDS, lPipelineConfig.timeUnit());
-
+    assertEquals(-1, lMinimalPipeline.getExtendedPipelineConfig().maxExecutionTime());
+    assertEquals(50, lMinimalPipeline.getExtendedPipelineConfig().maxBatchSize());
+    assertEquals(0, lMinimalPipeline.getExtendedPipelineConfig().maxBatchLinger());
+    assertEquals(0, lMinimalPipeline.getExtendedPipelineConfig().resourceSamplingInterval());
+    assertEquals(-1, lMinimalPipeline.getExtendedPipelineConfig().slowRequestThreshold());
+    assertEquals(-1, lMinimalPipeline.getExtendedPipelineConfig().slowRequestReportInterval());
+    assertEquals(0, lMinimalPipeline.getExtendedPipelineConfig().timeSeriesSize());
+    assertEquals(false, lMinimalPipeline.getExtendedPipelineConfig().prestartCoreThreads());
+    assertEquals(-1, lMinimalPipeline.getExtendedPipelineConfig().warmUpTime());
+    assertEquals(false, lMinimalPipeline.getExtendedPipelineConfig().daemonThreads());
+    assertEquals(0, lMinimalPipeline.getExtendedPipelineConfig().threadStackSize());
+    assertEquals(1000, lMinimalPipeline.getExtendedPipelineConfig().admissionPermitTimeout());
+    assertTrue(lMinimalPipeline.getRequestTypeSettings().isEmpty());
   }
 
   @Test